@@ -0,0 +1,138 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import java.io.InputStream;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.config.ConfigurationManager;
+import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.diagram.AbstractGraphicDevice;
+import net.sf.sdedit.diagram.DiagramDataProvider;
+import net.sf.sdedit.diagram.DiagramDataProviderFactory;
+import net.sf.sdedit.diagram.GraphicDevice;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.editor.DiagramFileHandler;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.text.TextHandler;
+import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.util.Pair;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The common state of the benchmarks that work on a diagram: the source text
+ * and the configuration of a bundled example diagram, or of a
+ * {@linkplain SyntheticDiagram}. The <tt>diagram</tt> parameter is either the
+ * name of an example (like <tt>webserver.sdx</tt>) or
+ * <tt>synthetic-&lt;lifelines&gt;-&lt;messages&gt;-&lt;depth&gt;-&lt;threads&gt;</tt>.
+ * 
+ * @author Markus Strauch
+ */
+@State(Scope.Benchmark)
+public abstract class DiagramBenchmark {
+
+	private static final String EXAMPLES = "/net/sf/sdedit/examples/";
+
+	private static final String SYNTHETIC = "synthetic-";
+
+	static {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Param({ "webserver.sdx", "levels.sdx", "async.sdx",
+			"synthetic-11-500-4-1", "synthetic-21-1000-8-4" })
+	public String diagram;
+
+	protected String text;
+
+	protected SequenceConfiguration configuration;
+
+	@Setup(Level.Trial)
+	public void loadDiagram() throws Exception {
+		if (diagram.startsWith(SYNTHETIC)) {
+			String[] size = diagram.substring(SYNTHETIC.length()).split("-");
+			int threads = Integer.parseInt(size[3]);
+			text = SyntheticDiagram.create(Integer.parseInt(size[0]),
+					Integer.parseInt(size[1]), Integer.parseInt(size[2]),
+					threads);
+			configuration = ConfigurationManager.createNewDefaultConfiguration(
+					SequenceConfiguration.class).getDataObject();
+			configuration.setThreaded(threads > 1);
+		} else {
+			InputStream stream = DiagramBenchmark.class
+					.getResourceAsStream(EXAMPLES + diagram);
+			if (stream == null) {
+				throw new IllegalArgumentException("no such example: "
+						+ diagram);
+			}
+			Pair<String, Bean<? extends Configuration>> pair;
+			try {
+				pair = new DiagramFileHandler().load(stream, "utf-8");
+			} finally {
+				stream.close();
+			}
+			text = pair.getFirst();
+			configuration = pair.getSecond().getDataObject()
+					.cast(SequenceConfiguration.class);
+		}
+	}
+
+	/**
+	 * Generates the diagram from its source text, which is parsed again.
+	 * 
+	 * @param graphicDevice
+	 *            the graphic device of the diagram
+	 * @return the paint device holding the diagram's drawables
+	 * @throws DiagramError
+	 *             if the diagram cannot be generated
+	 */
+	protected SDPaintDevice generate(GraphicDevice graphicDevice)
+			throws DiagramError {
+		SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
+		new SequenceDiagramFactory(new DiagramDataProviderFactory() {
+			public DiagramDataProvider createProvider() {
+				return new TextHandler(text);
+			}
+		}, paintDevice).generateDiagram(configuration);
+		return paintDevice;
+	}
+
+	/**
+	 * Returns a graphic device that only provides the font, for generating
+	 * diagrams that are not drawn.
+	 * 
+	 * @return a graphic device that only provides the font
+	 */
+	protected static GraphicDevice layoutDevice() {
+		return new AbstractGraphicDevice() {
+			/* empty */
+		};
+	}
+}
@@ -0,0 +1,60 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import java.io.IOException;
+
+import net.sf.sdedit.server.Exporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Measures exporting a generated diagram in each of the export formats. An
+ * {@linkplain Exporter} exports a diagram once, so the diagram is generated
+ * again, without being measured, before each export.
+ * 
+ * @author Markus Strauch
+ */
+public class ExportBenchmark extends DiagramBenchmark {
+
+	@Param({ "png", "gif", "jpg", "bmp", "pdf", "ps", "eps", "emf", "svg" })
+	public String type;
+
+	private Exporter exporter;
+
+	@Setup(Level.Invocation)
+	public void generateDiagram() throws Exception {
+		exporter = Exporter.getExporter(type, "Portrait", "A4",
+				ImageBenchmark.NullOutputStream.INSTANCE);
+		generate(exporter);
+	}
+
+	@Benchmark
+	public void export() throws IOException {
+		exporter.export();
+	}
+}
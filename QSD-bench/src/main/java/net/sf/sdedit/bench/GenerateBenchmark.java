@@ -0,0 +1,66 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import net.sf.sdedit.diagram.DiagramDataProvider;
+import net.sf.sdedit.diagram.DiagramDataProviderFactory;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.text.ParsedDiagram;
+import net.sf.sdedit.text.TextHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Measures generating a diagram, that is reading, processing and laying out
+ * its objects and messages, without drawing it.
+ * 
+ * @author Markus Strauch
+ */
+public class GenerateBenchmark extends DiagramBenchmark {
+
+	/**
+	 * Generates the diagram, parsing its source text.
+	 */
+	@Benchmark
+	public SDPaintDevice generate() throws DiagramError {
+		return generate(layoutDevice());
+	}
+
+	/**
+	 * Generates the diagram from the text that has been parsed before, as the
+	 * editor does when the diagram is generated again.
+	 */
+	@Benchmark
+	public SDPaintDevice generateParsed() throws DiagramError {
+		SDPaintDevice paintDevice = new SDPaintDevice(layoutDevice());
+		new SequenceDiagramFactory(new DiagramDataProviderFactory() {
+			public DiagramDataProvider createProvider() {
+				return new TextHandler(ParsedDiagram.of(text));
+			}
+		}, paintDevice).generateDiagram(configuration);
+		return paintDevice;
+	}
+}
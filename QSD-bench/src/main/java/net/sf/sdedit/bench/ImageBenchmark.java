@@ -0,0 +1,80 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Measures drawing a generated diagram into an image and writing it as a PNG
+ * file, drawn as a whole and drawn in bands.
+ * 
+ * @author Markus Strauch
+ */
+public class ImageBenchmark extends DiagramBenchmark {
+
+	private ImageGraphicsDevice graphicDevice;
+
+	private ImageGraphicsDevice bandedGraphicDevice;
+
+	@Setup(Level.Trial)
+	public void generateDiagram() throws Exception {
+		graphicDevice = new ImageGraphicsDevice();
+		generate(graphicDevice);
+		bandedGraphicDevice = new ImageGraphicsDevice(true,
+				ImageGraphicsDevice.DEFAULT_BAND_HEIGHT);
+		generate(bandedGraphicDevice);
+	}
+
+	@Benchmark
+	public void writePNG() throws IOException {
+		graphicDevice.writeToStream("png", NullOutputStream.INSTANCE);
+	}
+
+	@Benchmark
+	public void writePNGBanded() throws IOException {
+		bandedGraphicDevice.writeToStream("png", NullOutputStream.INSTANCE);
+	}
+
+	static final class NullOutputStream extends OutputStream {
+
+		static final NullOutputStream INSTANCE = new NullOutputStream();
+
+		@Override
+		public void write(int b) {
+			/* empty */
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			/* empty */
+		}
+	}
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import java.awt.Font;
+
+import net.sf.sdedit.drawable.LabelLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the measurement of labels of drawables, which is done by means of
+ * {@linkplain LabelLayout}s, for a label that has been measured before and
+ * for labels that have not.
+ * 
+ * @author Markus Strauch
+ */
+@State(Scope.Thread)
+public class LabelBenchmark {
+
+	/*
+	 * More labels than layouts are cached, so cycling through them never
+	 * finds a cached layout
+	 */
+	private static final int LABELS = 16384;
+
+	static {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	private Font font;
+
+	private String[][] labels;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void createLabels() {
+		font = new Font(Font.DIALOG, Font.PLAIN, 12);
+		labels = new String[LABELS][];
+		for (int i = 0; i < LABELS; i++) {
+			labels[i] = new String[] { "message" + i + "(argument)",
+					"second line " + i };
+		}
+	}
+
+	@Benchmark
+	public int measureCached() {
+		return LabelLayout.getLayout(font, false, false, false, labels[0])
+				.getWidth();
+	}
+
+	@Benchmark
+	public int measureUncached() {
+		next = (next + 1) % LABELS;
+		return LabelLayout.getLayout(font, false, false, false, labels[next])
+				.getWidth();
+	}
+}
@@ -0,0 +1,59 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Measures laying out a generated diagram again, that is computing the axes
+ * of the lifelines and the bounds of the diagram.
+ * 
+ * @author Markus Strauch
+ */
+public class LayoutBenchmark extends DiagramBenchmark {
+
+	private SDPaintDevice paintDevice;
+
+	private int leftAxis;
+
+	@Setup(Level.Trial)
+	public void generateDiagram() throws Exception {
+		paintDevice = generate(layoutDevice());
+		SequenceDiagram sequenceDiagram = paintDevice.getDiagram();
+		leftAxis = configuration.getLeftMargin() + 6
+				+ sequenceDiagram.getLifelineAt(0).getHead().getWidth() / 2;
+	}
+
+	@Benchmark
+	public int layout() {
+		paintDevice.callSpecial("computeAxes", leftAxis);
+		paintDevice.computeBounds();
+		return paintDevice.getWidth();
+	}
+}
@@ -0,0 +1,64 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+import net.sf.sdedit.error.SyntaxError;
+import net.sf.sdedit.text.TextHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing the messages of a diagram by a {@linkplain TextHandler},
+ * without processing them. Object declarations and notes are skipped, as
+ * they cannot be read without a diagram to add lifelines to.
+ * 
+ * @author Markus Strauch
+ */
+public class ParseBenchmark extends DiagramBenchmark {
+
+	@Benchmark
+	public void parse(Blackhole blackhole) {
+		TextHandler handler = new TextHandler(text);
+		while (handler.advance()) {
+			/* skip the object declarations */
+		}
+		boolean note = false;
+		while (handler.advance()) {
+			String line = handler.getCurrentLine();
+			if (line.startsWith("*") || line.startsWith("+")) {
+				// a note begins or ends
+				note = !note;
+			} else if (!note && handler.openFragment() == null
+					&& handler.getFragmentSeparator() == null
+					&& !handler.closeFragment() && !line.startsWith("(")) {
+				try {
+					blackhole.consume(handler.nextMessage());
+				} catch (SyntaxError e) {
+					blackhole.consume(e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.bench;
+
+/**
+ * Creates the source text of synthetic sequence diagrams of a given size and
+ * shape, for benchmarking.
+ * <p>
+ * The first lifeline is an actor, the others are split into one group per
+ * thread. The actor starts each thread by a message to the first lifeline of
+ * the thread's group (in a multithreaded diagram, messages sent by actors
+ * spawn new threads). Then the messages are sent round-robin on all threads.
+ * On each thread, a message is sent from the lifeline that received the
+ * previous one to the next lifeline of the group, until the nesting depth is
+ * reached and the next message is sent by the thread's first lifeline again.
+ * When the depth exceeds the size of a group, messages are sent to lifelines
+ * that are already active.
+ * 
+ * @author Markus Strauch
+ */
+public final class SyntheticDiagram {
+
+	private SyntheticDiagram() {
+		/* empty */
+	}
+
+	/**
+	 * Returns the source text of a synthetic diagram.
+	 * 
+	 * @param lifelines
+	 *            the number of lifelines, at least two per thread and the
+	 *            actor
+	 * @param messages
+	 *            the number of messages, not counting the messages starting
+	 *            threads
+	 * @param depth
+	 *            the maximal nesting depth of messages, at least 1
+	 * @param threads
+	 *            the number of threads, if more than 1, the diagram must be
+	 *            generated with a configuration that has multithreading
+	 *            enabled
+	 * @return the source text of a synthetic diagram
+	 */
+	public static String create(int lifelines, int messages, int depth,
+			int threads) {
+		if (threads < 1 || depth < 1 || lifelines < 2 * threads + 1) {
+			throw new IllegalArgumentException(
+					"need at least one thread, a depth of 1, and two lifelines per thread besides the actor");
+		}
+		StringBuilder text = new StringBuilder();
+		text.append("o0:Actor\n");
+		for (int i = 1; i < lifelines; i++) {
+			text.append('o').append(i).append(":Class").append(i)
+					.append('\n');
+		}
+		text.append('\n');
+		int groupSize = (lifelines - 1) / threads;
+		for (int t = 0; t < threads; t++) {
+			text.append("o0:o").append(1 + t * groupSize).append(".run()\n");
+		}
+		int[] level = new int[threads];
+		for (int i = 0; i < messages; i++) {
+			int t = i % threads;
+			int first = 1 + t * groupSize;
+			int caller = level[t] == 0 ? first : first + 1
+					+ (level[t] - 1) % (groupSize - 1);
+			int callee = first + 1 + level[t] % (groupSize - 1);
+			text.append('o').append(caller).append(":o").append(callee)
+					.append(".m").append(i).append("()\n");
+			level[t] = (level[t] + 1) % depth;
+		}
+		return text.toString();
+	}
+}
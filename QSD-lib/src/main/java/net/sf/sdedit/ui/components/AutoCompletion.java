@@ -31,7 +31,11 @@ import java.util.List;
 
 import javax.swing.JTextPane;
 import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.JTextComponent;
+import javax.swing.text.Segment;
 
 /**
  * An <tt>AutoCompletion</tt> object can be added to a <tt>JTextPane</tt> as
@@ -90,9 +94,7 @@ public class AutoCompletion extends KeyAdapter {
 	 * Creates a new <tt>AutoCompletion</tt>.
 	 * 
 	 * @param textPane
-	 *            the JTextPane in which text should be substituted NOTE: its
-	 *            <tt>getText()</tt> method must return a string with a single
-	 *            '\n' as end-of-line character
+	 *            the JTextPane in which text should be substituted
 	 * @param provider
 	 *            for providing suggestions of what could be substituted
 	 * @param delimiters
@@ -127,19 +129,39 @@ public class AutoCompletion extends KeyAdapter {
 			e.isControlDown();
 	}
 
+	/*
+	 * Only the current line is read, as a line break is a limit for the
+	 * prefix anyway.
+	 */
 	private String findPrefix() {
-		StringBuffer prefix = new StringBuffer();
-		int pos = textArea.getCaretPosition() - 1;
-		wordEnd = pos + 1;
-		String text = textArea.getText();
-		char c;
-		while (pos >= 0 && !isLimit((c = text.charAt(pos)))) {
-			prefix.insert(0, c);
+		int caret = textArea.getCaretPosition();
+		wordEnd = caret;
+		Document document = textArea.getDocument();
+		Element root = document.getDefaultRootElement();
+		int lineBegin = root.getElement(root.getElementIndex(caret))
+				.getStartOffset();
+		String line;
+		try {
+			line = document.getText(lineBegin, caret - lineBegin);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		int pos = line.length() - 1;
+		while (pos >= 0 && !isLimit(line.charAt(pos))) {
 			pos--;
 		}
-		wordBegin = pos + 1;
-		String pref = prefix.toString().trim();
-		return pref;
+		wordBegin = lineBegin + pos + 1;
+		return line.substring(pos + 1).trim();
+	}
+
+	private char charAt(Document document, int offset) {
+		Segment segment = new Segment();
+		try {
+			document.getText(offset, 1, segment);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		return segment.first();
 	}
 
 	private boolean tabPressed() {
@@ -189,10 +211,11 @@ public class AutoCompletion extends KeyAdapter {
 	 */
 	public void keyPressed(KeyEvent e) {
 		if (isTrigger(e)) {
-			String text = textArea.getText();
+			Document document = textArea.getDocument();
+			int length = document.getLength();
 			int i = textArea.getCaretPosition();
-			if (text.length() > 0 && !Character.isWhitespace(text.charAt(i - 1))
-					&& (i == text.length() || isLimit(text.charAt(i)))) {
+			if (i > 0 && !Character.isWhitespace(charAt(document, i - 1))
+					&& (i == length || isLimit(charAt(document, i)))) {
 				if (tabPressed()) {
 					e.consume();
 				}
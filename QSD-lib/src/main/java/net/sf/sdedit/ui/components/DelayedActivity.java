@@ -21,9 +21,13 @@
 // CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
 // ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
 // THE POSSIBILITY OF SUCH DAMAGE.
-
 package net.sf.sdedit.ui.components;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
 import javax.swing.SwingUtilities;
 
 /**
@@ -33,59 +37,170 @@ import javax.swing.SwingUtilities;
  * performed is given by {@linkplain #perform()}. In order to indicate that the
  * certain event has occurred, some caller must invoke
  * {@linkplain #indicateChange()}.
+ * <p>
+ * If the event keeps happening, the activity is performed anyway when
+ * {@linkplain #getMaxDelay()} milliseconds have passed since the first event
+ * that has not been taken into account by the activity yet, so a continuous
+ * stream of events cannot postpone it forever.
+ * <p>
+ * All <tt>DelayedActivity</tt> objects share a single scheduler thread, which
+ * only exists while some activity is pending.
+ * <p>
+ * As the activity is performed while holding the lock of the
+ * <tt>DelayedActivity</tt>, {@linkplain #indicateChange()} blocks while the
+ * activity is being performed. A thread that must never block has to hand its
+ * changes over to the event dispatch thread instead.
  * 
  * @author Markus Strauch
  * 
  */
-public abstract class DelayedActivity extends Thread {
-	private boolean notified;
+public abstract class DelayedActivity {
+
+	private static final ScheduledThreadPoolExecutor scheduler;
+
+	static {
+		scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "DelayedActivity");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+		scheduler.allowCoreThreadTimeOut(true);
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	/*
+	 * Flag denoting if a change has been indicated that the activity has not
+	 * yet taken into account
+	 */
+	private boolean pending;
+
+	// System.nanoTime() of the first and of the last change that is pending
+	private long firstChange;
+
+	private long lastChange;
+
+	/*
+	 * Flag denoting if a check is scheduled. Changes do not touch the scheduled
+	 * check, it is rescheduled if it finds that the delay has been postponed.
+	 */
+	private boolean scheduled;
+
+	// the scheduled check, if any
+	private ScheduledFuture<?> future;
+
+	/*
+	 * Incremented when pending changes are discarded, so a check scheduled
+	 * before can recognize that it is obsolete
+	 */
+	private int generation;
 
 	protected DelayedActivity() {
-		super();
-		setDaemon(true);
+		/* empty */
 	}
 
+	/**
+	 * Indicates that the event has happened, so the activity is to be
+	 * performed after the delay.
+	 */
 	public synchronized void indicateChange() {
-		notified = true;
-		notify();
+		final long now = System.nanoTime();
+		lastChange = now;
+		if (!pending) {
+			pending = true;
+			firstChange = now;
+		}
+		if (!scheduled) {
+			schedule(deadline() - now);
+		}
 	}
 
-	@Override
-	public void run() {
-		boolean changed = false;
-		synchronized (this) {
-			while (true) {
-				try {
-					wait(Math.max(1, getDelay()));
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-				if (notified) {
-					changed = true;
-				} else if (changed) {
-					SwingUtilities.invokeLater(new Runnable() {
-						public void run() {
-							synchronized (DelayedActivity.this) {
-								perform();
-							}
-
-						}
-					});
-					changed = false;
-				}
-				notified = false;
+	/**
+	 * Discards the changes that have been indicated, so the activity will not
+	 * be performed unless {@linkplain #indicateChange()} is called again. The
+	 * scheduled check is removed from the scheduler, and if the activity has
+	 * already been handed to the event dispatch thread, it is skipped there.
+	 */
+	public synchronized void cancel() {
+		pending = false;
+		scheduled = false;
+		generation++;
+		if (future != null) {
+			future.cancel(false);
+			future = null;
+		}
+	}
+
+	private long deadline() {
+		long quiet = lastChange
+				+ TimeUnit.MILLISECONDS.toNanos(Math.max(1, getDelay()));
+		long latest = firstChange
+				+ TimeUnit.MILLISECONDS.toNanos(Math.max(1, getMaxDelay()));
+		return Math.min(quiet, latest);
+	}
+
+	private void schedule(long nanos) {
+		scheduled = true;
+		final int theGeneration = generation;
+		future = scheduler.schedule(new Runnable() {
+			public void run() {
+				check(theGeneration);
 			}
+		}, Math.max(0, nanos), TimeUnit.NANOSECONDS);
+	}
+
+	private synchronized void check(final int theGeneration) {
+		if (theGeneration != generation || !pending) {
+			return;
 		}
+		long remaining = deadline() - System.nanoTime();
+		if (remaining > 0) {
+			schedule(remaining);
+			return;
+		}
+		scheduled = false;
+		pending = false;
+		future = null;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				synchronized (DelayedActivity.this) {
+					if (theGeneration == generation) {
+						perform();
+					}
+				}
+			}
+		});
 	}
 
+	/**
+	 * Returns the number of milliseconds that must pass without another
+	 * change until the activity is performed.
+	 * 
+	 * @return the number of milliseconds that must pass without another
+	 *         change until the activity is performed
+	 */
 	protected abstract int getDelay();
 
+	/**
+	 * Returns the maximum number of milliseconds that may pass between a
+	 * change and the activity taking it into account. The default is five
+	 * times {@linkplain #getDelay()}.
+	 * 
+	 * @return the maximum number of milliseconds between a change and the
+	 *         activity
+	 */
+	protected int getMaxDelay() {
+		return (int) Math.min(Integer.MAX_VALUE, 5L * getDelay());
+	}
+
 	/**
 	 * Performs the desired activity if something has changed (as indicated by
 	 * {@linkplain #indicateChange()}, the delay has passed and no change has
-	 * been indicated in that time. This method is always invoked in a monitor
-	 * that is guarded by the lock associated with this <tt>DelayedActivity</tt>
-	 * .
+	 * been indicated in that time, or the maximum delay has passed. This
+	 * method is always invoked on the event dispatch thread, in a monitor that
+	 * is guarded by the lock associated with this <tt>DelayedActivity</tt>.
 	 */
 	protected abstract void perform();
 }
@@ -36,13 +36,18 @@ import java.awt.event.KeyListener;
 import javax.swing.AbstractAction;
 import javax.swing.JTextPane;
 import javax.swing.KeyStroke;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultEditorKit;
 import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.Highlighter;
 import javax.swing.text.JTextComponent;
+import javax.swing.text.Segment;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import javax.swing.undo.UndoManager;
@@ -53,6 +58,10 @@ import net.sf.sdedit.util.PopupActions.ContextHandler;
 /**
  * A <tt>TextArea</tt> is an advanced <tt>JTextArea</tt> with error marks and
  * undo/redo function.
+ * <p>
+ * Lines are looked up by means of the paragraph elements of the document,
+ * which the document keeps up to date as the text is edited, so finding the
+ * line of a position does not require a copy of the text.
  * 
  * @author Markus Strauch
  */
@@ -73,6 +82,11 @@ public class TextArea extends JTextPane implements UndoableEditListener,
 
 	private PopupActions popupActions;
 
+	/**
+	 * The number of changes of the text that have happened so far.
+	 */
+	private long revision;
+
 	//
 	// UndoableEditListener method
 	//
@@ -114,6 +128,19 @@ public class TextArea extends JTextPane implements UndoableEditListener,
 		getDocument().putProperty(DefaultEditorKit.EndOfLineStringProperty,
 				"\n");
 		getDocument().addUndoableEditListener(this);
+		getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				revision++;
+			}
+
+			public void removeUpdate(DocumentEvent e) {
+				revision++;
+			}
+
+			public void changedUpdate(DocumentEvent e) {
+				/* empty, only attributes have changed */
+			}
+		});
 	}
 
 	protected void paintComponent(Graphics g) {
@@ -187,16 +214,101 @@ public class TextArea extends JTextPane implements UndoableEditListener,
 	 * @return the number of the line the cursor is in
 	 */
 	public int getCaretLine() {
-		final int caret = getCaretPosition();
-		final String text = getText();
-		int line = 0;
-		for (int i = 0; i < caret; i++) {
-			char c = text.charAt(i);
-			if (c == '\n') {
-				line++;
+		return getDocument().getDefaultRootElement().getElementIndex(
+				getCaretPosition());
+	}
+
+	/**
+	 * Returns the number of changes of the text that have happened so far. If
+	 * the revision is the same at two points in time, the text is the same,
+	 * too.
+	 * 
+	 * @return the number of changes of the text that have happened so far
+	 */
+	public long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Returns the character at the given position of the text.
+	 * 
+	 * @param offset
+	 *            the position of the character
+	 * @return the character at the given position
+	 */
+	public char charAt(int offset) {
+		Segment segment = new Segment();
+		try {
+			getDocument().getText(offset, 1, segment);
+		} catch (BadLocationException e) {
+			throw new IndexOutOfBoundsException(e.getMessage());
+		}
+		return segment.first();
+	}
+
+	/**
+	 * Returns a flag denoting if the text displayed by this <tt>TextArea</tt>
+	 * equals the given character sequence. The text is compared where it is
+	 * stored, without copying it.
+	 * 
+	 * @param text
+	 *            a character sequence
+	 * @return flag denoting if the text equals the given sequence
+	 */
+	public boolean contentEquals(CharSequence text) {
+		final Document document = getDocument();
+		final int length = document.getLength();
+		if (length != text.length()) {
+			return false;
+		}
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		int offset = 0;
+		try {
+			while (offset < length) {
+				document.getText(offset, length - offset, segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (segment.array[segment.offset + i] != text
+							.charAt(offset + i)) {
+						return false;
+					}
+				}
+				offset += segment.count;
+			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a flag denoting if there are only whitespace characters
+	 * from the given position to the end of the text.
+	 * 
+	 * @param offset
+	 *            the position where to start looking for non-whitespace
+	 * @return flag denoting if there are only whitespace characters from the
+	 *         given position to the end of the text
+	 */
+	public boolean isBlankFrom(int offset) {
+		final Document document = getDocument();
+		final int length = document.getLength();
+		Segment segment = new Segment();
+		segment.setPartialReturn(true);
+		try {
+			while (offset < length) {
+				document.getText(offset, length - offset, segment);
+				for (int i = 0; i < segment.count; i++) {
+					if (segment.array[segment.offset + i] > ' ') {
+						return false;
+					}
+				}
+				offset += segment.count;
 			}
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
 		}
-		return line;
+		return true;
 	}
 
 	/**
@@ -242,23 +354,20 @@ public class TextArea extends JTextPane implements UndoableEditListener,
 	 *         (where the cursor is)
 	 */
 	public int getCurrentLineBegin() {
-		final int caret = getCaretPosition();
-		final String text = getText();
-		int i = Math.min(text.length() - 1, caret);
+		final Document document = getDocument();
+		int i = Math.min(document.getLength() - 1, getCaretPosition());
 		// search for the next character that is not a line break
 		for (; i >= 0; i--) {
-			final char c = text.charAt(i);
+			final char c = charAt(i);
 			if (c != '\n' && c != '\r') {
 				break;
 			}
 		}
-		for (; i >= 0; i--) {
-			final char c = text.charAt(i);
-			if (c == '\n' || c == '\r') {
-				return i + 1; //2;
-			}
+		if (i < 0) {
+			return 0;
 		}
-		return 0;
+		final Element root = document.getDefaultRootElement();
+		return root.getElement(root.getElementIndex(i)).getStartOffset();
 	}
 
 	// paint a thick line under one line of text, from r extending rightward
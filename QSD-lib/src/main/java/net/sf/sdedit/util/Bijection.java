@@ -24,8 +24,10 @@
 
 package net.sf.sdedit.util;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 
@@ -98,6 +100,15 @@ public class Bijection<P,I> {
 		return inverse.get(image);
 	}
 	
+	/**
+	 * Returns an unmodifiable view of the pairs of pre-images and images.
+	 * 
+	 * @return an unmodifiable view of the pairs of pre-images and images
+	 */
+	public Set<Map.Entry<P, I>> entrySet () {
+		return Collections.unmodifiableMap(map).entrySet();
+	}
+	
 	public String toString () {
 		return map.toString() + " || " + inverse.toString();
 	}
@@ -0,0 +1,191 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+
+package net.sf.sdedit.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates threads for tasks that spend most of their time waiting, like
+ * serving a connection or waiting for the result of another thread.
+ * <p>
+ * On a Java runtime that supports virtual threads (Java 21 or newer), these
+ * are virtual threads, so many of them can wait at the same time at the cost
+ * of a few kilobytes each. On older runtimes, they are platform threads. As
+ * the sources are compiled for Java 8, virtual threads are created by
+ * reflection. They can be switched off by setting the system property
+ * <tt>sdedit.virtualThreads</tt> to <tt>false</tt>.
+ * <p>
+ * Tasks that keep a processor busy, like rendering a diagram, should rather
+ * be run by a fixed number of platform threads.
+ * 
+ * @author Markus Strauch
+ */
+public final class Threads {
+
+	/*
+	 * Thread.ofVirtual(), or null if virtual threads are not available
+	 */
+	private static final Method OF_VIRTUAL;
+
+	// methods of Thread.Builder
+	private static final Method NAME;
+
+	private static final Method NAME_COUNTER;
+
+	private static final Method FACTORY;
+
+	private static final Method UNSTARTED;
+
+	// Executors.newThreadPerTaskExecutor(ThreadFactory)
+	private static final Method PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method nameCounter = null;
+		Method factory = null;
+		Method unstarted = null;
+		Method perTaskExecutor = null;
+		if (!"false".equals(System.getProperty("sdedit.virtualThreads"))) {
+			try {
+				Class<?> builder = Class.forName("java.lang.Thread$Builder");
+				name = builder.getMethod("name", String.class);
+				nameCounter = builder.getMethod("name", String.class,
+						long.class);
+				factory = builder.getMethod("factory");
+				unstarted = builder.getMethod("unstarted", Runnable.class);
+				perTaskExecutor = Executors.class.getMethod(
+						"newThreadPerTaskExecutor", ThreadFactory.class);
+				ofVirtual = Thread.class.getMethod("ofVirtual");
+				// fails if virtual threads are a disabled preview feature
+				ofVirtual.invoke(null);
+			} catch (Exception e) {
+				ofVirtual = null;
+			}
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		NAME_COUNTER = nameCounter;
+		FACTORY = factory;
+		UNSTARTED = unstarted;
+		PER_TASK_EXECUTOR = perTaskExecutor;
+	}
+
+	private Threads() {
+		/* empty */
+	}
+
+	/**
+	 * Returns a flag denoting if the threads created by this class are
+	 * virtual threads.
+	 * 
+	 * @return flag denoting if virtual threads are used
+	 */
+	public static boolean isVirtual() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Returns a factory for threads that are named by the given prefix,
+	 * followed by a number. Platform threads created by the factory are
+	 * daemon threads, like virtual threads.
+	 * 
+	 * @param prefix
+	 *            the prefix of the names of the threads
+	 * @return a factory for threads named by the given prefix
+	 */
+	public static ThreadFactory newThreadFactory(final String prefix) {
+		if (isVirtual()) {
+			return (ThreadFactory) invoke(FACTORY, invoke(NAME_COUNTER,
+					invoke(OF_VIRTUAL, null), prefix, 1L));
+		}
+		final AtomicInteger number = new AtomicInteger();
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				thread.setName(prefix + number.incrementAndGet());
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Returns an executor for tasks that spend most of their time waiting. If
+	 * virtual threads are available, each task runs in a virtual thread of its
+	 * own, otherwise the tasks are run by the given number of platform
+	 * threads.
+	 * 
+	 * @param prefix
+	 *            the prefix of the names of the threads
+	 * @param platformThreads
+	 *            the number of platform threads if virtual threads are not
+	 *            available
+	 * @return an executor for tasks that spend most of their time waiting
+	 */
+	public static ExecutorService newTaskExecutor(String prefix,
+			int platformThreads) {
+		if (isVirtual()) {
+			return (ExecutorService) invoke(PER_TASK_EXECUTOR, null,
+					newThreadFactory(prefix));
+		}
+		return Executors.newFixedThreadPool(Math.max(1, platformThreads),
+				newThreadFactory(prefix));
+	}
+
+	/**
+	 * Creates a new thread, which has yet to be started, for a task that
+	 * spends most of its time waiting.
+	 * 
+	 * @param name
+	 *            the name of the thread
+	 * @param runnable
+	 *            the task
+	 * @return a new thread
+	 */
+	public static Thread newThread(String name, Runnable runnable) {
+		if (isVirtual()) {
+			return (Thread) invoke(UNSTARTED, invoke(NAME, invoke(OF_VIRTUAL,
+					null), name), runnable);
+		}
+		return new Thread(runnable, name);
+	}
+
+	private static Object invoke(Method method, Object object,
+			Object... arguments) {
+		try {
+			return method.invoke(object, arguments);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
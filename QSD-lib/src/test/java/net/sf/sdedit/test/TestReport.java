@@ -0,0 +1,121 @@
+package net.sf.sdedit.test;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A <tt>TestReport</tt> collects the results of a test that is run as a main
+ * program. It counts the cases that have been checked and the failures,
+ * prints each failure and a summary, and makes the program fail if there
+ * have been any failures.
+ */
+public class TestReport {
+
+	private final String cases;
+
+	private int count;
+
+	private int failures;
+
+	/**
+	 * Creates a new <tt>TestReport</tt>.
+	 *
+	 * @param cases
+	 *            describes the cases that are counted, for example
+	 *            &quot;diagrams compared&quot;
+	 */
+	public TestReport(String cases) {
+		this.cases = cases;
+	}
+
+	/**
+	 * Counts a case that has been checked.
+	 */
+	public void count() {
+		count++;
+	}
+
+	public int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Reports a failure.
+	 *
+	 * @param name
+	 *            the name of the case that has failed
+	 * @param message
+	 *            describes the failure
+	 */
+	public void fail(String name, String message) {
+		failures++;
+		System.out.println("failure for " + name + ": " + message);
+	}
+
+	/**
+	 * Reports a failure if a value differs from the expected one.
+	 *
+	 * @param name
+	 *            the name of the case
+	 * @param expected
+	 *            the expected value
+	 * @param actual
+	 *            the actual value
+	 * @return flag denoting if the values are equal
+	 */
+	public boolean check(String name, Object expected, Object actual) {
+		if (expected == null ? actual == null : expected.equals(actual)) {
+			return true;
+		}
+		fail(name, "expected " + expected + ", got " + actual);
+		return false;
+	}
+
+	/**
+	 * Reports a failure if two images differ in their size or in any pixel.
+	 *
+	 * @param name
+	 *            the name of the case
+	 * @param expected
+	 *            the expected image
+	 * @param actual
+	 *            the actual image, or <tt>null</tt> if none could be made
+	 */
+	public void compare(String name, BufferedImage expected,
+			BufferedImage actual) {
+		if (actual == null || expected.getWidth() != actual.getWidth()
+				|| expected.getHeight() != actual.getHeight()) {
+			fail(name, "size differs");
+			return;
+		}
+		int w = expected.getWidth();
+		int h = expected.getHeight();
+		int[] expectedPixels = expected.getRGB(0, 0, w, h, null, 0, w);
+		int[] actualPixels = actual.getRGB(0, 0, w, h, null, 0, w);
+		int pixels = 0;
+		for (int i = 0; i < expectedPixels.length; i++) {
+			if (expectedPixels[i] != actualPixels[i]) {
+				pixels++;
+			}
+		}
+		if (pixels > 0) {
+			fail(name, pixels + " pixels differ");
+		}
+	}
+
+	/**
+	 * Prints the number of cases and failures.
+	 *
+	 * @param details
+	 *            details to be printed after the number of cases, or the
+	 *            empty string
+	 * @throws IllegalStateException
+	 *             if there have been any failures
+	 */
+	public void finish(String details) {
+		System.out.println(count + " " + cases + details + ", " + failures
+				+ " failures");
+		if (failures > 0) {
+			throw new IllegalStateException(failures + " failures");
+		}
+	}
+}
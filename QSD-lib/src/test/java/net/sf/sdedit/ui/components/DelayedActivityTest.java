@@ -0,0 +1,155 @@
+package net.sf.sdedit.ui.components;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Checks that a <tt>DelayedActivity</tt> coalesces bursts of changes, is
+ * performed regularly under a continuous stream of changes, can be cancelled
+ * (even when it is about to be performed) and does not keep a thread alive
+ * when there is nothing to do.
+ */
+public class DelayedActivityTest {
+
+	private static final int DELAY = 50;
+
+	private static final int MAX_DELAY = 200;
+
+	private static final int TIMEOUT = 2000;
+
+	private static final int POLL = 10;
+
+	private static int failures;
+
+	private static class Recorder extends DelayedActivity {
+
+		private final List<Long> times = new ArrayList<Long>();
+
+		protected int getDelay() {
+			return DELAY;
+		}
+
+		protected int getMaxDelay() {
+			return MAX_DELAY;
+		}
+
+		protected synchronized void perform() {
+			times.add(System.currentTimeMillis());
+		}
+
+		synchronized int count() {
+			return times.size();
+		}
+	}
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+
+		// start the event dispatch thread, so the first activity is not
+		// delayed by its start-up
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				/* empty */
+			}
+		});
+
+		Recorder burst = new Recorder();
+		for (int i = 0; i < 100; i++) {
+			burst.indicateChange();
+		}
+		awaitCount(burst, 1);
+		// give further (wrong) performances a chance to happen
+		Thread.sleep(3 * DELAY);
+		check("burst", 1, burst.count());
+
+		Recorder stream = new Recorder();
+		long start = System.currentTimeMillis();
+		while (System.currentTimeMillis() - start < 10 * MAX_DELAY) {
+			stream.indicateChange();
+			Thread.sleep(DELAY / 5);
+		}
+		// each maximum delay, allowing for some scheduling jitter
+		if (stream.count() < 7) {
+			failures++;
+			System.out.println("stream: only " + stream.count()
+					+ " times performed");
+		} else {
+			System.out.println("stream: ok");
+		}
+
+		Recorder cancelled = new Recorder();
+		cancelled.indicateChange();
+		cancelled.cancel();
+		Thread.sleep(3 * DELAY);
+		check("cancelled", 0, cancelled.count());
+		cancelled.indicateChange();
+		awaitCount(cancelled, 1);
+		check("changed after cancel", 1, cancelled.count());
+
+		// the activity has been handed to the event dispatch thread, which
+		// is busy until the activity is cancelled
+		final Recorder handedOver = new Recorder();
+		handedOver.indicateChange();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(3 * DELAY);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				handedOver.cancel();
+			}
+		});
+		Thread.sleep(3 * DELAY);
+		check("cancelled after being handed over", 0, handedOver.count());
+
+		// the scheduler thread times out after a second without work
+		long deadline = System.currentTimeMillis() + 1000 + TIMEOUT;
+		while (countThreads("DelayedActivity") > 0
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(POLL);
+		}
+		check("idle scheduler threads", 0, countThreads("DelayedActivity"));
+
+		System.out.println("delayed activity checked, " + failures
+				+ " failures");
+		if (failures > 0) {
+			throw new IllegalStateException(failures + " failures");
+		}
+	}
+
+	/**
+	 * Waits until the recorder has been performed at least the given number
+	 * of times, or until {@linkplain #TIMEOUT} has elapsed.
+	 */
+	private static void awaitCount(Recorder recorder, int count)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (recorder.count() < count
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(POLL);
+		}
+	}
+
+	private static int countThreads(String name) {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(name)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void check(String name, int expected, int actual) {
+		if (expected != actual) {
+			failures++;
+			System.out.println(name + ": expected " + expected + ", got "
+					+ actual);
+		} else {
+			System.out.println(name + ": ok");
+		}
+	}
+}
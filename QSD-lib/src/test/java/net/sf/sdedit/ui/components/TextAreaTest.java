@@ -0,0 +1,98 @@
+package net.sf.sdedit.ui.components;
+
+import java.util.Random;
+
+import javax.swing.text.Document;
+
+import net.sf.sdedit.test.TestReport;
+
+/**
+ * Edits a <tt>TextArea</tt> randomly and compares the results of the line
+ * lookups and of the content checks with the results computed from a copy of
+ * the text.
+ */
+public class TextAreaTest {
+
+	private static final String ALPHABET = "ab c:\n\n.";
+
+	private static final TestReport report = new TestReport(
+			"positions compared");
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Random random = new Random(4711);
+		TextArea textArea = new TextArea();
+		Document document = textArea.getDocument();
+		for (int edit = 0; edit < 2000; edit++) {
+			int length = document.getLength();
+			long revision = textArea.getRevision();
+			if (length > 0 && random.nextInt(3) == 0) {
+				int offset = random.nextInt(length);
+				document.remove(offset,
+						Math.min(length - offset, 1 + random.nextInt(5)));
+			} else {
+				StringBuilder insert = new StringBuilder();
+				for (int i = random.nextInt(8); i >= 0; i--) {
+					insert.append(ALPHABET.charAt(random.nextInt(ALPHABET
+							.length())));
+				}
+				document.insertString(random.nextInt(length + 1), insert
+						.toString(), null);
+			}
+			if (textArea.getRevision() == revision) {
+				report.fail("edit " + edit, "revision unchanged");
+			}
+			String text = textArea.getText();
+			for (int k = 0; k < 5; k++) {
+				int caret = random.nextInt(text.length() + 1);
+				textArea.setCaretPosition(caret);
+				compare("caret line", caret, caretLine(text, caret),
+						textArea.getCaretLine());
+				compare("line begin", caret, lineBegin(text, caret),
+						textArea.getCurrentLineBegin());
+				compare("blank", caret,
+						text.substring(caret).trim().length() == 0 ? 1 : 0,
+						textArea.isBlankFrom(caret) ? 1 : 0);
+				report.count();
+			}
+			compare("equal content", edit, 1,
+					textArea.contentEquals(text) ? 1 : 0);
+			if (text.length() > 0) {
+				String other = text.substring(0, text.length() - 1) + "#";
+				compare("other content", edit, 0,
+						textArea.contentEquals(other) ? 1 : 0);
+			}
+		}
+		report.finish("");
+	}
+
+	private static int caretLine(String text, int caret) {
+		int line = 0;
+		for (int i = 0; i < caret; i++) {
+			if (text.charAt(i) == '\n') {
+				line++;
+			}
+		}
+		return line;
+	}
+
+	private static int lineBegin(String text, int caret) {
+		int i = Math.min(text.length() - 1, caret);
+		for (; i >= 0; i--) {
+			if (text.charAt(i) != '\n') {
+				break;
+			}
+		}
+		for (; i >= 0; i--) {
+			if (text.charAt(i) == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	private static void compare(String name, int position, int expected,
+			int actual) {
+		report.check(name + " at " + position, expected, actual);
+	}
+}
@@ -0,0 +1,76 @@
+package net.sf.sdedit.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs tasks on the threads created by {@linkplain Threads} and checks their
+ * names and kind. Run it with Java 21 or newer to check virtual threads, and
+ * with <tt>-Dsdedit.virtualThreads=false</tt> or an older Java to check
+ * platform threads.
+ */
+public class ThreadsTest {
+
+	private static final int TASKS = 200;
+
+	private static int failures;
+
+	public static void main(String[] argv) throws Exception {
+		System.out.println("virtual threads: " + Threads.isVirtual());
+		ExecutorService executor = Threads.newTaskExecutor("Test-", 4);
+		List<Future<Thread>> futures = new ArrayList<Future<Thread>>();
+		for (int i = 0; i < TASKS; i++) {
+			futures.add(executor.submit(new Callable<Thread>() {
+				public Thread call() throws Exception {
+					Thread.sleep(10);
+					return Thread.currentThread();
+				}
+			}));
+		}
+		for (Future<Thread> future : futures) {
+			check(future.get(), "Test-");
+		}
+		executor.shutdown();
+
+		final Thread[] current = new Thread[1];
+		Thread thread = Threads.newThread("Single", new Runnable() {
+			public void run() {
+				current[0] = Thread.currentThread();
+			}
+		});
+		thread.start();
+		thread.join();
+		if (current[0] != thread || !thread.getName().equals("Single")) {
+			failures++;
+			System.out.println("unexpected thread " + current[0]);
+		}
+		check(thread, "Single");
+
+		System.out.println((TASKS + 1) + " threads checked, " + failures
+				+ " failures");
+		if (failures > 0) {
+			throw new IllegalStateException(failures + " failures");
+		}
+	}
+
+	private static void check(Thread thread, String prefix) throws Exception {
+		if (!thread.getName().startsWith(prefix)) {
+			failures++;
+			System.out.println("unexpected name " + thread.getName());
+		}
+		boolean virtual = false;
+		try {
+			virtual = (Boolean) Thread.class.getMethod("isVirtual").invoke(
+					thread);
+		} catch (NoSuchMethodException e) {
+			/* empty, older Java */
+		}
+		if (virtual != Threads.isVirtual()) {
+			failures++;
+			System.out.println(thread.getName() + " is virtual: " + virtual);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package net.sf.sdedit.config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates the source of {@linkplain SequenceConfigurationSnapshot} from the
+ * get-methods of {@linkplain SequenceConfiguration}. Run it with the source
+ * directory (src/main/java) as the argument whenever a property is added to
+ * or removed from the configuration.
+ */
+public class SnapshotGenerator {
+
+	private static final String[] LICENSE = {
+			"Copyright (c) 2006 - 2016, Markus Strauch.",
+			"All rights reserved.",
+			"",
+			"Redistribution and use in source and binary forms, with or without",
+			"modification, are permitted provided that the following conditions are met:",
+			"",
+			"* Redistributions of source code must retain the above copyright notice, ",
+			"this list of conditions and the following disclaimer.",
+			"* Redistributions in binary form must reproduce the above copyright notice, ",
+			"this list of conditions and the following disclaimer in the documentation ",
+			"and/or other materials provided with the distribution.",
+			"",
+			"THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS \"AS IS\" ",
+			"AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE ",
+			"IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ",
+			"ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE ",
+			"LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR ",
+			"CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF ",
+			"SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS ",
+			"INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN ",
+			"CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ",
+			"ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF ",
+			"THE POSSIBILITY OF SUCH DAMAGE." };
+
+	private static final String NAME = "SequenceConfigurationSnapshot";
+
+	public static void main(String[] argv) throws IOException {
+		// property name -> get-method
+		Map<String, Method> getters = new TreeMap<String, Method>();
+		TreeSet<String> imports = new TreeSet<String>();
+		for (Method method : SequenceConfiguration.class.getMethods()) {
+			String name = method.getName();
+			int prefix = name.startsWith("is") ? 2 : name.startsWith("get") ? 3
+					: 0;
+			if (prefix > 0 && method.getParameterTypes().length == 0) {
+				String property = Character.toLowerCase(name.charAt(prefix))
+						+ name.substring(prefix + 1);
+				getters.put(property, method);
+				Class<?> type = method.getReturnType();
+				if (!type.isPrimitive() && !type.getPackage().getName()
+						.equals("java.lang")) {
+					imports.add(type.getName());
+				}
+			}
+		}
+		File file = new File(argv[0], "net/sf/sdedit/config/" + NAME + ".java");
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "utf-8"));
+		try {
+			out.print(generate(getters, imports));
+		} finally {
+			out.close();
+		}
+		System.out.println("saved " + file.getAbsolutePath());
+	}
+
+	private static String generate(Map<String, Method> getters,
+			TreeSet<String> imports) {
+		StringBuilder src = new StringBuilder();
+		for (String line : LICENSE) {
+			src.append("// ").append(line).append('\n');
+		}
+		src.append("\npackage net.sf.sdedit.config;\n\n");
+		for (String name : imports) {
+			src.append("import ").append(name).append(";\n");
+		}
+		src.append("\nimport net.sf.sdedit.ui.components.configuration.Bean;\n");
+		src.append("import net.sf.sdedit.ui.components.configuration.DataObject;\n\n");
+		src.append("/**\n");
+		src.append(" * An immutable copy of the values of a {@linkplain SequenceConfiguration},\n");
+		src.append(" * taken when a diagram is created. The get-methods of the synthetic\n");
+		src.append(" * configuration objects managed by a {@linkplain Bean} look up the property\n");
+		src.append(" * in maps and box its value, whereas the get-methods of a snapshot just\n");
+		src.append(" * return final fields, so they can be inlined in the layout code.\n");
+		src.append(" * <p>\n");
+		src.append(" * The set-methods throw an <tt>UnsupportedOperationException</tt>, the\n");
+		src.append(" * {@linkplain DataObject} methods are delegated to the configuration the\n");
+		src.append(" * snapshot has been taken of.\n");
+		src.append(" * <p>\n");
+		src.append(" * This class is generated by <tt>src/admin/java/net/sf/sdedit/config/SnapshotGenerator</tt>,\n");
+		src.append(" * do not edit it.\n");
+		src.append(" * \n");
+		src.append(" * @author Markus Strauch\n");
+		src.append(" */\n");
+		src.append("public final class ").append(NAME)
+				.append(" implements SequenceConfiguration {\n\n");
+		src.append("\tprivate final SequenceConfiguration source;\n\n");
+		for (Map.Entry<String, Method> getter : getters.entrySet()) {
+			src.append("\tprivate final ").append(type(getter.getValue()))
+					.append(' ').append(getter.getKey()).append(";\n\n");
+		}
+		src.append("\tprivate ").append(NAME)
+				.append("(SequenceConfiguration source) {\n");
+		src.append("\t\tthis.source = source;\n");
+		for (Map.Entry<String, Method> getter : getters.entrySet()) {
+			src.append("\t\t").append(getter.getKey()).append(" = source.")
+					.append(getter.getValue().getName()).append("();\n");
+		}
+		src.append("\t}\n\n");
+		src.append("\t/**\n");
+		src.append("\t * Returns a snapshot of the given configuration, or the configuration\n");
+		src.append("\t * itself if it is a snapshot already.\n");
+		src.append("\t * \n");
+		src.append("\t * @param configuration\n");
+		src.append("\t *            a configuration\n");
+		src.append("\t * @return a snapshot of the configuration\n");
+		src.append("\t */\n");
+		src.append("\tpublic static SequenceConfiguration of(SequenceConfiguration configuration) {\n");
+		src.append("\t\tif (configuration instanceof ").append(NAME).append(") {\n");
+		src.append("\t\t\treturn configuration;\n");
+		src.append("\t\t}\n");
+		src.append("\t\treturn new ").append(NAME).append("(configuration);\n");
+		src.append("\t}\n\n");
+		for (Map.Entry<String, Method> getter : getters.entrySet()) {
+			src.append("\tpublic ").append(type(getter.getValue())).append(' ')
+					.append(getter.getValue().getName()).append("() {\n");
+			src.append("\t\treturn ").append(getter.getKey()).append(";\n");
+			src.append("\t}\n\n");
+		}
+		for (Map.Entry<String, Method> getter : getters.entrySet()) {
+			String property = getter.getKey();
+			src.append("\tpublic void set")
+					.append(Character.toUpperCase(property.charAt(0)))
+					.append(property.substring(1)).append('(')
+					.append(type(getter.getValue())).append(' ')
+					.append(property).append(") {\n");
+			src.append("\t\tthrow immutable();\n");
+			src.append("\t}\n\n");
+		}
+		src.append("\tpublic <T extends DataObject> Bean<T> getBean(Class<T> cls) {\n");
+		src.append("\t\treturn source.getBean(cls);\n");
+		src.append("\t}\n\n");
+		src.append("\tpublic boolean isA(Class<?> cls) {\n");
+		src.append("\t\treturn source.isA(cls);\n");
+		src.append("\t}\n\n");
+		src.append("\tpublic <T extends DataObject> T cast(Class<T> cls) {\n");
+		src.append("\t\tif (cls.isInstance(this)) {\n");
+		src.append("\t\t\treturn cls.cast(this);\n");
+		src.append("\t\t}\n");
+		src.append("\t\treturn source.cast(cls);\n");
+		src.append("\t}\n\n");
+		src.append("\tpublic <T extends DataObject> T copy(Class<T> cls) {\n");
+		src.append("\t\treturn source.copy(cls);\n");
+		src.append("\t}\n\n");
+		src.append("\tprivate static UnsupportedOperationException immutable() {\n");
+		src.append("\t\treturn new UnsupportedOperationException(\n");
+		src.append("\t\t\t\t\"a configuration snapshot cannot be changed\");\n");
+		src.append("\t}\n");
+		src.append("}\n");
+		return src.toString();
+	}
+
+	private static String type(Method getter) {
+		return getter.getReturnType().getSimpleName();
+	}
+}
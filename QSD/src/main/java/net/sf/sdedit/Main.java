@@ -25,28 +25,42 @@
 package net.sf.sdedit;
 
 import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.SwingUtilities;
 
 import net.sf.sdedit.config.Configuration;
 import net.sf.sdedit.config.ConfigurationManager;
 import net.sf.sdedit.config.SequenceConfiguration;
-import net.sf.sdedit.diagram.DiagramFactory;
-import net.sf.sdedit.diagram.SDPaintDevice;
-import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.diagram.DiagramProfile;
 import net.sf.sdedit.editor.DiagramFileHandler;
 import net.sf.sdedit.editor.Editor;
 import net.sf.sdedit.editor.plugin.Plugin;
 import net.sf.sdedit.editor.plugin.PluginRegistry;
 import net.sf.sdedit.error.DiagramError;
-import net.sf.sdedit.server.Exporter;
-import net.sf.sdedit.ui.ImageGraphicsDevice;
+import net.sf.sdedit.server.DiagramServer;
+import net.sf.sdedit.server.RenderCache;
 import net.sf.sdedit.ui.components.configuration.Adjustable;
 import net.sf.sdedit.ui.components.configuration.Bean;
 import net.sf.sdedit.util.DocUtil.XMLException;
@@ -74,6 +88,36 @@ import org.apache.commons.cli.PosixParser;
  */
 public class Main implements Constants {
 
+	/*
+	 * The number of bytes of exported diagrams kept in memory, so diagrams
+	 * that occur repeatedly in batch mode are exported only once
+	 */
+	private static final long CACHE_SIZE = 32 * 1024 * 1024;
+
+	/*
+	 * The file in an output directory of the batch mode that maps the names
+	 * of the exported files onto the export options they were exported with
+	 */
+	private static final String EXPORT_OPTIONS_FILE = ".sdedit-export";
+
+	/*
+	 * The options that do not change how diagrams are exported
+	 */
+	private static final List<String> NON_EXPORT_OPTIONS = Arrays.asList("c",
+			"d", "h", "j", "o", "s", "profile");
+
+	/*
+	 * The number of requests per worker thread that may wait to be rendered
+	 * by the diagram server
+	 */
+	private static final int SERVER_QUEUE_SIZE = 8;
+
+	/*
+	 * The number of milliseconds after which the diagram server answers a
+	 * request that has not been rendered with status 504
+	 */
+	private static final long SERVER_TIMEOUT = 30000;
+
 	static {
 		if (OS.TYPE == OS.Type.MAC) {
 			System.setProperty("apple.laf.useScreenMenuBar", "true");
@@ -112,6 +156,12 @@ public class Main implements Constants {
 
 		}
 
+		if (cmd != null
+				&& (cmd.hasOption('o') || cmd.hasOption('d') || cmd
+						.hasOption('s'))) {
+			System.setProperty("java.awt.headless", "true");
+		}
+
 		options = createBasicOptions();
 
 		addPropertyOptions(
@@ -131,10 +181,21 @@ public class Main implements Constants {
 			return;
 		}
 
-		if (cmd.getOptionValue('o') != null) {
-			createImage(cmd);
+		if (cmd.getOptionValue('s') != null) {
+			startServer(cmd);
+		} else if (cmd.getOptionValue('d') != null) {
+			if (!createImages(cmd)) {
+				System.exit(1);
+			}
+		} else if (cmd.getOptionValue('o') != null) {
+			DiagramProfile profile = createImage(new File(
+					getInputFiles(cmd)[0]), new File(cmd.getOptionValue('o')),
+					cmd, createCache(cmd));
 			System.out
 					.println("created image file: " + cmd.getOptionValue('o'));
+			if (profile != null) {
+				System.out.println("profile: " + profile);
+			}
 
 		} else {
 			final String[] files = getInputFiles(cmd);
@@ -188,6 +249,45 @@ public class Main implements Constants {
 				.create('o');
 		options.addOption(output);
 
+		Option directory = OptionBuilder.hasArg()
+				.withArgName("output directory")
+				.withDescription(
+						"export all input files (and all .sd and .sdx files "
+								+ "in input directories) into this directory")
+				.create('d');
+		options.addOption(directory);
+
+		Option cache = OptionBuilder.hasArg()
+				.withArgName("cache directory")
+				.withDescription(
+						"directory where exported diagrams are stored, so "
+								+ "they need not be created again").create('c');
+		options.addOption(cache);
+
+		Option threads = OptionBuilder.hasArg()
+				.withArgName("number of threads")
+				.withDescription(
+						"number of files exported simultaneously (default: "
+								+ "number of processors)").create('j');
+		options.addOption(threads);
+
+		Option server = OptionBuilder.hasArg()
+				.withArgName("[host:]port")
+				.withDescription(
+						"run an HTTP server that renders diagrams posted to "
+								+ "/render (default host: localhost)")
+				.create('s');
+		options.addOption(server);
+
+		Option profile = OptionBuilder
+				.withLongOpt("profile")
+				.withDescription(
+						"print how long parsing, processing, layout and "
+								+ "painting take for each exported diagram, "
+								+ "and how big it is (bypasses the cache)")
+				.create();
+		options.addOption(profile);
+
 		Option type = OptionBuilder.hasArg().withArgName("output file type")
 				.withDescription("one of " + availableTypes()).hasArg()
 				.create('t');
@@ -235,14 +335,259 @@ public class Main implements Constants {
 		return cmd.getArgs();
 	}
 
-	private static void createImage(CommandLine cmd) throws IOException,
-			XMLException, DiagramError {
-		File inFile = new File(getInputFiles(cmd)[0]);
-		File outFile = new File(cmd.getOptionValue('o'));
+	/*
+	 * Returns null if no cache directory is given, as the files of a batch
+	 * are hardly ever the same.
+	 */
+	private static RenderCache createCache(CommandLine cmd) {
+		if (cmd.getOptionValue('c') == null) {
+			return null;
+		}
+		return new RenderCache(CACHE_SIZE, new File(cmd.getOptionValue('c')));
+	}
+
+	private static int getThreads(CommandLine cmd) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (cmd.getOptionValue('j') != null) {
+			threads = Math.max(1, Integer.parseInt(cmd.getOptionValue('j')));
+		}
+		return threads;
+	}
+
+	/*
+	 * Starts a diagram server at the address given by the -s option. The
+	 * server's threads keep the virtual machine running.
+	 */
+	private static void startServer(CommandLine cmd) throws IOException {
+		String address = cmd.getOptionValue('s');
+		String host = "localhost";
+		int colon = address.lastIndexOf(':');
+		if (colon >= 0) {
+			host = address.substring(0, colon);
+			address = address.substring(colon + 1);
+		}
+		int threads = getThreads(cmd);
+		DiagramServer server = new DiagramServer(new InetSocketAddress(host,
+				Integer.parseInt(address)), threads, threads
+				* SERVER_QUEUE_SIZE, SERVER_TIMEOUT, createCache(cmd));
+		server.start();
+		System.out.println("diagram server listening at http://" + host + ":"
+				+ server.getPort() + "/render");
+	}
+
+	private static String getType(CommandLine cmd) {
 		String type = "png";
 		if (cmd.getOptionValue('t') != null) {
 			type = cmd.getOptionValue('t').toLowerCase();
 		}
+		return type;
+	}
+
+	/*
+	 * Returns the diagram files to be exported in batch mode: the input files
+	 * and the .sd and .sdx files in the input directories.
+	 */
+	private static List<File> getBatchFiles(CommandLine cmd) {
+		List<File> files = new ArrayList<File>();
+		for (String name : getInputFiles(cmd)) {
+			File file = new File(name);
+			if (file.isDirectory()) {
+				File[] children = file.listFiles();
+				if (children != null) {
+					Arrays.sort(children);
+					for (File child : children) {
+						String childName = child.getName().toLowerCase();
+						if (child.isFile()
+								&& (childName.endsWith(".sd") || childName
+										.endsWith(".sdx"))) {
+							files.add(child);
+						}
+					}
+				}
+			} else if (file.isFile()) {
+				files.add(file);
+			} else {
+				System.err.println("Warning: ignoring file " + name);
+			}
+		}
+		return files;
+	}
+
+	/*
+	 * Returns the renderer version and the options given on the command line
+	 * that change how diagrams are exported, in a canonical form.
+	 */
+	private static String getExportOptions(CommandLine cmd) {
+		List<String> options = new ArrayList<String>();
+		for (Option option : cmd.getOptions()) {
+			String key = option.getOpt() != null ? option.getOpt() : option
+					.getLongOpt();
+			if (!NON_EXPORT_OPTIONS.contains(key)) {
+				options.add(key + "=" + Arrays.toString(option.getValues()));
+			}
+		}
+		Collections.sort(options);
+		return RenderCache.getRendererVersion() + " " + options;
+	}
+
+	private static Properties loadExportOptions(File file) {
+		Properties properties = new Properties();
+		if (file.exists()) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					properties.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// then all files are exported again
+				properties.clear();
+			}
+		}
+		return properties;
+	}
+
+	private static void storeExportOptions(File file, Properties properties) {
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				properties.store(out, "export options of the files in this "
+						+ "directory, written by sdedit");
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			System.err.println("Warning: cannot write " + file + " ("
+					+ e.getMessage() + "), all files will be exported again");
+			file.delete();
+		}
+	}
+
+	/*
+	 * Exports the files given on the command line into the directory given by
+	 * the -d option, using a pool of threads. Files whose exported version is
+	 * newer and was exported with the same options by the same renderer are
+	 * skipped. Returns false if any file could not be exported or if
+	 * different input files would be exported to the same output file.
+	 */
+	private static boolean createImages(final CommandLine cmd)
+			throws InterruptedException {
+		File directory = new File(cmd.getOptionValue('d'));
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			System.err.println("Error: cannot create directory " + directory);
+			return false;
+		}
+		String type = getType(cmd);
+		Map<String, File> inFiles = new LinkedHashMap<String, File>();
+		Map<String, File> outFiles = new HashMap<String, File>();
+		for (File inFile : getBatchFiles(cmd)) {
+			String name = inFile.getName();
+			int dot = name.lastIndexOf('.');
+			File outFile = new File(directory, (dot > 0 ? name.substring(0,
+					dot) : name) + "." + type);
+			// file systems may ignore the case of names
+			String key = outFile.getName().toLowerCase();
+			File other = inFiles.get(key);
+			if (other != null) {
+				if (!other.getAbsoluteFile().equals(inFile.getAbsoluteFile())) {
+					System.err.println("Error: " + other + " and " + inFile
+							+ " would both be exported to " + outFile);
+					return false;
+				}
+				continue;
+			}
+			inFiles.put(key, inFile);
+			outFiles.put(key, outFile);
+		}
+		final String exportOptions = getExportOptions(cmd);
+		File exportOptionsFile = new File(directory, EXPORT_OPTIONS_FILE);
+		final Properties exported = loadExportOptions(exportOptionsFile);
+		int skipped = 0;
+		Iterator<Map.Entry<String, File>> iterator = inFiles.entrySet()
+				.iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, File> entry = iterator.next();
+			File outFile = outFiles.get(entry.getKey());
+			if (outFile.lastModified() > entry.getValue().lastModified()
+					&& exportOptions.equals(exported.getProperty(outFile
+							.getName()))) {
+				System.out.println(entry.getValue() + ": up to date");
+				skipped++;
+				iterator.remove();
+			} else {
+				exported.remove(outFile.getName());
+			}
+		}
+		// if the export is interrupted, the files that are being written
+		// must not be taken as up to date
+		storeExportOptions(exportOptionsFile, exported);
+		int threads = getThreads(cmd);
+		final RenderCache cache = createCache(cmd);
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Map<File, Future<Pair<Long, DiagramProfile>>> results = new LinkedHashMap<File, Future<Pair<Long, DiagramProfile>>>();
+		for (Map.Entry<String, File> entry : inFiles.entrySet()) {
+			final File inFile = entry.getValue();
+			final File outFile = outFiles.get(entry.getKey());
+			results.put(inFile, executor
+					.submit(new Callable<Pair<Long, DiagramProfile>>() {
+						public Pair<Long, DiagramProfile> call()
+								throws Exception {
+							long time = System.currentTimeMillis();
+							DiagramProfile profile;
+							try {
+								profile = createImage(inFile, outFile, cmd,
+										cache);
+							} catch (Exception e) {
+								// an incomplete file must not be taken as up
+								// to date
+								outFile.delete();
+								throw e;
+							}
+							// Properties is synchronized
+							exported.setProperty(outFile.getName(),
+									exportOptions);
+							return new Pair<Long, DiagramProfile>(System
+									.currentTimeMillis() - time, profile);
+						}
+					}));
+		}
+		executor.shutdown();
+		int failed = 0;
+		for (Map.Entry<File, Future<Pair<Long, DiagramProfile>>> result : results
+				.entrySet()) {
+			try {
+				Pair<Long, DiagramProfile> done = result.getValue().get();
+				System.out.println(result.getKey()
+						+ ": "
+						+ done.getFirst()
+						+ " ms"
+						+ (done.getSecond() == null ? "" : " ("
+								+ done.getSecond() + ")"));
+			} catch (ExecutionException e) {
+				System.out.println(result.getKey() + ": failed ("
+						+ e.getCause() + ")");
+				failed++;
+			}
+		}
+		storeExportOptions(exportOptionsFile, exported);
+		System.out.println("exported " + (results.size() - failed)
+				+ " file(s), skipped " + skipped + ", failed " + failed
+				+ " in " + (System.currentTimeMillis() - start) + " ms");
+		if (cache != null) {
+			System.out.println("cache " + cache);
+		}
+		return failed == 0;
+	}
+
+	/*
+	 * Exports a diagram file, returns the profile of the diagram if it is to
+	 * be profiled, otherwise null.
+	 */
+	private static DiagramProfile createImage(File inFile, File outFile,
+			CommandLine cmd, RenderCache cache) throws IOException, XMLException, DiagramError {
+		String type = getType(cmd);
 		String format = "A4";
 		if (cmd.getOptionValue('f') != null) {
 			format = cmd.getOptionValue('f').toUpperCase();
@@ -257,40 +602,36 @@ public class Main implements Constants {
 		}
 		InputStream in = null;
 		OutputStream out = null;
+		Pair<String, Bean<? extends Configuration>> pair;
+		DiagramProfile profile = null;
 		in = new FileInputStream(inFile);
 		try {
-			out = new FileOutputStream(outFile);
-			try {
-				Pair<String, Bean<? extends Configuration>> pair = new DiagramFileHandler()
-						.load(in, ConfigurationManager.getGlobalConfiguration()
-								.getFileEncoding());
-				String text = pair.getFirst();
-				Bean<? extends Configuration> conf = pair.getSecond();
-				configure(conf, cmd);
-				if (type.equals("png")) {
-					ImageGraphicsDevice graphicDevice = new ImageGraphicsDevice();
-					SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
-					DiagramFactory factory = new SequenceDiagramFactory(text,
-							paintDevice);
-					factory.generateDiagram(conf.getDataObject());
-					graphicDevice.writeToStream("png", out);
-				} else {
-					Exporter graphicDevice = Exporter.getExporter(type,
-							orientation, format, out);
-					SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
-					DiagramFactory factory = new SequenceDiagramFactory(text,
-							paintDevice);
-					factory.generateDiagram(conf.getDataObject());
-					graphicDevice.export();
-				}
-				out.flush();
-			} finally {
-				out.close();
-			}
+			pair = new DiagramFileHandler().load(in, ConfigurationManager
+					.getGlobalConfiguration().getFileEncoding());
 		} finally {
 			in.close();
 		}
-
+		String text = pair.getFirst();
+		Bean<? extends Configuration> conf = pair.getSecond();
+		configure(conf, cmd);
+		SequenceConfiguration configuration = conf.getDataObject().cast(
+				SequenceConfiguration.class);
+		// the diagram is written straight to the file, so a large diagram
+		// is never held in memory as a whole
+		out = new BufferedOutputStream(new FileOutputStream(outFile));
+		try {
+			if (cmd.hasOption("profile") || cache == null) {
+				profile = RenderCache.render(text, configuration, type,
+						orientation, format, out);
+			} else {
+				cache.export(text, configuration, type, orientation, format,
+						out);
+			}
+			out.flush();
+		} finally {
+			out.close();
+		}
+		return cmd.hasOption("profile") ? profile : null;
 	}
 
 	private static void configure(Bean<? extends Configuration> conf,
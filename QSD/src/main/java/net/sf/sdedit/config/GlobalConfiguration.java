@@ -45,6 +45,12 @@ public interface GlobalConfiguration extends DataObject {
 
 	public int getMaxNumOfRecentFiles();
 
+	public int getRealtimeBatchDelay();
+
+	public int getRealtimeIdleTimeout();
+
+	public int getRealtimeMaxPendingLines();
+
 	public int getRealtimeServerPort();
 
 	public String getRecentFiles();
@@ -88,6 +94,15 @@ public interface GlobalConfiguration extends DataObject {
 	@Adjustable(dflt = 6, min = 0, max = 25, category = "Files", info = "Max. number of recent files")
 	public void setMaxNumOfRecentFiles(int maxNumOfRecentFiles);
 
+	@Adjustable(dflt = 100, min = 0, max = 5000, category = "Server", info = "Delay for batching received lines (ms)")
+	public void setRealtimeBatchDelay(int realtimeBatchDelay);
+
+	@Adjustable(dflt = 0, min = 0, max = 86400, category = "Server", info = "Idle timeout for connections (s, 0 = never)")
+	public void setRealtimeIdleTimeout(int realtimeIdleTimeout);
+
+	@Adjustable(dflt = 10000, min = 1, max = 1000000, category = "Server", info = "Max. number of pending received lines")
+	public void setRealtimeMaxPendingLines(int realtimeMaxPendingLines);
+
 	@Adjustable(dflt = 60001, min = 1, max = 65535, editable = false, category = "Server", info = "Receiver server port number")
 	public void setRealtimeServerPort(int receiverServerPort);
 
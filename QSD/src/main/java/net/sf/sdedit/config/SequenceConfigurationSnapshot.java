@@ -0,0 +1,744 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+
+package net.sf.sdedit.config;
+
+import java.awt.Color;
+import java.awt.Font;
+
+import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.ui.components.configuration.DataObject;
+
+/**
+ * An immutable copy of the values of a {@linkplain SequenceConfiguration},
+ * taken when a diagram is created. The get-methods of the synthetic
+ * configuration objects managed by a {@linkplain Bean} look up the property
+ * in maps and box its value, whereas the get-methods of a snapshot just
+ * return final fields, so they can be inlined in the layout code.
+ * <p>
+ * The set-methods throw an <tt>UnsupportedOperationException</tt>, the
+ * {@linkplain DataObject} methods are delegated to the configuration the
+ * snapshot has been taken of.
+ * <p>
+ * This class is generated by <tt>src/admin/java/net/sf/sdedit/config/SnapshotGenerator</tt>,
+ * do not edit it.
+ * 
+ * @author Markus Strauch
+ */
+public final class SequenceConfigurationSnapshot implements SequenceConfiguration {
+
+	private final SequenceConfiguration source;
+
+	private final int activationBarBorderThickness;
+
+	private final int actorWidth;
+
+	private final Color arrowColor;
+
+	private final int arrowSize;
+
+	private final int arrowThickness;
+
+	private final boolean colorizeThreads;
+
+	private final int destructorWidth;
+
+	private final boolean explicitReturns;
+
+	private final Font font;
+
+	private final int fragmentBorderThickness;
+
+	private final Color fragmentEdgeColor;
+
+	private final Color fragmentLabelBgColor;
+
+	private final int fragmentMargin;
+
+	private final int fragmentPadding;
+
+	private final int fragmentTextPadding;
+
+	private final int glue;
+
+	private final int headHeight;
+
+	private final int headLabelPadding;
+
+	private final int headWidth;
+
+	private final int initialSpace;
+
+	private final Color labeledBoxBgColor;
+
+	private final int leftMargin;
+
+	private final int lifelineThickness;
+
+	private final boolean lineWrap;
+
+	private final int lowerMargin;
+
+	private final int mainLifelineWidth;
+
+	private final int messageLabelSpace;
+
+	private final int messageLineLength;
+
+	private final int messagePadding;
+
+	private final Color noteBgColor;
+
+	private final int noteBorderThickness;
+
+	private final int noteMargin;
+
+	private final int notePadding;
+
+	private final boolean opaqueMessageText;
+
+	private final boolean returnArrowVisible;
+
+	private final int rightMargin;
+
+	private final int selfMessageHorizontalSpace;
+
+	private final int separatorBottomMargin;
+
+	private final int separatorTopMargin;
+
+	private final boolean shouldShadowParticipants;
+
+	private final int spaceBeforeActivation;
+
+	private final int spaceBeforeAnswerToSelf;
+
+	private final int spaceBeforeConstruction;
+
+	private final int spaceBeforeSelfMessage;
+
+	private final int subLifelineWidth;
+
+	private final Color tc0;
+
+	private final Color tc1;
+
+	private final Color tc2;
+
+	private final Color tc3;
+
+	private final Color tc4;
+
+	private final Color tc5;
+
+	private final Color tc6;
+
+	private final Color tc7;
+
+	private final Color tc8;
+
+	private final Color tc9;
+
+	private final boolean threadNumbersVisible;
+
+	private final boolean threaded;
+
+	private final int upperMargin;
+
+	private final boolean verticallySplit;
+
+	private SequenceConfigurationSnapshot(SequenceConfiguration source) {
+		this.source = source;
+		activationBarBorderThickness = source.getActivationBarBorderThickness();
+		actorWidth = source.getActorWidth();
+		arrowColor = source.getArrowColor();
+		arrowSize = source.getArrowSize();
+		arrowThickness = source.getArrowThickness();
+		colorizeThreads = source.isColorizeThreads();
+		destructorWidth = source.getDestructorWidth();
+		explicitReturns = source.isExplicitReturns();
+		font = source.getFont();
+		fragmentBorderThickness = source.getFragmentBorderThickness();
+		fragmentEdgeColor = source.getFragmentEdgeColor();
+		fragmentLabelBgColor = source.getFragmentLabelBgColor();
+		fragmentMargin = source.getFragmentMargin();
+		fragmentPadding = source.getFragmentPadding();
+		fragmentTextPadding = source.getFragmentTextPadding();
+		glue = source.getGlue();
+		headHeight = source.getHeadHeight();
+		headLabelPadding = source.getHeadLabelPadding();
+		headWidth = source.getHeadWidth();
+		initialSpace = source.getInitialSpace();
+		labeledBoxBgColor = source.getLabeledBoxBgColor();
+		leftMargin = source.getLeftMargin();
+		lifelineThickness = source.getLifelineThickness();
+		lineWrap = source.isLineWrap();
+		lowerMargin = source.getLowerMargin();
+		mainLifelineWidth = source.getMainLifelineWidth();
+		messageLabelSpace = source.getMessageLabelSpace();
+		messageLineLength = source.getMessageLineLength();
+		messagePadding = source.getMessagePadding();
+		noteBgColor = source.getNoteBgColor();
+		noteBorderThickness = source.getNoteBorderThickness();
+		noteMargin = source.getNoteMargin();
+		notePadding = source.getNotePadding();
+		opaqueMessageText = source.isOpaqueMessageText();
+		returnArrowVisible = source.isReturnArrowVisible();
+		rightMargin = source.getRightMargin();
+		selfMessageHorizontalSpace = source.getSelfMessageHorizontalSpace();
+		separatorBottomMargin = source.getSeparatorBottomMargin();
+		separatorTopMargin = source.getSeparatorTopMargin();
+		shouldShadowParticipants = source.isShouldShadowParticipants();
+		spaceBeforeActivation = source.getSpaceBeforeActivation();
+		spaceBeforeAnswerToSelf = source.getSpaceBeforeAnswerToSelf();
+		spaceBeforeConstruction = source.getSpaceBeforeConstruction();
+		spaceBeforeSelfMessage = source.getSpaceBeforeSelfMessage();
+		subLifelineWidth = source.getSubLifelineWidth();
+		tc0 = source.getTc0();
+		tc1 = source.getTc1();
+		tc2 = source.getTc2();
+		tc3 = source.getTc3();
+		tc4 = source.getTc4();
+		tc5 = source.getTc5();
+		tc6 = source.getTc6();
+		tc7 = source.getTc7();
+		tc8 = source.getTc8();
+		tc9 = source.getTc9();
+		threadNumbersVisible = source.isThreadNumbersVisible();
+		threaded = source.isThreaded();
+		upperMargin = source.getUpperMargin();
+		verticallySplit = source.isVerticallySplit();
+	}
+
+	/**
+	 * Returns a snapshot of the given configuration, or the configuration
+	 * itself if it is a snapshot already.
+	 * 
+	 * @param configuration
+	 *            a configuration
+	 * @return a snapshot of the configuration
+	 */
+	public static SequenceConfiguration of(SequenceConfiguration configuration) {
+		if (configuration instanceof SequenceConfigurationSnapshot) {
+			return configuration;
+		}
+		return new SequenceConfigurationSnapshot(configuration);
+	}
+
+	public int getActivationBarBorderThickness() {
+		return activationBarBorderThickness;
+	}
+
+	public int getActorWidth() {
+		return actorWidth;
+	}
+
+	public Color getArrowColor() {
+		return arrowColor;
+	}
+
+	public int getArrowSize() {
+		return arrowSize;
+	}
+
+	public int getArrowThickness() {
+		return arrowThickness;
+	}
+
+	public boolean isColorizeThreads() {
+		return colorizeThreads;
+	}
+
+	public int getDestructorWidth() {
+		return destructorWidth;
+	}
+
+	public boolean isExplicitReturns() {
+		return explicitReturns;
+	}
+
+	public Font getFont() {
+		return font;
+	}
+
+	public int getFragmentBorderThickness() {
+		return fragmentBorderThickness;
+	}
+
+	public Color getFragmentEdgeColor() {
+		return fragmentEdgeColor;
+	}
+
+	public Color getFragmentLabelBgColor() {
+		return fragmentLabelBgColor;
+	}
+
+	public int getFragmentMargin() {
+		return fragmentMargin;
+	}
+
+	public int getFragmentPadding() {
+		return fragmentPadding;
+	}
+
+	public int getFragmentTextPadding() {
+		return fragmentTextPadding;
+	}
+
+	public int getGlue() {
+		return glue;
+	}
+
+	public int getHeadHeight() {
+		return headHeight;
+	}
+
+	public int getHeadLabelPadding() {
+		return headLabelPadding;
+	}
+
+	public int getHeadWidth() {
+		return headWidth;
+	}
+
+	public int getInitialSpace() {
+		return initialSpace;
+	}
+
+	public Color getLabeledBoxBgColor() {
+		return labeledBoxBgColor;
+	}
+
+	public int getLeftMargin() {
+		return leftMargin;
+	}
+
+	public int getLifelineThickness() {
+		return lifelineThickness;
+	}
+
+	public boolean isLineWrap() {
+		return lineWrap;
+	}
+
+	public int getLowerMargin() {
+		return lowerMargin;
+	}
+
+	public int getMainLifelineWidth() {
+		return mainLifelineWidth;
+	}
+
+	public int getMessageLabelSpace() {
+		return messageLabelSpace;
+	}
+
+	public int getMessageLineLength() {
+		return messageLineLength;
+	}
+
+	public int getMessagePadding() {
+		return messagePadding;
+	}
+
+	public Color getNoteBgColor() {
+		return noteBgColor;
+	}
+
+	public int getNoteBorderThickness() {
+		return noteBorderThickness;
+	}
+
+	public int getNoteMargin() {
+		return noteMargin;
+	}
+
+	public int getNotePadding() {
+		return notePadding;
+	}
+
+	public boolean isOpaqueMessageText() {
+		return opaqueMessageText;
+	}
+
+	public boolean isReturnArrowVisible() {
+		return returnArrowVisible;
+	}
+
+	public int getRightMargin() {
+		return rightMargin;
+	}
+
+	public int getSelfMessageHorizontalSpace() {
+		return selfMessageHorizontalSpace;
+	}
+
+	public int getSeparatorBottomMargin() {
+		return separatorBottomMargin;
+	}
+
+	public int getSeparatorTopMargin() {
+		return separatorTopMargin;
+	}
+
+	public boolean isShouldShadowParticipants() {
+		return shouldShadowParticipants;
+	}
+
+	public int getSpaceBeforeActivation() {
+		return spaceBeforeActivation;
+	}
+
+	public int getSpaceBeforeAnswerToSelf() {
+		return spaceBeforeAnswerToSelf;
+	}
+
+	public int getSpaceBeforeConstruction() {
+		return spaceBeforeConstruction;
+	}
+
+	public int getSpaceBeforeSelfMessage() {
+		return spaceBeforeSelfMessage;
+	}
+
+	public int getSubLifelineWidth() {
+		return subLifelineWidth;
+	}
+
+	public Color getTc0() {
+		return tc0;
+	}
+
+	public Color getTc1() {
+		return tc1;
+	}
+
+	public Color getTc2() {
+		return tc2;
+	}
+
+	public Color getTc3() {
+		return tc3;
+	}
+
+	public Color getTc4() {
+		return tc4;
+	}
+
+	public Color getTc5() {
+		return tc5;
+	}
+
+	public Color getTc6() {
+		return tc6;
+	}
+
+	public Color getTc7() {
+		return tc7;
+	}
+
+	public Color getTc8() {
+		return tc8;
+	}
+
+	public Color getTc9() {
+		return tc9;
+	}
+
+	public boolean isThreadNumbersVisible() {
+		return threadNumbersVisible;
+	}
+
+	public boolean isThreaded() {
+		return threaded;
+	}
+
+	public int getUpperMargin() {
+		return upperMargin;
+	}
+
+	public boolean isVerticallySplit() {
+		return verticallySplit;
+	}
+
+	public void setActivationBarBorderThickness(int activationBarBorderThickness) {
+		throw immutable();
+	}
+
+	public void setActorWidth(int actorWidth) {
+		throw immutable();
+	}
+
+	public void setArrowColor(Color arrowColor) {
+		throw immutable();
+	}
+
+	public void setArrowSize(int arrowSize) {
+		throw immutable();
+	}
+
+	public void setArrowThickness(int arrowThickness) {
+		throw immutable();
+	}
+
+	public void setColorizeThreads(boolean colorizeThreads) {
+		throw immutable();
+	}
+
+	public void setDestructorWidth(int destructorWidth) {
+		throw immutable();
+	}
+
+	public void setExplicitReturns(boolean explicitReturns) {
+		throw immutable();
+	}
+
+	public void setFont(Font font) {
+		throw immutable();
+	}
+
+	public void setFragmentBorderThickness(int fragmentBorderThickness) {
+		throw immutable();
+	}
+
+	public void setFragmentEdgeColor(Color fragmentEdgeColor) {
+		throw immutable();
+	}
+
+	public void setFragmentLabelBgColor(Color fragmentLabelBgColor) {
+		throw immutable();
+	}
+
+	public void setFragmentMargin(int fragmentMargin) {
+		throw immutable();
+	}
+
+	public void setFragmentPadding(int fragmentPadding) {
+		throw immutable();
+	}
+
+	public void setFragmentTextPadding(int fragmentTextPadding) {
+		throw immutable();
+	}
+
+	public void setGlue(int glue) {
+		throw immutable();
+	}
+
+	public void setHeadHeight(int headHeight) {
+		throw immutable();
+	}
+
+	public void setHeadLabelPadding(int headLabelPadding) {
+		throw immutable();
+	}
+
+	public void setHeadWidth(int headWidth) {
+		throw immutable();
+	}
+
+	public void setInitialSpace(int initialSpace) {
+		throw immutable();
+	}
+
+	public void setLabeledBoxBgColor(Color labeledBoxBgColor) {
+		throw immutable();
+	}
+
+	public void setLeftMargin(int leftMargin) {
+		throw immutable();
+	}
+
+	public void setLifelineThickness(int lifelineThickness) {
+		throw immutable();
+	}
+
+	public void setLineWrap(boolean lineWrap) {
+		throw immutable();
+	}
+
+	public void setLowerMargin(int lowerMargin) {
+		throw immutable();
+	}
+
+	public void setMainLifelineWidth(int mainLifelineWidth) {
+		throw immutable();
+	}
+
+	public void setMessageLabelSpace(int messageLabelSpace) {
+		throw immutable();
+	}
+
+	public void setMessageLineLength(int messageLineLength) {
+		throw immutable();
+	}
+
+	public void setMessagePadding(int messagePadding) {
+		throw immutable();
+	}
+
+	public void setNoteBgColor(Color noteBgColor) {
+		throw immutable();
+	}
+
+	public void setNoteBorderThickness(int noteBorderThickness) {
+		throw immutable();
+	}
+
+	public void setNoteMargin(int noteMargin) {
+		throw immutable();
+	}
+
+	public void setNotePadding(int notePadding) {
+		throw immutable();
+	}
+
+	public void setOpaqueMessageText(boolean opaqueMessageText) {
+		throw immutable();
+	}
+
+	public void setReturnArrowVisible(boolean returnArrowVisible) {
+		throw immutable();
+	}
+
+	public void setRightMargin(int rightMargin) {
+		throw immutable();
+	}
+
+	public void setSelfMessageHorizontalSpace(int selfMessageHorizontalSpace) {
+		throw immutable();
+	}
+
+	public void setSeparatorBottomMargin(int separatorBottomMargin) {
+		throw immutable();
+	}
+
+	public void setSeparatorTopMargin(int separatorTopMargin) {
+		throw immutable();
+	}
+
+	public void setShouldShadowParticipants(boolean shouldShadowParticipants) {
+		throw immutable();
+	}
+
+	public void setSpaceBeforeActivation(int spaceBeforeActivation) {
+		throw immutable();
+	}
+
+	public void setSpaceBeforeAnswerToSelf(int spaceBeforeAnswerToSelf) {
+		throw immutable();
+	}
+
+	public void setSpaceBeforeConstruction(int spaceBeforeConstruction) {
+		throw immutable();
+	}
+
+	public void setSpaceBeforeSelfMessage(int spaceBeforeSelfMessage) {
+		throw immutable();
+	}
+
+	public void setSubLifelineWidth(int subLifelineWidth) {
+		throw immutable();
+	}
+
+	public void setTc0(Color tc0) {
+		throw immutable();
+	}
+
+	public void setTc1(Color tc1) {
+		throw immutable();
+	}
+
+	public void setTc2(Color tc2) {
+		throw immutable();
+	}
+
+	public void setTc3(Color tc3) {
+		throw immutable();
+	}
+
+	public void setTc4(Color tc4) {
+		throw immutable();
+	}
+
+	public void setTc5(Color tc5) {
+		throw immutable();
+	}
+
+	public void setTc6(Color tc6) {
+		throw immutable();
+	}
+
+	public void setTc7(Color tc7) {
+		throw immutable();
+	}
+
+	public void setTc8(Color tc8) {
+		throw immutable();
+	}
+
+	public void setTc9(Color tc9) {
+		throw immutable();
+	}
+
+	public void setThreadNumbersVisible(boolean threadNumbersVisible) {
+		throw immutable();
+	}
+
+	public void setThreaded(boolean threaded) {
+		throw immutable();
+	}
+
+	public void setUpperMargin(int upperMargin) {
+		throw immutable();
+	}
+
+	public void setVerticallySplit(boolean verticallySplit) {
+		throw immutable();
+	}
+
+	public <T extends DataObject> Bean<T> getBean(Class<T> cls) {
+		return source.getBean(cls);
+	}
+
+	public boolean isA(Class<?> cls) {
+		return source.isA(cls);
+	}
+
+	public <T extends DataObject> T cast(Class<T> cls) {
+		if (cls.isInstance(this)) {
+			return cls.cast(this);
+		}
+		return source.cast(cls);
+	}
+
+	public <T extends DataObject> T copy(Class<T> cls) {
+		return source.copy(cls);
+	}
+
+	private static UnsupportedOperationException immutable() {
+		return new UnsupportedOperationException(
+				"a configuration snapshot cannot be changed");
+	}
+}
@@ -24,6 +24,10 @@
 package net.sf.sdedit.diagram;
 
 import java.awt.Font;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
 
 import net.sf.sdedit.drawable.Drawable;
 
@@ -31,6 +35,8 @@ public abstract class AbstractGraphicDevice implements GraphicDevice {
     
     private Iterable<Drawable> drawables;
     
+    private Diagram diagram;
+    
     private Font plainFont;
     
     private int width;
@@ -40,12 +46,78 @@ public abstract class AbstractGraphicDevice implements GraphicDevice {
     protected Iterable<Drawable> drawables () {
         return drawables;
     }
+
+    /**
+     * Returns the drawables that intersect the given area, in the order in
+     * which they are to be drawn. If the diagram is finished, they are found
+     * by means of a {@linkplain DrawableIndex}.
+     * 
+     * @param area
+     *            an area of the diagram
+     * @return the drawables that intersect the area
+     */
+    protected Iterable<Drawable> drawables (Rectangle area) {
+        DrawableIndex index = getDrawableIndex();
+        if (index != null) {
+            return index.getDrawables(area);
+        }
+        List<Drawable> result = new ArrayList<Drawable>();
+        for (Drawable drawable : drawables) {
+            if (drawable.intersects(area)) {
+                result.add(drawable);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the drawables that contain the given point, in the order in
+     * which they are drawn.
+     * 
+     * @param point
+     *            a point of the diagram
+     * @return the drawables that contain the point
+     */
+    protected Iterable<Drawable> drawables (Point point) {
+        DrawableIndex index = getDrawableIndex();
+        if (index != null) {
+            return index.getDrawables(point);
+        }
+        List<Drawable> result = new ArrayList<Drawable>();
+        for (Drawable drawable : drawables) {
+            if (drawable.contains(point)) {
+                result.add(drawable);
+            }
+        }
+        return result;
+    }
+
+    private DrawableIndex getDrawableIndex () {
+        if (drawables instanceof SDPaintDevice) {
+            return ((SDPaintDevice) drawables).getDrawableIndex();
+        }
+        return null;
+    }
     
     public void initialize(Diagram diagram) {
+        this.diagram = diagram;
         this.drawables = diagram.getPaintDevice();    
         plainFont = diagram.getConfiguration().getFont();
 	}
     
+    /**
+     * Records the time it took to draw the diagram in the diagram's profile.
+     * 
+     * @param nanos
+     *            the number of nanoseconds it took to draw the diagram
+     */
+    protected void painted(long nanos) {
+        DiagramProfile profile = diagram == null ? null : diagram.getProfile();
+        if (profile != null) {
+            profile.addTime(DiagramProfile.Phase.PAINT, nanos);
+        }
+    }
+    
     public Font getFont() {
         return plainFont;
     }
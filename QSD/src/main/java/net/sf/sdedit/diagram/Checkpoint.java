@@ -0,0 +1,331 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.diagram;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.text.TextHandler;
+import net.sf.sdedit.ui.components.configuration.Bean;
+
+/**
+ * A <tt>Checkpoint</tt> is a copy of the state of a {@linkplain SequenceDiagram}
+ * that is being generated, taken at a message boundary: the thread stacks,
+ * the vertical position, the lifelines with their activations, the open
+ * fragments and notes and all drawable elements created so far, along with
+ * the state of the paint device and the position of the {@linkplain TextHandler}
+ * reading the specification.
+ * <p>
+ * When the specification is changed somewhere after the part that had been
+ * read when the checkpoint was taken, a new diagram can be generated starting
+ * from the checkpoint instead of from the first line (see
+ * {@linkplain Checkpoints#resume(SequenceDiagram)}). This yields the same
+ * diagram as generating it from scratch, as long as the configuration, the
+ * title and the description are unchanged and, if lifelines are destroyed
+ * automatically, none of them is destroyed at another place before the
+ * checkpoint.
+ * 
+ * @author Markus Strauch
+ */
+public final class Checkpoint {
+
+	/**
+	 * A copy of the diagram, taken when the checkpoint was reached.
+	 */
+	private final SequenceDiagram state;
+
+	/**
+	 * The text of the specification.
+	 */
+	private final String text;
+
+	/**
+	 * The number of characters of the text that had been read.
+	 */
+	private final int position;
+
+	/**
+	 * The number of lines that had been read.
+	 */
+	private final int lineNumber;
+
+	private final String title;
+
+	private final String[] description;
+
+	private final Bean<SequenceConfiguration> configuration;
+
+	private final Class<?> paintDeviceClass;
+
+	private final Class<?> graphicDeviceClass;
+
+	private Checkpoint(SequenceDiagram diagram, TextHandler handler) {
+		text = handler.getText();
+		position = handler.getPosition();
+		lineNumber = handler.getLineNumber();
+		title = handler.getTitle();
+		description = handler.getDescription();
+		configuration = diagram.getConfiguration()
+				.getBean(SequenceConfiguration.class).copy();
+		paintDeviceClass = diagram.getPaintDevice().getClass();
+		graphicDeviceClass = graphicDeviceClass(diagram.getPaintDevice());
+		StateCopier copier = new StateCopier();
+		if (diagram.getReverseIdMap() != null) {
+			// this is never modified, so it can be shared
+			copier.substitute(diagram.getReverseIdMap(),
+					diagram.getReverseIdMap());
+		}
+		state = copier.copy(diagram);
+	}
+
+	/**
+	 * Takes a checkpoint for the given diagram, if the diagram reads its
+	 * specification from a {@linkplain TextHandler} and it is currently at a
+	 * message boundary.
+	 * 
+	 * @param diagram
+	 *            a diagram that is being generated
+	 * @return a checkpoint for the current state of the diagram, or
+	 *         <tt>null</tt> if no checkpoint can be taken
+	 */
+	static Checkpoint take(SequenceDiagram diagram) {
+		if (!(diagram.getDataProvider() instanceof TextHandler)
+				|| !(diagram.getPaintDevice() instanceof StateCopier.Restorable)) {
+			return null;
+		}
+		TextHandler handler = (TextHandler) diagram.getDataProvider();
+		// appending text to an unterminated object section would add
+		// lifelines that a resumed diagram does not know
+		if (!handler.isObjectSectionTerminated()) {
+			return null;
+		}
+		int position = handler.getPosition();
+		// the last line must have been terminated, otherwise
+		// appending text would change it
+		if (position == 0 || handler.getText().charAt(position - 1) != '\n') {
+			return null;
+		}
+		return new Checkpoint(diagram, handler);
+	}
+
+	/**
+	 * Returns the number of lines that had been read when the checkpoint was
+	 * reached.
+	 * 
+	 * @return the number of lines that had been read when the checkpoint was
+	 *         reached
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the number of characters that had been read when the checkpoint
+	 * was reached.
+	 * 
+	 * @return the number of characters that had been read when the checkpoint
+	 *         was reached
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns a flag denoting if the given text starts with the part of the
+	 * text that had been read when the checkpoint was reached.
+	 * 
+	 * @param text
+	 *            the text of a specification
+	 * @return flag denoting if the checkpoint can be used for a diagram that
+	 *         is specified by the given text
+	 */
+	public boolean isPrefixOf(String text) {
+		return text.length() >= position
+				&& text.regionMatches(0, this.text, 0, position);
+	}
+
+	/*
+	 * Text sizes depend on the graphic device, so a checkpoint taken
+	 * when drawing on a panel cannot be used when exporting a file.
+	 */
+	private static Class<?> graphicDeviceClass(PaintDevice paintDevice) {
+		if (paintDevice instanceof AbstractPaintDevice) {
+			GraphicDevice graphicDevice = ((AbstractPaintDevice) paintDevice)
+					.getGraphicDevice();
+			return graphicDevice == null ? null : graphicDevice.getClass();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a flag denoting if the given diagram, which has just been
+	 * created and not yet been generated, and the diagram of this checkpoint
+	 * were generated in the same way (with the same kind of paint device and
+	 * the same destruction information).
+	 */
+	boolean isSameKind(SequenceDiagram diagram) {
+		return diagram.getPaintDevice().getClass() == paintDeviceClass
+				&& graphicDeviceClass(diagram.getPaintDevice()) == graphicDeviceClass
+				&& (diagram.getReverseIdMap() == null) == (state
+						.getReverseIdMap() == null);
+	}
+
+	/**
+	 * Returns a flag denoting if the given diagram, which has just been
+	 * created and not yet been generated, can be generated starting from this
+	 * checkpoint.
+	 * 
+	 * @param diagram
+	 *            a diagram that has just been created
+	 * @return flag denoting if the diagram can be generated starting from
+	 *         this checkpoint
+	 */
+	boolean canResume(SequenceDiagram diagram) {
+		if (!isSameKind(diagram)
+				|| !(diagram.getDataProvider() instanceof TextHandler)) {
+			return false;
+		}
+		TextHandler handler = (TextHandler) diagram.getDataProvider();
+		return isPrefixOf(handler.getText())
+				&& equal(title, handler.getTitle())
+				&& Arrays.equals(description, handler.getDescription())
+				&& configuration.equals(diagram.getConfiguration().getBean(
+						SequenceConfiguration.class))
+				&& destroysSameLifelines(diagram.getReverseIdMap());
+	}
+
+	/*
+	 * Lifelines are destroyed automatically after the message where they
+	 * appear for the last time, as given by the reverse id maps. The
+	 * checkpoint can only be used if the same lifelines have been destroyed
+	 * after the same messages before the checkpoint.
+	 */
+	private boolean destroysSameLifelines(Map<Integer, List<String>> reverseIdMap) {
+		Map<Integer, List<String>> myMap = state.getReverseIdMap();
+		if (myMap == reverseIdMap) {
+			return true;
+		}
+		for (int id = 0; id <= state.getMessageId(); id++) {
+			if (!equalSets(myMap.get(id), reverseIdMap.get(id))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean equalSets(List<String> list1, List<String> list2) {
+		if (list1 == null || list2 == null) {
+			return list1 == list2;
+		}
+		return new HashSet<String>(list1).equals(new HashSet<String>(list2));
+	}
+
+	private static boolean equal(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+
+	/**
+	 * Returns a flag denoting if the given diagram, which can be resumed from
+	 * this checkpoint, can take over its state instead of a copy, provided
+	 * that its text has been appended to the text of the last diagram. This
+	 * is the case if this checkpoint was taken at the end of its text and the
+	 * given diagram's text ends with a terminated line after that, so the
+	 * diagram will leave a new checkpoint at its end, and if the diagram will
+	 * not be replaced by a diagram that knows which lifelines to destroy.
+	 * 
+	 * @param diagram
+	 *            a diagram such that {@linkplain #canResume(SequenceDiagram)}
+	 *            is true
+	 * @return flag denoting if the diagram can take over the state of this
+	 *         checkpoint
+	 */
+	boolean canTakeOver(SequenceDiagram diagram) {
+		String newText = ((TextHandler) diagram.getDataProvider()).getText();
+		// a diagram to be drawn that requires a reverse id map is replaced
+		// (see SequenceDiagramFactory), the diagram creating the map is not
+		return position == text.length() && newText.length() > position
+				&& newText.endsWith("\n")
+				&& (!state.requiresReverseIdMap()
+						|| paintDeviceClass == NullPaintDevice.class);
+	}
+
+	/**
+	 * Like {@linkplain #restore(SequenceDiagram)}, but the diagram returned
+	 * is the state of this checkpoint itself, and the given diagram's data
+	 * provider and paint device take over the state of their counterparts
+	 * without copying it. The checkpoint cannot be used anymore afterwards.
+	 * 
+	 * @param diagram
+	 *            a diagram that has just been created, such that
+	 *            {@linkplain #canTakeOver(SequenceDiagram)} is true
+	 * @return the diagram to be generated instead of the given one
+	 */
+	SequenceDiagram takeOver(SequenceDiagram diagram) {
+		StateCopier copier = StateCopier.sharing();
+		copier.substitute(state.getDataProvider(), diagram.getDataProvider());
+		copier.substitute(state.getPaintDevice(), diagram.getPaintDevice());
+		((StateCopier.Restorable) diagram.getDataProvider()).restore(
+				(StateCopier.Restorable) state.getDataProvider(), copier);
+		((StateCopier.Restorable) diagram.getPaintDevice()).restore(
+				(StateCopier.Restorable) state.getPaintDevice(), copier);
+		state.takeOver(diagram, lineNumber);
+		return state;
+	}
+
+	/**
+	 * Returns a new diagram that takes the place of the given diagram, which
+	 * has just been created and not yet been generated. Its state is a copy of
+	 * the state of this checkpoint, using the given diagram's configuration,
+	 * data provider and paint device. When it is generated, it continues
+	 * reading messages where the checkpoint was taken.
+	 * 
+	 * @param diagram
+	 *            a diagram that has just been created, such that
+	 *            {@linkplain #canResume(SequenceDiagram)} is true
+	 * @return the diagram to be generated instead of the given one
+	 */
+	SequenceDiagram restore(SequenceDiagram diagram) {
+		StateCopier copier = new StateCopier();
+		StateCopier.Restorable provider = (StateCopier.Restorable) diagram
+				.getDataProvider();
+		StateCopier.Restorable paintDevice = (StateCopier.Restorable) diagram
+				.getPaintDevice();
+		copier.substitute(state.getConfiguration(), diagram.getConfiguration());
+		copier.substitute(state.getDataProvider(), provider);
+		copier.substitute(state.getPaintDevice(), paintDevice);
+		if (state.getReverseIdMap() != null) {
+			copier.substitute(state.getReverseIdMap(), diagram.getReverseIdMap());
+		}
+		SequenceDiagram restored = copier.copy(state);
+		provider.restore((StateCopier.Restorable) state.getDataProvider(),
+				copier);
+		paintDevice.restore((StateCopier.Restorable) state.getPaintDevice(),
+				copier);
+		restored.takePlaceOf(diagram);
+		return restored;
+	}
+}
@@ -0,0 +1,201 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.diagram;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import net.sf.sdedit.text.TextHandler;
+
+/**
+ * A <tt>Checkpoints</tt> object stores {@linkplain Checkpoint}s for diagrams
+ * that are repeatedly generated from an evolving specification, as in an
+ * editor tab. Before a diagram is generated, {@linkplain #update(String)} must
+ * be called with the new text of the specification. Then, when the diagram is
+ * generated, a checkpoint is taken at the last message boundary before the
+ * first line that is changed with respect to the text given before. So when
+ * the user keeps typing at the same place, the next diagram can be generated
+ * starting from there.
+ * <p>
+ * When text is only appended to (as by a
+ * {@linkplain net.sf.sdedit.server.Receiver}), a checkpoint is taken at the
+ * end of the text, too. The next diagram takes over the state of that
+ * checkpoint instead of copying it and leaves a new checkpoint at its own
+ * end, so each appended batch costs a single copy of the state.
+ * 
+ * @author Markus Strauch
+ */
+public final class Checkpoints {
+
+	private static final int MAX_SIZE = 8;
+
+	private final LinkedList<Checkpoint> checkpoints;
+
+	private String text;
+
+	private int captureLine;
+
+	private boolean appended;
+
+	/**
+	 * Creates a new, empty <tt>Checkpoints</tt> store.
+	 */
+	public Checkpoints() {
+		checkpoints = new LinkedList<Checkpoint>();
+		captureLine = -1;
+	}
+
+	/**
+	 * Informs this store that diagrams are now generated from the given text,
+	 * discarding all checkpoints that cannot be used for it.
+	 * 
+	 * @param text
+	 *            the new text of the specification
+	 */
+	public synchronized void update(String text) {
+		Iterator<Checkpoint> iterator = checkpoints.iterator();
+		while (iterator.hasNext()) {
+			if (!iterator.next().isPrefixOf(text)) {
+				iterator.remove();
+			}
+		}
+		captureLine = this.text == null ? -1 : commonLines(this.text, text);
+		appended = this.text != null && text.startsWith(this.text);
+		this.text = text;
+	}
+
+	/*
+	 * Returns the number of complete lines that both texts start with.
+	 */
+	private static int commonLines(String text1, String text2) {
+		int n = Math.min(text1.length(), text2.length());
+		int lines = 0;
+		for (int i = 0; i < n && text1.charAt(i) == text2.charAt(i); i++) {
+			if (text1.charAt(i) == '\n') {
+				lines++;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Called by a diagram at every message boundary, takes a checkpoint if
+	 * this is the last boundary before the first changed line. This need not
+	 * be just after the last unchanged line, as that may be empty, a comment
+	 * or a line of a note. If the text has only been appended to, a
+	 * checkpoint is taken at its end, too, so the next diagram can take it
+	 * over.
+	 * 
+	 * @param diagram
+	 *            a diagram that is being generated
+	 */
+	void visit(SequenceDiagram diagram) {
+		if (!(diagram.getDataProvider() instanceof TextHandler)) {
+			return;
+		}
+		TextHandler handler = (TextHandler) diagram.getDataProvider();
+		int lineNumber = handler.getLineNumber();
+		synchronized (this) {
+			if (!handler.getText().equals(text)
+					|| !isLastBoundary(handler, lineNumber)
+					&& !(appended && handler.getPosition() == text.length())) {
+				return;
+			}
+			// a diagram that has taken over a checkpoint starts where the
+			// checkpoint was taken
+			if (diagram.getTakeOverLine() == lineNumber) {
+				return;
+			}
+			for (Checkpoint checkpoint : checkpoints) {
+				if (checkpoint.getLineNumber() == lineNumber
+						&& checkpoint.isSameKind(diagram)) {
+					return;
+				}
+			}
+		}
+		Checkpoint checkpoint = Checkpoint.take(diagram);
+		if (checkpoint != null) {
+			synchronized (this) {
+				checkpoints.addLast(checkpoint);
+				if (checkpoints.size() > MAX_SIZE) {
+					checkpoints.removeFirst();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns true if the handler has not read beyond the last unchanged
+	 * line, but what it reads next ends beyond it.
+	 */
+	private boolean isLastBoundary(TextHandler handler, int lineNumber) {
+		if (lineNumber > captureLine) {
+			return false;
+		}
+		int next = handler.getNextEntryEnd();
+		return next < 0 || next > captureLine;
+	}
+
+	/**
+	 * Returns the diagram to be generated instead of the given one, which has
+	 * just been created. If there is a checkpoint from where the diagram can
+	 * be generated, this is a copy of the checkpoint's state (or the state
+	 * itself, if the checkpoint was taken at the end of text that has been
+	 * appended to), otherwise it is the given diagram itself. In all cases,
+	 * the diagram reports to this store when it is generated.
+	 * 
+	 * @param diagram
+	 *            a diagram that has just been created
+	 * @return the diagram to be generated
+	 */
+	public SequenceDiagram resume(SequenceDiagram diagram) {
+		Checkpoint best = null;
+		boolean takeOver;
+		synchronized (this) {
+			for (Checkpoint checkpoint : checkpoints) {
+				if ((best == null || checkpoint.getPosition() > best
+						.getPosition()) && checkpoint.canResume(diagram)) {
+					best = checkpoint;
+				}
+			}
+			// when text is appended, the checkpoint at the end of the last
+			// text will be replaced by a checkpoint at the end of this text,
+			// so its state need not be copied
+			takeOver = best != null && appended && best.canTakeOver(diagram);
+			if (takeOver) {
+				checkpoints.remove(best);
+			}
+		}
+		SequenceDiagram result;
+		if (best == null) {
+			result = diagram;
+		} else if (takeOver) {
+			result = best.takeOver(diagram);
+		} else {
+			result = best.restore(diagram);
+		}
+		result.setCheckpoints(this);
+		return result;
+	}
+}
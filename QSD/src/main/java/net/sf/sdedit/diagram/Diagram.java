@@ -45,6 +45,14 @@ public interface Diagram extends Constants {
     public DiagramDataProvider getDataProvider ();
 
     public Configuration getConfiguration();
+    
+    /**
+     * Returns the profile where the time spent generating and drawing this
+     * diagram is recorded.
+     * 
+     * @return the profile of this diagram
+     */
+    public DiagramProfile getProfile();
 
 }
 // {{core}}
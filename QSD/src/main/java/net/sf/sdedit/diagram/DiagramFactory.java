@@ -38,5 +38,24 @@ public interface DiagramFactory {
     public PaintDevice getPaintDevice();
 
     public Diagram getDiagram();
+    
+    /**
+     * Returns the profile of the most recent generation of a diagram, telling
+     * how long its phases took and how big the diagram is. Drawing the
+     * diagram afterwards is recorded in the same profile.
+     * 
+     * @return the profile of the most recent generation of a diagram, or
+     *         <tt>null</tt> if no diagram has been generated
+     */
+    public DiagramProfile getProfile();
+    
+    /**
+     * Cancels the generation of the diagram. If it is being generated,
+     * generation stops as soon as possible, leaving an unfinished diagram
+     * that is not to be displayed.
+     */
+    public void cancel();
+    
+    public boolean isCancelled();
 
 }
@@ -0,0 +1,265 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.diagram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A <tt>DiagramProfile</tt> tells where the time has gone while a diagram was
+ * generated and drawn, and how big the diagram is, so diagrams that take
+ * unusually long can be found and the phase that is to blame can be seen.
+ * <p>
+ * The time is split into these {@linkplain Phase}s:
+ * <ul>
+ * <li><tt>parse</tt>: reading object declarations and messages from the
+ * diagram data provider</li>
+ * <li><tt>process</tt>: creating lifelines, messages and their drawables,
+ * including fragments and notes</li>
+ * <li><tt>layout</tt>: computing the positions of the lifelines and the
+ * bounds of the diagram</li>
+ * <li><tt>paint</tt>: drawing the diagram, recorded by graphic devices that
+ * draw it once, for example when it is exported</li>
+ * </ul>
+ * If the virtual machine can tell how many bytes a thread allocates, the
+ * number of bytes allocated while the diagram was generated is recorded as
+ * well.
+ * 
+ * @author Markus Strauch
+ */
+public final class DiagramProfile {
+
+	public enum Phase {
+
+		PARSE("parse"), PROCESS("process"), LAYOUT("layout"), PAINT("paint");
+
+		private final String name;
+
+		private Phase(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private final long[] times;
+
+	private int lifelines;
+
+	private int messages;
+
+	private int fragments;
+
+	private int drawables;
+
+	private long allocatedBytes;
+
+	public DiagramProfile() {
+		times = new long[Phase.values().length];
+		allocatedBytes = -1;
+	}
+
+	/**
+	 * Adds time spent in a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param nanos
+	 *            the number of nanoseconds spent in the phase
+	 */
+	public synchronized void addTime(Phase phase, long nanos) {
+		times[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * Returns the number of nanoseconds spent in a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @return the number of nanoseconds spent in the phase
+	 */
+	public synchronized long getTime(Phase phase) {
+		return times[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the number of nanoseconds spent in all phases.
+	 * 
+	 * @return the number of nanoseconds spent in all phases
+	 */
+	public synchronized long getTotalTime() {
+		long total = 0;
+		for (long time : times) {
+			total += time;
+		}
+		return total;
+	}
+
+	synchronized void setCounts(int lifelines, int messages, int fragments,
+			int drawables) {
+		this.lifelines = lifelines;
+		this.messages = messages;
+		this.fragments = fragments;
+		this.drawables = drawables;
+	}
+
+	/**
+	 * Returns the number of lifelines of the diagram, including those of
+	 * objects that are created by messages.
+	 * 
+	 * @return the number of lifelines of the diagram
+	 */
+	public synchronized int getLifelines() {
+		return lifelines;
+	}
+
+	/**
+	 * Returns the number of message arrows of the diagram, not counting
+	 * return arrows.
+	 * 
+	 * @return the number of message arrows of the diagram
+	 */
+	public synchronized int getMessages() {
+		return messages;
+	}
+
+	/**
+	 * Returns the number of fragments of the diagram, not counting the frame
+	 * around a diagram that has a title.
+	 * 
+	 * @return the number of fragments of the diagram
+	 */
+	public synchronized int getFragments() {
+		return fragments;
+	}
+
+	/**
+	 * Returns the number of drawables of the diagram.
+	 * 
+	 * @return the number of drawables of the diagram
+	 */
+	public synchronized int getDrawables() {
+		return drawables;
+	}
+
+	synchronized void addAllocatedBytes(long bytes) {
+		if (bytes >= 0) {
+			allocatedBytes = Math.max(0, allocatedBytes) + bytes;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated while the diagram was generated.
+	 * 
+	 * @return the number of bytes allocated while the diagram was generated,
+	 *         or -1 if the virtual machine cannot tell
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns the number of bytes the current thread has allocated so far.
+	 * 
+	 * @return the number of bytes the current thread has allocated so far,
+	 *         or -1 if the virtual machine cannot tell
+	 */
+	static long currentThreadAllocatedBytes() {
+		try {
+			return Allocations.currentThread();
+		} catch (LinkageError e) {
+			// not a virtual machine that provides com.sun.management
+			return -1;
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder string = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			string.append(phase).append(' ')
+					.append(millis(times[phase.ordinal()])).append(" ms, ");
+		}
+		string.append(lifelines).append(" lifelines, ").append(messages)
+				.append(" messages, ").append(fragments)
+				.append(" fragments, ").append(drawables).append(" drawables");
+		if (allocatedBytes >= 0) {
+			string.append(", ").append(allocatedBytes >> 10)
+					.append(" KB allocated");
+		}
+		return string.toString();
+	}
+
+	/**
+	 * Returns a short summary of the profile, for a status bar: the total
+	 * time, the time of the phases that took any, and the number of
+	 * drawables.
+	 * 
+	 * @return a short summary of the profile
+	 */
+	public synchronized String getSummary() {
+		StringBuilder string = new StringBuilder();
+		string.append(millis(getTotalTime())).append(" ms (");
+		String separator = "";
+		for (Phase phase : Phase.values()) {
+			if (times[phase.ordinal()] > 0) {
+				string.append(separator).append(phase).append(' ')
+						.append(millis(times[phase.ordinal()]));
+				separator = ", ";
+			}
+		}
+		string.append("), ").append(drawables).append(" drawables");
+		return string.toString();
+	}
+
+	private static String millis(long nanos) {
+		long tenths = nanos / 100000;
+		return tenths / 10 + "." + tenths % 10;
+	}
+
+	/*
+	 * Kept apart, so the absence of com.sun.management shows up as a
+	 * LinkageError when this class is loaded.
+	 */
+	private static final class Allocations {
+
+		private static final ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+
+		static long currentThread() {
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+				if (sunBean.isThreadAllocatedMemorySupported()
+						&& sunBean.isThreadAllocatedMemoryEnabled()) {
+					return sunBean.getThreadAllocatedBytes(Thread
+							.currentThread().getId());
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.diagram;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import net.sf.sdedit.drawable.Drawable;
+
+/**
+ * A <tt>DrawableIndex</tt> is a uniform grid over the drawing bounds (see
+ * {@linkplain Drawable#getDrawingBounds()}) of the drawables of a finished
+ * diagram. It finds the drawables that intersect an area or contain a point
+ * without testing all of them, so painting a part of a large diagram and
+ * finding the drawable under the mouse take time that depends on the size
+ * of the part and not on the size of the diagram.
+ * <p>
+ * The drawables are always returned in the order in which they were given,
+ * which is the order in which they are to be drawn.
+ * 
+ * @author Markus Strauch
+ */
+public final class DrawableIndex {
+
+	private static final int CELL_SIZE = 128;
+
+	/*
+	 * The number of cells is bounded by this number times the number of
+	 * drawables (plus some cells for small diagrams), so a diagram of a
+	 * huge extent with few drawables gets larger cells.
+	 */
+	private static final int CELLS_PER_DRAWABLE = 4;
+
+	private final Drawable[] drawables;
+
+	private final int x0;
+
+	private final int y0;
+
+	private final int cellSize;
+
+	private final int columns;
+
+	private final int rows;
+
+	/*
+	 * For each cell, the ordinals of the drawables overlapping it in
+	 * ascending order, followed by unused space.
+	 */
+	private final int[][] cells;
+
+	private final int[] sizes;
+
+	/**
+	 * Creates a new <tt>DrawableIndex</tt> for the given drawables, which are
+	 * not to be moved anymore.
+	 * 
+	 * @param drawables
+	 *            the drawables, in the order in which they are to be drawn
+	 */
+	public DrawableIndex(Iterable<Drawable> drawables) {
+		List<Drawable> list = new ArrayList<Drawable>();
+		List<Rectangle> bounds = new ArrayList<Rectangle>();
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (Drawable drawable : drawables) {
+			Rectangle b = drawable.getDrawingBounds();
+			list.add(drawable);
+			bounds.add(b);
+			minX = Math.min(minX, b.x);
+			minY = Math.min(minY, b.y);
+			maxX = Math.max(maxX, b.x + b.width);
+			maxY = Math.max(maxY, b.y + b.height);
+		}
+		this.drawables = list.toArray(new Drawable[list.size()]);
+		if (list.isEmpty()) {
+			x0 = y0 = 0;
+			cellSize = CELL_SIZE;
+			columns = rows = 0;
+			cells = new int[0][];
+			sizes = new int[0];
+			return;
+		}
+		x0 = minX;
+		y0 = minY;
+		long maxCells = CELLS_PER_DRAWABLE * (long) list.size() + 1024;
+		double area = (double) (maxX - minX + 1) * (maxY - minY + 1);
+		cellSize = Math.max(CELL_SIZE, (int) Math.ceil(Math.sqrt(area / maxCells)));
+		columns = (maxX - minX) / cellSize + 1;
+		rows = (maxY - minY) / cellSize + 1;
+		cells = new int[columns * rows][];
+		sizes = new int[columns * rows];
+		for (int i = 0; i < this.drawables.length; i++) {
+			Rectangle b = bounds.get(i);
+			int c1 = column(b.x + b.width);
+			int r1 = row(b.y + b.height);
+			for (int r = row(b.y); r <= r1; r++) {
+				for (int c = column(b.x); c <= c1; c++) {
+					add(r * columns + c, i);
+				}
+			}
+		}
+	}
+
+	private void add(int cell, int ordinal) {
+		int[] entries = cells[cell];
+		if (entries == null) {
+			entries = cells[cell] = new int[4];
+		} else if (sizes[cell] == entries.length) {
+			int[] more = new int[2 * entries.length];
+			System.arraycopy(entries, 0, more, 0, entries.length);
+			entries = cells[cell] = more;
+		}
+		entries[sizes[cell]++] = ordinal;
+	}
+
+	private int column(int x) {
+		return Math.max(0, Math.min(columns - 1, (x - x0) / cellSize));
+	}
+
+	private int row(int y) {
+		return Math.max(0, Math.min(rows - 1, (y - y0) / cellSize));
+	}
+
+	/**
+	 * Returns the drawables that intersect the given area (see
+	 * {@linkplain Drawable#intersects(Rectangle)}).
+	 * 
+	 * @param area
+	 *            an area of the diagram
+	 * @return the drawables intersecting the area, in drawing order
+	 */
+	public List<Drawable> getDrawables(Rectangle area) {
+		List<Drawable> result = new ArrayList<Drawable>();
+		if (columns == 0 || area.isEmpty() || area.x > x0 + columns * cellSize
+				|| area.y > y0 + rows * cellSize || area.x + area.width < x0
+				|| area.y + area.height < y0) {
+			return result;
+		}
+		BitSet candidates = new BitSet(drawables.length);
+		int c1 = column(area.x + area.width);
+		int r1 = row(area.y + area.height);
+		for (int r = row(area.y); r <= r1; r++) {
+			for (int c = column(area.x); c <= c1; c++) {
+				int cell = r * columns + c;
+				for (int i = 0; i < sizes[cell]; i++) {
+					candidates.set(cells[cell][i]);
+				}
+			}
+		}
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates
+				.nextSetBit(i + 1)) {
+			if (drawables[i].intersects(area)) {
+				result.add(drawables[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the drawables that contain the given point (see
+	 * {@linkplain Drawable#contains(Point)}).
+	 * 
+	 * @param point
+	 *            a point of the diagram
+	 * @return the drawables containing the point, in drawing order
+	 */
+	public List<Drawable> getDrawables(Point point) {
+		List<Drawable> result = new ArrayList<Drawable>();
+		if (columns == 0 || point.x < x0 || point.y < y0
+				|| point.x >= x0 + columns * cellSize
+				|| point.y >= y0 + rows * cellSize) {
+			return result;
+		}
+		int cell = row(point.y) * columns + column(point.x);
+		for (int i = 0; i < sizes[cell]; i++) {
+			Drawable drawable = drawables[cells[cell][i]];
+			if (drawable.contains(point)) {
+				result.add(drawable);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of drawables in this index.
+	 * 
+	 * @return the number of drawables in this index
+	 */
+	public int size() {
+		return drawables.length;
+	}
+}
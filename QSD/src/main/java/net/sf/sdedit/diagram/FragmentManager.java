@@ -47,7 +47,7 @@ import net.sf.sdedit.message.Answer;
  * @author Markus Strauch
  * 
  */
-public final class FragmentManager {
+public final class FragmentManager implements StateCopier.Copyable {
 	private final SequenceDiagram diagram;
 
 	/**
@@ -98,6 +98,19 @@ public final class FragmentManager {
 		fragmentLabels = new LinkedList<String>();
 	}
 
+	private FragmentManager(FragmentManager original, StateCopier copier) {
+		copier.register(original, this);
+		diagram = copier.copy(original.diagram);
+		openFragments = copier.copy(original.openFragments);
+		closingFragments = copier.copy(original.closingFragments);
+		fragmentLabels = copier.copy(original.fragmentLabels);
+		fragmentSectionLabel = original.fragmentSectionLabel;
+	}
+
+	public FragmentManager copy(StateCopier copier) {
+		return new FragmentManager(this, copier);
+	}
+
 	/**
 	 * Returns the labels for the fragments for which we have already seen an
 	 * open command (see {@linkplain SequenceDiagramDataProvider#openFragment()}) but
@@ -319,6 +332,5 @@ public final class FragmentManager {
 		}
 		return openFragments.getLast();
 	}
-
 }
 //{{core}}
@@ -59,7 +59,8 @@ import net.sf.sdedit.util.Grep.Region;
  * 
  * @author Markus Strauch
  */
-public final class Lifeline implements Comparable<Lifeline> {
+public final class Lifeline implements Comparable<Lifeline>,
+		StateCopier.Copyable {
 
 	public static final String ACTOR = "Actor";
 
@@ -150,6 +151,18 @@ public final class Lifeline implements Comparable<Lifeline> {
 	 */
 	private Line lastLine;
 
+	/**
+	 * The value of {@linkplain SequenceDiagram#getExtension()} when the height
+	 * of the current view was last brought up to date
+	 */
+	private int extensionMark;
+
+	/**
+	 * Flag denoting if this sub lifeline has been taken from the stack of its
+	 * main lifeline
+	 */
+	private boolean disposed;
+
 	/**
 	 * The vertical position where the most recently created rectangle for
 	 * representing this lifeline ends.
@@ -223,6 +236,7 @@ public final class Lifeline implements Comparable<Lifeline> {
 		sideLevel = 0;
 		rectangleBottom = 0;
 		allViews = new LinkedList<ExtensibleDrawable>();
+		extensionMark = diagram.getExtension();
 		if (type.equals(ACTOR)) {
 			head = new Figure(this, label, diagram.getVerticalPosition(), !is(ROLE));
 			view = new Rectangle(computeDrawableWidth(), this);
@@ -243,6 +257,39 @@ public final class Lifeline implements Comparable<Lifeline> {
 		addView(view);
 	}
 
+	private Lifeline(Lifeline original, StateCopier copier) {
+		copier.register(original, this);
+		direction = original.direction;
+		name = original.name;
+		type = original.type;
+		label = original.label;
+		level = original.level;
+		sideLevel = original.sideLevel;
+		diagram = copier.copy(original.diagram);
+		root = copier.copy(original.root);
+		parent = copier.copy(original.parent);
+		leftChild = copier.copy(original.leftChild);
+		rightChild = copier.copy(original.rightChild);
+		active = original.active;
+		alive = original.alive;
+		view = copier.copy(original.view);
+		head = copier.copy(original.head);
+		cross = copier.copy(original.cross);
+		thread = original.thread;
+		lastLine = copier.copy(original.lastLine);
+		extensionMark = original.extensionMark;
+		disposed = original.disposed;
+		rectangleBottom = original.rectangleBottom;
+		allViews = copier.copy(original.allViews);
+		nameRegion = original.nameRegion;
+		destroyed = original.destroyed;
+		flags = copier.copy(original.flags);
+	}
+
+	public Lifeline copy(StateCopier copier) {
+		return new Lifeline(this, copier);
+	}
+
 	public boolean is(LifelineFlag flag) {
 		return flag.in(flags);
 	}
@@ -278,6 +325,7 @@ public final class Lifeline implements Comparable<Lifeline> {
 		parent = root;
 		level = root.getAllLifelines().size();
 		allViews = null;
+		extensionMark = diagram.getExtension();
 		if (direction == Direction.LEFT) {
 			while (parent.leftChild != null) {
 				parent = parent.leftChild;
@@ -302,6 +350,8 @@ public final class Lifeline implements Comparable<Lifeline> {
 
 	public List<ExtensibleDrawable> getAllViews() {
 
+		updateViews();
+
 		int lineTop = Integer.MAX_VALUE;
 		int lineBottom = -1;
 		Line mainLine = null;
@@ -501,6 +551,7 @@ public final class Lifeline implements Comparable<Lifeline> {
 	 * Call this method when an object is created via a 'new' message.
 	 */
 	public void giveBirth() {
+		updateViews();
 		alive = true;
 		head.setVisible(true);
 		view.setVisible(true);
@@ -599,10 +650,12 @@ public final class Lifeline implements Comparable<Lifeline> {
 			if (y > diagram.getVerticalPosition()) {
 				diagram.extendLifelines(y - diagram.getVerticalPosition());
 			}
+			root.updateViews();
 			cross.setTop(bottom);
 			diagram.getPaintDevice().addExtraordinary(cross);
 			_view.setBottom(bottom);
 		}
+		root.updateViews();
 		alive = false;
 	}
 
@@ -623,6 +676,8 @@ public final class Lifeline implements Comparable<Lifeline> {
 		if (getRoot() == this) {
 			throw new IllegalStateException("lifeline cannot be disposed");
 		}
+		updateView();
+		disposed = true;
 		switch (direction) {
 		case LEFT:
 			parent.leftChild = leftChild;
@@ -646,6 +701,7 @@ public final class Lifeline implements Comparable<Lifeline> {
 		if (this.active == active) {
 			return;
 		}
+		updateView();
 		this.active = active;
 		if (this != getRoot()) {
 			if (active) {
@@ -674,9 +730,46 @@ public final class Lifeline implements Comparable<Lifeline> {
 	}
 
 	public ExtensibleDrawable getView() {
+		updateView();
 		return view;
 	}
 
+	/**
+	 * Extends the current view by the amount the lifelines of the diagram have
+	 * been extended since it was last brought up to date, if this lifeline
+	 * has been subject to these extensions. Lifelines are extended lazily this
+	 * way, so {@linkplain SequenceDiagram#extendLifelines(int)} does not need
+	 * to visit all views for each message.
+	 */
+	private void updateView() {
+		final int extension = diagram.getExtension();
+		if (extension != extensionMark) {
+			if (!disposed && root.alive && diagram.contains(root)) {
+				view.extend(extension - extensionMark);
+			}
+			extensionMark = extension;
+		}
+	}
+
+	/**
+	 * Brings the current views of this lifeline and its sub lifelines up to
+	 * date. This must be done before anything changes whether they are subject
+	 * to extensions of the diagram.
+	 */
+	void updateViews() {
+		updateView();
+		Lifeline line = leftChild;
+		while (line != null) {
+			line.updateView();
+			line = line.leftChild;
+		}
+		line = rightChild;
+		while (line != null) {
+			line.updateView();
+			line = line.rightChild;
+		}
+	}
+
 	public Drawable getHead() {
 		return head;
 	}
@@ -731,5 +824,6 @@ public final class Lifeline implements Comparable<Lifeline> {
 	public boolean isDestroyed() {
 		return destroyed;
 	}
+
 }
 // {{core}}
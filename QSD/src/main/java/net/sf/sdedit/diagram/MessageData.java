@@ -33,7 +33,7 @@ import net.sf.sdedit.message.BroadcastMessage;
  * 
  * @author Markus Strauch
  */
-public class MessageData {
+public class MessageData implements StateCopier.Copyable {
 
 	private String caller;
 
@@ -82,6 +82,32 @@ public class MessageData {
 		isStatic = false;
 		isBold = false;
 	}
+
+	/**
+	 * Creates a copy of the given message data. The values of the properties
+	 * (including the array of callees and the map of user data) are never
+	 * modified, so they are shared.
+	 * 
+	 * @param data
+	 *            the message data to be copied
+	 */
+	protected MessageData(MessageData data) {
+		caller = data.caller;
+		callee = data.callee;
+		level = data.level;
+		thread = data.thread;
+		spawnMessage = data.spawnMessage;
+		answer = data.answer;
+		message = data.message;
+		callees = data.callees;
+		returnsInstantly = data.returnsInstantly;
+		noteNumber = data.noteNumber;
+		answerNoteNumber = data.answerNoteNumber;
+		broadcastType = data.broadcastType;
+		isStatic = data.isStatic;
+		isBold = data.isBold;
+		userData = data.userData;
+	}
 	
 	/**
 	 * Returns a string representation of the message data.
@@ -398,8 +424,9 @@ public class MessageData {
 		}
 		return userData.get(key);
 	}
-	
-	
 
+	public MessageData copy(StateCopier copier) {
+		return new MessageData(this);
+	}
 }
 //{{core}}
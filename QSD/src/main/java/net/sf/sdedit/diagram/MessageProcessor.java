@@ -46,11 +46,11 @@ import net.sf.sdedit.message.Primitive;
  * @author Markus Strauch
  * 
  */
-final class MessageProcessor {
+final class MessageProcessor implements StateCopier.Copyable {
 
 	private final SequenceDiagram diagram;
 
-	private final SequenceDiagramDataProvider provider;
+	private SequenceDiagramDataProvider provider;
 
 	/*
 	 * The following attributes are valid during one single call of
@@ -112,6 +112,33 @@ final class MessageProcessor {
 		requireReturn = diagram.getConfiguration().isExplicitReturns();
 	}
 
+	/**
+	 * Makes this processor read from the given data provider, which has taken
+	 * over the state of the provider it used so far.
+	 */
+	void setProvider(SequenceDiagramDataProvider provider) {
+		this.provider = provider;
+	}
+
+	private MessageProcessor(MessageProcessor original, StateCopier copier) {
+		copier.register(original, this);
+		diagram = copier.copy(original.diagram);
+		provider = copier.copy(original.provider);
+		data = copier.copy(original.data);
+		rootCaller = copier.copy(original.rootCaller);
+		rootCallee = copier.copy(original.rootCallee);
+		callerThread = original.callerThread;
+		calleeThread = original.calleeThread;
+		caller = copier.copy(original.caller);
+		callee = copier.copy(original.callee);
+		answer = copier.copy(original.answer);
+		requireReturn = original.requireReturn;
+	}
+
+	public MessageProcessor copy(StateCopier copier) {
+		return new MessageProcessor(this, copier);
+	}
+
 	ForwardMessage processMessage(final MessageData theData,
 			final Lifeline precomputedCaller) throws SemanticError {
 		this.data = theData;
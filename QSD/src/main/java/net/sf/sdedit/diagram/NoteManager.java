@@ -35,7 +35,7 @@ import net.sf.sdedit.error.SyntaxError;
 import net.sf.sdedit.message.Message;
 import net.sf.sdedit.util.Pair;
 
-public class NoteManager {
+public class NoteManager implements StateCopier.Copyable {
 	
 	private final LinkedList<Note> notes;
 
@@ -58,6 +58,20 @@ public class NoteManager {
 		pendingNotes = new HashMap<String, Note>();
 	}
 
+	private NoteManager(NoteManager original, StateCopier copier) {
+		copier.register(original, this);
+		diagram = copier.copy(original.diagram);
+		notes = copier.copy(original.notes);
+		messageAssociation = copier.copy(original.messageAssociation);
+		eventAssociation = copier.copy(original.eventAssociation);
+		pendingNotes = copier.copy(original.pendingNotes);
+		freeNoteNumber = original.freeNoteNumber;
+	}
+
+	public NoteManager copy(StateCopier copier) {
+		return new NoteManager(this, copier);
+	}
+
 	public void associateMessage(int number, Message msg) {
 		List<Message> msgs = messageAssociation.get(number);
 		if (msgs == null) {
@@ -30,7 +30,8 @@ import java.util.LinkedList;
 import net.sf.sdedit.drawable.Drawable;
 import net.sf.sdedit.drawable.Line;
 
-public class NullPaintDevice implements PaintDevice {
+public class NullPaintDevice implements PaintDevice,
+        StateCopier.Restorable {
 
     private Diagram diagram;
 
@@ -107,4 +108,15 @@ public class NullPaintDevice implements PaintDevice {
         return null;
     }
 
+    public NullPaintDevice copy(StateCopier copier) {
+        NullPaintDevice copy = new NullPaintDevice();
+        copier.register(this, copy);
+        copy.restore(this, copier);
+        return copy;
+    }
+
+    public void restore(StateCopier.Restorable original, StateCopier copier) {
+        diagram = copier.copy(((NullPaintDevice) original).diagram);
+    }
+
 }
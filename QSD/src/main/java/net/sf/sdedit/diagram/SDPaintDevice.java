@@ -46,7 +46,8 @@ import net.sf.sdedit.util.Direction;
  * 
  * @author Markus Strauch
  */
-public class SDPaintDevice extends AbstractPaintDevice {
+public class SDPaintDevice extends AbstractPaintDevice implements
+        StateCopier.Restorable {
 
     private int height;
 
@@ -61,7 +62,14 @@ public class SDPaintDevice extends AbstractPaintDevice {
 
     private SequenceDiagram diagram;
 
-    private final Line rightBound;
+    private Line rightBound;
+
+    private volatile boolean closed;
+
+    /*
+     * Built lazily when the diagram is finished
+     */
+    private volatile DrawableIndex index;
     
     public SDPaintDevice(GraphicDevice graphic) {
         super(graphic);
@@ -71,6 +79,36 @@ public class SDPaintDevice extends AbstractPaintDevice {
         rightBound = new Line(1, null);
     }
     
+    /**
+     * Returns a copy of the layout state of this paint device, without a
+     * graphic device. It is only used as a part of a {@linkplain Checkpoint},
+     * from which the state is restored into a paint device with a graphic
+     * device.
+     */
+    public SDPaintDevice copy(StateCopier copier) {
+        SDPaintDevice copy = new SDPaintDevice(null);
+        copier.register(this, copy);
+        copy.restore(this, copier);
+        return copy;
+    }
+
+    /*
+     * Takes the layout state of the original paint device, the drawable index
+     * will be built again when this device is closed.
+     */
+    public void restore(StateCopier.Restorable original, StateCopier copier) {
+        SDPaintDevice device = (SDPaintDevice) original;
+        height = device.height;
+        leftOf.clear();
+        leftOf.addAll(copier.copy(device.leftOf));
+        other.clear();
+        other.addAll(copier.copy(device.other));
+        diagram = copier.copy(device.diagram);
+        rightBound = copier.copy(device.rightBound);
+        closed = false;
+        index = null;
+    }
+    
     /*
      * @see net.sf.sdedit.diagram.IPaintDevice#setDiagram(net.sf.sdedit.diagram.Diagram)
      */
@@ -88,6 +126,8 @@ public class SDPaintDevice extends AbstractPaintDevice {
         other.clear();
         rightBound.setLeft(0);
         height = 0;
+        closed = false;
+        index = null;
         for (int i = 0; i < diagram.getNumberOfLifelines(); i++) {
             addLifelineSlot();
         }
@@ -248,6 +288,32 @@ public class SDPaintDevice extends AbstractPaintDevice {
     public void clear() {
         // as a result of this, iterator() will return an empty iterator
         diagram = null;
+        closed = false;
+        index = null;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        super.close();
+    }
+
+    /**
+     * Returns an index of the visible drawable elements, which is built when
+     * it is first needed after the diagram has been finished.
+     * 
+     * @return an index of the visible drawable elements, or <tt>null</tt> if
+     *         the diagram has not been finished yet
+     */
+    public DrawableIndex getDrawableIndex() {
+        DrawableIndex drawableIndex = index;
+        if (drawableIndex == null && closed) {
+            // if two threads build the index at the same time, they
+            // build the same one
+            drawableIndex = new DrawableIndex(this);
+            index = drawableIndex;
+        }
+        return drawableIndex;
     }
 
     /**
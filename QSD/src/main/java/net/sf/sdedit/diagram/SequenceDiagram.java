@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.config.SequenceConfigurationSnapshot;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.Drawable;
 import net.sf.sdedit.drawable.Fragment;
@@ -109,7 +110,8 @@ import net.sf.sdedit.util.MultiIterator;
  * [/c]
  * </code>
  */
-public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
+public final class SequenceDiagram implements Diagram, Iterable<Lifeline>,
+		StateCopier.Copyable {
 	/**
 	 * Maps names of objects onto their root lifelines.
 	 */
@@ -127,10 +129,15 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	 */
 	private int verticalPosition;
 
+	/**
+	 * The total amount by which the lifelines have been extended so far.
+	 */
+	private int extension;
+
 	/**
 	 * We read the object and message specifications from a DiagramDataProvider.
 	 */
-	private final SequenceDiagramDataProvider provider;
+	private SequenceDiagramDataProvider provider;
 
 	/**
 	 * The configuration object.
@@ -152,7 +159,7 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	/**
 	 * The container for the drawable objects created for messages etc.
 	 */
-	private final PaintDevice paintDevice;
+	private PaintDevice paintDevice;
 
 	/**
 	 * Maps a drawable object onto the state the DiagramDataProvider was in when
@@ -190,9 +197,10 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	private boolean finished;
 
 	// These attributes are here for performance reasons
-	// The hot spot optimizer cannot inline calls to the corresponding
-	// configuration
-	// get-methods because the configuration object is synthesized
+	// They were introduced when the hot spot optimizer could not inline
+	// calls to the corresponding configuration get-methods because the
+	// configuration object was synthesized, now conf is a
+	// SequenceConfigurationSnapshot
 	public final int arrowSize;
 
 	public final int messagePadding;
@@ -238,6 +246,63 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 
 	private int messageId;
 
+	/**
+	 * The frame around the diagram, if it has a title.
+	 */
+	private Fragment frame;
+
+	/**
+	 * The description text above the diagram, if there is one.
+	 */
+	private Text text;
+
+	/**
+	 * Flag denoting if this diagram is a copy of the state of another diagram
+	 * at a checkpoint, so generation continues with the next message.
+	 */
+	private boolean resumed;
+
+	/**
+	 * The number of the line where this diagram, being the state of a
+	 * checkpoint, has been taken over (see
+	 * {@linkplain #takeOver(SequenceDiagram, int)}), or -1.
+	 */
+	private int takeOverLine;
+
+	/**
+	 * Flag denoting if the title, the description and the object declarations
+	 * have been read.
+	 */
+	private boolean begun;
+
+	/**
+	 * Flag denoting if an object has been declared that is to be destroyed
+	 * automatically after the last message where it appears.
+	 */
+	private boolean autodestroy;
+
+	/**
+	 * Decides where to take checkpoints while messages are read.
+	 */
+	private Checkpoints checkpoints;
+
+	/**
+	 * Flag denoting if generation has been cancelled, checked between
+	 * messages.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Where the time spent generating this diagram is recorded.
+	 */
+	private DiagramProfile profile;
+
+	/**
+	 * The number of nanoseconds spent reading from the provider that have not
+	 * yet been recorded in the profile.
+	 */
+	private long parseTime;
+
 	/**
 	 * Creates a new diagram that is to be generated based on the data delivered
 	 * by the given <tt>DiagramDataProvider</tt>.
@@ -251,24 +316,24 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	 */
 	public SequenceDiagram(SequenceConfiguration configuration,
 			SequenceDiagramDataProvider provider, PaintDevice paintDevice) {
-		arrowSize = configuration.getArrowSize();
-		arrowColor = configuration.getArrowColor();
-		messagePadding = configuration.getMessagePadding();
-		subLifelineWidth = configuration.getMessagePadding();
-		selfMessageXExtent = configuration.getSelfMessageHorizontalSpace();
-		mainLifelineWidth = configuration.getMainLifelineWidth();
-		messageLabelSpace = configuration.getMessageLabelSpace();
-		returnArrowVisible = configuration.isReturnArrowVisible();
-		arrowThickness = configuration.getArrowThickness();
-		activationBarBorderThickness = configuration
+		conf = SequenceConfigurationSnapshot.of(configuration);
+		arrowSize = conf.getArrowSize();
+		arrowColor = conf.getArrowColor();
+		messagePadding = conf.getMessagePadding();
+		subLifelineWidth = conf.getMessagePadding();
+		selfMessageXExtent = conf.getSelfMessageHorizontalSpace();
+		mainLifelineWidth = conf.getMainLifelineWidth();
+		messageLabelSpace = conf.getMessageLabelSpace();
+		returnArrowVisible = conf.isReturnArrowVisible();
+		arrowThickness = conf.getArrowThickness();
+		activationBarBorderThickness = conf
 				.getActivationBarBorderThickness();
-		lifelineThickness = configuration.getLifelineThickness();
-		opaqueText = configuration.isOpaqueMessageText();
-		messageLineLength = configuration.getMessageLineLength();
+		lifelineThickness = conf.getLifelineThickness();
+		opaqueText = conf.isOpaqueMessageText();
+		messageLineLength = conf.getMessageLineLength();
 		this.paintDevice = paintDevice;
 		lifelineMap = new HashMap<String, Lifeline>();
 		lifelineList = new ArrayList<List<Lifeline>>();
-		conf = configuration;
 		paintDevice.setDiagram(this);
 		verticalPosition = 0;
 		first = new ArrayList<Lifeline>();
@@ -286,17 +351,74 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 		fragmentManager = new FragmentManager(this);
 		processor = new MessageProcessor(this);
 		finished = false;
-		threadColors = new Color[] { configuration.getTc0(),
-				configuration.getTc1(), configuration.getTc2(),
-				configuration.getTc3(), configuration.getTc4(),
-				configuration.getTc5(), configuration.getTc6(),
-				configuration.getTc7(), configuration.getTc8(),
-				configuration.getTc9(), };
+		threadColors = new Color[] { conf.getTc0(), conf.getTc1(),
+				conf.getTc2(), conf.getTc3(), conf.getTc4(), conf.getTc5(),
+				conf.getTc6(), conf.getTc7(), conf.getTc8(), conf.getTc9(), };
 		requireReturn = conf.isExplicitReturns();
 		messages = new LinkedList<ForwardMessage>();
 		positionMap = new HashMap<String, Integer>();
 		messageId = -1;
+		takeOverLine = -1;
 		idMap = new HashMap<String, Integer>();
+		profile = new DiagramProfile();
+	}
+
+	/*
+	 * Creates a copy of the state of the given diagram (see Checkpoint). The
+	 * configuration and the values derived from it are shared, the copy is
+	 * neither cancelled nor bound to a store of checkpoints and it has a
+	 * profile of its own.
+	 */
+	private SequenceDiagram(SequenceDiagram original, StateCopier copier) {
+		copier.register(original, this);
+		conf = copier.copy(original.conf);
+		arrowSize = original.arrowSize;
+		arrowColor = original.arrowColor;
+		messagePadding = original.messagePadding;
+		subLifelineWidth = original.subLifelineWidth;
+		selfMessageXExtent = original.selfMessageXExtent;
+		mainLifelineWidth = original.mainLifelineWidth;
+		messageLabelSpace = original.messageLabelSpace;
+		returnArrowVisible = original.returnArrowVisible;
+		arrowThickness = original.arrowThickness;
+		activationBarBorderThickness = original.activationBarBorderThickness;
+		lifelineThickness = original.lifelineThickness;
+		opaqueText = original.opaqueText;
+		messageLineLength = original.messageLineLength;
+		threadColors = original.threadColors;
+		requireReturn = original.requireReturn;
+		threaded = original.threaded;
+		paintDevice = copier.copy(original.paintDevice);
+		provider = copier.copy(original.provider);
+		lifelineMap = copier.copy(original.lifelineMap);
+		lifelineList = copier.copy(original.lifelineList);
+		verticalPosition = original.verticalPosition;
+		extension = original.extension;
+		first = copier.copy(original.first);
+		threadStacks = copier.copy(original.threadStacks);
+		threadStates = copier.copy(original.threadStates);
+		drawableBijection = copier.copy(original.drawableBijection);
+		callerThread = original.callerThread;
+		noteManager = copier.copy(original.noteManager);
+		fragmentManager = copier.copy(original.fragmentManager);
+		processor = copier.copy(original.processor);
+		finished = original.finished;
+		messages = copier.copy(original.messages);
+		positionMap = copier.copy(original.positionMap);
+		messageId = original.messageId;
+		idMap = copier.copy(original.idMap);
+		reverseIdMap = copier.copy(original.reverseIdMap);
+		frame = copier.copy(original.frame);
+		text = copier.copy(original.text);
+		resumed = original.resumed;
+		takeOverLine = -1;
+		begun = original.begun;
+		autodestroy = original.autodestroy;
+		profile = new DiagramProfile();
+	}
+
+	public SequenceDiagram copy(StateCopier copier) {
+		return new SequenceDiagram(this, copier);
 	}
 
 	public void setReverseIdMap(Map<Integer, List<String>> map) {
@@ -304,6 +426,112 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 		idMap = null;
 	}
 
+	Map<Integer, List<String>> getReverseIdMap() {
+		return reverseIdMap;
+	}
+
+	int getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * Sets the store of checkpoints where checkpoints are taken while messages
+	 * are read, as proposed by the store.
+	 * 
+	 * @param checkpoints
+	 *            a store of checkpoints
+	 */
+	public void setCheckpoints(Checkpoints checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	/**
+	 * Cancels the generation of this diagram. If the diagram is being
+	 * generated, the generating thread stops before reading the next message
+	 * and leaves the diagram unfinished.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns a flag denoting if the generation of this diagram has been
+	 * cancelled.
+	 * 
+	 * @return flag denoting if the generation of this diagram has been
+	 *         cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Sets the profile where the time spent generating this diagram is to be
+	 * recorded, so the passes of a diagram factory can be recorded in the
+	 * same profile.
+	 * 
+	 * @param profile
+	 *            the profile of the diagram
+	 */
+	void setProfile(DiagramProfile profile) {
+		this.profile = profile;
+	}
+
+	public DiagramProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Called on a copy of the state of a checkpoint, makes the copy take the
+	 * place of the given diagram (that has just been created, using the
+	 * configuration, the data provider and the paint device that have been
+	 * given the state of the checkpoint).
+	 */
+	void takePlaceOf(SequenceDiagram diagram) {
+		reverseIdMap = diagram.reverseIdMap;
+		resumed = true;
+		provider.setDiagram(this);
+		paintDevice.setDiagram(this);
+	}
+
+	/**
+	 * Called on the state of a checkpoint that is not needed anymore, makes it
+	 * take the place of the given diagram like
+	 * {@linkplain #takePlaceOf(SequenceDiagram)}, using the given diagram's
+	 * data provider and paint device, which have taken over the state of this
+	 * diagram's data provider and paint device.
+	 * 
+	 * @param diagram
+	 *            a diagram that has just been created and not yet been
+	 *            generated
+	 * @param lineNumber
+	 *            the number of the line where the checkpoint was taken
+	 */
+	void takeOver(SequenceDiagram diagram, int lineNumber) {
+		provider = diagram.provider;
+		paintDevice = diagram.paintDevice;
+		processor.setProvider(provider);
+		takeOverLine = lineNumber;
+		takePlaceOf(diagram);
+	}
+
+	/**
+	 * Returns the number of the line where the checkpoint whose state this
+	 * diagram has taken over was taken, or -1 if it has not taken over the
+	 * state of a checkpoint.
+	 */
+	int getTakeOverLine() {
+		return takeOverLine;
+	}
+
+	/**
+	 * Returns a flag denoting if this diagram is generated starting from a
+	 * checkpoint.
+	 */
+	boolean isResumed() {
+		return resumed;
+	}
+
 	public Map<Integer, List<String>> makeReverseIdMap() {
 		Map<Integer, List<String>> reverse = new HashMap<Integer, List<String>>(
 				messageId + 1);
@@ -332,58 +560,21 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	}
 	
 	public void generate(boolean complete) throws SemanticError, SyntaxError {
-
-		Fragment frame = null;
-		Text text = null;
-		String title = provider.getTitle();
-
-		String description[] = provider.getDescription();
-		if (description != null) {
-			text = new Text(description, this);
-			text.setTop(conf.getUpperMargin());
-			text.setLeft(conf.getLeftMargin());
-			verticalPosition = text.getBottom() + 3;
-		} else {
-			verticalPosition = conf.getUpperMargin();
-		}
-
-		if (title != null) {
-			frame = new Fragment(title, "", this);
-			frame.setTop(verticalPosition);
-			verticalPosition += frame.getLabelHeight() + 5;
-		}
-
-		readObjects();
-		if (lifelineList.isEmpty()) {
+		if (!open()) {
 			return;
 		}
-
-		paintDevice.reinitialize();
+		long start = System.nanoTime();
 		try {
 
-			for (Lifeline lifeline : this) {
-				paintDevice.addExtraordinary(lifeline.getHead());
-				verticalPosition = Math.max(verticalPosition, lifeline
-						.getHead().getTop() + lifeline.getHead().getHeight());
-			}
-			for (Lifeline lifeline : this) {
-				lifeline.getView().setBottom(verticalPosition);
-			}
-			extendLifelines(conf.getInitialSpace());
-
-			for (Lifeline lifeline : this) {
-				if (lifeline.hasThread()) {
-					lifeline.setActive(true);
-				}
-			}
-
 			readMessages();
 
 		} finally {
 
 			fragmentManager.finishFragments();
+			
+			start = recordProcessing(start);
 
-			if (complete && getNumberOfLifelines() > 0) {
+			if (complete && !cancelled && getNumberOfLifelines() > 0) {
 
 				paintDevice.callSpecial("computeAxes", conf.getLeftMargin() + 6
 						+ getLifelineAt(0).getHead().getWidth() / 2);
@@ -410,8 +601,141 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 				}
 			}
 			finished = true;
+			for (Lifeline lifeline : getLifelines()) {
+				lifeline.updateViews();
+			}
 			paintDevice.close();
+			profile.addTime(DiagramProfile.Phase.LAYOUT, System.nanoTime()
+					- start);
+			if (complete && !cancelled) {
+				count();
+			}
+		}
+	}
+
+	/*
+	 * Records the time since start as processing time, except for the time
+	 * spent reading from the provider, which is recorded as parse time.
+	 * Returns the current time.
+	 */
+	private long recordProcessing(long start) {
+		long now = System.nanoTime();
+		profile.addTime(DiagramProfile.Phase.PARSE, parseTime);
+		profile.addTime(DiagramProfile.Phase.PROCESS, now - start - parseTime);
+		parseTime = 0;
+		return now;
+	}
+
+	/*
+	 * Records the size of the finished diagram in the profile.
+	 */
+	private void count() {
+		int lifelines = 0;
+		for (List<Lifeline> list : lifelineList) {
+			lifelines += list.size();
+		}
+		int messages = 0;
+		int fragments = 0;
+		int drawables = 0;
+		for (Drawable drawable : paintDevice) {
+			drawables++;
+			if (drawable instanceof Arrow) {
+				if (!(((Arrow) drawable).getMessage() instanceof Answer)) {
+					messages++;
+				}
+			} else if (drawable instanceof Fragment && drawable != frame) {
+				fragments++;
+			}
+		}
+		profile.setCounts(lifelines, messages, fragments, drawables);
+	}
+
+	/**
+	 * Reads the title, the description and the object declarations, unless
+	 * this has already been done or the diagram has been resumed from a
+	 * checkpoint. Messages are not read before {@linkplain #generate()} is
+	 * called.
+	 * 
+	 * @return flag denoting if there is any lifeline, so messages can be read
+	 */
+	boolean open() throws SemanticError, SyntaxError {
+		if (!resumed && !begun) {
+			begun = true;
+			return begin();
+		}
+		return !lifelineList.isEmpty();
+	}
+
+	/**
+	 * Returns a flag denoting if objects are to be destroyed automatically
+	 * after the last message where they appear, but no reverse id map has
+	 * been set that tells which message that is. Only meaningful when the
+	 * diagram has been {@linkplain #open()}ed.
+	 * 
+	 * @return flag denoting if the diagram must be generated with a reverse
+	 *         id map
+	 */
+	boolean requiresReverseIdMap() {
+		return autodestroy && reverseIdMap == null;
+	}
+
+	/**
+	 * Creates the description text and the frame, if there are any, reads the
+	 * object declarations and places the lifelines' heads.
+	 * 
+	 * @return flag denoting if there is any lifeline, so messages can be read
+	 */
+	private boolean begin() throws SemanticError, SyntaxError {
+		long start = System.nanoTime();
+		try {
+			return _begin();
+		} finally {
+			recordProcessing(start);
+		}
+	}
+
+	private boolean _begin() throws SemanticError, SyntaxError {
+		String title = provider.getTitle();
+
+		String description[] = provider.getDescription();
+		if (description != null) {
+			text = new Text(description, this);
+			text.setTop(conf.getUpperMargin());
+			text.setLeft(conf.getLeftMargin());
+			verticalPosition = text.getBottom() + 3;
+		} else {
+			verticalPosition = conf.getUpperMargin();
+		}
+
+		if (title != null) {
+			frame = new Fragment(title, "", this);
+			frame.setTop(verticalPosition);
+			verticalPosition += frame.getLabelHeight() + 5;
+		}
+
+		readObjects();
+		if (lifelineList.isEmpty()) {
+			return false;
 		}
+
+		paintDevice.reinitialize();
+
+		for (Lifeline lifeline : this) {
+			paintDevice.addExtraordinary(lifeline.getHead());
+			verticalPosition = Math.max(verticalPosition, lifeline.getHead()
+					.getTop() + lifeline.getHead().getHeight());
+		}
+		for (Lifeline lifeline : this) {
+			lifeline.getView().setBottom(verticalPosition);
+		}
+		extendLifelines(conf.getInitialSpace());
+
+		for (Lifeline lifeline : this) {
+			if (lifeline.hasThread()) {
+				lifeline.setActive(true);
+			}
+		}
+		return true;
 	}
 
 	public final boolean isFinished() {
@@ -429,8 +753,10 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	 *             if an object is declared twice
 	 */
 	private void readObjects() throws SyntaxError, SemanticError {
-		while (provider.advance()) {
+		while (advance()) {
+			long start = System.nanoTime();
 			Lifeline lifeline = provider.nextObject();
+			parseTime += System.nanoTime() - start;
 			if (lifeline == null) {
 				return;
 			}
@@ -438,6 +764,7 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 				drawableBijection.add(lifeline.getHead(), provider.getState());
 			}
 			addLifeline(lifeline);
+			autodestroy |= lifeline.isAutodestroy();
 		}
 	}
 
@@ -457,7 +784,17 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	 */
 	private void readMessages() throws SyntaxError, SemanticError {
 
-		while (provider.advance()) {
+		// a diagram that has taken over the state of a checkpoint reads
+		// all of its text, even if cancelled, so it leaves a checkpoint at
+		// its end, where the next appended text can be read from
+		while (!cancelled || takeOverLine >= 0) {
+
+			if (checkpoints != null) {
+				checkpoints.visit(this);
+			}
+			if (!advance()) {
+				break;
+			}
 
 			Lifeline caller = null;
 
@@ -467,7 +804,9 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 			}
 
 			if (!noteManager.step()) {
+				long start = System.nanoTime();
 				MessageData data = provider.nextMessage();
+				parseTime += System.nanoTime() - start;
 
 				noteManager.closeNote(data.getCaller());
 				String[] callees = data.getCallees(); // returns an empty array
@@ -556,6 +895,17 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 		}
 	}
 
+	/*
+	 * Lets the provider advance to the next line, recording the time this
+	 * takes as parse time.
+	 */
+	private boolean advance() {
+		long start = System.nanoTime();
+		boolean advanced = provider.advance();
+		parseTime += System.nanoTime() - start;
+		return advanced;
+	}
+
 	public List<ForwardMessage> getMessages() {
 		return messages;
 	}
@@ -617,6 +967,7 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 		if (!lifeline.isVariable()) {
 			positionMap.put(lifeline.getName(), add(lifeline));
 		}
+		lifeline.updateViews();
 		lifelineMap.put(lifeline.getName(), lifeline);
 		return true;
 	}
@@ -655,17 +1006,44 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 		paintDevice.addExtraordinary(lifeline.getHead());
 	}
 
+	/**
+	 * Extends the views of all living lifelines and advances the vertical
+	 * position by the given amount. The views are not touched here, they catch
+	 * up with the extension when they are accessed next (see
+	 * {@linkplain Lifeline#getView()}).
+	 * 
+	 * @param amount
+	 *            the amount of pixels by which the lifelines are extended
+	 */
 	public final void extendLifelines(final int amount) {
-		for (final Lifeline lifeline : getLifelines()) {
-			if (lifeline.isAlive()) {
-				for (final Lifeline line : lifeline.getAllLifelines()) {
-					line.getView().extend(amount);
-				}
-			}
-		}
+		extension += amount;
 		verticalPosition += amount;
 	}
 
+	/**
+	 * Returns the total amount by which the lifelines have been extended so
+	 * far.
+	 * 
+	 * @return the total amount by which the lifelines have been extended so
+	 *         far
+	 */
+	int getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Returns a flag denoting if the given lifeline is one of the (not yet
+	 * destroyed) lifelines of this diagram.
+	 * 
+	 * @param lifeline
+	 *            a root lifeline
+	 * @return flag denoting if the lifeline belongs to this diagram and has
+	 *         not been destroyed
+	 */
+	boolean contains(Lifeline lifeline) {
+		return lifelineMap.get(lifeline.getName()) == lifeline;
+	}
+
 	int getPositionOf(Lifeline lifeline) {
 		return positionMap.get(lifeline.getRoot().getName());
 	}
@@ -726,7 +1104,10 @@ public final class SequenceDiagram implements Diagram, Iterable<Lifeline> {
 	 *            the name of the object of which the lifeline is to be removed
 	 */
 	public void removeLifeline(String name) {
-
+		Lifeline lifeline = lifelineMap.get(name);
+		if (lifeline != null) {
+			lifeline.updateViews();
+		}
 		if (lifelineMap.remove(name) == null) {
 			throw new IllegalArgumentException("lifeline " + name
 					+ " should be removed, but does not exist");
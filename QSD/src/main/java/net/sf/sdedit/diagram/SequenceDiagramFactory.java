@@ -29,6 +29,7 @@ import java.util.Map;
 import net.sf.sdedit.config.Configuration;
 import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.text.ParsedDiagram;
 import net.sf.sdedit.text.TextHandler;
 
 public class SequenceDiagramFactory implements DiagramFactory, DiagramDataProviderFactory {
@@ -43,6 +44,14 @@ public class SequenceDiagramFactory implements DiagramFactory, DiagramDataProvid
 
 	private DiagramDataProvider provider;
 
+	private Checkpoints checkpoints;
+
+	private volatile SequenceDiagram current;
+
+	private volatile boolean cancelled;
+
+	private DiagramProfile profile;
+
 	public SequenceDiagramFactory(DiagramDataProviderFactory providerFactory, PaintDevice paintDevice) {
 		this.providerFactory = providerFactory;
 		this.paintDevice = paintDevice;
@@ -59,27 +68,120 @@ public class SequenceDiagramFactory implements DiagramFactory, DiagramDataProvid
 		return new SequenceDiagram(configuration, (SequenceDiagramDataProvider) provider, paintDevice);
 	}
 
+	/**
+	 * Sets a store of {@linkplain Checkpoint}s that is used for generating
+	 * diagrams starting from a checkpoint where possible, and that is filled
+	 * with new checkpoints while diagrams are generated.
+	 * 
+	 * @param checkpoints
+	 *            a store of checkpoints, or <tt>null</tt> if diagrams are to be
+	 *            generated from scratch always
+	 */
+	public void setCheckpoints(Checkpoints checkpoints) {
+		this.checkpoints = checkpoints;
+	}
+
+	private SequenceDiagram resume(SequenceDiagram diagram) {
+		// a cancelled diagram is not generated, so it must not take over the
+		// state of a checkpoint
+		return checkpoints == null || cancelled ? diagram : checkpoints
+				.resume(diagram);
+	}
+
 	public DiagramDataProvider createProvider() {
-		return new TextHandler(text);
+		return new TextHandler(ParsedDiagram.of(text));
 	}
 
+	/**
+	 * Generates the diagram in a single pass, unless an object is declared
+	 * that is to be destroyed automatically after the last message where it
+	 * appears. Only in that case, the messages are read once more without
+	 * drawing anything before, in order to find out which messages these are.
+	 */
 	public void generateDiagram(Configuration conf) throws DiagramError {
+		profile = new DiagramProfile();
+		long allocated = DiagramProfile.currentThreadAllocatedBytes();
+		try {
+			generate(conf);
+		} finally {
+			if (allocated >= 0) {
+				profile.addAllocatedBytes(DiagramProfile
+						.currentThreadAllocatedBytes() - allocated);
+			}
+		}
+	}
+
+	private void generate(Configuration conf) throws DiagramError {
 		SequenceConfiguration configuration = conf.cast(SequenceConfiguration.class);
-		Map<Integer, List<String>> map = null;
 		provider = providerFactory.createProvider();
-		SequenceDiagram _diagram = newDiagram(configuration, provider, new NullPaintDevice());
+		if (checkpoints != null && provider instanceof TextHandler) {
+			checkpoints.update(((TextHandler) provider).getText());
+		}
+		SequenceDiagram sequenceDiagram = resume(newDiagram(configuration, provider, paintDevice));
+		if (!begin(sequenceDiagram)) {
+			return;
+		}
+		diagram = sequenceDiagram;
+		if (sequenceDiagram.open() && sequenceDiagram.requiresReverseIdMap()) {
+			Map<Integer, List<String>> map = makeReverseIdMap(configuration);
+			if (map == null) {
+				return;
+			}
+			provider = providerFactory.createProvider();
+			sequenceDiagram = newDiagram(configuration, provider, paintDevice);
+			sequenceDiagram.setReverseIdMap(map);
+			sequenceDiagram = resume(sequenceDiagram);
+			if (!begin(sequenceDiagram)) {
+				return;
+			}
+			diagram = sequenceDiagram;
+		}
+		diagram.generate();
+	}
+
+	/*
+	 * Reads all messages without drawing anything and returns a map of the
+	 * ids of the messages onto the names of the lifelines that appear there
+	 * for the last time, or null if the generation has been cancelled.
+	 */
+	private Map<Integer, List<String>> makeReverseIdMap(SequenceConfiguration configuration) {
+		SequenceDiagram _diagram = resume(newDiagram(configuration, providerFactory.createProvider(),
+				new NullPaintDevice()));
+		if (!begin(_diagram)) {
+			return null;
+		}
 		try {
 			_diagram.generate(false);
 		} catch (DiagramError ignored) {
 
 		}
-		map = _diagram.makeReverseIdMap();
-		provider = providerFactory.createProvider();
-		diagram = newDiagram(configuration, provider, paintDevice);
-		if (map != null) {
-			((SequenceDiagram) getDiagram()).setReverseIdMap(map);
+		return _diagram.makeReverseIdMap();
+	}
+
+	/*
+	 * Makes the given diagram the one that is being generated, returns false
+	 * if the generation has already been cancelled.
+	 */
+	private boolean begin(SequenceDiagram sequenceDiagram) {
+		sequenceDiagram.setProfile(profile);
+		current = sequenceDiagram;
+		if (cancelled) {
+			sequenceDiagram.cancel();
+			return false;
 		}
-		diagram.generate();
+		return true;
+	}
+
+	public void cancel() {
+		cancelled = true;
+		SequenceDiagram sequenceDiagram = current;
+		if (sequenceDiagram != null) {
+			sequenceDiagram.cancel();
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
 	}
 
 	public DiagramDataProviderFactory getProviderFactory() {
@@ -98,4 +200,8 @@ public class SequenceDiagramFactory implements DiagramFactory, DiagramDataProvid
 		return diagram;
 	}
 
+	public DiagramProfile getProfile() {
+		return profile;
+	}
+
 }
@@ -0,0 +1,295 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+
+package net.sf.sdedit.diagram;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Point;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import net.sf.sdedit.config.SequenceConfigurationSnapshot;
+import net.sf.sdedit.drawable.LabelLayout;
+import net.sf.sdedit.util.Bijection;
+import net.sf.sdedit.util.Grep.Region;
+import net.sf.sdedit.util.Pair;
+
+/**
+ * A <tt>StateCopier</tt> creates deep copies of the object graph that makes up
+ * the state of a {@linkplain SequenceDiagram} while it is being generated
+ * (lifelines, messages, drawable elements, managers, the paint device and the
+ * data provider), see {@linkplain Checkpoint}.
+ * <p>
+ * The objects of the sdedit classes in the graph are {@linkplain Copyable}:
+ * they copy themselves by a copy constructor that assigns each field
+ * explicitly, using {@linkplain #copy(Object)} for the objects they refer
+ * to. The well-known collection types, arrays, points, pairs and bijections
+ * are copied element-wise. Immutable objects (strings, numbers, enums,
+ * colors, fonts, label layouts, configuration snapshots and proxies ...) are
+ * shared. Any other type of object is rejected by an
+ * <tt>IllegalArgumentException</tt>.
+ * <p>
+ * A <tt>StateCopier</tt> is meant to be used for a single copy. A
+ * {@linkplain #sharing() sharing} copier does not copy anything but the
+ * substituted objects, it is used for handing over a state that is no longer
+ * needed by its owner.
+ * 
+ * @author Markus Strauch
+ */
+public final class StateCopier {
+
+	/**
+	 * An object that belongs to the state of a diagram that is being
+	 * generated and that can be copied by a {@linkplain StateCopier}.
+	 */
+	public interface Copyable {
+
+		/**
+		 * Returns a copy of this object, which must be of the same class as
+		 * this object. Objects that refer to other objects of the state must
+		 * {@linkplain StateCopier#register(Object, Object) register} their
+		 * copy before they copy these references, as they may lead back to
+		 * this object.
+		 * 
+		 * @param copier
+		 *            the copier to be used for copying the references of this
+		 *            object
+		 * @return a copy of this object
+		 */
+		Object copy(StateCopier copier);
+	}
+
+	/**
+	 * An object that a diagram is generated with and that keeps its identity
+	 * when the diagram is generated starting from a checkpoint: the data
+	 * provider and the paint device. Instead of being copied, it takes the
+	 * state of its counterpart in the checkpoint.
+	 */
+	public interface Restorable extends Copyable {
+
+		/**
+		 * Overwrites the state of this object by a copy of the state of the
+		 * given object, which is an object of the same class or a copy
+		 * returned by {@linkplain #copy(StateCopier)}.
+		 * 
+		 * @param original
+		 *            the object whose state is to be copied
+		 * @param copier
+		 *            the copier to be used for copying the references of the
+		 *            original
+		 */
+		void restore(Restorable original, StateCopier copier);
+	}
+
+	/**
+	 * Maps originals onto their copies (or replacements).
+	 */
+	private final Map<Object, Object> copies;
+
+	/**
+	 * Flag denoting if objects are shared instead of being copied.
+	 */
+	private final boolean sharing;
+
+	StateCopier() {
+		this(false);
+	}
+
+	private StateCopier(boolean sharing) {
+		copies = new IdentityHashMap<Object, Object>();
+		this.sharing = sharing;
+	}
+
+	/**
+	 * Returns a new <tt>StateCopier</tt> whose {@linkplain #copy(Object)}
+	 * method returns the substitute of an object, if there is one, and the
+	 * object itself otherwise.
+	 * 
+	 * @return a new sharing <tt>StateCopier</tt>
+	 */
+	static StateCopier sharing() {
+		return new StateCopier(true);
+	}
+
+	/**
+	 * Makes all references to <tt>original</tt> appear as references to
+	 * <tt>replacement</tt> in the copy.
+	 * 
+	 * @param original
+	 *            an object that is not to be copied
+	 * @param replacement
+	 *            the object to be used in its place
+	 */
+	void substitute(Object original, Object replacement) {
+		copies.put(original, replacement);
+	}
+
+	/**
+	 * Registers <tt>copy</tt> as the copy of <tt>original</tt>, so further
+	 * references to <tt>original</tt> are copied as references to
+	 * <tt>copy</tt>.
+	 * 
+	 * @param original
+	 *            an object that is being copied
+	 * @param copy
+	 *            its copy
+	 */
+	public void register(Object original, Object copy) {
+		copies.put(original, copy);
+	}
+
+	/**
+	 * Returns a deep copy of the given object, or the given object itself if
+	 * it is immutable.
+	 * 
+	 * @param object
+	 *            the object to be copied, may be <tt>null</tt>
+	 * @return a deep copy of the object
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T copy(T object) {
+		if (object == null) {
+			return null;
+		}
+		Object copy = copies.get(object);
+		if (copy != null) {
+			return (T) copy;
+		}
+		if (sharing || isImmutable(object)) {
+			return object;
+		}
+		Class<?> cls = object.getClass();
+		if (object instanceof Copyable) {
+			copy = ((Copyable) object).copy(this);
+			if (copy.getClass() != cls && !(object instanceof Restorable)) {
+				throw new IllegalStateException(cls.getName()
+						+ " does not override copy(StateCopier)");
+			}
+		} else if (object instanceof Point) {
+			copy = new Point((Point) object);
+		} else if (object instanceof Pair) {
+			Pair<?, ?> pair = (Pair<?, ?>) object;
+			copy = new Pair<Object, Object>(copy(pair.getFirst()),
+					copy(pair.getSecond()));
+		} else if (cls.isArray()) {
+			copy = copyArray(object);
+		} else if (object instanceof Bijection) {
+			copy = copyBijection((Bijection<Object, Object>) object);
+		} else if (cls == ArrayList.class || cls == LinkedList.class
+				|| cls == HashSet.class || cls == LinkedHashSet.class) {
+			copy = copyCollection((Collection<Object>) object);
+		} else if (cls == HashMap.class || cls == LinkedHashMap.class) {
+			copy = copyMap((Map<Object, Object>) object);
+		} else {
+			throw new IllegalArgumentException("cannot copy an instance of "
+					+ cls.getName());
+		}
+		copies.put(object, copy);
+		return (T) copy;
+	}
+
+	private static boolean isImmutable(Object object) {
+		return object instanceof String || object instanceof Number
+				|| object instanceof Boolean || object instanceof Character
+				|| object instanceof Enum || object instanceof Class
+				|| object instanceof URI || object instanceof Region
+				|| object instanceof Color || object instanceof Font
+				|| object instanceof BasicStroke
+				|| object instanceof LabelLayout
+				|| object instanceof SequenceConfigurationSnapshot
+				|| Proxy.isProxyClass(object.getClass());
+	}
+
+	private Object copyArray(Object array) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(),
+				length);
+		if (array.getClass().getComponentType().isPrimitive()) {
+			System.arraycopy(array, 0, copy, 0, length);
+		} else {
+			copies.put(array, copy);
+			for (int i = 0; i < length; i++) {
+				Array.set(copy, i, copy(Array.get(array, i)));
+			}
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Collection<Object> copyCollection(Collection<Object> collection) {
+		Collection<Object> copy;
+		try {
+			copy = collection.getClass().newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		copies.put(collection, copy);
+		for (Object element : collection) {
+			copy.add(copy(element));
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Object, Object> copyMap(Map<Object, Object> map) {
+		Map<Object, Object> copy;
+		try {
+			copy = map.getClass().newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		copies.put(map, copy);
+		for (Entry<Object, Object> entry : map.entrySet()) {
+			copy.put(copy(entry.getKey()), copy(entry.getValue()));
+		}
+		return copy;
+	}
+
+	private Bijection<Object, Object> copyBijection(
+			Bijection<Object, Object> bijection) {
+		Bijection<Object, Object> copy = new Bijection<Object, Object>();
+		copies.put(bijection, copy);
+		for (Entry<Object, Object> entry : bijection.entrySet()) {
+			copy.add(copy(entry.getKey()), copy(entry.getValue()));
+		}
+		return copy;
+	}
+}
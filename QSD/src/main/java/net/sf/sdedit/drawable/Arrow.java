@@ -30,11 +30,10 @@ import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.Stroke;
 
-import javax.swing.JLabel;
-
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 import net.sf.sdedit.message.Answer;
 import net.sf.sdedit.message.BroadcastMessage;
@@ -123,6 +122,21 @@ public class Arrow extends SequenceElement {
 		this(message, message.getCaller(), message.getCallee(), stroke, align, y);
 	}
 
+	protected Arrow(Arrow original, StateCopier copier) {
+		super(original, copier);
+		stroke = original.stroke;
+		headType = original.headType;
+		message = copier.copy(original.message);
+		space = original.space;
+		pts = copier.copy(original.pts);
+		textPoint = copier.copy(original.textPoint);
+		isAnswer = original.isAnswer;
+	}
+
+	public Arrow copy(StateCopier copier) {
+		return new Arrow(this, copier);
+	}
+
 	/**
 	 * Returns an array of two points, representing the end points of the arrow.
 	 * The first entry is the point where the arrow starts, the second is where
@@ -158,8 +172,8 @@ public class Arrow extends SequenceElement {
 	public static int getInnerHeight(Message message) {
 		// int l = message.getText().split("\\\\n").length;
 		String[] msg = splitMessage(message.getText(), message.getDiagram().messageLineLength);
-		JLabel label = DrawableLabel.makeLabel(msg, message.getDiagram().getPaintDevice().getFont(), false, false, false);
-		return label.getPreferredSize().height
+		LabelLayout layout = LabelLayout.getLayout(message.getDiagram().getPaintDevice().getFont(), false, false, false, msg);
+		return layout.getHeight()
 				+ message.getDiagram().getConfiguration().getMessageLabelSpace();
 	}
 
@@ -28,6 +28,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
 
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.message.Message;
 import net.sf.sdedit.util.Direction;
 
@@ -37,6 +38,14 @@ public class BroadcastArrow extends Arrow {
 		super(message, ArrowStroke.SOLID, align, y);
 	}
 
+	private BroadcastArrow(BroadcastArrow original, StateCopier copier) {
+		super(original, copier);
+	}
+
+	public BroadcastArrow copy(StateCopier copier) {
+		return new BroadcastArrow(this, copier);
+	}
+
 	protected void drawObject(Graphics2D g2d) {
     	ArrowStroke stroke = getStroke();
     	Point [] pts = getPoints();
@@ -26,8 +26,10 @@ package net.sf.sdedit.drawable;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 
 
@@ -42,6 +44,15 @@ public class Cross extends Drawable
         setHeight(getWidth());
     }
 
+    private Cross(Cross original, StateCopier copier) {
+        super(original, copier);
+        pts = copier.copy(original.pts);
+    }
+
+    public Cross copy(StateCopier copier) {
+        return new Cross(this, copier);
+    }
+
     /**
      * Returns an array of four points, the first two points are the end points
      * of the first line of the cross, the last two points those of the second
@@ -62,6 +73,17 @@ public class Cross extends Drawable
         g2d.drawLine(pts[2].x, pts[2].y, pts [3].x, pts [3].y);
     }
 
+    /**
+     * The cross is drawn around the top of its bounds, so it reaches above
+     * them by half of its width.
+     */
+    @Override
+    public Rectangle getDrawingBounds() {
+        Rectangle bounds = super.getDrawingBounds();
+        bounds.y -= getWidth() / 2;
+        return bounds;
+    }
+
     public void computeLayoutInformation() {
         int left = getLeft();
         int top = getTop();
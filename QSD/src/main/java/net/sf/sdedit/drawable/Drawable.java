@@ -23,13 +23,17 @@
 // THE POSSIBILITY OF SUCH DAMAGE.
 package net.sf.sdedit.drawable;
 
+import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Stroke;
 import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.sdedit.Constants;
 import net.sf.sdedit.diagram.Diagram;
+import net.sf.sdedit.diagram.StateCopier;
 
 /**
  * A <tt>Drawable</tt> object is a representation of a visible component that
@@ -44,7 +48,7 @@ import net.sf.sdedit.diagram.Diagram;
  * @author Markus Strauch
  * 
  */
-public abstract class Drawable implements Constants {
+public abstract class Drawable implements Constants, StateCopier.Copyable {
 
 	private int top, left, height, width;
 
@@ -64,6 +68,29 @@ public abstract class Drawable implements Constants {
 		this.diagram = diagram;
 		labels = new ArrayList<DrawableLabel>(1);
 	}
+
+	/**
+	 * Creates a copy of the given drawable for a
+	 * {@linkplain net.sf.sdedit.diagram.Checkpoint}. Each concrete subclass
+	 * has a constructor like this one that copies its own fields and is
+	 * called by its {@linkplain #copy(StateCopier)} method.
+	 * 
+	 * @param original
+	 *            the drawable to be copied
+	 * @param copier
+	 *            the copier used for copying the objects referenced by the
+	 *            drawable
+	 */
+	protected Drawable(Drawable original, StateCopier copier) {
+		copier.register(original, this);
+		top = original.top;
+		left = original.left;
+		height = original.height;
+		width = original.width;
+		visible = original.visible;
+		diagram = copier.copy(original.diagram);
+		labels = copier.copy(original.labels);
+	}
 	
 	public DrawableLabel addLabel() {
 		DrawableLabel label = new DrawableLabel(this);
@@ -93,10 +120,32 @@ public abstract class Drawable implements Constants {
 		return labels.size() > 0;
 	}
 	
+	/**
+	 * Draws this drawable by means of {@linkplain #drawObject(Graphics2D)}
+	 * and then restores the color, stroke and font of the graphics context,
+	 * which are the only parts of its state that drawables change without
+	 * restoring them. This is cheaper than drawing into a copy of the
+	 * graphics context, and the state is only set again if it has changed,
+	 * so consecutive drawables with the same color and stroke do not cause
+	 * the graphics context to be validated again.
+	 * 
+	 * @param g2d
+	 *            the graphics context to draw this drawable into
+	 */
 	public void draw (Graphics2D g2d) {
-	    Graphics2D g2 = (Graphics2D) g2d.create();
-	    drawObject(g2);
-	    g2.dispose();
+	    Color color = g2d.getColor();
+	    Stroke stroke = g2d.getStroke();
+	    Font font = g2d.getFont();
+	    drawObject(g2d);
+	    if (g2d.getColor() != color) {
+	        g2d.setColor(color);
+	    }
+	    if (g2d.getStroke() != stroke) {
+	        g2d.setStroke(stroke);
+	    }
+	    if (g2d.getFont() != font) {
+	        g2d.setFont(font);
+	    }
 	}
 
 	/**
@@ -185,7 +234,18 @@ public abstract class Drawable implements Constants {
 	 * @return true if this drawable component's bounds intersect the rectangle
 	 */
 	public boolean intersects(java.awt.Rectangle rectangle) {
-		return rectangle.intersects(left - 10, top - 10, width + 20,
+		return rectangle.intersects(getDrawingBounds());
+	}
+
+	/**
+	 * Returns the area of the sequence diagram that this drawable component
+	 * occupies when it is drawn, including some space around it. It neither
+	 * intersects nor contains anything outside of this area.
+	 * 
+	 * @return the area occupied by this drawable component
+	 */
+	public java.awt.Rectangle getDrawingBounds() {
+		return new java.awt.Rectangle(left - 10, top - 10, width + 20,
 				height + 20);
 	}
 
@@ -209,8 +269,5 @@ public abstract class Drawable implements Constants {
 	public final void setVisible(boolean visible) {
 		this.visible = visible;
 	}
-	
-
-    
 }
 // {{core}}
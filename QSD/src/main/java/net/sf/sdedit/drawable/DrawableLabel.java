@@ -2,17 +2,15 @@ package net.sf.sdedit.drawable;
 
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
 
-import javax.swing.JLabel;
-import javax.swing.SwingConstants;
+import javax.swing.UIManager;
 
-import net.sf.sdedit.util.Utilities;
+import net.sf.sdedit.diagram.StateCopier;
 
-public class DrawableLabel {
+public class DrawableLabel implements StateCopier.Copyable {
 	
-	private JLabel jlabel;
+	private LabelLayout layout;
 	
 	private boolean bold;
 	
@@ -28,41 +26,26 @@ public class DrawableLabel {
 		this.drawable = parent;
 	}	
 	
-    protected static JLabel makeLabel(String[] strings, Font font, boolean bold, boolean italic, boolean underlined) {
-		JLabel label = new JLabel();
-		label.setFont(font);
-		String txt = "<html>";
-		if (bold) {
-			txt += "<b>";
-		}
-		if (italic) {
-			txt += "<i>";
-		}
-		if (underlined) {
-			txt += "<u>";
-		}
-		txt += Utilities.join("<br>", strings);
-		if (bold) {
-			txt += "</b>";
-		}
-		if (italic) {
-			txt += "</i>";
-		}
-		if (underlined) {
-			txt += "</u>";
-		}
-		txt += "</html>";
-		label.setText(txt.replaceAll(" ", "&nbsp;"));
-		label.setVerticalAlignment(SwingConstants.BOTTOM);
-		return label;
-    }
-    
+	private DrawableLabel (DrawableLabel original, StateCopier copier) {
+		copier.register(original, this);
+		layout = original.layout;
+		bold = original.bold;
+		italic = original.italic;
+		underlined = original.underlined;
+		label = copier.copy(original.label);
+		drawable = copier.copy(original.drawable);
+	}
+	
+	public DrawableLabel copy(StateCopier copier) {
+		return new DrawableLabel(this, copier);
+	}
+	
     public int textWidth() {
-    	 return getJLabel().getPreferredSize().width;
+    	 return getLayout().getWidth();
     }
 
     public int textHeight() {
-        return getJLabel().getPreferredSize().height;
+        return getLayout().getHeight();
     }
     
     public int getNumLines () {
@@ -73,37 +56,38 @@ public class DrawableLabel {
     	return textHeight() / getNumLines();
     }
 	
-    protected JLabel getJLabel() {
-    	Font font = drawable.getDiagram().getPaintDevice().getFont();
-    	if (jlabel == null) {
-    		jlabel = makeLabel(label, font, bold, italic, underlined);
+    protected LabelLayout getLayout() {
+    	if (layout == null) {
+    		Font font = drawable.getDiagram().getPaintDevice().getFont();
+    		layout = LabelLayout.getLayout(font, bold, italic, underlined, label);
     	}
-    	jlabel.setFont(font);
-    	return jlabel;
+    	return layout;
     }
 	
+    /**
+     * Draws the label such that its bottom is at <tt>y</tt>. The background
+     * is not painted, this is up to the drawable.
+     */
     protected void drawLabel(Graphics2D g, int x, int y,Color color, 
             Color background) {
-    	JLabel label = getJLabel();
-    	if (color != null) {
-    		label.setForeground(color);
-    	}
-    	if (background != null) {
-    		label.setBackground(background);
+    	if (color == null) {
+    		color = defaultColor();
     	}
-		label.setSize(label.getPreferredSize());
-		Graphics g1 = g.create();
-		g1.translate(x, y-label.getHeight());
-		label.paint(g1);
-		g1.dispose();
+    	getLayout().draw(g, x, y, color);
 	}
     
+    private static Color defaultColor() {
+    	Color color = UIManager.getColor("Label.foreground");
+    	return color != null ? color : Color.BLACK;
+    }
+    
 	public boolean isBold() {
 		return bold;
 	}
 
 	public DrawableLabel setBold(boolean bold) {
 		this.bold = bold;
+		layout = null;
 		return this;
 	}
 
@@ -113,6 +97,7 @@ public class DrawableLabel {
 
 	public DrawableLabel setItalic(boolean italic) {
 		this.italic = italic;
+		layout = null;
 		return this;
 	}
 	
@@ -122,16 +107,17 @@ public class DrawableLabel {
 	
 	public DrawableLabel setUnderlined(boolean underlined) {
 		this.underlined = underlined;
+		layout = null;
 		return this;
 	}
 	
 	protected DrawableLabel setLabel(String... label) {
 		this.label = label;
+		layout = null;
 		return this;
 	}
 	
 	protected String[] getLabel() {
 		return label;
 	}
-
 }
@@ -25,6 +25,7 @@
 package net.sf.sdedit.drawable;
 
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 
 /**
  * An <tt>ExtensibleDrawable</tt> represents the state of a lifeline during a
@@ -61,6 +62,11 @@ public abstract class ExtensibleDrawable extends Drawable {
         }
     }
     
+    protected ExtensibleDrawable(ExtensibleDrawable original, StateCopier copier) {
+        super(original, copier);
+        lifeline = copier.copy(original.lifeline);
+    }
+    
     public boolean isVisible () {
     	if (lifeline == null) {
     		return super.isVisible();
@@ -29,6 +29,7 @@ import java.awt.Graphics2D;
 import java.awt.Polygon;
 
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 
 /**
@@ -79,6 +80,17 @@ public class Figure extends Drawable {
                 .isShouldShadowParticipants();
     }
 
+    private Figure(Figure original, StateCopier copier) {
+        super(original, copier);
+        actorHeight = original.actorHeight;
+        actorWidth = original.actorWidth;
+        shouldShadow = original.shouldShadow;
+    }
+
+    public Figure copy(StateCopier copier) {
+        return new Figure(this, copier);
+    }
+
     /**
      * @see net.sf.sdedit.drawable.Drawable#drawObject(java.awt.Graphics2D)
      */
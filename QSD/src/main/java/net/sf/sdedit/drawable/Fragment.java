@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Set;
 
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 import net.sf.sdedit.message.ConstructorMessage;
 import net.sf.sdedit.message.Message;
@@ -119,6 +120,21 @@ public class Fragment extends Drawable
         separators = new LinkedList<Pair<Integer, String>>();
     }
 
+    private Fragment(Fragment original, StateCopier copier) {
+        super(original, copier);
+        type = original.type;
+        condition = original.condition;
+        diagram = copier.copy(original.diagram);
+        includedElements = copier.copy(original.includedElements);
+        typeTextPadding = original.typeTextPadding;
+        level = original.level;
+        separators = copier.copy(original.separators);
+    }
+
+    public Fragment copy(StateCopier copier) {
+        return new Fragment(this, copier);
+    }
+
     /**
      * Sets the level of this fragment (the number of fragments that this
      * fragment is a part of) to the maximum of the current level and the given
@@ -0,0 +1,356 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+
+package net.sf.sdedit.drawable;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JLabel;
+import javax.swing.SwingConstants;
+
+import net.sf.sdedit.util.Utilities;
+
+/**
+ * A <tt>LabelLayout</tt> is the measured layout of a (possibly multi-line)
+ * label text in a certain font and style. Layouts are computed by means of the
+ * font metrics directly. They are immutable and memoized per font, style and
+ * text, so they can be shared by all drawables and all threads.
+ * <p>
+ * The metrics are the same as those of the HTML-formatted <tt>JLabel</tt>s
+ * that were formerly used for labels, so diagrams keep their exact layout:
+ * each line is one font height high, line breaks adjacent to empty lines are
+ * as wide as a space, a trailing empty line does not make a line of its own,
+ * and an empty label is as high as a line in the default 12pt dialog font,
+ * unless it is styled, then it has no height at all.
+ * <p>
+ * Texts containing characters that have a meaning in HTML (<tt>&lt;</tt>,
+ * <tt>&amp;</tt> and control characters) are still laid out and drawn by an
+ * HTML-formatted <tt>JLabel</tt>, because diagrams rely on the way the HTML
+ * parser treats them (tag-like runs disappear, entities are decoded).
+ * 
+ * @author Markus Strauch
+ */
+public final class LabelLayout {
+
+	private static final int CACHE_SIZE = 4096;
+
+	private static final Map<Key, LabelLayout> cache = new LinkedHashMap<Key, LabelLayout>(256, 0.75F, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, LabelLayout> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/*
+	 * Labels are measured by several rendering threads at once, and a
+	 * Graphics2D is not thread-safe.
+	 */
+	private static final ThreadLocal<Graphics2D> metricsGraphics = new ThreadLocal<Graphics2D>() {
+		@Override
+		protected Graphics2D initialValue() {
+			return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+		}
+	};
+
+	private static final int emptyLabelHeight = getFontMetrics(new Font(Font.DIALOG, Font.PLAIN, 12)).getHeight();
+
+	private final Font font;
+
+	private final boolean underlined;
+
+	private final String[] lines;
+
+	private final int[] lineWidths;
+
+	private final int width;
+
+	private final int height;
+
+	private final int lineHeight;
+
+	private final int descent;
+
+	/*
+	 * The HTML text of the JLabel that lays out and draws this text, or null
+	 * if the text is drawn directly
+	 */
+	private final String html;
+
+	private LabelLayout(Font font, boolean bold, boolean italic, boolean underlined, String[] lines) {
+		this.underlined = underlined;
+		this.lines = lines;
+		lineWidths = new int[lines.length];
+		if (needsHtml(lines)) {
+			// the label is given the plain font, styles are applied by HTML
+			this.font = font;
+			html = makeHtml(lines, bold, italic, underlined);
+			FontMetrics metrics = getFontMetrics(font);
+			lineHeight = metrics.getHeight();
+			descent = metrics.getDescent();
+			Dimension size = makeLabel(null).getPreferredSize();
+			width = size.width;
+			height = size.height;
+			return;
+		}
+		html = null;
+		int style = font.getStyle() | (bold ? Font.BOLD : 0) | (italic ? Font.ITALIC : 0);
+		this.font = style == font.getStyle() ? font : font.deriveFont(style);
+		FontMetrics metrics = getFontMetrics(this.font);
+		lineHeight = metrics.getHeight();
+		descent = metrics.getDescent();
+		boolean styled = bold || italic || underlined;
+		int w = 0;
+		for (int i = 0; i < lines.length; i++) {
+			lineWidths[i] = metrics.stringWidth(lines[i]);
+			w = Math.max(w, lineWidths[i]);
+		}
+		width = Math.max(w, getMinimumWidth(metrics));
+		if (lines.length == 1 && lines[0].length() == 0) {
+			height = styled ? 0 : emptyLabelHeight;
+		} else if (lines.length > 1 && lines[lines.length - 1].length() == 0) {
+			height = (lines.length - 1) * lineHeight;
+		} else {
+			height = lines.length * lineHeight;
+		}
+	}
+
+	/*
+	 * A line break that precedes an empty line is as wide as a space, and it
+	 * cannot be separated from the text before it.
+	 */
+	private int getMinimumWidth(FontMetrics metrics) {
+		int space = metrics.charWidth(' ');
+		int min = 0;
+		int glue = 0;
+		for (int i = 0; i < lines.length - 1; i++) {
+			if (lines[i].length() > 0) {
+				glue = lineWidths[i];
+			}
+			int lineBreak = lines[i + 1].length() == 0 ? space : 0;
+			glue += lineBreak;
+			min = Math.max(min, glue);
+			glue = lineBreak;
+		}
+		return min;
+	}
+
+	private static FontMetrics getFontMetrics(Font font) {
+		return metricsGraphics.get().getFontMetrics(font);
+	}
+
+	private static boolean needsHtml(String[] lines) {
+		for (String line : lines) {
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (c == '<' || c == '&' || c < ' ') {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String makeHtml(String[] lines, boolean bold, boolean italic, boolean underlined) {
+		String txt = "<html>";
+		if (bold) {
+			txt += "<b>";
+		}
+		if (italic) {
+			txt += "<i>";
+		}
+		if (underlined) {
+			txt += "<u>";
+		}
+		txt += Utilities.join("<br>", lines);
+		if (bold) {
+			txt += "</b>";
+		}
+		if (italic) {
+			txt += "</i>";
+		}
+		if (underlined) {
+			txt += "</u>";
+		}
+		txt += "</html>";
+		return txt.replaceAll(" ", "&nbsp;");
+	}
+
+	/*
+	 * JLabels are not thread-safe, so each use gets a label of its own.
+	 */
+	private JLabel makeLabel(Color color) {
+		JLabel label = new JLabel();
+		label.setFont(font);
+		if (color != null) {
+			label.setForeground(color);
+		}
+		label.setText(html);
+		label.setVerticalAlignment(SwingConstants.BOTTOM);
+		return label;
+	}
+
+	/**
+	 * Returns the layout of the given lines of text.
+	 * 
+	 * @param font
+	 *            the plain font of the diagram
+	 * @param bold
+	 *            flag denoting if the text is bold
+	 * @param italic
+	 *            flag denoting if the text is italic
+	 * @param underlined
+	 *            flag denoting if the text is underlined
+	 * @param lines
+	 *            the lines of the text
+	 * @return the layout of the text
+	 */
+	public static LabelLayout getLayout(Font font, boolean bold, boolean italic, boolean underlined,
+			String... lines) {
+		int flags = (bold ? 1 : 0) | (italic ? 2 : 0) | (underlined ? 4 : 0);
+		Key key = new Key(font, flags, lines);
+		LabelLayout layout;
+		synchronized (cache) {
+			layout = cache.get(key);
+		}
+		if (layout == null) {
+			layout = new LabelLayout(font, bold, italic, underlined, lines.clone());
+			synchronized (cache) {
+				cache.put(new Key(font, flags, layout.lines), layout);
+			}
+		}
+		return layout;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getLineHeight() {
+		return lineHeight;
+	}
+
+	public int getNumLines() {
+		return lines.length;
+	}
+
+	/**
+	 * Draws the text such that the bottom of its last line is at the given
+	 * vertical position.
+	 * 
+	 * @param g2d
+	 *            the graphics context to draw the text into
+	 * @param x
+	 *            the left position of the text
+	 * @param y
+	 *            the bottom of the text
+	 * @param color
+	 *            the color of the text
+	 */
+	public void draw(Graphics2D g2d, int x, int y, Color color) {
+		if (html != null) {
+			JLabel label = makeLabel(color);
+			label.setSize(width, height);
+			Graphics g = g2d.create();
+			g.translate(x, y - height);
+			label.paint(g);
+			g.dispose();
+			return;
+		}
+		Font oldFont = g2d.getFont();
+		Color oldColor = g2d.getColor();
+		int top = y - height;
+		// draw relative to the label origin, as a component would do, this
+		// keeps vector output compact
+		g2d.translate(x, top);
+		// like a component, the text must not exceed its own bounds
+		Shape oldClip = g2d.getClip();
+		g2d.clipRect(0, 0, width, height);
+		g2d.setFont(font);
+		g2d.setColor(color);
+		int baseLine = lineHeight - descent;
+		for (int i = 0; i < lines.length; i++) {
+			if (lines[i].length() > 0) {
+				g2d.drawString(lines[i], 0, baseLine);
+				if (underlined) {
+					g2d.drawLine(0, baseLine + 1, lineWidths[i], baseLine + 1);
+				}
+			}
+			baseLine += lineHeight;
+		}
+		g2d.setColor(oldColor);
+		g2d.setFont(oldFont);
+		g2d.setClip(oldClip);
+		g2d.translate(-x, -top);
+	}
+
+	private static final class Key {
+
+		private final Font font;
+
+		private final int flags;
+
+		private final String[] lines;
+
+		private final int hashCode;
+
+		Key(Font font, int flags, String[] lines) {
+			this.font = font;
+			this.flags = flags;
+			this.lines = lines;
+			hashCode = (font.hashCode() * 31 + flags) * 31 + Arrays.hashCode(lines);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) obj;
+			return flags == key.flags && font.equals(key.font) && Arrays.equals(lines, key.lines);
+		}
+	}
+
+}
@@ -30,6 +30,7 @@ import java.awt.Stroke;
 
 import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 
 public class LabeledBox extends Drawable {
@@ -78,6 +79,19 @@ public class LabeledBox extends Drawable {
 
     }
 
+    private LabeledBox(LabeledBox original, StateCopier copier) {
+        super(original, copier);
+        headWidth = original.headWidth;
+        headHeight = original.headHeight;
+        padding = original.padding;
+        stroke = original.stroke;
+        lifeline = copier.copy(original.lifeline);
+    }
+
+    public LabeledBox copy(StateCopier copier) {
+        return new LabeledBox(this, copier);
+    }
+
     public boolean isVisible() {
         return !lifeline.isExternal() && super.isVisible();
     }
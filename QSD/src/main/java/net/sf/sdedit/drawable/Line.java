@@ -29,6 +29,7 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 
 
@@ -39,6 +40,15 @@ public class Line extends ExtensibleDrawable {
 	public Line(int width, Lifeline lifeline) {
 		super(width, lifeline);
 	}
+
+	private Line(Line original, StateCopier copier) {
+		super(original, copier);
+		mainLine = original.mainLine;
+	}
+
+	public Line copy(StateCopier copier) {
+		return new Line(this, copier);
+	}
 	
 	/*
 	public void draw(Graphics2D g2d) {
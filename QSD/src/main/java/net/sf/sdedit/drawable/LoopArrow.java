@@ -27,6 +27,7 @@ package net.sf.sdedit.drawable;
 import java.awt.Graphics2D;
 import java.awt.Point;
 
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.message.Message;
 import net.sf.sdedit.util.Direction;
 import net.sf.sdedit.util.UIUtilities;
@@ -56,6 +57,17 @@ public class LoopArrow extends Arrow {
 		init();
 	}
 
+	private LoopArrow(LoopArrow original, StateCopier copier) {
+		super(original, copier);
+		xExtent = original.xExtent;
+		from = copier.copy(original.from);
+		to = copier.copy(original.to);
+	}
+
+	public LoopArrow copy(StateCopier copier) {
+		return new LoopArrow(this, copier);
+	}
+
 	private void init() {
 		Message message = getMessage();
 		xExtent = diagram().selfMessageXExtent;
@@ -33,6 +33,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 import net.sf.sdedit.util.Direction;
 
@@ -121,6 +122,24 @@ public class Note extends SequenceElement
         targetId = 0;
         subId = -1;
     }
+
+    private Note(Note original, StateCopier copier) {
+        super(original, copier);
+        number = original.number;
+        padding = original.padding;
+        margin = original.margin;
+        targets = copier.copy(original.targets);
+        anchors = copier.copy(original.anchors);
+        location = copier.copy(original.location);
+        consuming = original.consuming;
+        link = original.link;
+        targetId = original.targetId;
+        subId = original.subId;
+    }
+
+    public Note copy(StateCopier copier) {
+        return new Note(this, copier);
+    }
     
     public void setTargetId (long id) {
     	this.targetId = id;
@@ -293,9 +312,9 @@ public class Note extends SequenceElement
     }
 
     @Override
-    public boolean intersects(java.awt.Rectangle rectangle) {
+    public java.awt.Rectangle getDrawingBounds() {
         if (targets.isEmpty()) {
-            return super.intersects(rectangle);
+            return super.getDrawingBounds();
         }
         int left = getLeft(), right = left + getWidth(), top = getTop(), bottom = top
                 + getHeight();
@@ -305,7 +324,7 @@ public class Note extends SequenceElement
             top = Math.min(top, a.y);
             bottom = Math.max(bottom, a.y);
         }
-        return rectangle.intersects(left - 10, top - 10, right - left + 20,
+        return new java.awt.Rectangle(left - 10, top - 10, right - left + 20,
                 bottom - top + 20);
     }
 
@@ -29,6 +29,7 @@ import java.awt.Graphics2D;
 
 import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.diagram.Lifeline;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Strokes.StrokeType;
 
 public class Rectangle extends ExtensibleDrawable
@@ -49,6 +50,17 @@ public class Rectangle extends ExtensibleDrawable
                 : lifeline.getDiagram().threadColors[lifeline.getThread() % l];
         configuration = lifeline.getDiagram().getConfiguration();
     }
+
+    private Rectangle(Rectangle original, StateCopier copier) {
+        super(original, copier);
+        color = original.color;
+        thread = original.thread;
+        configuration = copier.copy(original.configuration);
+    }
+
+    public Rectangle copy(StateCopier copier) {
+        return new Rectangle(this, copier);
+    }
     
     public final Color getColor () {
         return color;
@@ -29,6 +29,7 @@ import net.sf.sdedit.config.Configuration;
 import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.util.Direction;
 
 public abstract class SequenceElement extends Drawable implements Constants {
@@ -60,6 +61,18 @@ public abstract class SequenceElement extends Drawable implements Constants {
         computePadding();
     }
 
+    protected SequenceElement(SequenceElement original, StateCopier copier) {
+        super(original, copier);
+        leftEndpoint = copier.copy(original.leftEndpoint);
+        leftLimit = copier.copy(original.leftLimit);
+        rightEndpoint = copier.copy(original.rightEndpoint);
+        rightLimit = copier.copy(original.rightLimit);
+        align = original.align;
+        rightPadding = original.rightPadding;
+        leftPadding = original.leftPadding;
+        configuration = copier.copy(original.configuration);
+    }
+
     protected final SequenceDiagram diagram() {
         return (SequenceDiagram) getDiagram();
     }
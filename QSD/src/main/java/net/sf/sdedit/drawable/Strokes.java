@@ -26,11 +26,8 @@ package net.sf.sdedit.drawable;
 
 import java.awt.BasicStroke;
 import java.awt.Stroke;
-import java.util.HashMap;
-import java.util.Map;
-
-import net.sf.sdedit.util.Pair;
-import net.sf.sdedit.util.Utilities;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class Strokes {
     
@@ -48,10 +45,24 @@ public class Strokes {
     
     
     
-    private static Map<Pair<StrokeType, Integer>,Stroke> strokeCache;
+    /*
+     * Strokes of widths up to this are created in advance, wider ones are
+     * created when they are first needed
+     */
+    private static final int MAX_CACHED_WIDTH = 16;
+    
+    private static final float [] [] dashes;
     
-    private static float [] [] dashes;
+    /*
+     * Indexed by the ordinal of the stroke type and the width, filled
+     * completely when the class is initialized and never changed, so it can
+     * be read by any number of threads without locking
+     */
+    private static final Stroke [] [] strokes;
     
+    private static final ConcurrentMap<Integer, Stroke> wideStrokes;
+    
+    private static final Stroke defaultStroke;
     
     static {
         dashes = new float[4][2];
@@ -59,27 +70,42 @@ public class Strokes {
         dashes[StrokeType.EMPTY.ordinal()] = new float [] {0,1};
         dashes[StrokeType.DASHED.ordinal()] = new float [] {5,5};
         dashes[StrokeType.DOTTED.ordinal()] = new float [] {1,2};
-        strokeCache = new HashMap<Pair<StrokeType,Integer>, Stroke>();
+        strokes = new Stroke [StrokeType.values().length] [MAX_CACHED_WIDTH + 1];
+        for (StrokeType type : StrokeType.values()) {
+            for (int width = 0; width <= MAX_CACHED_WIDTH; width++) {
+                strokes [type.ordinal()] [width] = createStroke(type, width);
+            }
+        }
+        wideStrokes = new ConcurrentHashMap<Integer, Stroke>();
+        defaultStroke = strokes [StrokeType.SOLID.ordinal()] [1];
+    }
+    
+    private static Stroke createStroke (StrokeType type, int width) {
+        int cap = BasicStroke.CAP_BUTT;
+        int join = BasicStroke.JOIN_ROUND;
+        float miterlimit = 1F;
+        float dash_phase = 0F;
+        return new BasicStroke(width, cap, join, miterlimit, dashes[type.ordinal()], dash_phase);
     }
     
     public static Stroke getStroke (StrokeType type, int width) {
-        Pair<StrokeType, Integer> key = Utilities.pair(type, width);
-        Stroke stroke = strokeCache.get(key);
+        if (width >= 0 && width <= MAX_CACHED_WIDTH) {
+            return strokes [type.ordinal()] [width];
+        }
+        Integer key = width * strokes.length + type.ordinal();
+        Stroke stroke = wideStrokes.get(key);
         if (stroke == null) {
-            int cap = BasicStroke.CAP_BUTT;
-            int join = BasicStroke.JOIN_ROUND;
-            float miterlimit = 1F;
-            float dash_phase = 0F;
-            stroke = new BasicStroke(width, cap, join, miterlimit, dashes[type.ordinal()], dash_phase);
-            synchronized (strokeCache) {
-                strokeCache.put(key, stroke);
+            stroke = createStroke(type, width);
+            Stroke existing = wideStrokes.putIfAbsent(key, stroke);
+            if (existing != null) {
+                stroke = existing;
             }
         }
         return stroke;
     }
     
     public static Stroke defaultStroke () {
-        return getStroke(StrokeType.SOLID, 1);
+        return defaultStroke;
     }
     
     private Strokes () {
@@ -27,6 +27,7 @@ package net.sf.sdedit.drawable;
 import java.awt.Graphics2D;
 
 import net.sf.sdedit.diagram.Diagram;
+import net.sf.sdedit.diagram.StateCopier;
 
 public class Text extends Drawable {
 
@@ -37,6 +38,14 @@ public class Text extends Drawable {
 		setWidth(getLabel().textWidth());
 	}
 
+	private Text(Text original, StateCopier copier) {
+		super(original, copier);
+	}
+
+	public Text copy(StateCopier copier) {
+		return new Text(this, copier);
+	}
+
 	@Override
 	public void computeLayoutInformation() {
 
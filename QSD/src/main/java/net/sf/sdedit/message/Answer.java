@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.util.Direction;
@@ -65,6 +66,15 @@ public class Answer extends Message
         forward = forwardMsg;
     }
 
+    protected Answer(Answer original, StateCopier copier) {
+        super(original, copier);
+        forward = copier.copy(original.forward);
+    }
+
+    public Answer copy(StateCopier copier) {
+        return new Answer(this, copier);
+    }
+
     /**
      * Returns the <tt>ForwardMessage</tt> to which this is the answer.
      * 
@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.drawable.LoopArrow;
@@ -39,6 +40,14 @@ public class AnswerToSelf extends Answer
             MessageData data, ForwardMessage forward) {
         super(caller, callee, diagram, data, forward);
     }
+
+    private AnswerToSelf(AnswerToSelf original, StateCopier copier) {
+        super(original, copier);
+    }
+
+    public AnswerToSelf copy(StateCopier copier) {
+        return new AnswerToSelf(this, copier);
+    }
     
     protected void execute() {
     	
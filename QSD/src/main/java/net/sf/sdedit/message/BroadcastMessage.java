@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.BroadcastArrow;
 import net.sf.sdedit.util.Direction;
@@ -46,6 +47,15 @@ public class BroadcastMessage extends ForwardMessage {
 		super(caller, callee, diagram, data);
 	}
 
+	private BroadcastMessage(BroadcastMessage original, StateCopier copier) {
+		super(original, copier);
+		otherCallees = copier.copy(original.otherCallees);
+	}
+
+	public BroadcastMessage copy(StateCopier copier) {
+		return new BroadcastMessage(this, copier);
+	}
+
 	@Override
 	public Answer getAnswerMessage() {
 		return null;
@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.util.Direction;
@@ -59,6 +60,14 @@ public class ConstructorMessage extends ForwardMessage
         super(caller, callee, diagram, data);
     }
 
+    private ConstructorMessage(ConstructorMessage original, StateCopier copier) {
+        super(original, copier);
+    }
+
+    public ConstructorMessage copy(StateCopier copier) {
+        return new ConstructorMessage(this, copier);
+    }
+
     protected void execute() {
     	
         int headHeight = getCallee().getHead().getHeight();
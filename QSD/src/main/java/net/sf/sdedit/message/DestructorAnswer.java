@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 
 /**
  * Represents the answer given to a call to an object's destructor. Is in
@@ -56,6 +57,14 @@ public class DestructorAnswer extends Answer
         super(caller, callee, diagram, data, forward);
     }
 
+    private DestructorAnswer(DestructorAnswer original, StateCopier copier) {
+        super(original, copier);
+    }
+
+    public DestructorAnswer copy(StateCopier copier) {
+        return new DestructorAnswer(this, copier);
+    }
+
     protected void execute() {
 
         super.execute();
@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.util.Direction;
@@ -64,6 +65,15 @@ public class ForwardMessage extends Message {
 		// TODO ? set level for pretty print
 		// this.level = caller.getCallLevel();
 	}
+
+	protected ForwardMessage(ForwardMessage original, StateCopier copier) {
+		super(original, copier);
+		level = original.level;
+	}
+
+	public ForwardMessage copy(StateCopier copier) {
+		return new ForwardMessage(this, copier);
+	}
 	
 	public int getLevel () {
 		return level;
@@ -29,6 +29,7 @@ import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 
 /**
@@ -38,7 +39,7 @@ import net.sf.sdedit.drawable.Arrow;
  * @author Markus Strauch
  * 
  */
-public abstract class Message implements Constants {
+public abstract class Message implements Constants, StateCopier.Copyable {
 
     private final Lifeline caller;
 
@@ -61,6 +62,27 @@ public abstract class Message implements Constants {
         conf = diagram.getConfiguration();
     }
 
+    /**
+     * Creates a copy of the given message for a
+     * {@linkplain net.sf.sdedit.diagram.Checkpoint}, to be called by the copy
+     * constructors of the subclasses.
+     * 
+     * @param original
+     *            the message to be copied
+     * @param copier
+     *            the copier used for copying the lifelines, the data and the
+     *            arrow of the message
+     */
+    protected Message(Message original, StateCopier copier) {
+        copier.register(original, this);
+        caller = copier.copy(original.caller);
+        callee = copier.copy(original.callee);
+        diagram = copier.copy(original.diagram);
+        data = copier.copy(original.data);
+        conf = copier.copy(original.conf);
+        arrow = copier.copy(original.arrow);
+    }
+
     /**
      * Returns a string representation of this message, in particular of the
      * caller and the callee lifeline.
@@ -186,5 +208,4 @@ public abstract class Message implements Constants {
     protected final int v() {
         return diagram.getVerticalPosition();
     }
-
 }//{{core}}
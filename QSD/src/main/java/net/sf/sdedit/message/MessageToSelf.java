@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.drawable.LoopArrow;
@@ -61,6 +62,14 @@ public class MessageToSelf extends ForwardMessage
         super(caller, callee, diagram, data);
     }
 
+    private MessageToSelf(MessageToSelf original, StateCopier copier) {
+        super(original, copier);
+    }
+
+    public MessageToSelf copy(StateCopier copier) {
+        return new MessageToSelf(this, copier);
+    }
+
     /**
      * Returns an answer from the sub-lifeline to the sender lifeline. In the
      * answer, the roles of caller and callee change.
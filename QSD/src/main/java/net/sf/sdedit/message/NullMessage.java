@@ -26,6 +26,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 
 public class NullMessage extends ForwardMessage {
 
@@ -33,6 +34,14 @@ public class NullMessage extends ForwardMessage {
 		super(null, receiver, diagram, data);
 	}
 
+	private NullMessage(NullMessage original, StateCopier copier) {
+		super(original, copier);
+	}
+
+	public NullMessage copy(StateCopier copier) {
+		return new NullMessage(this, copier);
+	}
+
 	@Override
 	public String getText() {
 		return "";
@@ -27,6 +27,7 @@ package net.sf.sdedit.message;
 import net.sf.sdedit.diagram.Lifeline;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Arrow;
 import net.sf.sdedit.drawable.ArrowStroke;
 import net.sf.sdedit.util.Direction;
@@ -54,6 +55,14 @@ public final class Primitive extends ForwardMessage {
 		super(caller, null, diagram, data);
 	}
 
+	private Primitive(Primitive original, StateCopier copier) {
+		super(original, copier);
+	}
+
+	public Primitive copy(StateCopier copier) {
+		return new Primitive(this, copier);
+	}
+
 	protected void execute() {
 		
 		/*
@@ -204,10 +204,8 @@ public class MultipagePaintDevice extends AbstractGraphicDevice {
 			}
 		    g2d.setColor(Color.BLACK);
 		    g2d.setStroke(Strokes.defaultStroke());
-			for (Drawable drawable : drawables()) {
-				if (rect == null || drawable.intersects(rect)) {
-					drawable.draw(g2d);
-				}
+			for (Drawable drawable : rect == null ? drawables() : drawables(rect)) {
+				drawable.draw(g2d);
 			}
 			g2d.dispose();
 		}
@@ -0,0 +1,317 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.server;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+
+import net.sf.sdedit.util.Grep;
+
+/**
+ * A <tt>Connection</tt> holds the state of a client that is connected to a
+ * {@linkplain RealtimeServer}. The first line the client sends is the title
+ * of the tab where the following lines are to be entered, optionally
+ * followed by the name of their encoding in brackets, like
+ * <tt>title[utf-8]</tt>. The connection is closed when the client sends a
+ * line <tt>end</tt>.
+ * <p>
+ * All methods that are not public are called by the server's selector
+ * thread.
+ * 
+ * @author Markus Strauch
+ */
+public final class Connection {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final String END_CONNECTION = "end";
+
+	private final RealtimeServer server;
+
+	private final SocketChannel channel;
+
+	private final Charset charset;
+
+	private final ByteBuffer bytes;
+
+	private final CharBuffer chars;
+
+	private final StringBuilder line;
+
+	private final String remoteAddress;
+
+	private SelectionKey key;
+
+	private CharsetDecoder decoder;
+
+	private Receiver receiver;
+
+	private boolean afterCarriageReturn;
+
+	private boolean finished;
+
+	private volatile String title;
+
+	private volatile long bytesReceived;
+
+	private volatile long linesReceived;
+
+	private volatile long lastActivity;
+
+	private volatile boolean paused;
+
+	Connection(RealtimeServer server, SocketChannel channel, Charset charset) {
+		this.server = server;
+		this.channel = channel;
+		this.charset = charset;
+		bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		chars = CharBuffer.allocate(BUFFER_SIZE);
+		line = new StringBuilder();
+		SocketAddress address = channel.socket().getRemoteSocketAddress();
+		remoteAddress = address == null ? "" : address.toString();
+		lastActivity = System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the title of the tab where the lines received through this
+	 * connection are entered, or <tt>null</tt> if the title has not been
+	 * received yet.
+	 * 
+	 * @return the title of the tab
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Returns the address of the client.
+	 * 
+	 * @return the address of the client
+	 */
+	public String getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	/**
+	 * Returns the number of bytes received through this connection.
+	 * 
+	 * @return the number of bytes received
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	/**
+	 * Returns the number of lines received through this connection,
+	 * including the title.
+	 * 
+	 * @return the number of lines received
+	 */
+	public long getLinesReceived() {
+		return linesReceived;
+	}
+
+	/**
+	 * Returns the number of milliseconds since something has been received
+	 * through this connection.
+	 * 
+	 * @return the idle time in milliseconds
+	 */
+	public long getIdleTime() {
+		return System.currentTimeMillis() - lastActivity;
+	}
+
+	/**
+	 * Returns a flag denoting if reading from this connection is suspended
+	 * because too many received lines have not yet been entered into the
+	 * tab.
+	 * 
+	 * @return flag denoting if reading is suspended
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	@Override
+	public String toString() {
+		return title + "@" + remoteAddress + ": " + bytesReceived
+				+ " bytes, " + linesReceived + " lines";
+	}
+
+	void register(Selector selector) throws IOException {
+		key = channel.register(selector, SelectionKey.OP_READ, this);
+	}
+
+	/*
+	 * Resumes reading after it has been paused.
+	 */
+	void resume() {
+		paused = false;
+		if (key.isValid()) {
+			key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	void close() {
+		key.cancel();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			/* empty */
+		}
+	}
+
+	/**
+	 * Reads the bytes that are available and passes the lines that they
+	 * complete to the receiver.
+	 * 
+	 * @return <tt>false</tt> if the connection is to be closed
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	boolean read() throws IOException {
+		int n = channel.read(bytes);
+		bytes.flip();
+		try {
+			if (n < 0) {
+				if (decoder != null) {
+					decode(true);
+					if (line.length() > 0) {
+						endLine();
+					}
+				}
+				return false;
+			}
+			bytesReceived += n;
+			lastActivity = System.currentTimeMillis();
+			if (decoder == null && !readTitle()) {
+				return false;
+			}
+			if (decoder != null) {
+				decode(false);
+			}
+		} finally {
+			bytes.compact();
+		}
+		return !finished;
+	}
+
+	/*
+	 * Reads the first line, which is decoded using the default charset and
+	 * determines the title and the decoder for the following lines. Returns
+	 * false if the first line is not valid.
+	 */
+	private boolean readTitle() {
+		int end = -1;
+		for (int i = bytes.position(); end < 0 && i < bytes.limit(); i++) {
+			if (bytes.get(i) == '\n') {
+				end = i;
+			}
+		}
+		if (end < 0) {
+			// the first line must fit into the buffer
+			return bytes.limit() < bytes.capacity();
+		}
+		ByteBuffer first = bytes.duplicate();
+		first.limit(end);
+		String header = charset.decode(first).toString().trim();
+		bytes.position(end + 1);
+		linesReceived++;
+		Charset encoding = charset;
+		String[] parts = new Grep(Grep.NO_UNESCAPE).parse("^(.*)\\[(.*)\\]$",
+				header);
+		if (parts != null) {
+			header = parts[0];
+			try {
+				encoding = Charset.forName(parts[1]);
+			} catch (Exception failed) {
+				failed.printStackTrace();
+			}
+		}
+		if (header.length() == 0) {
+			return false;
+		}
+		title = header;
+		decoder = encoding.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		receiver = server.open(this);
+		return true;
+	}
+
+	private void decode(boolean endOfInput) {
+		CoderResult result;
+		do {
+			result = decoder.decode(bytes, chars, endOfInput);
+			scan();
+		} while (result.isOverflow() && !finished);
+		if (endOfInput) {
+			decoder.flush(chars);
+			scan();
+		}
+	}
+
+	/*
+	 * Splits the decoded characters into lines, like
+	 * BufferedReader.readLine().
+	 */
+	private void scan() {
+		chars.flip();
+		while (chars.hasRemaining() && !finished) {
+			char c = chars.get();
+			if (c == '\n' && afterCarriageReturn) {
+				afterCarriageReturn = false;
+				continue;
+			}
+			afterCarriageReturn = c == '\r';
+			if (c == '\n' || c == '\r') {
+				endLine();
+			} else {
+				line.append(c);
+			}
+		}
+		chars.clear();
+	}
+
+	private void endLine() {
+		String text = line.toString().trim();
+		line.setLength(0);
+		linesReceived++;
+		if (text.toLowerCase().equals(END_CONNECTION)) {
+			finished = true;
+		} else if (!receiver.receive(text) && !paused) {
+			paused = true;
+			key.interestOps(0);
+		}
+	}
+}
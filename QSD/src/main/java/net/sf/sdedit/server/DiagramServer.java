@@ -0,0 +1,576 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.server;
+
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.editor.DiagramFileHandler;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.text.TextHandler;
+import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.util.DocUtil.XMLException;
+import net.sf.sdedit.util.ObjectFactory;
+import net.sf.sdedit.util.Pair;
+import net.sf.sdedit.util.Threads;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A <tt>DiagramServer</tt> renders sequence diagrams for HTTP clients. It
+ * serves two paths:
+ * <ul>
+ * <li><tt>POST /render</tt> expects the diagram source (plain text or the
+ * XML of an .sdx file) as the request body, encoded in UTF-8 unless the
+ * <tt>Content-Type</tt> header names another charset. The query parameters
+ * <tt>type</tt> (one of png, svg, pdf, ps, eps, emf, gif, jpg, bmp; default
+ * png), <tt>orientation</tt> and <tt>format</tt> determine the output, all
+ * other parameters are taken as values of the diagram preferences, like the
+ * long options of the command line. The response is the exported diagram,
+ * or a plain text error message with status 400 (syntax error, invalid
+ * parameter or unsupported charset), 503 (too many requests waiting to be rendered), 504 (not
+ * rendered within the timeout) or 500 (failure).</li>
+ * <li><tt>GET /metrics</tt> returns counters, the number of requests
+ * waiting to be rendered and percentiles of the latency of the last
+ * rendered diagrams, in the text format of Prometheus.</li>
+ * </ul>
+ * Diagrams are rendered by a fixed number of worker threads. Requests that
+ * find the queue in front of them full are rejected at once. A request that
+ * times out while waiting is removed from the queue, a diagram that is
+ * being rendered when its request times out is still stored in the
+ * {@linkplain RenderCache}.
+ * <p>
+ * Requests are read, and their results are waited for, by virtual threads if
+ * the Java runtime supports them (see {@linkplain Threads}), so the number of
+ * requests that can wait at the same time is only limited by the queue.
+ * 
+ * @author Markus Strauch
+ */
+public class DiagramServer {
+
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	private static final int HTTP_THREADS = 4;
+
+	private static final int MAX_BODY_SIZE = 4 * 1024 * 1024;
+
+	private static final int LATENCIES = 1024;
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	private static final int QUEUED = 0;
+
+	private static final int RUNNING = 1;
+
+	private static final int DONE = 2;
+
+	private static final Map<String, String> CONTENT_TYPES;
+
+	static {
+		CONTENT_TYPES = new HashMap<String, String>();
+		CONTENT_TYPES.put("png", "image/png");
+		CONTENT_TYPES.put("gif", "image/gif");
+		CONTENT_TYPES.put("jpg", "image/jpeg");
+		CONTENT_TYPES.put("bmp", "image/bmp");
+		CONTENT_TYPES.put("svg", "image/svg+xml");
+		CONTENT_TYPES.put("pdf", "application/pdf");
+		CONTENT_TYPES.put("ps", "application/postscript");
+		CONTENT_TYPES.put("eps", "application/postscript");
+		CONTENT_TYPES.put("emf", "image/emf");
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService httpThreads;
+
+	private final ThreadPoolExecutor workers;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final RenderCache cache;
+
+	private final long timeout;
+
+	private final AtomicLong requests;
+
+	private final AtomicLong rendered;
+
+	private final AtomicLong rejected;
+
+	private final AtomicLong timeouts;
+
+	private final AtomicLong syntaxErrors;
+
+	private final AtomicLong badRequests;
+
+	private final AtomicLong failures;
+
+	private final long[] latencies;
+
+	private long latencyCount;
+
+	/**
+	 * Creates a new <tt>DiagramServer</tt>, which is bound to the given
+	 * address, but does not accept requests until {@linkplain #start()} is
+	 * called.
+	 * 
+	 * @param address
+	 *            the address where the server listens (use port 0 for any
+	 *            free port)
+	 * @param threads
+	 *            the number of diagrams that are rendered simultaneously
+	 * @param queueCapacity
+	 *            the maximal number of requests waiting to be rendered
+	 * @param timeout
+	 *            the number of milliseconds after which a request that has
+	 *            not been answered is answered with status 504
+	 * @param cache
+	 *            the cache for rendered diagrams
+	 * @throws IOException
+	 *             if the server cannot be bound to the address
+	 */
+	public DiagramServer(InetSocketAddress address, int threads,
+			int queueCapacity, long timeout, RenderCache cache)
+			throws IOException {
+		this.timeout = timeout;
+		this.cache = cache;
+		requests = new AtomicLong();
+		rendered = new AtomicLong();
+		rejected = new AtomicLong();
+		timeouts = new AtomicLong();
+		syntaxErrors = new AtomicLong();
+		badRequests = new AtomicLong();
+		failures = new AtomicLong();
+		latencies = new long[LATENCIES];
+		workers = new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						queueCapacity), threadFactory("DiagramServer-Worker-"));
+		timer = new ScheduledThreadPoolExecutor(1,
+				threadFactory("DiagramServer-Timer-"));
+		timer.setRemoveOnCancelPolicy(true);
+		httpThreads = Threads.newTaskExecutor("DiagramServer-Http-",
+				HTTP_THREADS);
+		server = HttpServer.create(address, 0);
+		server.setExecutor(httpThreads);
+		server.createContext("/render", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				render(exchange);
+			}
+		});
+		server.createContext("/metrics", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain; version=0.0.4",
+						getMetrics().getBytes(UTF8));
+			}
+		});
+	}
+
+	private static ThreadFactory threadFactory(final String prefix) {
+		final AtomicInteger number = new AtomicInteger();
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				thread.setName(prefix + number.incrementAndGet());
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, closes all connections and stops the worker
+	 * threads.
+	 */
+	public void stop() {
+		server.stop(0);
+		workers.shutdownNow();
+		timer.shutdownNow();
+		httpThreads.shutdownNow();
+	}
+
+	/**
+	 * Returns the port where the server listens.
+	 * 
+	 * @return the port where the server listens
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the metrics of this server, as served at <tt>/metrics</tt>.
+	 * 
+	 * @return the metrics of this server
+	 */
+	public String getMetrics() {
+		StringBuilder metrics = new StringBuilder();
+		metric(metrics, "sdedit_render_queue_depth", workers.getQueue().size());
+		metric(metrics, "sdedit_render_active", workers.getActiveCount());
+		metric(metrics, "sdedit_render_requests_total", requests.get());
+		metric(metrics, "sdedit_render_rendered_total", rendered.get());
+		metric(metrics, "sdedit_render_rejected_total", rejected.get());
+		metric(metrics, "sdedit_render_timeouts_total", timeouts.get());
+		metric(metrics, "sdedit_render_syntax_errors_total",
+				syntaxErrors.get());
+		metric(metrics, "sdedit_render_bad_requests_total", badRequests.get());
+		metric(metrics, "sdedit_render_failures_total", failures.get());
+		long[] sorted;
+		synchronized (latencies) {
+			sorted = Arrays.copyOf(latencies,
+					(int) Math.min(latencyCount, LATENCIES));
+		}
+		Arrays.sort(sorted);
+		for (double quantile : QUANTILES) {
+			long value = 0;
+			if (sorted.length > 0) {
+				int rank = (int) Math.ceil(quantile * sorted.length);
+				value = sorted[Math.max(0, rank - 1)];
+			}
+			metric(metrics, "sdedit_render_latency_ms{quantile=\""
+					+ quantile + "\"}", value);
+		}
+		metric(metrics, "sdedit_render_latency_ms_max",
+				sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+		metric(metrics, "sdedit_render_cache_hits_total", cache.getHits()
+				+ cache.getDiskHits());
+		metric(metrics, "sdedit_render_cache_misses_total", cache.getMisses());
+		metric(metrics, "sdedit_render_cache_bytes", cache.getSize());
+		return metrics.toString();
+	}
+
+	private static void metric(StringBuilder metrics, String name, long value) {
+		metrics.append(name).append(' ').append(value).append('\n');
+	}
+
+	private void addLatency(long nanos) {
+		synchronized (latencies) {
+			latencies[(int) (latencyCount % LATENCIES)] = nanos / 1000000;
+			latencyCount++;
+		}
+	}
+
+	private void render(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		requests.incrementAndGet();
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			badRequest(exchange, 405, "POST expected");
+			return;
+		}
+		Map<String, String> parameters;
+		try {
+			parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+		} catch (IllegalArgumentException e) {
+			badRequest(exchange, 400, "invalid query: " + e.getMessage());
+			return;
+		}
+		String type = value(parameters.remove("type"), "png").toLowerCase();
+		String orientation = value(parameters.remove("orientation"),
+				"Portrait");
+		String format = value(parameters.remove("format"), "A4")
+				.toUpperCase();
+		String contentType = CONTENT_TYPES.get(type);
+		if (contentType == null) {
+			badRequest(exchange, 400, "unknown type: " + type);
+			return;
+		}
+		String charset = getCharset(exchange);
+		if (!isSupported(charset)) {
+			badRequest(exchange, 400, "unsupported charset: " + charset);
+			return;
+		}
+		byte[] body = readBody(exchange.getRequestBody());
+		if (body == null) {
+			badRequest(exchange, 413, "diagram source exceeds "
+					+ MAX_BODY_SIZE + " bytes");
+			return;
+		}
+		String text;
+		Bean<? extends Configuration> conf;
+		try {
+			Pair<String, Bean<? extends Configuration>> pair = new DiagramFileHandler()
+					.load(new ByteArrayInputStream(body), charset);
+			text = pair.getFirst();
+			conf = pair.getSecond();
+			configure(conf, parameters);
+		} catch (XMLException e) {
+			badRequest(exchange, 400, "invalid diagram file: " + e.getMessage());
+			return;
+		} catch (RuntimeException e) {
+			badRequest(exchange, 400, e.getMessage());
+			return;
+		}
+		RenderJob job = new RenderJob(exchange, start, text, conf
+				.getDataObject().cast(SequenceConfiguration.class), type,
+				orientation, format, contentType);
+		job.deadline = timer.schedule(new Runnable() {
+			public void run() {
+				job.timeout();
+			}
+		}, timeout, TimeUnit.MILLISECONDS);
+		try {
+			workers.execute(job);
+		} catch (RejectedExecutionException e) {
+			job.deadline.cancel(false);
+			rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, "too many requests");
+		}
+	}
+
+	private void badRequest(HttpExchange exchange, int status, String message) {
+		badRequests.incrementAndGet();
+		respond(exchange, status, message);
+	}
+
+	/*
+	 * Sets the values of configuration properties given as query parameters,
+	 * as the long options of the command line do.
+	 */
+	private static void configure(Bean<? extends Configuration> conf,
+			Map<String, String> parameters) {
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			PropertyDescriptor property = conf.getProperty(parameter.getKey());
+			if (property == null) {
+				throw new IllegalArgumentException("unknown parameter: "
+						+ parameter.getKey());
+			}
+			Object value;
+			try {
+				value = ObjectFactory.createFromString(
+						property.getPropertyType(), parameter.getValue());
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("invalid value of "
+						+ parameter.getKey() + ": " + parameter.getValue());
+			}
+			conf.setValue(property, value);
+		}
+	}
+
+	private static Map<String, String> parseQuery(String query)
+			throws UnsupportedEncodingException {
+		Map<String, String> parameters = new LinkedHashMap<String, String>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String pair : query.split("&")) {
+			if (pair.length() == 0) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			parameters.put(URLDecoder.decode(name, "utf-8"),
+					URLDecoder.decode(value, "utf-8"));
+		}
+		return parameters;
+	}
+
+	private static String value(String value, String dflt) {
+		return value == null || value.length() == 0 ? dflt : value;
+	}
+
+	private static String getCharset(HttpExchange exchange) {
+		String contentType = exchange.getRequestHeaders().getFirst(
+				"Content-Type");
+		if (contentType != null) {
+			for (String part : contentType.split(";")) {
+				part = part.trim();
+				if (part.toLowerCase().startsWith("charset=")) {
+					return part.substring(8).replace("\"", "").trim();
+				}
+			}
+		}
+		return "utf-8";
+	}
+
+	private static boolean isSupported(String charset) {
+		try {
+			return Charset.isSupported(charset);
+		} catch (IllegalCharsetNameException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Returns null if the body is larger than MAX_BODY_SIZE.
+	 */
+	private static byte[] readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				body.write(buffer, 0, n);
+				if (body.size() > MAX_BODY_SIZE) {
+					return null;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return body.toByteArray();
+	}
+
+	private static void respond(HttpExchange exchange, int status,
+			String message) {
+		respond(exchange, status, "text/plain; charset=utf-8",
+				(message + "\n").getBytes(UTF8));
+	}
+
+	private static void respond(HttpExchange exchange, int status,
+			String contentType, byte[] data) {
+		try {
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			exchange.sendResponseHeaders(status, data.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(data);
+			out.close();
+		} catch (IOException e) {
+			// the client has gone away
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/*
+	 * A request that is answered either by the worker thread that renders
+	 * the diagram or by the timer, whichever comes first.
+	 */
+	private final class RenderJob implements Runnable {
+
+		private final HttpExchange exchange;
+
+		private final long start;
+
+		private final String text;
+
+		private final SequenceConfiguration conf;
+
+		private final String type;
+
+		private final String orientation;
+
+		private final String format;
+
+		private final String contentType;
+
+		private final AtomicInteger state;
+
+		ScheduledFuture<?> deadline;
+
+		RenderJob(HttpExchange exchange, long start, String text,
+				SequenceConfiguration conf, String type, String orientation,
+				String format, String contentType) {
+			this.exchange = exchange;
+			this.start = start;
+			this.text = text;
+			this.conf = conf;
+			this.type = type;
+			this.orientation = orientation;
+			this.format = format;
+			this.contentType = contentType;
+			state = new AtomicInteger(QUEUED);
+		}
+
+		public void run() {
+			if (!state.compareAndSet(QUEUED, RUNNING)) {
+				return;
+			}
+			byte[] data = null;
+			String message = null;
+			int status = 200;
+			try {
+				data = cache.export(text, conf, type, orientation, format);
+			} catch (DiagramError e) {
+				status = 400;
+				message = e.getMessage();
+				if (e.getProvider() instanceof TextHandler) {
+					message = "syntax error in line "
+							+ ((TextHandler) e.getProvider()).getLineNumber()
+							+ ": " + message;
+				}
+			} catch (Exception e) {
+				status = 500;
+				message = "fatal error: " + e;
+			}
+			if (!state.compareAndSet(RUNNING, DONE)) {
+				return;
+			}
+			deadline.cancel(false);
+			if (status == 200) {
+				rendered.incrementAndGet();
+				addLatency(System.nanoTime() - start);
+				respond(exchange, status, contentType, data);
+			} else {
+				(status == 400 ? syntaxErrors : failures).incrementAndGet();
+				respond(exchange, status, message);
+			}
+		}
+
+		void timeout() {
+			if (state.compareAndSet(QUEUED, DONE)) {
+				workers.remove(this);
+			} else if (!state.compareAndSet(RUNNING, DONE)) {
+				return;
+			}
+			timeouts.incrementAndGet();
+			respond(exchange, 504, "diagram not rendered within " + timeout
+					+ " ms");
+		}
+	}
+}
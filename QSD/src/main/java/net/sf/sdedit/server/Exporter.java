@@ -41,7 +41,6 @@ import org.freehep.graphicsio.emf.EMFGraphics2D;
 import org.freehep.graphicsio.gif.GIFGraphics2D;
 import org.freehep.graphicsio.pdf.PDFGraphics2D;
 import org.freehep.graphicsio.ps.PSGraphics2D;
-import org.freehep.graphicsio.svg.SVGGraphics2D;
 
 
 /**
@@ -85,7 +84,8 @@ public class Exporter extends G2DGraphicsDevice {
      * @return an instance of an Exporter
      */
     public static Exporter getExporter(String type, String orientation, String format, OutputStream stream) {
-        Exporter exporter = new Exporter(orientation, format);
+        Exporter exporter = "svg".equalsIgnoreCase(type) ? new SVGExporter(
+                orientation, format) : new Exporter(orientation, format);
         exporter.setType(type);
         exporter.setOutputStream(stream);
         return exporter;
@@ -122,8 +122,6 @@ public class Exporter extends G2DGraphicsDevice {
             vectorGraphics = ps;
         } else if (type.equals("emf")) {
             vectorGraphics = new EMFGraphics2D(stream, dim);
-        } else if (type.equals("svg")) {
-            vectorGraphics = new SVGGraphics2D(stream, dim);
         } else {
             throw new IllegalArgumentException("Unknown type: " + type);
         }
@@ -154,18 +152,24 @@ public class Exporter extends G2DGraphicsDevice {
         this.stream = stream;
     }
 
+    protected OutputStream getOutputStream() {
+        return stream;
+    }
+
     protected void setType(String type) {
         this.type = type.toLowerCase();
     }
 
-    public void export() {
+    /**
+     * Draws the diagram and writes it to the output stream.
+     * 
+     * @throws IOException
+     *             if the diagram cannot be written
+     */
+    public void export() throws IOException {
         vg.startExport();
         if (vg instanceof PSGraphics2D && "ps".equals(type)) {
-            try {
-                ((PSGraphics2D) vg).openPage(dim, "");
-            } catch (IOException ioe) {
-                ioe.printStackTrace();
-            }
+            ((PSGraphics2D) vg).openPage(dim, "");
         }
         drawAll();
         if (vg instanceof PSGraphics2D && "ps".equals(type)) {
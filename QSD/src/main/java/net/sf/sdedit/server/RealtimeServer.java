@@ -24,14 +24,19 @@
 
 package net.sf.sdedit.server;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.LinkedList;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.SwingUtilities;
 
@@ -40,110 +45,215 @@ import net.sf.sdedit.config.ConfigurationManager;
 import net.sf.sdedit.config.SequenceConfiguration;
 import net.sf.sdedit.editor.Editor;
 import net.sf.sdedit.ui.impl.DiagramTextTab;
-import net.sf.sdedit.util.Grep;
 
+/**
+ * The <tt>RealtimeServer</tt> accepts connections of clients that send
+ * diagram specifications line by line, each of which is entered into a tab
+ * of its own. All connections are served by a single thread, using a
+ * {@linkplain Selector}.
+ * 
+ * @author Markus Strauch
+ */
 public class RealtimeServer extends Thread implements Constants {
-	
-	private ServerSocket serverSocket;
 
-	private Editor editor;
+	private static final long SELECT_TIMEOUT = 1000;
 
-	private List<Receiver> receivers;
+	private static final long SHUTDOWN_TIMEOUT = 2000;
 
-	private boolean shutDown;
+	private final Selector selector;
+
+	private final ServerSocketChannel serverChannel;
+
+	private final Editor editor;
+
+	private final List<Connection> connections;
+
+	private final Queue<Runnable> tasks;
+
+	private volatile boolean shutDown;
 
 	public RealtimeServer(int port, Editor editor) throws IOException {
-		serverSocket = new ServerSocket(port);
 		this.editor = editor;
-		receivers = new LinkedList<Receiver>();
+		connections = new CopyOnWriteArrayList<Connection>();
+		tasks = new ConcurrentLinkedQueue<Runnable>();
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.socket().bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			serverChannel.close();
+			selector.close();
+			throw e;
+		}
 	}
 
+	/**
+	 * Stops the server and closes all connections.
+	 */
 	public void shutDown() {
 		shutDown = true;
-		try {
-			serverSocket.close();
-		} catch (IOException e) {
-			/* empty */
+		if (!isAlive()) {
+			closeAll();
+			return;
 		}
-		for (Receiver receiver : receivers) {
-			receiver.shutDown();
+		selector.wakeup();
+		if (Thread.currentThread() != this) {
+			try {
+				join(SHUTDOWN_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
 	public int getPort() {
-		if (serverSocket == null) {
-			return 0;
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the connections that are currently open.
+	 * 
+	 * @return the open connections
+	 */
+	public List<Connection> getConnections() {
+		return new ArrayList<Connection>(connections);
+	}
+
+	/*
+	 * Called when the title has been received through the connection,
+	 * creates the tab for it.
+	 */
+	Receiver open(final Connection connection) {
+		final Receiver receiver = new Receiver(new Runnable() {
+			public void run() {
+				resume(connection);
+			}
+		});
+		final String title = connection.getTitle();
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				DiagramTextTab tab = (DiagramTextTab) editor.getUI().addSequenceDiagramTextTab(title,
+						ConfigurationManager.createNewDefaultConfiguration(SequenceConfiguration.class), true);
+				receiver.setTab(tab);
+			}
+		});
+		return receiver;
+	}
+
+	private void resume(final Connection connection) {
+		tasks.add(new Runnable() {
+			public void run() {
+				connection.resume();
+			}
+		});
+		selector.wakeup();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.configureBlocking(false);
+			Charset charset = Charset.forName(ConfigurationManager
+					.getGlobalConfiguration().getFileEncoding());
+			Connection connection = new Connection(this, channel, charset);
+			connection.register(selector);
+			connections.add(connection);
+		} catch (Exception e) {
+			channel.close();
+			editor
+					.getUI()
+					.errorMessage(e,null,
+							"Exception caught while establishing a connection to a client.");
 		}
-		return serverSocket.getLocalPort();
 	}
 
-	private void createReceiver(final Socket socket) throws IOException {
-		InputStream stream = socket.getInputStream();
-		final BufferedReader reader = new BufferedReader(new InputStreamReader(
-				stream, ConfigurationManager.getGlobalConfiguration().getFileEncoding()));
-		String line = reader.readLine();
-		if (line != null) {
-			final BufferedReader decodingReader;
-			final String title;
-			line = line.trim();
-			String[] parts = new Grep(Grep.NO_UNESCAPE).parse("^(.*)\\[(.*)\\]$", line);
-			if (parts != null) {
-				String enc = parts[1];
-				title = parts[0];
-				BufferedReader theReader = null;
-				try {
-					theReader = new BufferedReader(new InputStreamReader(
-							stream, enc));
-				} catch (Exception failed) {
-					failed.printStackTrace();
-					theReader = null;
-				}
-				decodingReader = theReader == null ? reader : theReader;
-			} else {
-				title = line;
-				decodingReader = reader;
+	private void read(Connection connection) {
+		boolean open;
+		try {
+			open = connection.read();
+		} catch (IOException e) {
+			if (!shutDown) {
+				e.printStackTrace();
 			}
-			if (title.length() > 0) {
-				SwingUtilities.invokeLater(new Runnable() {
-					public void run() {
-						DiagramTextTab tab = (DiagramTextTab) editor.getUI().addSequenceDiagramTextTab(title,
-								ConfigurationManager.createNewDefaultConfiguration(SequenceConfiguration.class), true);
-						Receiver receiver = new Receiver(tab,
-								decodingReader, socket);
-						receivers.add(receiver);
-						Thread receiverThread = new Thread(receiver);
-						receiverThread.setDaemon(true);
-						receiverThread.start();
-					}
-				});
+			open = false;
+		}
+		if (!open) {
+			close(connection);
+		}
+	}
+
+	private void close(Connection connection) {
+		connections.remove(connection);
+		connection.close();
+	}
+
+	private void closeIdleConnections() {
+		long timeout = ConfigurationManager.getGlobalConfiguration()
+				.getRealtimeIdleTimeout() * 1000L;
+		// 0 (the default) means that idle connections are never closed
+		if (timeout <= 0) {
+			return;
+		}
+		for (Connection connection : connections) {
+			if (!connection.isPaused() && connection.getIdleTime() > timeout) {
+				close(connection);
 			}
 		}
 	}
 
+	private void closeAll() {
+		for (Connection connection : connections) {
+			close(connection);
+		}
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			/* empty */
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			/* empty */
+		}
+	}
+
 	public void run() {
-		Socket socket;
-		while (true) {
-			try {
-				socket = serverSocket.accept();
-			} catch (IOException e) {
-				if (shutDown) {
-					return;
+		try {
+			while (!shutDown) {
+				selector.select(SELECT_TIMEOUT);
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
 				}
-				editor
-						.getUI()
-						.errorMessage(e,null,
-								"Exception caught while waiting for a client to be connected.");
-				return;
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else if (key.isReadable()) {
+						read((Connection) key.attachment());
+					}
+				}
+				closeIdleConnections();
 			}
-
-			try {
-				createReceiver(socket);
-			} catch (Exception e) {
+		} catch (IOException e) {
+			if (!shutDown) {
 				editor
 						.getUI()
 						.errorMessage(e,null,
-								"Exception caught while establishing a connection to a client.");
+								"Exception caught while waiting for a client to be connected.");
 			}
+		} finally {
+			closeAll();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -24,126 +24,174 @@
 
 package net.sf.sdedit.server;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.net.Socket;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import net.sf.sdedit.config.ConfigurationManager;
+import net.sf.sdedit.config.GlobalConfiguration;
 import net.sf.sdedit.ui.UserInterface;
-import net.sf.sdedit.ui.components.DelayedActivity;
 import net.sf.sdedit.ui.impl.DiagramTextTab;
 
 /**
- * A <tt>Receiver</tt> receives a diagram specification through a TCP socket.
- * The received code will be entered into the text area of some tab in the
- * {@linkplain UserInterface}.
+ * A <tt>Receiver</tt> enters lines of a diagram specification that are
+ * received through a {@linkplain Connection} into the text area of some tab
+ * in the {@linkplain UserInterface}.
+ * <p>
+ * Received lines are collected and appended to the text area in batches, at
+ * most {@linkplain GlobalConfiguration#getRealtimeBatchDelay()} milliseconds
+ * after the first line of a batch has been received. When
+ * {@linkplain GlobalConfiguration#getRealtimeMaxPendingLines()} lines are
+ * waiting to be appended, {@linkplain #receive(String)} returns
+ * <tt>false</tt>, and the connection should stop reading until the
+ * <tt>Runnable</tt> given to the constructor is called, so a client that
+ * sends faster than the diagram can follow is slowed down by TCP flow
+ * control.
+ * <p>
+ * {@linkplain #receive(String)} never blocks, as it is called by the selector
+ * thread of the {@linkplain RealtimeServer}: the lines are handed over to the
+ * event dispatch thread through a lock-free queue.
  * 
  * @author Markus Strauch
  * 
  */
-public class Receiver implements Runnable
+public class Receiver
 {
-	private static final String RESET_STRING = "@RESET";
-	private static final String END_CONNECTION = "end";
-	
-    private BufferedReader reader;
+    private static final String RESET_STRING = "@RESET";
+
+    private final Runnable drained;
+
+    private final int maxPendingLines;
+
+    private final Timer flusher;
+
+    private final Runnable startFlusher;
 
-    private int delay = 100;
+    private final Queue<String> pending;
 
-    private Socket socket;
+    private final AtomicInteger pendingLines;
 
-    private boolean shutDown;
+    // set when the first line of a batch has been received, reset when the
+    // batch is entered
+    private final AtomicBoolean scheduled;
 
-    private DelayedActivity waiter;
+    // set when receive has returned false, reset when the batch is entered
+    private final AtomicBoolean full;
 
-    private StringBuffer appendBuffer;
+    private DiagramTextTab tab;
 
     /**
      * Creates a new Receiver.
      * 
-     * @param editor
-     *            the control editor
-     * @param tabTitle
-     *            the name of the title where the code that is received through
-     *            the socket is to be entered
-     * @param reader
-     *            a reader for the socket's input stream, ready to read
-     * @param socket
-     *            the socket
+     * @param drained
+     *            called on the event dispatch thread when the lines that
+     *            were pending when {@linkplain #receive(String)} returned
+     *            <tt>false</tt> have been appended
      */
-    public Receiver(final DiagramTextTab tab,
-            BufferedReader reader, Socket socket) {
-        this.reader = reader;
-        this.socket = socket;
-        shutDown = false;
-        appendBuffer = new StringBuffer();
-        waiter = new DelayedActivity()
+    public Receiver(Runnable drained) {
+        this.drained = drained;
+        GlobalConfiguration conf = ConfigurationManager
+                .getGlobalConfiguration();
+        maxPendingLines = Math.max(1, conf.getRealtimeMaxPendingLines());
+        pending = new ConcurrentLinkedQueue<String>();
+        pendingLines = new AtomicInteger();
+        scheduled = new AtomicBoolean();
+        full = new AtomicBoolean();
+        // the batch is entered batchDelay ms after its first line, no matter
+        // how many lines follow
+        flusher = new Timer(conf.getRealtimeBatchDelay(), new ActionListener()
         {
-        	@Override
-            protected int getDelay() {
-                return delay;
+            public void actionPerformed(ActionEvent e) {
+                flush();
             }
-
-        	@Override
-            protected void perform() {
-        		// If the RESET_STRING is found then clear the diagram
-        		// 
-        		if( appendBuffer.toString().trim().equals(RESET_STRING) ){
-        			tab.clear();
-        		}
-        		else{
-        			tab.append(appendBuffer.toString());
-        		}
-        		appendBuffer.setLength(0);
+        });
+        flusher.setRepeats(false);
+        startFlusher = new Runnable()
+        {
+            public void run() {
+                flusher.start();
             }
         };
-        waiter.start();
     }
 
     /**
-     * Closes the socket of this <tt>Receiver</tt>.
+     * Sets the tab where the received lines are to be entered. Lines that
+     * have been received before are entered immediately. This must be called
+     * on the event dispatch thread.
+     * 
+     * @param tab
+     *            the tab where the received lines are to be entered
      */
-    public void shutDown() {
-        shutDown = true;
-        try {
-            socket.close();
-        } catch (IOException e) {
-        	/* empty */
+    public void setTab(DiagramTextTab tab) {
+        this.tab = tab;
+        flush();
+    }
+
+    /**
+     * Adds a line to the pending batch and makes sure the batch will be
+     * entered into the tab. This method does not block.
+     * 
+     * @param line
+     *            a line that has been received
+     * @return <tt>false</tt> if the maximum number of pending lines has been
+     *         reached
+     */
+    public boolean receive(String line) {
+        pending.add(line);
+        boolean room = pendingLines.incrementAndGet() < maxPendingLines;
+        if (!room) {
+            // must be set before checking if the batch is scheduled, so the
+            // batch that is entered next calls drained
+            full.set(true);
         }
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(startFlusher);
+        }
+        return room;
     }
 
     /**
-     * Calls <tt>readLine</tt> on the socket's reader, collects the received
-     * lines and notifies the <tt>waiter</tt> each time a new line has been
-     * received.
+     * Enters the pending batch into the tab, if there is a tab yet. This is
+     * called on the event dispatch thread, so the text is appended before
+     * this method returns.
      */
-    public void run() {
-        try {
-            String line;
-            do {
-                line = reader.readLine();
-                if (line != null) {
-                    line = line.trim();
-                    if (line.toLowerCase().equals(END_CONNECTION)) {
-                        return;
-                    }
-                    synchronized (waiter) {
-                        appendBuffer.append(line + "\n");
-                    }
-                    waiter.indicateChange();
-                }
-            } while (line != null);
-        } catch (Exception e) {
-            if (!shutDown) {
-                e.printStackTrace();
-            }
-        } finally {
-            if (!socket.isClosed()) {
-                try {
-                    socket.close();
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                }
+    private void flush() {
+        if (tab == null) {
+            return;
+        }
+        // lines received from now on make up a new batch
+        scheduled.set(false);
+        boolean wasFull = full.getAndSet(false);
+        StringBuilder text = new StringBuilder();
+        boolean clear = false;
+        int lines = 0;
+        for (String line = pending.poll(); line != null; line = pending
+                .poll()) {
+            lines++;
+            // If the RESET_STRING is found then clear the diagram,
+            // the lines received before need not be appended
+            if (line.equals(RESET_STRING)) {
+                text.setLength(0);
+                clear = true;
+            } else {
+                text.append(line).append('\n');
             }
         }
+        pendingLines.addAndGet(-lines);
+        if (clear) {
+            tab.clear();
+        }
+        if (text.length() > 0) {
+            tab.append(text.toString());
+        }
+        if (wasFull) {
+            drained.run();
+        }
     }
 }
@@ -0,0 +1,558 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.server;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.diagram.DiagramFactory;
+import net.sf.sdedit.diagram.DiagramProfile;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+import net.sf.sdedit.ui.components.configuration.Bean;
+
+/**
+ * A <tt>RenderCache</tt> stores exported sequence diagrams, so a diagram
+ * that has been exported before need not be generated again.
+ * <p>
+ * Exported diagrams are identified by a hash of the diagram source text, the
+ * values of all properties of the configuration and the output type,
+ * orientation and format. They are kept in memory, where the least recently
+ * used diagrams are evicted when the total size exceeds a limit, and
+ * optionally in files in a cache directory, named after the hash, where they
+ * are kept until the directory is cleaned up.
+ * <p>
+ * The hash includes a version of the renderer that changes with every build
+ * of sdedit, so files that were stored in the cache directory by another
+ * build are not used.
+ * 
+ * @author Markus Strauch
+ */
+public class RenderCache {
+
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	private static final String RENDERER_VERSION = rendererVersion();
+
+	private final long maxSize;
+
+	private final File directory;
+
+	private final LinkedHashMap<String, byte[]> memory;
+
+	private long size;
+
+	private final AtomicLong hits;
+
+	private final AtomicLong diskHits;
+
+	private final AtomicLong misses;
+
+	/**
+	 * Creates a new <tt>RenderCache</tt>.
+	 * 
+	 * @param maxSize
+	 *            the maximal number of bytes of exported diagrams kept in
+	 *            memory
+	 * @param directory
+	 *            the directory where exported diagrams are stored, or
+	 *            <tt>null</tt> if they are to be kept in memory only
+	 */
+	public RenderCache(long maxSize, File directory) {
+		this.maxSize = maxSize;
+		this.directory = directory;
+		if (directory != null) {
+			directory.mkdirs();
+		}
+		memory = new LinkedHashMap<String, byte[]>(16, 0.75F, true);
+		hits = new AtomicLong();
+		diskHits = new AtomicLong();
+		misses = new AtomicLong();
+	}
+
+	/**
+	 * Writes an exported sequence diagram to a stream, taking it from the
+	 * cache if it has been exported before, otherwise generating it and
+	 * exporting it straight to the stream while storing it in the cache. A
+	 * copy is only kept in memory if it fits into the memory of the cache.
+	 * 
+	 * @param text
+	 *            the diagram source text
+	 * @param conf
+	 *            the configuration of the diagram
+	 * @param type
+	 *            the output type (see
+	 *            {@linkplain Exporter#getExporter(String, String, String, OutputStream)})
+	 * @param orientation
+	 *            one of {Portrait, Landscape}, or <tt>null</tt> if the
+	 *            orientation is to be chosen by the diagram's shape
+	 * @param format
+	 *            the page format
+	 * @param stream
+	 *            the stream to write the exported diagram to
+	 * @throws DiagramError
+	 *             if the diagram cannot be generated (nothing is written to
+	 *             the stream then)
+	 * @throws IOException
+	 *             if the diagram cannot be written to the stream
+	 */
+	public void export(String text, SequenceConfiguration conf, String type,
+			String orientation, String format, OutputStream stream)
+			throws DiagramError, IOException {
+		String key = key(text, conf, type, orientation, format);
+		File file = file(key, type);
+		byte[] data = lookup(key, file);
+		if (data != null) {
+			stream.write(data);
+			return;
+		}
+		misses.incrementAndGet();
+		// the diagram is written to the stream while it is exported, only
+		// the copies that are stored in the cache are kept
+		File tmp = file == null ? null : temporaryFile(file);
+		RecordingStream recorder = new RecordingStream(stream, maxSize, tmp);
+		boolean exported = false;
+		try {
+			render(text, conf, type, orientation, format, recorder);
+			recorder.flush();
+			exported = true;
+		} finally {
+			boolean recorded = recorder.finish();
+			if (tmp != null && !(exported && recorded && tmp.renameTo(file))) {
+				tmp.delete();
+			}
+		}
+		if (recorder.getData() != null) {
+			put(key, recorder.getData());
+		}
+	}
+
+	/**
+	 * Returns an exported sequence diagram, taking it from the cache if it has
+	 * been exported before, otherwise generating and exporting it and storing
+	 * it in the cache.
+	 * 
+	 * @see #export(String, SequenceConfiguration, String, String, String,
+	 *      OutputStream)
+	 */
+	public byte[] export(String text, SequenceConfiguration conf, String type,
+			String orientation, String format) throws DiagramError,
+			IOException {
+		String key = key(text, conf, type, orientation, format);
+		File file = file(key, type);
+		byte[] data = lookup(key, file);
+		if (data != null) {
+			return data;
+		}
+		misses.incrementAndGet();
+		data = generate(text, conf, type, orientation, format);
+		put(key, data);
+		if (file != null) {
+			store(file, data);
+		}
+		return data;
+	}
+
+	private File file(String key, String type) {
+		return directory == null ? null : new File(directory, key + "."
+				+ type);
+	}
+
+	/*
+	 * Returns the exported diagram identified by the key from memory or from
+	 * the file, or null if it is not cached.
+	 */
+	private byte[] lookup(String key, File file) {
+		byte[] data = get(key);
+		if (data != null) {
+			hits.incrementAndGet();
+			return data;
+		}
+		if (file != null && file.exists()) {
+			try {
+				data = Files.readAllBytes(file.toPath());
+				diskHits.incrementAndGet();
+				put(key, data);
+				return data;
+			} catch (IOException e) {
+				// the file may have been removed meanwhile, so the diagram
+				// is generated again
+			}
+		}
+		return null;
+	}
+
+	private static byte[] generate(String text, SequenceConfiguration conf,
+			String type, String orientation, String format)
+			throws DiagramError, IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		render(text, conf, type, orientation, format, stream);
+		return stream.toByteArray();
+	}
+
+	/**
+	 * Generates and exports a sequence diagram without using a cache, and
+	 * returns the profile of its generation and drawing.
+	 * 
+	 * @return the profile of the diagram
+	 * @see #export(String, SequenceConfiguration, String, String, String,
+	 *      OutputStream)
+	 */
+	public static DiagramProfile render(String text,
+			SequenceConfiguration conf, String type, String orientation,
+			String format, OutputStream stream) throws DiagramError,
+			IOException {
+		DiagramFactory factory;
+		if (type.equals("png")) {
+			ImageGraphicsDevice graphicDevice = new ImageGraphicsDevice(true,
+					ImageGraphicsDevice.DEFAULT_BAND_HEIGHT);
+			SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
+			factory = new SequenceDiagramFactory(text, paintDevice);
+			factory.generateDiagram(conf);
+			graphicDevice.writeToStream("png", stream);
+		} else {
+			Exporter graphicDevice = Exporter.getExporter(type, orientation,
+					format, stream);
+			SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
+			factory = new SequenceDiagramFactory(text, paintDevice);
+			factory.generateDiagram(conf);
+			graphicDevice.export();
+		}
+		return factory.getProfile();
+	}
+
+	/*
+	 * Files are written under a temporary name and then renamed, so other
+	 * processes using the same directory never read an incomplete file.
+	 */
+	private void store(File file, byte[] data) {
+		File tmp = temporaryFile(file);
+		try {
+			OutputStream out = new FileOutputStream(tmp);
+			try {
+				out.write(data);
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+			}
+		} catch (IOException e) {
+			tmp.delete();
+		}
+	}
+
+	private File temporaryFile(File file) {
+		return new File(directory, file.getName() + "."
+				+ Thread.currentThread().getId() + ".tmp");
+	}
+
+	private synchronized byte[] get(String key) {
+		return memory.get(key);
+	}
+
+	private synchronized void put(String key, byte[] data) {
+		if (data.length > maxSize) {
+			return;
+		}
+		byte[] old = memory.put(key, data);
+		if (old != null) {
+			size -= old.length;
+		}
+		size += data.length;
+		Iterator<byte[]> iterator = memory.values().iterator();
+		while (size > maxSize) {
+			size -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Returns the version of the renderer that is part of the hash identifying
+	 * an exported diagram. It consists of the implementation version of
+	 * sdedit, if it is known, and the size and modification time of the jar
+	 * file or of the newest class file the renderer has been loaded from, so
+	 * every build yields a new version.
+	 * 
+	 * @return the version of the renderer
+	 */
+	public static String getRendererVersion() {
+		return RENDERER_VERSION;
+	}
+
+	private static String rendererVersion() {
+		StringBuilder version = new StringBuilder();
+		version.append(RenderCache.class.getPackage().getImplementationVersion());
+		try {
+			CodeSource source = RenderCache.class.getProtectionDomain()
+					.getCodeSource();
+			if (source != null && source.getLocation() != null) {
+				File location = new File(source.getLocation().toURI());
+				if (location.isFile()) {
+					version.append('-').append(location.length());
+					version.append('-').append(location.lastModified());
+				} else {
+					version.append('-').append(newest(location));
+				}
+			}
+		} catch (URISyntaxException e) {
+			// only the implementation version is used then
+		} catch (IllegalArgumentException e) {
+			// the renderer has not been loaded from a file
+		} catch (SecurityException e) {
+			// the location must not be read
+		}
+		return version.toString();
+	}
+
+	/*
+	 * Returns the modification time of the newest file in the given
+	 * directory or its subdirectories.
+	 */
+	private static long newest(File directory) {
+		long newest = directory.lastModified();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				newest = Math.max(newest, file.isDirectory() ? newest(file)
+						: file.lastModified());
+			}
+		}
+		return newest;
+	}
+
+	private static String key(String text, SequenceConfiguration conf,
+			String type, String orientation, String format) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		update(digest, RENDERER_VERSION);
+		update(digest, text);
+		Bean<SequenceConfiguration> bean = conf
+				.getBean(SequenceConfiguration.class);
+		for (PropertyDescriptor property : bean.getProperties()) {
+			update(digest, property.getName());
+			update(digest, String.valueOf(bean.getValue(property.getName())));
+		}
+		update(digest, type);
+		update(digest, String.valueOf(orientation));
+		update(digest, String.valueOf(format));
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(Character.forDigit((b >> 4) & 0xf, 16));
+			key.append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/*
+	 * Strings are separated by a zero byte, so different sequences of strings
+	 * cannot yield the same bytes.
+	 */
+	private static void update(MessageDigest digest, String string) {
+		digest.update(string.getBytes(UTF8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Returns the number of exported diagrams that were found in memory.
+	 * 
+	 * @return the number of exported diagrams that were found in memory
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of exported diagrams that were found in the cache
+	 * directory, but not in memory.
+	 * 
+	 * @return the number of exported diagrams that were found in the cache
+	 *         directory
+	 */
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	/**
+	 * Returns the number of diagrams that had to be generated.
+	 * 
+	 * @return the number of diagrams that had to be generated
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of bytes of exported diagrams kept in memory.
+	 * 
+	 * @return the number of bytes of exported diagrams kept in memory
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/*
+	 * Writes to a stream and records what is written: in memory as long as it
+	 * does not exceed the size of the memory of the cache, and in a file of
+	 * the cache directory, if there is one. Failing to record does not make
+	 * writing fail, and closing a RecordingStream does not close the stream,
+	 * which belongs to the caller.
+	 */
+	private static final class RecordingStream extends OutputStream {
+
+		private final OutputStream stream;
+
+		private final long maxSize;
+
+		private ByteArrayOutputStream memory;
+
+		private OutputStream file;
+
+		private boolean fileFailed;
+
+		RecordingStream(OutputStream stream, long maxSize, File tmp) {
+			this.stream = stream;
+			this.maxSize = maxSize;
+			memory = maxSize > 0 ? new ByteArrayOutputStream() : null;
+			if (tmp != null) {
+				try {
+					file = new BufferedOutputStream(new FileOutputStream(tmp));
+				} catch (IOException e) {
+					fileFailed = true;
+				}
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			stream.write(b);
+			if (memory != null) {
+				if (memory.size() + 1 > maxSize) {
+					memory = null;
+				} else {
+					memory.write(b);
+				}
+			}
+			if (file != null) {
+				try {
+					file.write(b);
+				} catch (IOException e) {
+					abandonFile();
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			stream.write(b, off, len);
+			if (memory != null) {
+				if (memory.size() + len > maxSize) {
+					memory = null;
+				} else {
+					memory.write(b, off, len);
+				}
+			}
+			if (file != null) {
+				try {
+					file.write(b, off, len);
+				} catch (IOException e) {
+					abandonFile();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			stream.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+		private void abandonFile() {
+			try {
+				file.close();
+			} catch (IOException e) {
+				/* empty */
+			}
+			file = null;
+			fileFailed = true;
+		}
+
+		/*
+		 * Closes the file, returns false if it could not be written
+		 * completely.
+		 */
+		boolean finish() {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					fileFailed = true;
+				}
+				file = null;
+			}
+			return !fileFailed;
+		}
+
+		/*
+		 * Returns what has been written, or null if it has not been kept in
+		 * memory.
+		 */
+		byte[] getData() {
+			return memory == null ? null : memory.toByteArray();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "hits: " + getHits() + ", disk hits: " + getDiskHits()
+				+ ", misses: " + getMisses() + ", bytes in memory: "
+				+ getSize();
+	}
+
+}
@@ -0,0 +1,89 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.server;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An <tt>SVGExporter</tt> exports a diagram as SVG, writing compact SVG
+ * elements for the lines, rectangles, polygons and texts of the diagram's
+ * drawables straight to the output stream, without building a document in
+ * memory. Orientation and format are ignored, as an SVG image has the size
+ * of the diagram.
+ * 
+ * @author Markus Strauch
+ */
+public class SVGExporter extends Exporter {
+
+	private Writer writer;
+
+	private SVGGraphics graphics;
+
+	public SVGExporter(String orientation, String format) {
+		super(orientation, format);
+	}
+
+	@Override
+	protected Graphics2D createDummyGraphics() {
+		Graphics2D g2d = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)
+				.createGraphics();
+		g2d.setFont(getFont());
+		return g2d;
+	}
+
+	@Override
+	protected Graphics2D createGraphics() {
+		writer = new BufferedWriter(new OutputStreamWriter(getOutputStream(),
+				StandardCharsets.UTF_8));
+		graphics = new SVGGraphics(writer, getFont());
+		return graphics;
+	}
+
+	@Override
+	public void export() throws IOException {
+		Font font = getFont();
+		String width = Integer.toString(getWidth());
+		String height = Integer.toString(getHeight());
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""
+				+ width + "\" height=\"" + height + "\" viewBox=\"0 0 "
+				+ width + " " + height + "\" xml:space=\"preserve\">\n");
+		// the defaults the elements written by the graphics context
+		// rely on
+		writer.write("<g fill=\"none\" stroke-linejoin=\"round\" font-family=\""
+				+ SVGGraphics.toFamily(font) + "\" font-size=\""
+				+ font.getSize() + "\">\n");
+		drawAll();
+		graphics.checkError();
+		writer.write("</g>\n</svg>\n");
+		writer.flush();
+	}
+}
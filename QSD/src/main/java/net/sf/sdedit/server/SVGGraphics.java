@@ -0,0 +1,869 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.server;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.AttributedCharacterIterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A graphics context that writes what is drawn into it as SVG elements,
+ * straight to a writer. Lines, rectangles, polygons and ellipses become the
+ * corresponding SVG elements, other shapes become paths and strings become
+ * <tt>text</tt> elements. Apart from the fill of texts, only the attributes
+ * that differ from the defaults set by the enclosing {@linkplain SVGExporter}
+ * are written.
+ * <p>
+ * Images are not drawn, and the clip is recorded, but not applied, because
+ * drawables use it only to keep labels inside their own bounds. Errors of
+ * the writer are kept and reported by {@linkplain #checkError()}, as the
+ * methods of a graphics context cannot throw them.
+ * 
+ * @author Markus Strauch
+ */
+final class SVGGraphics extends Graphics2D {
+
+	private static final Graphics2D metricsGraphics = new BufferedImage(1, 1,
+			BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+	private final Writer writer;
+
+	private final Font defaultFont;
+
+	private final IOException[] error;
+
+	private AffineTransform transform;
+
+	private Color color;
+
+	private Color background;
+
+	private Stroke stroke;
+
+	private Font font;
+
+	private Shape clip;
+
+	private SVGGraphics(Writer writer, Font defaultFont, IOException[] error) {
+		this.writer = writer;
+		this.defaultFont = defaultFont;
+		this.error = error;
+	}
+
+	/**
+	 * Creates a new <tt>SVGGraphics</tt> context.
+	 * 
+	 * @param writer
+	 *            the writer to write the SVG elements to
+	 * @param defaultFont
+	 *            the font that is used for text elements that do not specify
+	 *            a font of their own
+	 */
+	SVGGraphics(Writer writer, Font defaultFont) {
+		this(writer, defaultFont, new IOException[1]);
+		transform = new AffineTransform();
+		color = Color.BLACK;
+		background = Color.WHITE;
+		stroke = new BasicStroke();
+		font = defaultFont;
+	}
+
+	/**
+	 * Throws the first exception the writer has thrown, if any.
+	 * 
+	 * @throws IOException
+	 *             if the writer has failed
+	 */
+	void checkError() throws IOException {
+		if (error[0] != null) {
+			throw error[0];
+		}
+	}
+
+	/**
+	 * Returns the SVG representation of a color, in its shortest form.
+	 * 
+	 * @param color
+	 *            a color
+	 * @return the SVG representation of the color
+	 */
+	static String toString(Color color) {
+		int rgb = color.getRGB() & 0xffffff;
+		if ((rgb & 0x0f0f0f) * 0x10 == (rgb & 0xf0f0f0)) {
+			return "#" + Integer.toHexString(0x1000 | (rgb >> 12 & 0xf00)
+					| (rgb >> 8 & 0xf0) | (rgb >> 4 & 0xf)).substring(1);
+		}
+		return "#" + Integer.toHexString(0x1000000 | rgb).substring(1);
+	}
+
+	/**
+	 * Returns the SVG font family corresponding to the family of a font,
+	 * translating Java's logical fonts into generic font families.
+	 * 
+	 * @param font
+	 *            a font
+	 * @return the SVG font family
+	 */
+	static String toFamily(Font font) {
+		String family = font.getFamily();
+		if (family.equals(Font.DIALOG) || family.equals(Font.SANS_SERIF)) {
+			return "sans-serif";
+		}
+		if (family.equals(Font.SERIF)) {
+			return "serif";
+		}
+		if (family.equals(Font.MONOSPACED) || family.equals(Font.DIALOG_INPUT)) {
+			return "monospace";
+		}
+		return "'" + escape(family) + "', sans-serif";
+	}
+
+	/**
+	 * Escapes the characters of a string that cannot appear literally in XML
+	 * text or attribute values and drops those that cannot appear at all.
+	 * 
+	 * @param string
+	 *            a string
+	 * @return the escaped string
+	 */
+	static String escape(String string) {
+		StringBuilder escaped = null;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			String replacement;
+			switch (c) {
+			case '&':
+				replacement = "&amp;";
+				break;
+			case '<':
+				replacement = "&lt;";
+				break;
+			case '>':
+				replacement = "&gt;";
+				break;
+			case '"':
+				replacement = "&quot;";
+				break;
+			case '\'':
+				replacement = "&apos;";
+				break;
+			default:
+				replacement = c < 0x20 ? "" : null;
+			}
+			if (replacement != null && escaped == null) {
+				escaped = new StringBuilder(string.length() + 16);
+				escaped.append(string, 0, i);
+			}
+			if (escaped != null) {
+				if (replacement != null) {
+					escaped.append(replacement);
+				} else {
+					escaped.append(c);
+				}
+			}
+		}
+		return escaped == null ? string : escaped.toString();
+	}
+
+	private void write(String string) {
+		if (error[0] == null) {
+			try {
+				writer.write(string);
+			} catch (IOException e) {
+				error[0] = e;
+			}
+		}
+	}
+
+	private static String format(double d) {
+		long l = Math.round(d);
+		if (Math.abs(d - l) < 0.005) {
+			return Long.toString(l);
+		}
+		String s = String.format(Locale.ROOT, "%.2f", d);
+		int end = s.length();
+		while (s.charAt(end - 1) == '0') {
+			end--;
+		}
+		return s.substring(0, end);
+	}
+
+	private boolean isTranslation() {
+		return (transform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+	}
+
+	private String fill() {
+		return " fill=\"" + toString(color) + "\""
+				+ (color.getAlpha() < 255 ? " fill-opacity=\""
+						+ format(color.getAlpha() / 255.0) + "\"" : "");
+	}
+
+	private String stroke(BasicStroke basicStroke) {
+		StringBuilder attributes = new StringBuilder();
+		attributes.append(" stroke=\"").append(toString(color)).append('"');
+		if (color.getAlpha() < 255) {
+			attributes.append(" stroke-opacity=\"")
+					.append(format(color.getAlpha() / 255.0)).append('"');
+		}
+		if (basicStroke.getLineWidth() != 1) {
+			attributes.append(" stroke-width=\"")
+					.append(format(basicStroke.getLineWidth())).append('"');
+		}
+		if (basicStroke.getEndCap() == BasicStroke.CAP_ROUND) {
+			attributes.append(" stroke-linecap=\"round\"");
+		} else if (basicStroke.getEndCap() == BasicStroke.CAP_SQUARE) {
+			attributes.append(" stroke-linecap=\"square\"");
+		}
+		if (basicStroke.getLineJoin() == BasicStroke.JOIN_MITER) {
+			attributes.append(" stroke-linejoin=\"miter\" stroke-miterlimit=\"")
+					.append(format(Math.max(1, basicStroke.getMiterLimit())))
+					.append('"');
+		} else if (basicStroke.getLineJoin() == BasicStroke.JOIN_BEVEL) {
+			attributes.append(" stroke-linejoin=\"bevel\"");
+		}
+		float[] dashes = basicStroke.getDashArray();
+		if (dashes != null) {
+			attributes.append(" stroke-dasharray=\"");
+			for (int i = 0; i < dashes.length; i++) {
+				if (i > 0) {
+					attributes.append(' ');
+				}
+				attributes.append(format(dashes[i]));
+			}
+			attributes.append('"');
+			if (basicStroke.getDashPhase() != 0) {
+				attributes.append(" stroke-dashoffset=\"")
+						.append(format(basicStroke.getDashPhase()))
+						.append('"');
+			}
+		}
+		return attributes.toString();
+	}
+
+	/*
+	 * Writes a shape as an element, with coordinates translated by the
+	 * current transform, which must be a translation.
+	 */
+	private void writeShape(Shape shape, String paint) {
+		double tx = transform.getTranslateX();
+		double ty = transform.getTranslateY();
+		if (shape instanceof Line2D) {
+			Line2D line = (Line2D) shape;
+			write("<line x1=\"" + format(line.getX1() + tx) + "\" y1=\""
+					+ format(line.getY1() + ty) + "\" x2=\""
+					+ format(line.getX2() + tx) + "\" y2=\""
+					+ format(line.getY2() + ty) + "\"" + paint + "/>\n");
+		} else if (shape instanceof Rectangle2D) {
+			Rectangle2D rect = (Rectangle2D) shape;
+			write("<rect x=\"" + format(rect.getX() + tx) + "\" y=\""
+					+ format(rect.getY() + ty) + "\" width=\""
+					+ format(rect.getWidth()) + "\" height=\""
+					+ format(rect.getHeight()) + "\"" + paint + "/>\n");
+		} else if (shape instanceof Ellipse2D) {
+			Ellipse2D ellipse = (Ellipse2D) shape;
+			write("<ellipse cx=\"" + format(ellipse.getCenterX() + tx)
+					+ "\" cy=\"" + format(ellipse.getCenterY() + ty)
+					+ "\" rx=\"" + format(ellipse.getWidth() / 2)
+					+ "\" ry=\"" + format(ellipse.getHeight() / 2) + "\""
+					+ paint + "/>\n");
+		} else if (shape instanceof Polygon) {
+			Polygon polygon = (Polygon) shape;
+			StringBuilder points = new StringBuilder();
+			for (int i = 0; i < polygon.npoints; i++) {
+				if (i > 0) {
+					points.append(' ');
+				}
+				points.append(format(polygon.xpoints[i] + tx)).append(',')
+						.append(format(polygon.ypoints[i] + ty));
+			}
+			write("<polygon points=\"" + points + "\"" + paint + "/>\n");
+		} else {
+			writePath(shape.getPathIterator(AffineTransform
+					.getTranslateInstance(tx, ty)), paint);
+		}
+	}
+
+	private void writePath(PathIterator iterator, String paint) {
+		StringBuilder d = new StringBuilder();
+		double[] coords = new double[6];
+		while (!iterator.isDone()) {
+			int type = iterator.currentSegment(coords);
+			int n;
+			switch (type) {
+			case PathIterator.SEG_MOVETO:
+				d.append('M');
+				n = 1;
+				break;
+			case PathIterator.SEG_LINETO:
+				d.append('L');
+				n = 1;
+				break;
+			case PathIterator.SEG_QUADTO:
+				d.append('Q');
+				n = 2;
+				break;
+			case PathIterator.SEG_CUBICTO:
+				d.append('C');
+				n = 3;
+				break;
+			default:
+				d.append('Z');
+				n = 0;
+			}
+			for (int i = 0; i < 2 * n; i++) {
+				if (i > 0) {
+					d.append(i % 2 == 0 ? ' ' : ',');
+				}
+				d.append(format(coords[i]));
+			}
+			iterator.next();
+		}
+		if (d.length() > 0) {
+			String rule = iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD ? " fill-rule=\"evenodd\""
+					: "";
+			write("<path d=\"" + d + "\"" + paint + rule + "/>\n");
+		}
+	}
+
+	@Override
+	public void draw(Shape s) {
+		if (isTranslation() && stroke instanceof BasicStroke) {
+			writeShape(s, stroke((BasicStroke) stroke));
+		} else {
+			writePath(transform.createTransformedShape(
+					stroke.createStrokedShape(s)).getPathIterator(null),
+					fill());
+		}
+	}
+
+	@Override
+	public void fill(Shape s) {
+		if (isTranslation()) {
+			writeShape(s, fill());
+		} else {
+			writePath(transform.createTransformedShape(s).getPathIterator(
+					null), fill());
+		}
+	}
+
+	@Override
+	public void drawString(String str, float x, float y) {
+		if (str.length() == 0) {
+			return;
+		}
+		StringBuilder element = new StringBuilder("<text");
+		if (isTranslation()) {
+			element.append(" x=\"")
+					.append(format(x + transform.getTranslateX()))
+					.append("\" y=\"")
+					.append(format(y + transform.getTranslateY())).append('"');
+		} else {
+			double[] matrix = new double[6];
+			transform.getMatrix(matrix);
+			element.append(" transform=\"matrix(");
+			for (int i = 0; i < 6; i++) {
+				element.append(i > 0 ? " " : "").append(format(matrix[i]));
+			}
+			element.append(")\" x=\"").append(format(x)).append("\" y=\"")
+					.append(format(y)).append('"');
+		}
+		if (!font.getFamily().equals(defaultFont.getFamily())) {
+			element.append(" font-family=\"").append(toFamily(font))
+					.append('"');
+		}
+		if (font.getSize2D() != defaultFont.getSize2D()) {
+			element.append(" font-size=\"").append(format(font.getSize2D()))
+					.append('"');
+		}
+		if (font.isBold()) {
+			element.append(" font-weight=\"bold\"");
+		}
+		if (font.isItalic()) {
+			element.append(" font-style=\"italic\"");
+		}
+		// the enclosing group does not fill shapes, so the text must have a
+		// fill of its own
+		element.append(fill());
+		element.append('>').append(escape(str)).append("</text>\n");
+		write(element.toString());
+	}
+
+	@Override
+	public void drawString(String str, int x, int y) {
+		drawString(str, (float) x, (float) y);
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+		drawString(iterator, (float) x, (float) y);
+	}
+
+	@Override
+	public void drawString(AttributedCharacterIterator iterator, float x,
+			float y) {
+		Font oldFont = font;
+		Color oldColor = color;
+		float advance = x;
+		iterator.first();
+		while (iterator.getIndex() < iterator.getEndIndex()) {
+			Map<AttributedCharacterIterator.Attribute, Object> attributes = iterator
+					.getAttributes();
+			int limit = iterator.getRunLimit();
+			StringBuilder run = new StringBuilder(limit - iterator.getIndex());
+			for (char c = iterator.current(); iterator.getIndex() < limit; c = iterator
+					.next()) {
+				run.append(c);
+			}
+			Object runFont = attributes.get(TextAttribute.FONT);
+			font = runFont instanceof Font ? (Font) runFont : oldFont
+					.deriveFont(attributes);
+			Object foreground = attributes.get(TextAttribute.FOREGROUND);
+			color = foreground instanceof Color ? (Color) foreground
+					: oldColor;
+			String string = run.toString();
+			drawString(string, advance, y);
+			advance += font.getStringBounds(string, getFontRenderContext())
+					.getWidth();
+		}
+		font = oldFont;
+		color = oldColor;
+	}
+
+	@Override
+	public void drawGlyphVector(GlyphVector g, float x, float y) {
+		fill(g.getOutline(x, y));
+	}
+
+	@Override
+	public void drawLine(int x1, int y1, int x2, int y2) {
+		draw(new Line2D.Float(x1, y1, x2, y2));
+	}
+
+	@Override
+	public void drawRect(int x, int y, int width, int height) {
+		draw(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void fillRect(int x, int y, int width, int height) {
+		fill(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void clearRect(int x, int y, int width, int height) {
+		Color old = color;
+		color = background;
+		fillRect(x, y, width, height);
+		color = old;
+	}
+
+	@Override
+	public void drawRoundRect(int x, int y, int width, int height,
+			int arcWidth, int arcHeight) {
+		draw(new RoundRectangle2D.Float(x, y, width, height, arcWidth,
+				arcHeight));
+	}
+
+	@Override
+	public void fillRoundRect(int x, int y, int width, int height,
+			int arcWidth, int arcHeight) {
+		fill(new RoundRectangle2D.Float(x, y, width, height, arcWidth,
+				arcHeight));
+	}
+
+	@Override
+	public void drawOval(int x, int y, int width, int height) {
+		draw(new Ellipse2D.Float(x, y, width, height));
+	}
+
+	@Override
+	public void fillOval(int x, int y, int width, int height) {
+		fill(new Ellipse2D.Float(x, y, width, height));
+	}
+
+	@Override
+	public void drawArc(int x, int y, int width, int height, int startAngle,
+			int arcAngle) {
+		draw(new Arc2D.Float(x, y, width, height, startAngle, arcAngle,
+				Arc2D.OPEN));
+	}
+
+	@Override
+	public void fillArc(int x, int y, int width, int height, int startAngle,
+			int arcAngle) {
+		fill(new Arc2D.Float(x, y, width, height, startAngle, arcAngle,
+				Arc2D.PIE));
+	}
+
+	@Override
+	public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+		if (nPoints > 0) {
+			Path2D.Float path = new Path2D.Float();
+			path.moveTo(xPoints[0], yPoints[0]);
+			for (int i = 1; i < nPoints; i++) {
+				path.lineTo(xPoints[i], yPoints[i]);
+			}
+			draw(path);
+		}
+	}
+
+	@Override
+	public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+		draw(new Polygon(xPoints, yPoints, nPoints));
+	}
+
+	@Override
+	public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+		fill(new Polygon(xPoints, yPoints, nPoints));
+	}
+
+	@Override
+	public Graphics create() {
+		SVGGraphics copy = new SVGGraphics(writer, defaultFont, error);
+		copy.transform = new AffineTransform(transform);
+		copy.color = color;
+		copy.background = background;
+		copy.stroke = stroke;
+		copy.font = font;
+		copy.clip = clip;
+		return copy;
+	}
+
+	@Override
+	public void dispose() {
+		/* empty */
+	}
+
+	@Override
+	public void translate(int x, int y) {
+		transform.translate(x, y);
+	}
+
+	@Override
+	public void translate(double tx, double ty) {
+		transform.translate(tx, ty);
+	}
+
+	@Override
+	public void rotate(double theta) {
+		transform.rotate(theta);
+	}
+
+	@Override
+	public void rotate(double theta, double x, double y) {
+		transform.rotate(theta, x, y);
+	}
+
+	@Override
+	public void scale(double sx, double sy) {
+		transform.scale(sx, sy);
+	}
+
+	@Override
+	public void shear(double shx, double shy) {
+		transform.shear(shx, shy);
+	}
+
+	@Override
+	public void transform(AffineTransform tx) {
+		transform.concatenate(tx);
+	}
+
+	@Override
+	public void setTransform(AffineTransform tx) {
+		transform = new AffineTransform(tx);
+	}
+
+	@Override
+	public AffineTransform getTransform() {
+		return new AffineTransform(transform);
+	}
+
+	@Override
+	public Color getColor() {
+		return color;
+	}
+
+	@Override
+	public void setColor(Color c) {
+		if (c != null) {
+			color = c;
+		}
+	}
+
+	@Override
+	public Paint getPaint() {
+		return color;
+	}
+
+	@Override
+	public void setPaint(Paint paint) {
+		if (paint instanceof Color) {
+			color = (Color) paint;
+		}
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		background = color;
+	}
+
+	@Override
+	public Color getBackground() {
+		return background;
+	}
+
+	@Override
+	public Stroke getStroke() {
+		return stroke;
+	}
+
+	@Override
+	public void setStroke(Stroke s) {
+		stroke = s;
+	}
+
+	@Override
+	public Font getFont() {
+		return font;
+	}
+
+	@Override
+	public void setFont(Font font) {
+		if (font != null) {
+			this.font = font;
+		}
+	}
+
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		synchronized (metricsGraphics) {
+			return metricsGraphics.getFontMetrics(f);
+		}
+	}
+
+	@Override
+	public FontRenderContext getFontRenderContext() {
+		return metricsGraphics.getFontRenderContext();
+	}
+
+	@Override
+	public Shape getClip() {
+		if (clip == null) {
+			return null;
+		}
+		try {
+			return transform.createInverse().createTransformedShape(clip);
+		} catch (NoninvertibleTransformException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public Rectangle getClipBounds() {
+		Shape userClip = getClip();
+		return userClip == null ? null : userClip.getBounds();
+	}
+
+	@Override
+	public void setClip(Shape clip) {
+		this.clip = clip == null ? null : transform
+				.createTransformedShape(clip);
+	}
+
+	@Override
+	public void setClip(int x, int y, int width, int height) {
+		setClip(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public void clip(Shape s) {
+		if (clip == null) {
+			setClip(s);
+		} else {
+			Area area = new Area(clip);
+			area.intersect(new Area(transform.createTransformedShape(s)));
+			clip = area;
+		}
+	}
+
+	@Override
+	public void clipRect(int x, int y, int width, int height) {
+		clip(new Rectangle(x, y, width, height));
+	}
+
+	@Override
+	public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+		return (onStroke ? stroke.createStrokedShape(s) : s)
+				.intersects(rect);
+	}
+
+	@Override
+	public GraphicsConfiguration getDeviceConfiguration() {
+		return null;
+	}
+
+	@Override
+	public void setComposite(Composite comp) {
+		/* empty */
+	}
+
+	@Override
+	public Composite getComposite() {
+		return null;
+	}
+
+	@Override
+	public void setPaintMode() {
+		/* empty */
+	}
+
+	@Override
+	public void setXORMode(Color c1) {
+		/* empty */
+	}
+
+	@Override
+	public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+		/* empty */
+	}
+
+	@Override
+	public Object getRenderingHint(RenderingHints.Key hintKey) {
+		return null;
+	}
+
+	@Override
+	public void setRenderingHints(Map<?, ?> hints) {
+		/* empty */
+	}
+
+	@Override
+	public void addRenderingHints(Map<?, ?> hints) {
+		/* empty */
+	}
+
+	@Override
+	public RenderingHints getRenderingHints() {
+		return new RenderingHints(null);
+	}
+
+	@Override
+	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+		/* empty */
+	}
+
+	@Override
+	public boolean drawImage(Image img, AffineTransform xform,
+			ImageObserver obs) {
+		return true;
+	}
+
+	@Override
+	public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+		/* empty */
+	}
+
+	@Override
+	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+		/* empty */
+	}
+
+	@Override
+	public void drawRenderableImage(RenderableImage img,
+			AffineTransform xform) {
+		/* empty */
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height,
+			ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, Color bgcolor,
+			ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int x, int y, int width, int height,
+			Color bgcolor, ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+			int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+		return true;
+	}
+
+	@Override
+	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2,
+			int sx1, int sy1, int sx2, int sy2, Color bgcolor,
+			ImageObserver observer) {
+		return true;
+	}
+}
@@ -0,0 +1,172 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.taglet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sf.sdedit.server.DiagramServer;
+
+/**
+ * A <tt>RemoteRenderer</tt> has diagrams rendered by a running
+ * {@linkplain DiagramServer}, so the taglet can make use of a virtual machine
+ * that is already warmed up and of its cache, which outlive a javadoc run.
+ * 
+ * @author Markus Strauch
+ */
+final class RemoteRenderer {
+
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	private static final int CONNECT_TIMEOUT = 2000;
+
+	private static final int READ_TIMEOUT = 60000;
+
+	private static final Pattern SYNTAX_ERROR = Pattern
+			.compile("syntax error in line (\\d+): (.*)", Pattern.DOTALL);
+
+	private final URL url;
+
+	/**
+	 * Creates a new <tt>RemoteRenderer</tt>.
+	 * 
+	 * @param server
+	 *            the URL of the server, like <tt>http://localhost:8080</tt>,
+	 *            to which <tt>/render</tt> is appended
+	 * @param type
+	 *            the type of the rendered diagrams
+	 * @param preferences
+	 *            the values of the diagram preferences that are to be used,
+	 *            by their names
+	 * @throws IOException
+	 *             if the URL is malformed
+	 */
+	RemoteRenderer(String server, String type, Map<String, String> preferences)
+			throws IOException {
+		StringBuilder query = new StringBuilder("/render?type=").append(type);
+		for (Map.Entry<String, String> preference : preferences.entrySet()) {
+			query.append('&')
+					.append(URLEncoder.encode(preference.getKey(), "utf-8"))
+					.append('=')
+					.append(URLEncoder.encode(preference.getValue(), "utf-8"));
+		}
+		while (server.endsWith("/")) {
+			server = server.substring(0, server.length() - 1);
+		}
+		url = new URL(server + query);
+	}
+
+	/**
+	 * Renders a diagram.
+	 * 
+	 * @param text
+	 *            the source text of the diagram
+	 * @return the rendered diagram
+	 * @throws RenderException
+	 *             if the server has rejected the diagram source
+	 * @throws IOException
+	 *             if the server cannot be reached or fails to render the
+	 *             diagram
+	 */
+	byte[] render(String text) throws RenderException, IOException {
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		connection.setDoOutput(true);
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type",
+				"text/plain; charset=utf-8");
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(text.getBytes(UTF8));
+		} finally {
+			out.close();
+		}
+		int status = connection.getResponseCode();
+		if (status == 200) {
+			return read(connection.getInputStream());
+		}
+		InputStream error = connection.getErrorStream();
+		String message = error == null ? "" : new String(read(error), UTF8)
+				.trim();
+		if (status == 400) {
+			Matcher matcher = SYNTAX_ERROR.matcher(message);
+			if (matcher.matches()) {
+				throw new RenderException(matcher.group(2),
+						Integer.parseInt(matcher.group(1)));
+			}
+			throw new RenderException(message, -1);
+		}
+		throw new IOException("diagram server answered " + status + ": "
+				+ message);
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Thrown when the server rejects the source text of a diagram.
+	 */
+	static final class RenderException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int lineNumber;
+
+		RenderException(String message, int lineNumber) {
+			super(message);
+			this.lineNumber = lineNumber;
+		}
+
+		/**
+		 * Returns the number of the line where the error occurred, or -1
+		 * 
+		 * @return the number of the line where the error occurred, or -1
+		 */
+		int getLineNumber() {
+			return lineNumber;
+		}
+	}
+}
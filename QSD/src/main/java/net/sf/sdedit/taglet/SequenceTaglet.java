@@ -24,24 +24,34 @@
 
 package net.sf.sdedit.taglet;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.beans.PropertyDescriptor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import net.sf.sdedit.config.ConfigurationManager;
 import net.sf.sdedit.config.SequenceConfiguration;
-import net.sf.sdedit.diagram.DiagramFactory;
-import net.sf.sdedit.diagram.SDPaintDevice;
-import net.sf.sdedit.diagram.SequenceDiagramFactory;
-import net.sf.sdedit.server.Exporter;
+import net.sf.sdedit.diagram.DiagramDataProvider;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.server.RenderCache;
+import net.sf.sdedit.taglet.RemoteRenderer.RenderException;
 import net.sf.sdedit.text.TextHandler;
-import net.sf.sdedit.util.DocUtil;
+import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.util.ObjectFactory;
 import net.sf.sdedit.util.PWriter;
 import net.sf.sdedit.util.Utilities;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import com.sun.javadoc.Tag;
 
 /**
@@ -54,6 +64,20 @@ import com.sun.javadoc.Tag;
  * <p>
  * <tt>@sequence.diagram</tt> are no inline tags and they can be used inside
  * classes, and inside package documentation.
+ * <p>
+ * The SVG code of the diagrams is cached, so a diagram is created only once
+ * in a javadoc run. When the system property <tt>sdedit.cache</tt> is set to
+ * the name of a directory (e. g. via <tt>javadoc -J-Dsdedit.cache=...</tt>),
+ * the SVG code is stored there, so diagrams that have not changed need not be
+ * created again in later runs with the same build of sdedit.
+ * <p>
+ * When the system property <tt>sdedit.server</tt> is set to the URL of a
+ * running diagram server (like <tt>http://localhost:8080</tt>, see the
+ * <tt>-s</tt> option of the command line), the diagrams are rendered by that
+ * server, which is warmed up already and keeps its cache across javadoc
+ * runs. If the server cannot be reached, the diagrams are rendered by the
+ * taglet itself. The diagrams of all tags of a documented element are
+ * rendered in parallel.
  * 
  * @sequence.diagram <code>
  * "Processing of <tt>@sequence.diagram</tt> tags"
@@ -81,6 +105,62 @@ public abstract class SequenceTaglet {
 
 	private static final String tagName = "sequence.diagram";
 
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	private static final RenderCache cache = new RenderCache(
+			8 * 1024 * 1024, System.getProperty("sdedit.cache") == null ? null
+					: new File(System.getProperty("sdedit.cache")));
+
+	/*
+	 * The diagram preferences that differ from the defaults, by their names
+	 */
+	private static final Map<String, String> preferences;
+
+	/*
+	 * The configuration is only read when diagrams are generated, so all
+	 * diagrams share it
+	 */
+	private static final SequenceConfiguration configuration;
+
+	private static final ExecutorService renderers;
+
+	private static volatile RemoteRenderer remoteRenderer;
+
+	static {
+		preferences = new LinkedHashMap<String, String>();
+		preferences.put("headWidth", "25");
+		preferences.put("mainLifelineWidth", "5");
+		preferences.put("subLifelineWidth", "5");
+		preferences.put("threaded", "true");
+		preferences.put("glue", "3");
+		Bean<SequenceConfiguration> bean = ConfigurationManager
+				.createNewDefaultConfiguration(SequenceConfiguration.class);
+		for (Map.Entry<String, String> preference : preferences.entrySet()) {
+			PropertyDescriptor property = bean.getProperty(preference
+					.getKey());
+			bean.setValue(property, ObjectFactory.createFromString(
+					property.getPropertyType(), preference.getValue()));
+		}
+		configuration = bean.getDataObject();
+		renderers = Executors.newFixedThreadPool(Runtime.getRuntime()
+				.availableProcessors(), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "SequenceTaglet-Renderer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		String server = System.getProperty("sdedit.server");
+		if (server != null) {
+			try {
+				remoteRenderer = new RemoteRenderer(server, "svg", preferences);
+			} catch (IOException e) {
+				System.err.println("Warning: cannot use diagram server "
+						+ server + ": " + e.getMessage());
+			}
+		}
+	}
+
 	/**
 	 * Registers an instance of this taglet class.
 	 * 
@@ -138,28 +218,21 @@ public abstract class SequenceTaglet {
 		if (specification.length() == 0) {
 			return "";
 		}
-		SequenceConfiguration conf = ConfigurationManager
-				.createNewDefaultConfiguration(SequenceConfiguration.class)
-				.getDataObject();
-		conf.setHeadWidth(25);
-		conf.setMainLifelineWidth(5);
-		conf.setSubLifelineWidth(5);
-		conf.setThreaded(true);
-		conf.setGlue(3);
-		ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		Exporter exporter = Exporter.getExporter("svg", "Landscape", "A4",
-				stream);
-		SDPaintDevice paintDevice = new SDPaintDevice(exporter);
-		DiagramFactory factory = new SequenceDiagramFactory(specification,
-				paintDevice);
-
+		byte[] data;
 		try {
-			factory.generateDiagram(conf);
+			data = render(specification);
 		} catch (Exception e) {
 
 			e.printStackTrace();
-			TextHandler handler = (TextHandler) factory.getProvider();
-			int error = handler.getLineNumber();
+			int error = -1;
+			if (e instanceof DiagramError) {
+				DiagramDataProvider provider = ((DiagramError) e).getProvider();
+				if (provider instanceof TextHandler) {
+					error = ((TextHandler) provider).getLineNumber();
+				}
+			} else if (e instanceof RenderException) {
+				error = ((RenderException) e).getLineNumber();
+			}
 			StringBuffer code = new StringBuffer("<br><tt>");
 			for (int i = 0; i < source.length; i++) {
 				String html = source[i].replaceAll("&", "&amp;")
@@ -179,20 +252,86 @@ public abstract class SequenceTaglet {
 							+ "</font></B>" + code.toString() + "</DD>");
 		}
 
-		exporter.export();
-		ByteArrayInputStream in = new ByteArrayInputStream(stream.toByteArray());
-		Document svg;
+		// the SVG code is inserted without the XML declaration
+		String s = new String(data, UTF8);
+		s = s.substring(Math.max(0, s.indexOf("<svg"))).trim();
+		return "<DT><HR><B>" + diagramTitle + ":</B><P></DT>" + "<DD>" + s
+				+ "</DD>";
+
+	}
+
+	/*
+	 * Renders a diagram by the diagram server, if there is one that can be
+	 * reached, otherwise by this taglet.
+	 */
+	private static byte[] render(String specification) throws Exception {
+		RemoteRenderer remote = remoteRenderer;
+		if (remote != null) {
+			try {
+				return remote.render(specification);
+			} catch (IOException e) {
+				if (remoteRenderer != null) {
+					remoteRenderer = null;
+					System.err.println("Warning: diagram server not usable, "
+							+ "rendering diagrams locally: " + e.getMessage());
+				}
+			}
+		}
+		return cache.export(specification, configuration, "svg", "Landscape",
+				"A4");
+	}
+
+	/**
+	 * Starts generating the outputs of the given tags, in parallel if there
+	 * is more than one.
+	 * 
+	 * @param tags
+	 *            an array of <tt>@sequence.diagram</tt> tags
+	 * @return for each tag, the future output, to be obtained by
+	 *         {@linkplain #getString(Future)}
+	 */
+	protected List<Future<String>> makeStrings(Tag[] tags) {
+		List<Future<String>> outputs = new ArrayList<Future<String>>();
+		for (final Tag tag : tags) {
+			Callable<String> callable = new Callable<String>() {
+				public String call() throws SequenceTagletException {
+					return makeString(tag);
+				}
+			};
+			if (tags.length == 1) {
+				FutureTask<String> task = new FutureTask<String>(callable);
+				task.run();
+				outputs.add(task);
+			} else {
+				outputs.add(renderers.submit(callable));
+			}
+		}
+		return outputs;
+	}
 
+	/**
+	 * Waits for the output of a tag.
+	 * 
+	 * @param output
+	 *            the future output of a tag, as returned by
+	 *            {@linkplain #makeStrings(Tag[])}
+	 * @return the output of the tag
+	 * @throws SequenceTagletException
+	 *             if the creation of the diagram has failed
+	 */
+	protected static String getString(Future<String> output)
+			throws SequenceTagletException {
 		try {
-			svg = DocUtil.readDocument(in, "utf-8");
-		} catch (Exception e) {
+			return output.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SequenceTagletException) {
+				throw (SequenceTagletException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
 		}
-		Element root = svg.getDocumentElement();
-		String s = DocUtil.toString(root, true);
-		return "<DT><HR><B>" + diagramTitle + ":</B><P></DT>" + "<DD>" + s
-				+ "</DD>";
-
 	}
 
 	public String getName() {
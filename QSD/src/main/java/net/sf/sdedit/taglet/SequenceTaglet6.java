@@ -24,6 +24,8 @@
 
 package net.sf.sdedit.taglet;
 
+import java.util.concurrent.Future;
+
 import net.sf.sdedit.util.Utilities;
 
 import com.sun.javadoc.Doc;
@@ -60,9 +62,9 @@ public class SequenceTaglet6 extends SequenceTaglet implements Taglet {
 
 	private String toString(Tag[] tags, TagletWriter writer) {
 		String output = "";
-		for (Tag tag : tags) {
+		for (Future<String> future : makeStrings(tags)) {
 			try {
-				output += makeString(tag);
+				output += getString(future);
 			} catch (SequenceTagletException ste) {
 				warn(writer, "doclet.in", ste.getMessage(), tags[0].holder()
 						.name());
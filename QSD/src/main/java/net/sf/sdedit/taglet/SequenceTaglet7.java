@@ -24,6 +24,8 @@
 
 package net.sf.sdedit.taglet;
 
+import java.util.concurrent.Future;
+
 import net.sf.sdedit.util.PWriter;
 
 import com.sun.javadoc.Tag;
@@ -47,9 +49,9 @@ public class SequenceTaglet7 extends SequenceTaglet implements Taglet {
 
 	public String toString(Tag[] tags) {
 		PWriter p = PWriter.create();
-		for (Tag tag : tags) {
+		for (Future<String> output : makeStrings(tags)) {
 			try {
-				p.println(makeString(tag));
+				p.println(getString(output));
 			} catch (SequenceTagletException e) {
 				p.println(e.getOutput());
 			}
@@ -21,128 +21,172 @@
 //CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
 //ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
 //THE POSSIBILITY OF SUCH DAMAGE.
-package net.sf.sdedit.text;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
-
-public abstract class AbstractTextHandler {
-	
-	private BufferedReader reader;
-
-	private String text;
-
-	private String rawLine;
-
-	private String currentLine;
-
-	private int lineBegin;
-
-	private int lineEnd;
-	
-	private int lineNumber;
-	
-	public AbstractTextHandler (String text) {
-		lineBegin = 0;
-		lineEnd = -1;
-		lineNumber = 0;
-		this.text = text;
-	}
-	
-	/**
-	 * Returns the index of the first position of the current line in the
-	 * specification.
-	 * 
-	 * @return the index of the first position of the current line in the
-	 *         specification
-	 */
-	public int getLineBegin() {
-		return lineBegin;
-	}
-	
-	public int getLineNumber() {
-		return lineNumber;
-	}
-
-	public String getText() {
-		return text;
-	}
-	
-	protected final String currentLine () {
-		return currentLine;
-	}
-	
-	protected final void setCurrentLine (String currentLine) {
-		this.currentLine = currentLine;
-	}
-	
-	protected final String text() {
-		return text;
-	}
-	
-	protected final String rawLine () {
-		return rawLine;
-	}
-
-	/**
-	 * Returns the index of the last position of the current line in the
-	 * specification string.
-	 * 
-	 * @return the index of the last position of the current line in the
-	 *         specification string
-	 */
-	public int getLineEnd() {
-		return lineEnd;
-	}
-
-	/**
-	 * Returns the line that is currently read.
-	 * 
-	 * @return the line that is currently read
-	 */
-	public String getCurrentLine() {
-		return currentLine;
-	}
-	
-	protected void reset () {
-		lineBegin = 0;
-		lineEnd = -1;
-		currentLine = null;
-		rawLine = null;
-		reader = new BufferedReader(new StringReader(text));
-	}
-	
-	protected final String readLine () {
-		try {
-		    if (lineEnd >= 0) {
-		        lineBegin = lineEnd + 1;    
-		    }
-			rawLine = reader.readLine();
-			if (rawLine != null) {
-				lineNumber++;
-				lineEnd = lineBegin + rawLine.length();
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
-		}
-		return rawLine;
-	}
-	
-	protected final boolean ready () {
-		try {
-			return reader.ready();
-		} catch (IOException e) {
-			e.printStackTrace();
-			return false;
-		}
-	}
-	
-	protected final void reset (int oldBegin, int oldEnd) {
-		this.lineBegin = oldBegin;
-		this.lineEnd = oldEnd;
-	}
-	
-
-}
+package net.sf.sdedit.text;
+
+public abstract class AbstractTextHandler {
+
+	private String text;
+
+	/*
+	 * The index of the first character of the text that has not yet been
+	 * read
+	 */
+	private int position;
+
+	private String rawLine;
+
+	private String currentLine;
+
+	private int lineBegin;
+
+	private int lineEnd;
+	
+	private int lineNumber;
+	
+	public AbstractTextHandler (String text) {
+		lineBegin = 0;
+		lineEnd = -1;
+		lineNumber = 0;
+		this.text = text;
+	}
+	
+	/**
+	 * Returns the index of the first position of the current line in the
+	 * specification.
+	 * 
+	 * @return the index of the first position of the current line in the
+	 *         specification
+	 */
+	public int getLineBegin() {
+		return lineBegin;
+	}
+	
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	public String getText() {
+		return text;
+	}
+	
+	protected final String currentLine () {
+		return currentLine;
+	}
+	
+	protected final void setCurrentLine (String currentLine) {
+		this.currentLine = currentLine;
+	}
+	
+	protected final String text() {
+		return text;
+	}
+	
+	protected final String rawLine () {
+		return rawLine;
+	}
+
+	/**
+	 * Returns the index of the last position of the current line in the
+	 * specification string.
+	 * 
+	 * @return the index of the last position of the current line in the
+	 *         specification string
+	 */
+	public int getLineEnd() {
+		return lineEnd;
+	}
+
+	/**
+	 * Returns the line that is currently read.
+	 * 
+	 * @return the line that is currently read
+	 */
+	public String getCurrentLine() {
+		return currentLine;
+	}
+	
+	protected void reset () {
+		lineBegin = 0;
+		lineEnd = -1;
+		currentLine = null;
+		rawLine = null;
+		position = 0;
+	}
+	
+	/**
+	 * Reads the next line, terminated by a line feed, a carriage return or
+	 * a carriage return followed by a line feed (just like
+	 * <tt>BufferedReader.readLine()</tt>).
+	 * 
+	 * @return the next line, without the line terminator, or <tt>null</tt>
+	 *         if the end of the text has been reached
+	 */
+	protected final String readLine () {
+	    if (lineEnd >= 0) {
+	        lineBegin = lineEnd + 1;    
+	    }
+		if (position >= text.length()) {
+			rawLine = null;
+			return null;
+		}
+		int end = position;
+		while (end < text.length() && text.charAt(end) != '\n'
+				&& text.charAt(end) != '\r') {
+			end++;
+		}
+		rawLine = text.substring(position, end);
+		position = end + 1;
+		if (end < text.length() - 1 && text.charAt(end) == '\r'
+				&& text.charAt(end + 1) == '\n') {
+			position++;
+		}
+		lineNumber++;
+		lineEnd = lineBegin + rawLine.length();
+		return rawLine;
+	}
+	
+	/**
+	 * Reading from a string never blocks, so this always returns
+	 * <tt>true</tt>, {@linkplain #readLine()} returns <tt>null</tt> when the
+	 * end of the text has been reached.
+	 * 
+	 * @return <tt>true</tt>
+	 */
+	protected final boolean ready () {
+		return true;
+	}
+	
+	/**
+	 * Returns the index of the first character of the text that has not yet
+	 * been read.
+	 * 
+	 * @return the index of the first character of the text that has not yet
+	 *         been read
+	 */
+	public int getPosition() {
+		return position;
+	}
+	
+	/**
+	 * Continues reading where the given handler, which reads a text
+	 * starting with the same lines, has stopped.
+	 * 
+	 * @param handler
+	 *            another text handler
+	 */
+	protected final void takeReadingState (AbstractTextHandler handler) {
+		position = handler.position;
+		rawLine = handler.rawLine;
+		currentLine = handler.currentLine;
+		lineBegin = handler.lineBegin;
+		lineEnd = handler.lineEnd;
+		lineNumber = handler.lineNumber;
+	}
+	
+	protected final void reset (int oldBegin, int oldEnd) {
+		this.lineBegin = oldBegin;
+		this.lineEnd = oldEnd;
+	}
+	
+
+}
@@ -0,0 +1,456 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.text;
+
+import java.util.Map;
+
+import net.sf.sdedit.util.Grep;
+import net.sf.sdedit.util.Grep.Region;
+
+/**
+ * A <tt>MessageParser</tt> splits a message line into the parts described in
+ * {@linkplain TextBasedMessageData} and sets the corresponding properties of
+ * a <tt>TextBasedMessageData</tt> object.
+ * <p>
+ * The result is the same as if the line was matched against the patterns of
+ * the {@linkplain MessageType}s, one after the other, and the groups of the
+ * first matching pattern were used for setting the properties (with the
+ * backslashes used for escaping removed), but the line is scanned only once:
+ * The positions of the unescaped separators (<tt>:</tt>, <tt>:&gt;</tt>,
+ * <tt>=</tt> and <tt>.</tt>) are collected, and the parts are determined from
+ * them just like the greedy and reluctant quantifiers of the patterns would
+ * determine them: the caller extends to the last separator where the rest of
+ * the line can be matched, the answer to the last <tt>=</tt> that is followed
+ * by a callee and a <tt>.</tt>, and the callee to the next <tt>.</tt>.
+ * 
+ * @author Markus Strauch
+ */
+final class MessageParser {
+
+	private static final int MESSAGE = 0;
+
+	private static final int CALLEE = 1;
+
+	private static final int NONEMPTY_CALLEE = 2;
+
+	private static final int ANSWER_AND_CALLEE = 3;
+
+	private final String string;
+
+	private final int length;
+
+	private final int[] colons;
+
+	private int colonCount;
+
+	private final int[] spawns;
+
+	private int spawnCount;
+
+	private final int[] equals;
+
+	private int equalsCount;
+
+	private final int[] dots;
+
+	private int dotCount;
+
+	/*
+	 * the groups of the pattern being matched, as pairs of start and end
+	 * indices, both -1 for groups that do not participate in the match
+	 */
+	private final int[] groups;
+
+	private int groupCount;
+
+	private MessageParser(String string) {
+		this.string = string;
+		length = string.length();
+		colons = new int[length];
+		spawns = new int[length];
+		equals = new int[length];
+		dots = new int[length];
+		groups = new int[20];
+	}
+
+	/**
+	 * Creates a <tt>MessageParser</tt> for the given line, or returns
+	 * <tt>null</tt> if the line contains a line terminator character (which
+	 * cannot be matched by the patterns' dots), so it must be parsed by
+	 * matching the patterns.
+	 * 
+	 * @param string
+	 *            a message line
+	 * @return a parser for the line, or <tt>null</tt>
+	 */
+	static MessageParser create(String string) {
+		MessageParser parser = new MessageParser(string);
+		return parser.scan() ? parser : null;
+	}
+
+	private boolean scan() {
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '\n':
+			case '\r':
+			case '\u0085':
+			case '\u2028':
+			case '\u2029':
+				return false;
+			case ':':
+				if (!isEscaped(i)) {
+					if (i + 1 < length && string.charAt(i + 1) == '>') {
+						spawns[spawnCount++] = i;
+					} else {
+						colons[colonCount++] = i;
+					}
+				}
+				break;
+			case '=':
+				if (!isEscaped(i)) {
+					equals[equalsCount++] = i;
+				}
+				break;
+			case '.':
+				if (!isEscaped(i)) {
+					dots[dotCount++] = i;
+				}
+				break;
+			default:
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * A separator is escaped if it is preceded by a backslash, no matter if
+	 * the backslash itself is escaped (this is what the patterns' negative
+	 * lookbehinds do).
+	 */
+	private boolean isEscaped(int i) {
+		return i > 0 && string.charAt(i - 1) == '\\';
+	}
+
+	/**
+	 * Parses the line and sets the properties of the given message data.
+	 * 
+	 * @param data
+	 *            the message data to be set
+	 * @param regions
+	 *            maps the names of properties onto the regions of the line
+	 *            from where they were taken
+	 * @return true if the line is a valid message
+	 */
+	boolean parse(TextBasedMessageData data, Map<String, Region> regions) {
+		for (MessageType type : MessageType.values()) {
+			if (match(type)) {
+				setProperties(data, type.getProperties(), regions);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean match(MessageType type) {
+		switch (type) {
+		case LEVEL_THREAD_ANSWER:
+			return match(true, false, ANSWER_AND_CALLEE);
+		case LEVEL_THREAD_NO_ANSWER:
+			return match(true, false, NONEMPTY_CALLEE);
+		case NO_LEVEL_NO_THREAD_ANSWER:
+			return match(false, false, ANSWER_AND_CALLEE);
+		case NO_LEVEL_NO_THREAD_NO_ANSWER:
+			return match(false, false, CALLEE);
+		case PRIMITIVE_WITH_LEVEL:
+			return match(true, false, MESSAGE);
+		case PRIMITIVE_WITHOUT_LEVEL:
+			return match(false, false, MESSAGE);
+		case SPAWN_WITH_LEVEL:
+			return match(true, true, NONEMPTY_CALLEE);
+		case SPAWN_WITHOUT_LEVEL:
+			return match(false, true, NONEMPTY_CALLEE);
+		default:
+			throw new IllegalArgumentException("unknown message type: "
+					+ type);
+		}
+	}
+
+	/*
+	 * Finds the last separator (":" or ":>") where the rest of the line
+	 * matches, preceded by levels and thread ("[level,thread]") if required.
+	 * The caller ends there, or at the levels.
+	 */
+	private boolean match(boolean levels, boolean spawn, int tail) {
+		int[] separators = spawn ? spawns : colons;
+		int count = spawn ? spawnCount : colonCount;
+		for (int k = count - 1; k >= 0; k--) {
+			int separator = separators[k];
+			int callerEnd = levels ? levelsStart(separator) : separator;
+			if (callerEnd < 0) {
+				continue;
+			}
+			groupCount = 0;
+			if (!matchPrefix(callerEnd)) {
+				// there is no separator further to the left that would leave
+				// a non-empty caller
+				return false;
+			}
+			if (levels) {
+				matchLevels(callerEnd, separator);
+			}
+			if (matchTail(tail, separator + (spawn ? 2 : 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Matches "(\(\d*(,\d+)?\))?\s*(.+)" against the beginning of the line,
+	 * with the caller ending at callerEnd.
+	 */
+	private boolean matchPrefix(int callerEnd) {
+		int noteEnd = -1;
+		int comma = -1;
+		if (length > 0 && string.charAt(0) == '(') {
+			int i = skipDigits(1);
+			if (i < length && string.charAt(i) == ',') {
+				int j = skipDigits(i + 1);
+				if (j > i + 1 && j < length && string.charAt(j) == ')') {
+					comma = i;
+					noteEnd = j + 1;
+				}
+			} else if (i < length && string.charAt(i) == ')') {
+				noteEnd = i + 1;
+			}
+		}
+		int callerStart;
+		if (noteEnd >= 0 && callerEnd > noteEnd) {
+			group(0, noteEnd);
+			if (comma >= 0) {
+				group(comma, noteEnd - 1);
+			} else {
+				group(-1, -1);
+			}
+			callerStart = noteEnd;
+		} else if (callerEnd > 0) {
+			group(-1, -1);
+			group(-1, -1);
+			callerStart = 0;
+		} else {
+			return false;
+		}
+		while (callerStart < callerEnd - 1
+				&& isWhitespace(string.charAt(callerStart))) {
+			callerStart++;
+		}
+		group(callerStart, callerEnd);
+		return true;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+				|| c == '\f' || c == '\r';
+	}
+
+	private int skipDigits(int i) {
+		while (i < length && string.charAt(i) >= '0'
+				&& string.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+
+	/*
+	 * Returns the index where "\[\d*,\d+\]" or "\[\d+\]" begins if it ends
+	 * just before the given index, otherwise -1.
+	 */
+	private int levelsStart(int end) {
+		int i = end - 1;
+		if (i < 0 || string.charAt(i) != ']') {
+			return -1;
+		}
+		int digits = 0;
+		while (--i >= 0 && string.charAt(i) >= '0' && string.charAt(i) <= '9') {
+			digits++;
+		}
+		if (i < 0 || digits == 0) {
+			return -1;
+		}
+		if (string.charAt(i) == '[') {
+			return i;
+		}
+		if (string.charAt(i) != ',') {
+			return -1;
+		}
+		while (--i >= 0 && string.charAt(i) >= '0' && string.charAt(i) <= '9') {
+			// skip level
+		}
+		return i >= 0 && string.charAt(i) == '[' ? i : -1;
+	}
+
+	/*
+	 * Adds the groups of "(\[(\d*),(\d+)\]|\[(\d+)\])".
+	 */
+	private void matchLevels(int start, int end) {
+		group(start, end);
+		int comma = string.lastIndexOf(',', end - 1);
+		if (comma > start) {
+			group(start + 1, comma);
+			group(comma + 1, end - 1);
+			group(-1, -1);
+		} else {
+			group(-1, -1);
+			group(-1, -1);
+			group(start + 1, end - 1);
+		}
+	}
+
+	/*
+	 * Matches "(.*)", "(.*?)\.(.*)", "(.+?)\.(.*)" or "(.*)=(.+?)\.(.*)",
+	 * beginning at the given index.
+	 */
+	private boolean matchTail(int tail, int start) {
+		int dot;
+		switch (tail) {
+		case MESSAGE:
+			group(start, length);
+			return true;
+		case CALLEE:
+		case NONEMPTY_CALLEE:
+			dot = first(dots, dotCount, tail == CALLEE ? start : start + 1);
+			if (dot < 0) {
+				return false;
+			}
+			group(start, dot);
+			group(dot + 1, length);
+			return true;
+		case ANSWER_AND_CALLEE:
+			if (dotCount == 0) {
+				return false;
+			}
+			int equal = last(equals, equalsCount, start,
+					dots[dotCount - 1] - 2);
+			if (equal < 0) {
+				return false;
+			}
+			dot = first(dots, dotCount, equal + 2);
+			group(start, equal);
+			group(equal + 1, dot);
+			group(dot + 1, length);
+			return true;
+		default:
+			throw new IllegalArgumentException("unknown tail: " + tail);
+		}
+	}
+
+	private static int first(int[] positions, int count, int from) {
+		for (int i = 0; i < count; i++) {
+			if (positions[i] >= from) {
+				return positions[i];
+			}
+		}
+		return -1;
+	}
+
+	private static int last(int[] positions, int count, int from, int to) {
+		for (int i = count - 1; i >= 0; i--) {
+			if (positions[i] <= to) {
+				return positions[i] >= from ? positions[i] : -1;
+			}
+		}
+		return -1;
+	}
+
+	private void group(int start, int end) {
+		groups[2 * groupCount] = start;
+		groups[2 * groupCount + 1] = end;
+		groupCount++;
+	}
+
+	/*
+	 * Sets the properties from the groups, in the same way as
+	 * Grep.parseAndSetProperties does: groups that do not participate yield
+	 * empty strings, and if a property occurs more than once, its region is
+	 * the one of the last occurrence.
+	 */
+	private void setProperties(TextBasedMessageData data,
+			String[] properties, Map<String, Region> regions) {
+		if (properties.length != groupCount) {
+			throw new IllegalStateException("number of groups does not"
+					+ " match number of properties");
+		}
+		for (int i = 0; i < properties.length; i++) {
+			int start = groups[2 * i];
+			int end = groups[2 * i + 1];
+			String text = start < 0 ? null : string.substring(start, end);
+			if (regions != null) {
+				regions.put(properties[i], new MessageRegion(text, start, end));
+			}
+			String value = text == null ? "" : Grep.DEFAULT_UNESCAPE
+					.unescape(text);
+			try {
+				setProperty(data, properties[i], value);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				throw new IllegalArgumentException("cannot write property "
+						+ properties[i]);
+			}
+		}
+	}
+
+	private static void setProperty(TextBasedMessageData data,
+			String property, String value) {
+		if (property.equals("noteId")) {
+			data.setNoteId(value);
+		} else if (property.equals("dummy")) {
+			data.setDummy(value);
+		} else if (property.equals("caller")) {
+			data.setCaller(value);
+		} else if (property.equals("spawner")) {
+			data.setSpawner(value);
+		} else if (property.equals("levelString")) {
+			data.setLevelString(value);
+		} else if (property.equals("threadString")) {
+			data.setThreadString(value);
+		} else if (property.equals("answer")) {
+			data.setAnswer(value);
+		} else if (property.equals("callee")) {
+			data.setCallee(value);
+		} else if (property.equals("message")) {
+			data.setMessage(value);
+		} else {
+			throw new IllegalArgumentException("property " + property
+					+ " does not exist");
+		}
+	}
+
+	private static final class MessageRegion extends Region {
+
+		MessageRegion(String text, int start, int end) {
+			super(text, start, end);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.text;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.sdedit.error.SyntaxError;
+import net.sf.sdedit.util.Grep;
+import net.sf.sdedit.util.Grep.Region;
+
+/**
+ * A <tt>ParsedDiagram</tt> is the syntactic structure of a sequence diagram
+ * specification, independent of any layout: the title, the description, the
+ * parts of the object declarations, the messages and the headers of notes and
+ * event associations, together with the regions of the text where they are
+ * specified. It is read by {@linkplain TextHandler}s, so all diagrams that
+ * are generated from the same <tt>ParsedDiagram</tt> - for example when the
+ * same text is exported to several formats one after another - share the
+ * results of parsing.
+ * <p>
+ * The lines of the text are parsed when a <tt>TextHandler</tt> reads them for
+ * the first time, so a diagram that is generated starting from a checkpoint
+ * only parses the lines after the checkpoint. Each line is parsed at most
+ * once, and what has been parsed never changes, so a <tt>ParsedDiagram</tt>
+ * can be read by any number of threads at the same time.
+ * <p>
+ * Lines are identified by their line numbers, together with the strings that
+ * have been parsed, so the results are only reused for exactly the same
+ * input.
+ * 
+ * @author Markus Strauch
+ */
+public final class ParsedDiagram {
+
+	private static final int CACHE_SIZE = 8;
+
+	private static final Map<String, ParsedDiagram> cache = new LinkedHashMap<String, ParsedDiagram>(16, 0.75F, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ParsedDiagram> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private static final String OBJECT = "(\\/?.+?):([^\\[\\]]+?)\\s*(\\[.*?\\]|)\\s*(\".*\"|)";
+
+	private static final String NOTE = "\\s*(\\*|\\+)(\\d+)\\s*(.+)";
+
+	private static final String EVENT_ASSOCIATION = "\\((\\d+)\\)\\s*(\\w+)";
+
+	private final String text;
+
+	private final String title;
+
+	private final String[] description;
+
+	private final Map<Integer, Line<Declaration>> declarations;
+
+	private final Map<Integer, Line<Object>> messages;
+
+	private final Map<Integer, Line<String[]>> notes;
+
+	private final Map<Integer, Line<String[]>> eventAssociations;
+
+	/**
+	 * Creates a new <tt>ParsedDiagram</tt> for the given text that is not
+	 * shared with others, see {@linkplain #of(String)}.
+	 * 
+	 * @param text
+	 *            a diagram specification
+	 */
+	ParsedDiagram(String text) {
+		this.text = text;
+		Grep grep = new Grep(Grep.DEFAULT_UNESCAPE);
+		String[] titleString = grep.parse("(?s).*#!\\[([^\n\r]*?)\\].*", text);
+		if (titleString == null) {
+			title = null;
+		} else {
+			title = titleString[0];
+		}
+		String[] descString = grep.parse("(?s).*#!>>(.*)#!<<.*", text);
+		String[] description;
+		if (descString == null) {
+			description = null;
+		} else {
+			description = descString[0].trim().split("\n");
+		}
+		for (int i = 0; description != null && i < description.length; i++) {
+			description[i] = description[i].trim();
+			if (!description[i].startsWith("#!")) {
+				description = null;
+			} else {
+				description[i] = description[i].replaceFirst("#!", "");
+			}
+		}
+		this.description = description;
+		declarations = new ConcurrentHashMap<Integer, Line<Declaration>>();
+		messages = new ConcurrentHashMap<Integer, Line<Object>>();
+		notes = new ConcurrentHashMap<Integer, Line<String[]>>();
+		eventAssociations = new ConcurrentHashMap<Integer, Line<String[]>>();
+	}
+
+	/**
+	 * Returns the <tt>ParsedDiagram</tt> for the given text. The parsed
+	 * diagrams of the texts used most recently are kept, so a text is parsed
+	 * only once as long as it does not change.
+	 * 
+	 * @param text
+	 *            a diagram specification
+	 * @return the <tt>ParsedDiagram</tt> for the text
+	 */
+	public static ParsedDiagram of(String text) {
+		ParsedDiagram parsed;
+		synchronized (cache) {
+			parsed = cache.get(text);
+		}
+		if (parsed == null) {
+			parsed = new ParsedDiagram(text);
+			synchronized (cache) {
+				ParsedDiagram other = cache.get(text);
+				if (other != null) {
+					return other;
+				}
+				cache.put(text, parsed);
+			}
+		}
+		return parsed;
+	}
+
+	/**
+	 * Returns the diagram specification.
+	 * 
+	 * @return the diagram specification
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the diagram's title, or <tt>null</tt> if no title is defined.
+	 * 
+	 * @return the diagram's title, or <tt>null</tt> if no title is defined
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Returns a new array of the lines of the diagram's description, or
+	 * <tt>null</tt> if there is no description.
+	 * 
+	 * @return the lines of the diagram's description, or <tt>null</tt>
+	 */
+	public String[] getDescription() {
+		return description == null ? null : description.clone();
+	}
+
+	/**
+	 * Returns the parts of an object declaration, or <tt>null</tt> if the
+	 * line is not a well-formed object declaration.
+	 * 
+	 * @param lineNumber
+	 *            the number of the line
+	 * @param line
+	 *            the line without leading and trailing spaces and comments
+	 * @param grep
+	 *            used for parsing the line if it has not been parsed before
+	 * @return the parts of the object declaration, or <tt>null</tt>
+	 */
+	Declaration getDeclaration(int lineNumber, String line, Grep grep) {
+		Line<Declaration> known = declarations.get(lineNumber);
+		if (known != null && known.string.equals(line)) {
+			return known.value;
+		}
+		List<Region> regions = new ArrayList<Region>();
+		String[] parts = grep.parse(OBJECT, line, regions);
+		Declaration declaration = parts == null || parts.length != 4 ? null
+				: new Declaration(parts, regions.get(0));
+		declarations.put(lineNumber, new Line<Declaration>(line, declaration));
+		return declaration;
+	}
+
+	/**
+	 * Returns a new <tt>TextBasedMessageData</tt> object for a message.
+	 * 
+	 * @param lineNumber
+	 *            the number of the line
+	 * @param line
+	 *            the line without leading and trailing spaces
+	 * @param grep
+	 *            used for parsing the line if it has not been parsed before
+	 * @return the message data specified by the line
+	 * @throws SyntaxError
+	 *             if the line is not a valid message (the provider of the
+	 *             error is not set)
+	 */
+	TextBasedMessageData getMessage(int lineNumber, String line, Grep grep) throws SyntaxError {
+		Line<Object> known = messages.get(lineNumber);
+		if (known == null || !known.string.equals(line)) {
+			Object value;
+			try {
+				value = new TextBasedMessageData(line, grep);
+			} catch (SyntaxError e) {
+				value = e.getMessage();
+			}
+			known = new Line<Object>(line, value);
+			messages.put(lineNumber, known);
+		}
+		if (known.value instanceof String) {
+			throw new SyntaxError(null, (String) known.value);
+		}
+		return ((TextBasedMessageData) known.value).copy();
+	}
+
+	/**
+	 * Returns the parts of the header of a note (the sign denoting if the
+	 * note is consuming, the note number and the name of the lifeline), or
+	 * <tt>null</tt> if the line does not open a note.
+	 */
+	String[] getNote(int lineNumber, String line, Grep grep) {
+		return match(notes, NOTE, lineNumber, line, grep);
+	}
+
+	/**
+	 * Returns the parts of an association of a note to a lifeline (the note
+	 * number and the name of the lifeline), or <tt>null</tt> if the line does
+	 * not specify such an association.
+	 */
+	String[] getEventAssociation(int lineNumber, String line, Grep grep) {
+		return match(eventAssociations, EVENT_ASSOCIATION, lineNumber, line, grep);
+	}
+
+	private static String[] match(Map<Integer, Line<String[]>> lines, String regexp, int lineNumber, String line,
+			Grep grep) {
+		Line<String[]> known = lines.get(lineNumber);
+		if (known != null && known.string.equals(line)) {
+			return known.value;
+		}
+		String[] parts = grep.parse(regexp, line, null);
+		lines.put(lineNumber, new Line<String[]>(line, parts));
+		return parts;
+	}
+
+	/**
+	 * The parts of an object declaration: the name (preceded by a slash if
+	 * the object is not visible at the beginning), the type, the flags in
+	 * brackets and the label in quotes, each of the latter possibly empty,
+	 * and the region of the name.
+	 */
+	static final class Declaration {
+
+		private final String[] parts;
+
+		private final Region nameRegion;
+
+		private Declaration(String[] parts, Region nameRegion) {
+			this.parts = parts;
+			this.nameRegion = nameRegion;
+		}
+
+		String getName() {
+			return parts[0];
+		}
+
+		String getType() {
+			return parts[1];
+		}
+
+		String getFlags() {
+			return parts[2];
+		}
+
+		String getLabel() {
+			return parts[3];
+		}
+
+		Region getNameRegion() {
+			return nameRegion;
+		}
+	}
+
+	private static final class Line<T> {
+
+		final String string;
+
+		final T value;
+
+		Line(String string, T value) {
+			this.string = string;
+			this.value = value;
+		}
+	}
+}
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.sdedit.diagram.MessageData;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.error.SyntaxError;
 import net.sf.sdedit.util.Grep;
 import net.sf.sdedit.util.Grep.Region;
@@ -57,18 +58,52 @@ public class TextBasedMessageData extends MessageData {
 	private final Map<String, Grep.Region> regions;
 
 	/**
-	 * Creates a new <tt>MessageParser</tt> for parsing a string.
+	 * Creates a new <tt>TextBasedMessageData</tt> by parsing a string.
 	 * 
 	 * @param string
 	 *            the string to be parsed
+	 * @param grep
+	 *            used for matching the patterns of the message types if the
+	 *            string cannot be parsed by a {@linkplain MessageParser}
 	 * @throws SyntaxError
 	 *             if the string is not a valid message
 	 */
 	public TextBasedMessageData(String string, Grep grep) throws SyntaxError {
+		this(string, grep, false);
+	}
+
+	/**
+	 * Creates a new <tt>TextBasedMessageData</tt> by parsing a string,
+	 * optionally matching it against the patterns of the message types even
+	 * if it could be parsed directly.
+	 * 
+	 * @param string
+	 *            the string to be parsed
+	 * @param grep
+	 *            used for matching the patterns of the message types if the
+	 *            string cannot be parsed by a {@linkplain MessageParser}
+	 * @param matchPatterns
+	 *            flag denoting if the string is to be parsed by matching the
+	 *            patterns in any case
+	 * @throws SyntaxError
+	 *             if the string is not a valid message
+	 */
+	TextBasedMessageData(String string, Grep grep, boolean matchPatterns)
+			throws SyntaxError {
 		super();
 		this.string = string;
 		this.regions = new HashMap<String, Grep.Region>();
-		parse(grep);
+		parse(grep, matchPatterns);
+	}
+
+	/*
+	 * The regions of the parts of the string do not change after parsing, so
+	 * they are shared.
+	 */
+	private TextBasedMessageData(TextBasedMessageData data) {
+		super(data);
+		string = data.string;
+		regions = data.regions;
 	}
 
 	/**
@@ -77,11 +112,19 @@ public class TextBasedMessageData extends MessageData {
 	 * the <tt>get</tt> methods.
 	 * 
 	 */
-	private void parse(Grep grep) throws SyntaxError {
+	private void parse(Grep grep, boolean matchPatterns) throws SyntaxError {
 		boolean success = false;
 		if (string.indexOf(':') == -1) {
 			throw new SyntaxError(null, "not a valid message - ':' missing");
 		}
+		MessageParser parser = matchPatterns ? null : MessageParser
+				.create(string);
+		if (parser != null) {
+			if (parser.parse(this, regions)) {
+				return;
+			}
+			throw new SyntaxError(null, "not a valid message");
+		}
 		for (MessageType type : MessageType.values()) {
 			success = grep.parseAndSetProperties(this, type.getPattern(), string, regions, type.getProperties());
 			if (success) {
@@ -160,5 +203,19 @@ public class TextBasedMessageData extends MessageData {
 	public Region getRegion(String property) {
 		return regions.get(property);
 	}
+
+	/**
+	 * Returns a copy of this message data.
+	 * 
+	 * @return a copy of this message data
+	 */
+	TextBasedMessageData copy() {
+		return new TextBasedMessageData(this);
+	}
+
+	@Override
+	public TextBasedMessageData copy(StateCopier copier) {
+		return copy();
+	}
 }
 // {{core}}
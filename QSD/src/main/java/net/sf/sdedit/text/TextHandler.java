@@ -25,7 +25,6 @@ package net.sf.sdedit.text;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,10 +36,11 @@ import net.sf.sdedit.diagram.LifelineFlag;
 import net.sf.sdedit.diagram.MessageData;
 import net.sf.sdedit.diagram.SequenceDiagram;
 import net.sf.sdedit.diagram.SequenceDiagramDataProvider;
+import net.sf.sdedit.diagram.StateCopier;
 import net.sf.sdedit.drawable.Note;
 import net.sf.sdedit.error.SyntaxError;
+import net.sf.sdedit.text.ParsedDiagram.Declaration;
 import net.sf.sdedit.util.Grep;
-import net.sf.sdedit.util.Grep.Region;
 import net.sf.sdedit.util.Pair;
 
 import static net.sf.sdedit.diagram.LifelineFlag.*;
@@ -52,7 +52,8 @@ import static net.sf.sdedit.diagram.LifelineFlag.*;
  * @author Markus Strauch
  * 
  */
-public class TextHandler extends AbstractTextHandler implements SequenceDiagramDataProvider {
+public class TextHandler extends AbstractTextHandler implements
+		SequenceDiagramDataProvider, StateCopier.Restorable {
 
 	/* -1 = init, 0 = objects, 1 = messages */
 	private int section;
@@ -68,6 +69,8 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 	private SequenceDiagram diagram;
 	
 	private final Grep grep;
+
+	private final ParsedDiagram parsed;
 	
 	private Map<String,String> userData;
 
@@ -79,7 +82,19 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 	 * 
 	 */
 	public TextHandler(String text) {
-		super(text);
+		this(new ParsedDiagram(text));
+	}
+
+	/**
+	 * Creates a new <tt>TextHandler</tt> that reads a parsed diagram, reusing
+	 * the results of parsing its lines that have been read before.
+	 * 
+	 * @param parsed
+	 *            a parsed diagram specification
+	 */
+	public TextHandler(ParsedDiagram parsed) {
+		super(parsed.getText());
+		this.parsed = parsed;
 		grep = new Grep(Grep.DEFAULT_UNESCAPE);
 		section = -1;
 		annotations = new HashMap<Lifeline, String>();
@@ -87,6 +102,34 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		reset();
 	}
 	
+	/**
+	 * Returns a copy of the state of reading the specification, used as a
+	 * part of a {@linkplain net.sf.sdedit.diagram.Checkpoint}.
+	 */
+	public TextHandler copy(StateCopier copier) {
+		TextHandler copy = new TextHandler(parsed);
+		copier.register(this, copy);
+		copy.restore(this, copier);
+		return copy;
+	}
+
+	/**
+	 * Continues reading where the given text handler has stopped. Its text
+	 * must start with the lines of this handler's text that it has read. The
+	 * text, title and description of this handler remain unchanged.
+	 */
+	public void restore(StateCopier.Restorable original, StateCopier copier) {
+		TextHandler handler = (TextHandler) original;
+		takeReadingState(handler);
+		section = handler.section;
+		annotations = copier.copy(handler.annotations);
+		objectSectionEnd = handler.objectSectionEnd;
+		diagram = copier.copy(handler.diagram);
+		// a new map is made for every line of user data, so it is shared
+		// with the message data, like the original
+		userData = handler.userData;
+	}
+
 	public SequenceDiagram getDiagram () {
 		return diagram;
 	}
@@ -108,6 +151,20 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		return getLineBegin();
 	}
 
+	/**
+	 * Returns a flag denoting if the empty line that terminates the object
+	 * section has been read, so the lines that follow are read as messages
+	 * (and not as objects, as they would be when the end of the text is
+	 * reached before).
+	 * 
+	 * @return flag denoting if the object section has been terminated
+	 */
+	public boolean isObjectSectionTerminated() {
+		// objectSectionEnd is only set when the empty line is read, after
+		// at least one object declaration
+		return section > 0 && objectSectionEnd > 0;
+	}
+
 	public int getObjectSectionEnd() {
 		if (section > 0) {
 			return objectSectionEnd;
@@ -115,31 +172,57 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		return getLineNumber();
 	}
 
+	/**
+	 * Returns the number of the last line of what is read next in the message
+	 * section: a message, a fragment line or a note, which may span several
+	 * lines. Empty lines and comments before it are skipped. The reading state
+	 * is not changed.
+	 * 
+	 * @return the number of the last line of what is read next, or -1 if
+	 *         there is nothing left to read
+	 */
+	public int getNextEntryEnd() {
+		String text = text();
+		int position = getPosition();
+		int number = getLineNumber();
+		String noteEnd = null;
+		while (position < text.length()) {
+			int end = position;
+			while (end < text.length() && text.charAt(end) != '\n'
+					&& text.charAt(end) != '\r') {
+				end++;
+			}
+			String line = text.substring(position, end).trim();
+			position = end + 1;
+			if (end < text.length() - 1 && text.charAt(end) == '\r'
+					&& text.charAt(end + 1) == '\n') {
+				position++;
+			}
+			number++;
+			if (noteEnd != null) {
+				if (line.equals(noteEnd)) {
+					return number;
+				}
+			} else if (line.length() > 0 && !line.startsWith("#")) {
+				String[] parts = section > 0 ? parsed.getNote(number, line,
+						grep) : null;
+				if (parts == null) {
+					return number;
+				}
+				noteEnd = parts[0] + parts[1];
+			}
+		}
+		// an unterminated note extends to the end of the text
+		return noteEnd == null ? -1 : number;
+	}
+
 	/**
 	 * Resets the text handler so objects and messages can be read once again.
 	 */
 	protected void reset() {
 		super.reset();
-		String[] titleString = grep.parse("(?s).*#!\\[([^\n\r]*?)\\].*", text());
-		if (titleString == null) {
-			title = null;
-		} else {
-			title = titleString[0];
-		}
-		String[] descString = grep.parse("(?s).*#!>>(.*)#!<<.*", text());
-		if (descString == null) {
-			description = null;
-		} else {
-			description = descString[0].trim().split("\n");
-		}
-		for (int i = 0; description != null && i < description.length; i++) {
-			description[i] = description[i].trim();
-			if (!description[i].startsWith("#!")) {
-				description = null;
-			} else {
-				description[i] = description[i].replaceFirst("#!", "");
-			}
-		}
+		title = parsed.getTitle();
+		description = parsed.getDescription();
 		section = -1;
 		annotations.clear();
 	}
@@ -295,7 +378,7 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		}
 		MessageData data;
 		try {
-			data = new TextBasedMessageData(currentLine(), grep);
+			data = parsed.getMessage(getLineNumber(), currentLine(), grep);
 		} catch (SyntaxError e) {
 			e.setProvider(this);
 			throw e;
@@ -325,11 +408,8 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 			throw new SyntaxError(this,
 					"not a valid object declaration - ':' missing");
 		}
-		ArrayList<Region> regions = new ArrayList<Region>();
-		String[] parts = grep.parse(
-				"(\\/?.+?):([^\\[\\]]+?)\\s*(\\[.*?\\]|)\\s*(\".*\"|)",
-				currentLine(), regions);
-		if (parts == null || parts.length != 4) {
+		Declaration declaration = parsed.getDeclaration(getLineNumber(), currentLine(), grep);
+		if (declaration == null) {
 			String msg;
 			if (currentLine().indexOf('.') >= 0) {
 				msg = "not a valid object declaration, perhaps you forgot to "
@@ -340,10 +420,10 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 			throw new SyntaxError(this, msg);
 		}
 		setCurrentLine(null);
-		String name = parts[0];
-		String type = parts[1];
-		String flags = parts[2];
-		String label = parts[3];
+		String name = declaration.getName();
+		String type = declaration.getType();
+		String flags = declaration.getFlags();
+		String label = declaration.getLabel();
 		if (!label.equals("")) {
 			label = label.substring(1, label.length() - 1);
 		}
@@ -386,11 +466,11 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 				throw new SyntaxError(this, "only objects that are created by a constructor can have a variable position");
 			}
 
-			lifeline = new Lifeline(parts[0], parts[1], label, true, lflags,
+			lifeline = new Lifeline(name, type, label, true, lflags,
 					diagram);
 		}
 		
-		lifeline.setNameRegion(regions.get(0));
+		lifeline.setNameRegion(declaration.getNameRegion());
 
 		int cmt = rawLine().indexOf("#!");
 		if (cmt >= 0 && cmt + 2 < rawLine().length() - 1) {
@@ -421,7 +501,7 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		if (currentLine() == null) {
 			throw new IllegalStateException("nothing to read");
 		}
-		String[] parts = grep.parse("\\s*(\\*|\\+)(\\d+)\\s*(.+)", currentLine());
+		String[] parts = parsed.getNote(getLineNumber(), currentLine(), grep);
 		if (parts == null) {
 			return null;
 		}
@@ -499,7 +579,7 @@ public class TextHandler extends AbstractTextHandler implements SequenceDiagramD
 		if (currentLine() == null) {
 			throw new IllegalStateException("nothing to read");
 		}
-		String[] parts = grep.parse("\\((\\d+)\\)\\s*(\\w+)", currentLine());
+		String[] parts = parsed.getEventAssociation(getLineNumber(), currentLine(), grep);
 		if (parts == null) {
 			return null;
 		}
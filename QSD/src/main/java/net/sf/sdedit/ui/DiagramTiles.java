@@ -0,0 +1,416 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <tt>DiagramTiles</tt> paint the diagram of a {@linkplain PanelGraphicDevice}
+ * by copying raster tiles, into which the drawables have been drawn once for
+ * the current scale, so scrolling and repainting do not draw the drawables
+ * again.
+ * <p>
+ * The tiles of all diagrams share a memory budget, the least recently used
+ * tiles are discarded when it is exceeded. When the tiles that are visible
+ * have been painted, the tiles around them are rendered in advance by a
+ * background thread that all diagrams share. The device draws its drawables
+ * in a single thread at a time (see
+ * {@linkplain PanelGraphicDevice#paintDrawables(Graphics2D, Rectangle)}), so
+ * the event dispatch thread waits for at most one tile being rendered in
+ * advance. When the appearance of an area of the diagram changes (for example
+ * when a drawable is highlighted), only the tiles covering that area are
+ * discarded, and when the device is not displayed anymore, all of its tiles
+ * are discarded (see {@linkplain #dispose()}).
+ * 
+ * @author Markus Strauch
+ */
+final class DiagramTiles {
+
+	static final int TILE_SIZE = 256;
+
+	private static final long MEMORY_BUDGET = 64L << 20;
+
+	private static final int PRERENDER_DELAY = 20;
+
+	private static final Map<Key, Tile> cache = new LinkedHashMap<Key, Tile>(
+			64, 0.75F, true);
+
+	private static long size;
+
+	private static final ScheduledThreadPoolExecutor prerenderer;
+
+	static {
+		prerenderer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "DiagramTiles");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		prerenderer.setKeepAliveTime(1, TimeUnit.SECONDS);
+		prerenderer.allowCoreThreadTimeOut(true);
+		prerenderer.setRemoveOnCancelPolicy(true);
+	}
+
+	private final PanelGraphicDevice device;
+
+	/*
+	 * Identifies the tiles of this diagram in the cache, without referencing
+	 * the diagram, so the tiles of a diagram that is not displayed anymore do
+	 * not keep it from being garbage-collected.
+	 */
+	private final Object owner;
+
+	/*
+	 * The tiles around the visible ones, to be rendered in advance, guarded
+	 * by itself
+	 */
+	private final LinkedList<Key> pending;
+
+	private final Runnable prerender;
+
+	// the scheduled rendering of the pending tiles, guarded by pending
+	private ScheduledFuture<?> prerendering;
+
+	private volatile GraphicsConfiguration configuration;
+
+	/*
+	 * Incremented when tiles are discarded, so a tile that has been rendered
+	 * before is not cached, guarded by the cache
+	 */
+	private int version;
+
+	// set by dispose, guarded by the cache
+	private boolean disposed;
+
+	DiagramTiles(PanelGraphicDevice device) {
+		this.device = device;
+		owner = new Object();
+		pending = new LinkedList<Key>();
+		prerender = new Runnable() {
+			public void run() {
+				prerender();
+			}
+		};
+	}
+
+	/**
+	 * Paints the part of the diagram inside the clip of the given graphics
+	 * context by copying tiles, rendering the tiles that are missing.
+	 * 
+	 * @param g2
+	 *            a graphics context, scaled to the current zoom factor
+	 * @return <tt>false</tt> if the graphics context cannot be painted into by
+	 *         copying tiles (for example when it is not on screen), so the
+	 *         drawables must be drawn directly
+	 */
+	boolean paint(Graphics2D g2) {
+		GraphicsConfiguration gc = g2.getDeviceConfiguration();
+		if (gc == null
+				|| gc.getDevice().getType() != GraphicsDevice.TYPE_RASTER_SCREEN) {
+			return false;
+		}
+		return paintTiles(g2, gc);
+	}
+
+	/*
+	 * Like paint, for a graphics context on any device with the given
+	 * configuration.
+	 */
+	boolean paintTiles(Graphics2D g2, GraphicsConfiguration gc) {
+		AffineTransform transform = g2.getTransform();
+		if (transform.getShearX() != 0 || transform.getShearY() != 0
+				|| transform.getScaleX() != transform.getScaleY()
+				|| transform.getScaleX() <= 0 || isDisposed()) {
+			return false;
+		}
+		configuration = gc;
+		double scale = transform.getScaleX();
+		Graphics2D g = (Graphics2D) g2.create();
+		try {
+			g.setTransform(AffineTransform.getTranslateInstance(
+					Math.round(transform.getTranslateX()),
+					Math.round(transform.getTranslateY())));
+			Rectangle clip = g.getClipBounds();
+			int columns = (int) Math.ceil(device.getWidth() * scale
+					/ TILE_SIZE);
+			int rows = (int) Math.ceil(device.getHeight() * scale / TILE_SIZE);
+			int c0 = Math.max(0, Math.floorDiv(clip.x, TILE_SIZE));
+			int r0 = Math.max(0, Math.floorDiv(clip.y, TILE_SIZE));
+			int c1 = Math.min(columns - 1, Math.floorDiv(clip.x + clip.width
+					- 1, TILE_SIZE));
+			int r1 = Math.min(rows - 1, Math.floorDiv(clip.y + clip.height
+					- 1, TILE_SIZE));
+			for (int r = r0; r <= r1; r++) {
+				for (int c = c0; c <= c1; c++) {
+					Key key = new Key(owner, scale, c, r);
+					BufferedImage image = get(key);
+					if (image == null) {
+						image = render(key);
+					}
+					g.drawImage(image, c * TILE_SIZE, r * TILE_SIZE, null);
+				}
+			}
+			synchronized (pending) {
+				pending.clear();
+				for (int r = Math.max(0, r0 - 1); r <= Math.min(rows - 1,
+						r1 + 1); r++) {
+					for (int c = Math.max(0, c0 - 1); c <= Math.min(
+							columns - 1, c1 + 1); c++) {
+						if (r < r0 || r > r1 || c < c0 || c > c1) {
+							pending.add(new Key(owner, scale, c, r));
+						}
+					}
+				}
+				if (!pending.isEmpty()
+						&& (prerendering == null || prerendering.isDone())) {
+					prerendering = prerenderer.schedule(prerender,
+							PRERENDER_DELAY, TimeUnit.MILLISECONDS);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+		return true;
+	}
+
+	/*
+	 * Renders the tiles around the visible ones that are not yet cached,
+	 * called by the background thread.
+	 */
+	private void prerender() {
+		while (true) {
+			Key key;
+			synchronized (pending) {
+				if (pending.isEmpty()) {
+					prerendering = null;
+					return;
+				}
+				key = pending.removeFirst();
+			}
+			if (get(key) == null) {
+				render(key);
+			}
+		}
+	}
+
+	private BufferedImage render(Key key) {
+		int theVersion;
+		synchronized (cache) {
+			theVersion = version;
+		}
+		BufferedImage image = configuration.createCompatibleImage(TILE_SIZE,
+				TILE_SIZE);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+			// like the panel's graphics, the tile's graphics is clipped, so
+			// labels are drawn exactly as they are when drawn directly
+			g.clipRect(0, 0, TILE_SIZE, TILE_SIZE);
+			g.translate(-key.column * TILE_SIZE, -key.row * TILE_SIZE);
+			g.scale(key.scale, key.scale);
+			device.paintDrawables(g, key.getArea());
+		} finally {
+			g.dispose();
+		}
+		put(key, image, theVersion);
+		return image;
+	}
+
+	/**
+	 * Discards the tiles covering the given area of the diagram.
+	 * 
+	 * @param area
+	 *            an area of the diagram the appearance of which has changed
+	 */
+	void invalidate(Rectangle area) {
+		synchronized (cache) {
+			version++;
+			Iterator<Map.Entry<Key, Tile>> iterator = cache.entrySet()
+					.iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<Key, Tile> entry = iterator.next();
+				Key key = entry.getKey();
+				if (key.owner == owner
+						&& (area == null || key.getArea().intersects(area))) {
+					size -= entry.getValue().size;
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards all tiles of the diagram.
+	 */
+	void invalidate() {
+		invalidate(null);
+	}
+
+	/**
+	 * Discards all tiles of the diagram and stops rendering tiles, so the
+	 * diagram is painted by drawing its drawables directly from now on. This
+	 * is called when the device is not displayed anymore.
+	 */
+	void dispose() {
+		synchronized (pending) {
+			pending.clear();
+			if (prerendering != null) {
+				prerendering.cancel(false);
+				prerendering = null;
+			}
+		}
+		synchronized (cache) {
+			disposed = true;
+		}
+		invalidate();
+	}
+
+	private boolean isDisposed() {
+		synchronized (cache) {
+			return disposed;
+		}
+	}
+
+	/**
+	 * Returns the number of tiles of the diagram that are cached.
+	 * 
+	 * @return the number of tiles of the diagram that are cached
+	 */
+	int getTileCount() {
+		int count = 0;
+		synchronized (cache) {
+			for (Key key : cache.keySet()) {
+				if (key.owner == owner) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static BufferedImage get(Key key) {
+		synchronized (cache) {
+			Tile tile = cache.get(key);
+			return tile == null ? null : tile.image;
+		}
+	}
+
+	/*
+	 * Caches a tile, unless tiles of the diagram have been discarded since
+	 * the given version was current.
+	 */
+	private void put(Key key, BufferedImage image, int theVersion) {
+		Tile tile = new Tile(image);
+		synchronized (cache) {
+			if (disposed || theVersion != version) {
+				return;
+			}
+			Tile old = cache.put(key, tile);
+			if (old != null) {
+				size -= old.size;
+			}
+			size += tile.size;
+			Iterator<Tile> iterator = cache.values().iterator();
+			while (size > MEMORY_BUDGET && iterator.hasNext()) {
+				size -= iterator.next().size;
+				iterator.remove();
+			}
+		}
+	}
+
+	private static final class Tile {
+
+		final BufferedImage image;
+
+		final long size;
+
+		Tile(BufferedImage image) {
+			this.image = image;
+			size = 4L * image.getWidth() * image.getHeight();
+		}
+	}
+
+	private static final class Key {
+
+		final Object owner;
+
+		final double scale;
+
+		final int column;
+
+		final int row;
+
+		Key(Object owner, double scale, int column, int row) {
+			this.owner = owner;
+			this.scale = scale;
+			this.column = column;
+			this.row = row;
+		}
+
+		/*
+		 * The area of the diagram that is drawn into the tile, rounded
+		 * outwards to whole units of the diagram.
+		 */
+		Rectangle getArea() {
+			int x0 = (int) Math.floor(column * TILE_SIZE / scale);
+			int y0 = (int) Math.floor(row * TILE_SIZE / scale);
+			int x1 = (int) Math.ceil((column + 1) * TILE_SIZE / scale);
+			int y1 = (int) Math.ceil((row + 1) * TILE_SIZE / scale);
+			return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(owner) * 31 * 31
+					+ Double.valueOf(scale).hashCode() * 31 + column * 17
+					+ row;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return key.owner == owner && key.scale == scale
+					&& key.column == column && key.row == row;
+		}
+	}
+}
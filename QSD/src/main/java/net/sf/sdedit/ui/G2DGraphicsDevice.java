@@ -26,6 +26,7 @@ package net.sf.sdedit.ui;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 
 import net.sf.sdedit.diagram.AbstractGraphicDevice;
 import net.sf.sdedit.drawable.Drawable;
@@ -38,7 +39,9 @@ public abstract class G2DGraphicsDevice extends AbstractGraphicDevice
      * Creates a graphics context belonging to a back-end that has a size
      * that suffices to display the whole of the diagram. This method should
      * be called after {@linkplain #computeBounds()} has finished and the
-     * diagram's dimension is known.
+     * diagram's dimension is known. A device that draws the diagram in
+     * parts, by means of {@linkplain #draw(Graphics2D, Rectangle)}, may
+     * return <tt>null</tt> and must then override {@linkplain #drawAll()}.
      * 
      * @return a graphics context belonging to a back-end that has a size
      * that suffices to display the whole of the diagram
@@ -65,11 +68,27 @@ public abstract class G2DGraphicsDevice extends AbstractGraphicDevice
      * created via {@linkplain #createGraphics()}.
      */
     public void drawAll () {
+        draw(g2d, null);
+    }
+
+    /**
+     * Draws the diagram's elements that intersect the given area into the
+     * given graphics context.
+     * 
+     * @param g2d
+     *            the graphics context to draw into
+     * @param area
+     *            the area of the diagram to draw, <tt>null</tt> for the
+     *            whole of the diagram
+     */
+    protected void draw (Graphics2D g2d, Rectangle area) {
+        long start = System.nanoTime();
         g2d.setColor(Color.BLACK);
         g2d.setStroke(Strokes.defaultStroke());
-        for (Drawable drawable : drawables()) {
+        for (Drawable drawable : area == null ? drawables() : drawables(area)) {
             drawable.draw(g2d);
         }
+        painted(System.nanoTime() - start);
     }
     
     public void close(int width, int height, boolean empty) {
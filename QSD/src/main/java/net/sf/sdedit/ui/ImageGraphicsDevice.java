@@ -27,6 +27,7 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
@@ -39,34 +40,119 @@ import javax.imageio.ImageIO;
 
 import net.sf.sdedit.Constants;
 
+/**
+ * An <tt>ImageGraphicsDevice</tt> draws a diagram into an image that can be
+ * written in one of the formats supported by <tt>ImageIO</tt>.
+ * <p>
+ * If a band height is given, the image is not created when the diagram is
+ * closed. When it is written as a PNG file, the diagram is drawn band by
+ * band, each band containing only the drawables that intersect it, and the
+ * bands are encoded one after another, so the memory needed does not depend
+ * on the height of the diagram. The whole image is only created if it is
+ * needed for anything else.
+ * 
+ * @author Markus Strauch
+ */
 public class ImageGraphicsDevice extends G2DGraphicsDevice implements
 		Constants {
 
+	/**
+	 * The height of the bands in which PNG images are drawn and written when
+	 * they are exported.
+	 */
+	public static final int DEFAULT_BAND_HEIGHT = 512;
+
 	private final static RenderingHints AALIAS = new RenderingHints(
 			RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-	private Image image;
+	private BufferedImage image;
 
 	private boolean antialias;
 
+	private int bandHeight;
+
 	public ImageGraphicsDevice() {
 		this(true);
 	}
 
 	public ImageGraphicsDevice(boolean antialias) {
+		this(antialias, 0);
+	}
+
+	/**
+	 * Creates a new <tt>ImageGraphicsDevice</tt>.
+	 * 
+	 * @param antialias
+	 *            flag denoting if the diagram is drawn with antialiasing
+	 * @param bandHeight
+	 *            the height of the bands in which the image is drawn and
+	 *            written when it is written as a PNG file, 0 if the image is
+	 *            always drawn as a whole
+	 */
+	public ImageGraphicsDevice(boolean antialias, int bandHeight) {
 		this.antialias = antialias;
+		this.bandHeight = bandHeight;
 	}
 
 	public Image getImage() {
+		if (image == null && bandHeight > 0) {
+			drawAll();
+		}
 		return image;
 	}
 
 	public void writeToStream(String type, OutputStream stream)
 			throws IOException {
+		if (bandHeight > 0 && image == null && "png".equals(type)) {
+			writeBands(stream);
+			return;
+		}
 		drawAll();
 		ImageIO.write((RenderedImage) image, type, stream);
 	}
 
+	private void writeBands(OutputStream stream) throws IOException {
+		int width = getWidth();
+		int height = getHeight();
+		PNGWriter writer = new PNGWriter(stream, width, height);
+		BufferedImage band = new BufferedImage(width, Math.min(bandHeight,
+				height), BufferedImage.TYPE_INT_RGB);
+		for (int top = 0; top < height; top += bandHeight) {
+			int rows = Math.min(bandHeight, height - top);
+			Graphics2D g2d = band.createGraphics();
+			try {
+				prepare(g2d, width, rows);
+				// like the graphics of the whole image, the band's graphics
+				// has no clip, so labels are drawn exactly as they are into
+				// the whole image
+				g2d.translate(0, -top);
+				draw(g2d, new Rectangle(0, top, width, rows));
+			} finally {
+				g2d.dispose();
+			}
+			writer.writeRows(band, rows);
+		}
+		writer.finish();
+	}
+
+	@Override
+	public void drawAll() {
+		if (bandHeight == 0) {
+			super.drawAll();
+			return;
+		}
+		// the whole image is needed after all
+		image = new BufferedImage(getWidth(), getHeight(),
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = image.createGraphics();
+		try {
+			prepare(g2d, getWidth(), getHeight());
+			draw(g2d, null);
+		} finally {
+			g2d.dispose();
+		}
+	}
+
 	public void saveImage(String type, String fileName) throws IOException {
 		saveImage(type, new File(fileName));
 	}
@@ -91,6 +177,9 @@ public class ImageGraphicsDevice extends G2DGraphicsDevice implements
 
 	@Override
 	protected Graphics2D createGraphics() {
+		if (bandHeight > 0) {
+			return null;
+		}
 		// if (getDiagram().isThreaded()) {
 		image = new BufferedImage(getWidth(), getHeight(),
 				BufferedImage.TYPE_INT_RGB);
@@ -99,13 +188,17 @@ public class ImageGraphicsDevice extends G2DGraphicsDevice implements
 		// BufferedImage.TYPE_USHORT_GRAY);
 		// }
 		Graphics2D g2d = (Graphics2D) image.getGraphics();
+		prepare(g2d, getWidth(), getHeight());
+		return g2d;
+	}
+
+	private void prepare(Graphics2D g2d, int width, int height) {
 		if (antialias) {
 			g2d.setRenderingHints(AALIAS);
 		}
 		g2d.setFont(getFont());
 		g2d.setColor(Color.WHITE);
-		g2d.fillRect(0, 0, getWidth(), getHeight());
-		return g2d;
+		g2d.fillRect(0, 0, width, height);
 	}
 
 }
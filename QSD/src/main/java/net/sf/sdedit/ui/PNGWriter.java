@@ -0,0 +1,216 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+package net.sf.sdedit.ui;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A <tt>PNGWriter</tt> encodes an RGB image as a PNG file row by row, so the
+ * image can be written in bands and never needs to be held in memory as a
+ * whole. The rows are compressed as they are written, each row being
+ * filtered by the difference to the row above, which suits the mostly
+ * vertical lines of sequence diagrams.
+ * 
+ * @author Markus Strauch
+ */
+final class PNGWriter {
+
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10,
+			26, 10 };
+
+	private static final int CHUNK_SIZE = 1 << 15;
+
+	private static final int FILTER_UP = 2;
+
+	private final OutputStream stream;
+
+	private final int width;
+
+	private final int height;
+
+	private final Deflater deflater;
+
+	private final DeflaterOutputStream data;
+
+	private int row;
+
+	private final byte[] previous;
+
+	private final byte[] current;
+
+	private final int[] pixels;
+
+	/**
+	 * Creates a new <tt>PNGWriter</tt> and writes the header of the PNG file.
+	 * 
+	 * @param stream
+	 *            the stream to write the PNG file to, it is not closed
+	 * @param width
+	 *            the width of the image
+	 * @param height
+	 *            the height of the image
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	PNGWriter(OutputStream stream, int width, int height) throws IOException {
+		this.stream = stream;
+		this.width = width;
+		this.height = height;
+		stream.write(SIGNATURE);
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8; // bit depth
+		header[9] = 2; // color type: RGB
+		writeChunk("IHDR", header, header.length);
+		deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		data = new DeflaterOutputStream(new ChunkStream(), deflater,
+				CHUNK_SIZE);
+		previous = new byte[3 * width + 1];
+		current = new byte[3 * width + 1];
+		pixels = new int[width];
+	}
+
+	/**
+	 * Writes the topmost rows of the given image as the next rows of the PNG
+	 * file.
+	 * 
+	 * @param band
+	 *            an image as wide as the PNG image
+	 * @param rows
+	 *            the number of rows of the band to write
+	 * @throws IOException
+	 *             if the rows cannot be written
+	 */
+	void writeRows(BufferedImage band, int rows) throws IOException {
+		if (row + rows > height) {
+			throw new IllegalArgumentException("the image has only " + height
+					+ " rows");
+		}
+		for (int y = 0; y < rows; y++) {
+			band.getRGB(0, y, width, 1, pixels, 0, width);
+			current[0] = FILTER_UP;
+			for (int x = 0; x < width; x++) {
+				int pixel = pixels[x];
+				int i = 3 * x + 1;
+				current[i] = (byte) ((pixel >> 16) - previous[i]);
+				current[i + 1] = (byte) ((pixel >> 8) - previous[i + 1]);
+				current[i + 2] = (byte) (pixel - previous[i + 2]);
+				// the unfiltered row is needed as the row above the next one
+				previous[i] = (byte) (pixel >> 16);
+				previous[i + 1] = (byte) (pixel >> 8);
+				previous[i + 2] = (byte) pixel;
+			}
+			data.write(current);
+		}
+		row += rows;
+	}
+
+	/**
+	 * Writes the rest of the compressed image data and the end of the PNG
+	 * file, after all rows have been written.
+	 * 
+	 * @throws IOException
+	 *             if the end of the file cannot be written
+	 */
+	void finish() throws IOException {
+		if (row != height) {
+			throw new IllegalStateException(row + " of " + height
+					+ " rows have been written");
+		}
+		try {
+			data.finish();
+			data.flush();
+		} finally {
+			deflater.end();
+		}
+		writeChunk("IEND", new byte[0], 0);
+		stream.flush();
+	}
+
+	private void writeChunk(String type, byte[] bytes, int length)
+			throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		byte[] name = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(name);
+		crc.update(bytes, 0, length);
+		out.writeInt(length);
+		out.write(name);
+		out.write(bytes, 0, length);
+		out.writeInt((int) crc.getValue());
+		out.flush();
+	}
+
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/*
+	 * Collects the compressed data and writes it as IDAT chunks of bounded
+	 * size.
+	 */
+	private class ChunkStream extends OutputStream {
+
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+
+		private int size;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, buffer.length - size);
+				System.arraycopy(b, off, buffer, size, n);
+				size += n;
+				off += n;
+				len -= n;
+				if (size == buffer.length) {
+					flush();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (size > 0) {
+				writeChunk("IDAT", buffer, size);
+				size = 0;
+			}
+		}
+	}
+}
@@ -93,6 +93,14 @@ public class PanelGraphicDevice extends
 	
 	private boolean empty;
 
+	private final DiagramTiles tiles;
+
+	/**
+	 * Held while drawables are drawn, as they are drawn by the event dispatch
+	 * thread and by the thread rendering tiles in advance.
+	 */
+	private final Object drawing = new Object();
+
 	/**
 	 * Creates a new <tt>PanelPaintDevice</tt>.
 	 * 
@@ -106,6 +114,7 @@ public class PanelGraphicDevice extends
 		panel = new Panel();
 		ToolTipManager.sharedInstance().registerComponent(panel);
 		antialias = true;
+		tiles = new DiagramTiles(this);
 	}
 	
 	/**
@@ -128,22 +137,32 @@ public class PanelGraphicDevice extends
 				zp.setCursor(Cursor.getDefaultCursor());
 			}
 			lastDrawableMovedOver = null;
-			for (Drawable drawable : drawables()) {
+			for (Drawable drawable : drawables(point)) {
 				if (!(drawable instanceof Fragment)) {
-					if (drawable.contains(point)) {
-						lastDrawableMovedOver = drawable;
-						if (partner.mouseEnteredDrawable(drawable)) {
-							zp.setCursor(HAND_CURSOR);
-						}
-						return;
+					lastDrawableMovedOver = drawable;
+					if (partner.mouseEnteredDrawable(drawable)) {
+						zp.setCursor(HAND_CURSOR);
 					}
+					return;
 				}
 			}
 		}
 	}
 	
 	public void highlight (Drawable drawable) {
-		highlighted = drawable;
+		Drawable old = highlighted;
+		// tiles rendered in advance must be discarded after the change
+		synchronized (drawing) {
+			highlighted = drawable;
+		}
+		if (drawable != old) {
+			if (old != null) {
+				tiles.invalidate(old.getDrawingBounds());
+			}
+			if (drawable != null) {
+				tiles.invalidate(drawable.getDrawingBounds());
+			}
+		}
 	}
 
 	/**
@@ -166,8 +185,55 @@ public class PanelGraphicDevice extends
 		return panel;
 	}
 
+	/**
+	 * Discards the tiles of the diagram, called when this device is not
+	 * displayed anymore because it has been replaced by the device of a new
+	 * diagram or the tab displaying it has been closed.
+	 */
+	public void dispose() {
+		tiles.dispose();
+	}
+
 	public void setAntialiasing(boolean on) {
-		antialias = on;
+		boolean old = antialias;
+		synchronized (drawing) {
+			antialias = on;
+		}
+		if (on != old) {
+			tiles.invalidate();
+		}
+	}
+
+	/**
+	 * Draws the drawables that intersect the given area of the diagram. This
+	 * is called by the event dispatch thread and by the thread rendering
+	 * tiles in advance, but never by both at the same time.
+	 * 
+	 * @param g2
+	 *            the graphics context to draw into
+	 * @param area
+	 *            an area of the diagram
+	 */
+	void paintDrawables(Graphics2D g2, Rectangle area) {
+		synchronized (drawing) {
+			g2.setFont(getFont());
+			if (antialias) {
+				g2.setRenderingHints(new RenderingHints(
+						RenderingHints.KEY_ANTIALIASING,
+						RenderingHints.VALUE_ANTIALIAS_ON));
+			}
+			g2.setColor(Color.BLACK);
+			g2.setStroke(Strokes.defaultStroke());
+			for (Drawable drawable : drawables(area)) {
+				if (drawable == highlighted) {
+					Graphics gg = g2.create();
+					gg.setColor(Color.YELLOW);
+					gg.fillRect(drawable.getLeft()-5, drawable.getTop()-5, drawable.getWidth()+10, drawable.getHeight()+10);
+					gg.dispose();
+				}
+				drawable.draw(g2);
+			}
+		}
 	}
 
 	/**
@@ -274,11 +340,9 @@ public class PanelGraphicDevice extends
 			String text = null;
 			if (partner != null) {
 				Point mousePoint = e.getPoint();
-				for (Drawable drawable : drawables()) {
-					if (drawable.contains(mousePoint)) {
-						text = partner.getTooltip(drawable);
-						break;
-					}
+				for (Drawable drawable : drawables(mousePoint)) {
+					text = partner.getTooltip(drawable);
+					break;
 				}
 			}
 			if (text == null) {
@@ -293,26 +357,9 @@ public class PanelGraphicDevice extends
 			Rectangle clipBounds = g2.getClipBounds();
 			g2.setColor(Color.WHITE);
 			g2.fill(clipBounds);
-			if (!empty) {
-				g2.setFont(PanelGraphicDevice.this.getFont());
-				if (antialias) {
-					g2.setRenderingHints(new RenderingHints(
-							RenderingHints.KEY_ANTIALIASING,
-							RenderingHints.VALUE_ANTIALIAS_ON));
-				}
-		        g2.setColor(Color.BLACK);
-		        g2.setStroke(Strokes.defaultStroke());
-		        for (Drawable drawable : drawables()) {
-					if (drawable.intersects(clipBounds)) {
-						if (drawable == highlighted) {
-							Graphics gg = g2.create();
-							gg.setColor(Color.YELLOW);
-							gg.fillRect(drawable.getLeft()-5, drawable.getTop()-5, drawable.getWidth()+10, drawable.getHeight()+10);
-							gg.dispose();
-						}
-						drawable.draw(g2);
-					}
-				}
+			// tiles are only made of diagrams that are finished
+			if (!empty && (size == null || !tiles.paint(g2))) {
+				paintDrawables(g2, clipBounds);
 			}
 			g2.dispose();
 			if (lastMove != null) {
@@ -323,6 +370,7 @@ public class PanelGraphicDevice extends
 
 
     public void close (int width, int height, boolean empty) {
+        super.close(width, height, empty);
         this.empty = empty;
         size = new Dimension(width, height);
     }
@@ -28,10 +28,9 @@ import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -58,6 +57,7 @@ import net.sf.sdedit.ui.components.Zoomable;
 import net.sf.sdedit.ui.components.buttons.ActionManager;
 import net.sf.sdedit.ui.components.buttons.Activator;
 import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.ui.impl.FileWatcher;
 import net.sf.sdedit.ui.impl.TabContainerListener;
 import net.sf.sdedit.ui.impl.UserInterfaceImpl;
 import net.sf.sdedit.util.DocUtil.XMLException;
@@ -78,7 +78,7 @@ import net.sf.sdedit.util.Ref;
  * @author Markus Strauch
  */
 @SuppressWarnings("serial")
-public abstract class Tab extends JPanel implements Stainable, TabContainerListener, Runnable {
+public abstract class Tab extends JPanel implements Stainable, TabContainerListener, FileWatcher.Listener {
 
 	private static ImageIcon cleanIcon;
 
@@ -108,8 +108,6 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 
 	private int id;
 
-	private long lastModified;
-
 	static {
 		cleanIcon = Icons.getIcon("close");
 		dirtyIcon = Icons.getIcon("close2");
@@ -140,7 +138,6 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 		addTabListener(ui);
 		stainedListeners = new LinkedList<StainedListener>();
 		clean = true;
-		ui.addTask(this, 500);
 	}
 
 	public void setId(int id) {
@@ -273,10 +270,8 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 				}
 			});
 			this.clean = clean;
-			synchronized (this) {
-				if (file != null) {
-					lastModified = file.lastModified();
-				}
+			if (clean && file != null) {
+				ui.getFileWatcher().watch(file, this);
 			}
 		}
 	}
@@ -289,14 +284,12 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 		return file;
 	}
 
-	public synchronized void setFile(File file) {
+	public void setFile(File file) {
 		this.file = file;
 		if (file == null) {
-			this.lastModified = 0;
+			ui.getFileWatcher().unwatch(this);
 		} else {
-			this.lastModified = file.lastModified();
-		}
-		if (file != null) {
+			ui.getFileWatcher().watch(file, this);
 			setTitle(file.getName());
 		}
 	}
@@ -355,7 +348,7 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 			}
 			listeners.clear();
 			stainedListeners.clear();
-			ui.removeTask(this);
+			ui.getFileWatcher().unwatch(this);
 			return true;
 		}
 		return false;
@@ -405,31 +398,29 @@ public abstract class Tab extends JPanel implements Stainable, TabContainerListe
 
 	}
 
-	public final void run() {
+	/**
+	 * Called by the {@linkplain FileWatcher} of the user interface when the
+	 * contents of the file of this tab have changed. The contents are parsed
+	 * on the calling thread, then they are passed to
+	 * {@linkplain #fileChanged(String, Bean)} on the event dispatch thread.
+	 * 
+	 * @see net.sf.sdedit.ui.impl.FileWatcher.Listener#fileModified(java.io.File,
+	 *      byte[])
+	 */
+	public final void fileModified(File file, byte[] contents) {
 		if (getFileHandler() != null) {
-			boolean changed = false;
-			synchronized (this) {
-				if (file != null) {
-					if (file.lastModified() > lastModified) {
-						changed = true;
-						lastModified = file.lastModified();
-					}
-				}
-			}
-			if (changed) {
-				try {
-					InputStream is = new FileInputStream(file);
-					try {
-						Pair<String, Bean<? extends Configuration>> x = getFileHandler().load(is, "utf-8");
+			try {
+				final Pair<String, Bean<? extends Configuration>> x = getFileHandler()
+						.load(new ByteArrayInputStream(contents), "utf-8");
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
 						fileChanged(x.getFirst(), x.getSecond());
-					} finally {
-						is.close();
 					}
-				} catch (IOException e) {
-					ui.errorMessage(e, "Cannot load file", "cannot load file");
-				} catch (XMLException e) {
-					ui.errorMessage(e, "Cannot load file", "cannot load file");
-				}
+				});
+			} catch (IOException e) {
+				ui.errorMessage(e, "Cannot load file", "cannot load file");
+			} catch (XMLException e) {
+				ui.errorMessage(e, "Cannot load file", "cannot load file");
 			}
 		}
 	}
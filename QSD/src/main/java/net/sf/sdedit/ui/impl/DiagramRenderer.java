@@ -23,12 +23,18 @@
 // THE POSSIBILITY OF SUCH DAMAGE.
 package net.sf.sdedit.ui.impl;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.SwingUtilities;
 
 import net.sf.sdedit.diagram.Diagram;
+import net.sf.sdedit.diagram.DiagramDataProviderFactory;
 import net.sf.sdedit.diagram.DiagramFactory;
 import net.sf.sdedit.diagram.PaintDevice;
 import net.sf.sdedit.error.DiagramError;
@@ -36,35 +42,116 @@ import net.sf.sdedit.error.FatalError;
 
 /**
  * A <tt>DiagramRenderer</tt> (typically a singleton instance) is responsible
- * for rendering diagrams belonging to {@linkplain DiagramTab}s on a separate
- * thread.
+ * for rendering diagrams belonging to {@linkplain DiagramTab}s on separate
+ * threads.
+ * <p>
+ * Diagrams are rendered by a pool of threads, one per available processor,
+ * so a diagram that takes long to be rendered does not delay the diagrams of
+ * other tabs. For each tab, there is at most one diagram being rendered at a
+ * time. When another diagram of the tab is to be rendered, the one being
+ * rendered is cancelled (see {@linkplain DiagramFactory#cancel()}), and the
+ * new one is rendered as soon as the cancelled one has stopped. If there is
+ * already a diagram of the tab waiting to be rendered, it is replaced by the
+ * new one.
  * 
  * @author Markus Strauch
  * 
  */
-public class DiagramRenderer implements Runnable {
+public class DiagramRenderer {
 
-	private LinkedList<DiagramFactory> queue;
+	private final ExecutorService executor;
+
+	/**
+	 * Maps the tabs for which diagrams are being rendered onto the factories
+	 * rendering them.
+	 */
+	private final Map<DiagramDataProviderFactory, DiagramFactory> running;
+
+	/**
+	 * Maps tabs onto the factories that will render their next diagram as
+	 * soon as the diagram that is being rendered is finished.
+	 */
+	private final Map<DiagramDataProviderFactory, DiagramFactory> waiting;
+
+	private final AtomicLong queued;
+
+	private final AtomicLong started;
+
+	private final AtomicLong cancelled;
+
+	private final AtomicLong completed;
 
 	public DiagramRenderer() {
-		queue = new LinkedList<DiagramFactory>();
-		Thread thread = new Thread(this);
-		thread.setDaemon(true);
-		thread.setName("DiagramRenderer-Thread");
-		thread.start();
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new <tt>DiagramRenderer</tt>.
+	 * 
+	 * @param threads
+	 *            the maximal number of diagrams being rendered simultaneously
+	 */
+	public DiagramRenderer(int threads) {
+		running = new HashMap<DiagramDataProviderFactory, DiagramFactory>();
+		waiting = new HashMap<DiagramDataProviderFactory, DiagramFactory>();
+		queued = new AtomicLong();
+		started = new AtomicLong();
+		cancelled = new AtomicLong();
+		completed = new AtomicLong();
+		final AtomicInteger number = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(Math.max(1, threads),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable);
+						thread.setDaemon(true);
+						thread.setName("DiagramRenderer-Thread-"
+								+ number.incrementAndGet());
+						return thread;
+					}
+				});
 	}
 
 	private synchronized void enqueue(DiagramFactory factory) {
-		ListIterator<DiagramFactory> iter = queue.listIterator();
-		while (iter.hasNext()) {
-			DiagramFactory theFactory = iter.next();
-			if (theFactory.getProvider() == factory.getProvider()) {
-				iter.remove();
-				break;
+		queued.incrementAndGet();
+		DiagramDataProviderFactory tab = factory.getProviderFactory();
+		DiagramFactory current = running.get(tab);
+		if (current == null) {
+			start(factory);
+		} else {
+			current.cancel();
+			DiagramFactory replaced = waiting.put(tab, factory);
+			if (replaced != null) {
+				cancelled.incrementAndGet();
 			}
 		}
-		queue.addFirst(factory);
-		notify();
+	}
+
+	private synchronized void start(final DiagramFactory factory) {
+		running.put(factory.getProviderFactory(), factory);
+		executor.execute(new Runnable() {
+			public void run() {
+				render(factory);
+			}
+		});
+	}
+
+	/*
+	 * The diagram is displayed before the next one of the same tab is
+	 * started, so diagrams are displayed in the order of their requests.
+	 */
+	private synchronized void finish(DiagramFactory factory, DiagramError err) {
+		DiagramTab tab = (DiagramTab) factory.getProviderFactory();
+		running.remove(tab);
+		if (factory.isCancelled()) {
+			cancelled.incrementAndGet();
+		} else {
+			completed.incrementAndGet();
+			doDisplay(tab, factory.getDiagram(), err);
+		}
+		DiagramFactory next = waiting.remove(tab);
+		if (next != null) {
+			start(next);
+		}
 	}
 
 	public void renderDiagram(DiagramTab tab) {
@@ -73,31 +160,21 @@ public class DiagramRenderer implements Runnable {
 	    enqueue(factory);
 	}
 
-	public void run() {
-		while (true) {
-			DiagramFactory factory;
-			DiagramError err = null;
-			synchronized (this) {
-				while (queue.isEmpty()) {
-					try {
-						wait();
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-					}
-				}
-				factory = queue.removeLast();
-			}
-			DiagramTab tab = (DiagramTab) factory.getProviderFactory();
-			try {
-				factory.generateDiagram(tab.getConfiguration().getDataObject());
-			} catch (DiagramError e) {
-				err = e;
-			} catch (Throwable e) {
+	private void render(DiagramFactory factory) {
+		started.incrementAndGet();
+		DiagramError err = null;
+		DiagramTab tab = (DiagramTab) factory.getProviderFactory();
+		try {
+			factory.generateDiagram(tab.getConfiguration().getDataObject());
+		} catch (DiagramError e) {
+			err = e;
+		} catch (Throwable e) {
+			if (!factory.isCancelled()) {
 				e.printStackTrace();
-				err = new FatalError(factory.getProvider(), e);
-			} 
-			doDisplay(tab, factory.getDiagram(), err);
+			}
+			err = new FatalError(factory.getProvider(), e);
 		}
+		finish(factory, err);
 	}
 
 	private void doDisplay(final DiagramTab tab, final Diagram diagram,
@@ -109,4 +186,42 @@ public class DiagramRenderer implements Runnable {
 		});
 	}
 
+	/**
+	 * Returns the number of diagrams that have been requested to be rendered.
+	 * 
+	 * @return the number of diagrams that have been requested to be rendered
+	 */
+	public long getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * Returns the number of diagrams whose rendering has been started.
+	 * 
+	 * @return the number of diagrams whose rendering has been started
+	 */
+	public long getStarted() {
+		return started.get();
+	}
+
+	/**
+	 * Returns the number of diagrams that have been cancelled, either while
+	 * being rendered or while waiting to be rendered.
+	 * 
+	 * @return the number of diagrams that have been cancelled
+	 */
+	public long getCancelled() {
+		return cancelled.get();
+	}
+
+	/**
+	 * Returns the number of diagrams that have been rendered completely and
+	 * displayed.
+	 * 
+	 * @return the number of diagrams that have been rendered completely
+	 */
+	public long getCompleted() {
+		return completed.get();
+	}
+
 }
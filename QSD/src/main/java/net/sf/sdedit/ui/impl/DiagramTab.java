@@ -97,6 +97,12 @@ public abstract class DiagramTab extends Tab implements PropertyChangeListener,
 
 	private Diagram diagram;
 
+	/**
+	 * The device whose panel is displayed. Its tiles are discarded when it is
+	 * replaced by another one or this tab is closed.
+	 */
+	private PanelGraphicDevice displayed;
+
 	private boolean redraw;
 
 	private boolean refreshOnActivate;
@@ -223,13 +229,31 @@ public abstract class DiagramTab extends Tab implements PropertyChangeListener,
 	    this.diagram = diagram;
 		if (redraw
 				|| ConfigurationManager.getGlobalConfiguration().isAutoUpdate()) {
-		    getZoomPane().setViewportView(graphic().getPanel());
+		    display(graphic());
 		}
 		this.error = error;
 		handleDiagramError(error);
 		get_UI().enableComponents();
 	}
 
+	private void display(PanelGraphicDevice device) {
+		getZoomPane().setViewportView(device.getPanel());
+		if (displayed != null && displayed != device) {
+			displayed.dispose();
+		}
+		displayed = device;
+	}
+
+	@Override
+	public boolean close(boolean check) {
+		boolean close = super.close(check);
+		if (close && displayed != null) {
+			displayed.dispose();
+			displayed = null;
+		}
+		return close;
+	}
+
 	protected abstract void handleDiagramError(DiagramError error);
 
 	public void scrollToDrawable(Drawable drawable, boolean highlight) {
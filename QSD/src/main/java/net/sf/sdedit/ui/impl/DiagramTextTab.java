@@ -35,7 +35,6 @@ import java.awt.Font;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
@@ -58,11 +57,12 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.CaretListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 
 import net.sf.sdedit.Constants;
 import net.sf.sdedit.config.Configuration;
@@ -82,6 +82,7 @@ import net.sf.sdedit.icons.Icons;
 import net.sf.sdedit.text.AbstractTextHandler;
 import net.sf.sdedit.ui.components.AutoCompletion;
 import net.sf.sdedit.ui.components.AutoCompletion.SuggestionProvider;
+import net.sf.sdedit.ui.components.DelayedActivity;
 import net.sf.sdedit.ui.components.TextArea;
 import net.sf.sdedit.ui.components.buttons.ActionManager;
 import net.sf.sdedit.ui.components.buttons.Activator;
@@ -101,7 +102,7 @@ import net.sf.sdedit.util.Ref;
  * 
  */
 public abstract class DiagramTextTab extends DiagramTab implements DocumentListener, SuggestionProvider,
-		PropertyChangeListener, ActionListener, PopupActions.ContextHandler {
+		PropertyChangeListener, PopupActions.ContextHandler {
 
 	private static final long serialVersionUID = -4105088603920744983L;
 
@@ -124,6 +125,12 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 	 */
 	private String code;
 
+	/**
+	 * The revision of the text area's text when <tt>code</tt> was taken from
+	 * it
+	 */
+	private long codeRevision;
+
 	/**
 	 * The index of the character in the text-area where an erroreous line
 	 * starts, or -1. See {@linkplain #setError(boolean, String, int, int)}.
@@ -140,13 +147,22 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 	private GlobalConfiguration globalConf;
 
-	private boolean changed;
-
-	private Timer changeTimer;
+	/**
+	 * Redraws the diagram when the text has not been changed for a while.
+	 */
+	private final DelayedActivity redraw;
 
-	private boolean mustScroll;
+	/**
+	 * Scrolls to the drawable for the current line when the cursor has not
+	 * been moved for a while.
+	 */
+	private final DelayedActivity scroll;
 
-	private Timer scrollTimer;
+	/**
+	 * Flag denoting if this tab is the active one. An inactive tab does not
+	 * redraw its diagram, it is redrawn when it is activated again.
+	 */
+	private boolean active;
 
 	private boolean ignoreChanges;
 	
@@ -168,8 +184,7 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 			public void caretUpdate(CaretEvent e) {
 				if (globalConf.isAutoScroll()) {
-					mustScroll = true;
-					scrollTimer.restart();
+					scroll.indicateChange();
 				}
 			}
 		});
@@ -212,13 +227,25 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 			}
 		});
 
-		changeTimer = new Timer(20 * ConfigurationManager.getGlobalConfiguration().getAutodrawLatency(), this);
-		changeTimer.start();
-		changed = false;
+		redraw = new DelayedActivity() {
+			protected int getDelay() {
+				return 20 * globalConf.getAutodrawLatency();
+			}
+
+			protected void perform() {
+				refresh(false);
+			}
+		};
 
-		scrollTimer = new Timer(20 * ConfigurationManager.getGlobalConfiguration().getAutodrawLatency(), this);
-		scrollTimer.start();
-		mustScroll = false;
+		scroll = new DelayedActivity() {
+			protected int getDelay() {
+				return 20 * globalConf.getAutodrawLatency();
+			}
+
+			protected void perform() {
+				scrollToCurrentDrawable(true);
+			}
+		};
 
 		statusPanel = getStatusPanel();
 		statusPanel.setLayout(new BorderLayout());
@@ -252,11 +279,12 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 	private void somethingChanged() {
 		if (!ignoreChanges) {
-			changed = true;
-			changeTimer.restart();
+			if (active) {
+				redraw.indicateChange();
+			}
 			invokeLater(new Runnable() {
 				public void run() {
-					boolean isStained = textArea.getText().length() != code.length() || !textArea.getText().equals(code)
+					boolean isStained = textArea.getRevision() != codeRevision && !textArea.contentEquals(code)
 							|| !oldConfiguration.equals(getConfiguration());
 					setClean(!isStained);
 				}
@@ -307,8 +335,8 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 		boolean close = super.close(check);
 		if (close) {
 			ConfigurationManager.getGlobalConfigurationBean().removePropertyChangeListener(this);
-			changeTimer.stop();
-			scrollTimer.stop();
+			redraw.cancel();
+			scroll.cancel();
 		}
 		return close;
 	}
@@ -317,6 +345,7 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 		super.setClean(clean);
 		if (clean) {
 			code = textArea.getText();
+			codeRevision = textArea.getRevision();
 			oldConfiguration = getConfiguration().copy();
 		}
 	}
@@ -434,7 +463,7 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 				scrollToDrawable(drawable, highlight && globalConf.isHighlightCurrent());
 			} else {
 				int caret = textArea.getCaretPosition();
-				if (textArea.getText().substring(caret).trim().length() == 0) {
+				if (textArea.isBlankFrom(caret)) {
 					getZoomPane().scrollToBottom();
 				}
 			}
@@ -463,21 +492,39 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 		}
 	}
 
+	/**
+	 * Appends the given text to the end of the document of the text area.
+	 * Unlike replacing the whole text, this takes time proportional to the
+	 * length of the appended text only, and diagrams are then extended from
+	 * a checkpoint taken at the end of the previous text.
+	 * 
+	 * @param text
+	 *            the text to be appended
+	 */
 	public void append(final String text) {
 		if (isEventDispatchThread()) {
-			textArea.setText(textArea.getText() + text);
+			insertAtEnd(text);
 			// happens automatically via DocumentListener
 			// redrawThread.indicateChange();
 		} else {
 			invokeLater(new Runnable() {
 				public void run() {
-					textArea.setText(textArea.getText() + text);
+					insertAtEnd(text);
 					// redrawThread.indicateChange();
 				}
 			});
 		}
 	}
 
+	private void insertAtEnd(String text) {
+		Document document = textArea.getDocument();
+		try {
+			document.insertString(document.getLength(), text, null);
+		} catch (BadLocationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	void setStatus(final String status) {
 		invokeLater(new Runnable() {
 			public void run() {
@@ -527,10 +574,6 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 		if (evt.getPropertyName().toLowerCase().equals("linewrap")) {
 			boolean wrap = (Boolean) evt.getNewValue();
 			setLineWrap(wrap);
-		} else if (evt.getPropertyName().toLowerCase().equals("autodrawlatency")) {
-			changeTimer.stop();
-			changeTimer.setDelay((Integer) evt.getNewValue());
-			changeTimer.start();
 		} else if (evt.getPropertyName().toLowerCase().equals("verticallysplit")) {
 			layout(((Boolean) evt.getNewValue())?1:0);
 		}
@@ -570,9 +613,9 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 	@Override
 	public void activate(ActionManager actionManager, FileActionProvider faProvider) {
+		active = true;
 		super.activate(actionManager, faProvider);
-		changed = false;
-		changeTimer.restart();
+		redraw.cancel();
 		leaveFilterMode();
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
@@ -583,8 +626,10 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 	@Override
 	public void deactivate(ActionManager actionManager, FileActionProvider faProvider) {
+		active = false;
 		super.deactivate(actionManager, faProvider);
-		changeTimer.stop();
+		redraw.cancel();
+		scroll.cancel();
 	}
 
 	protected void handleBug(Diagram diagram, Throwable ex) {
@@ -674,20 +719,6 @@ public abstract class DiagramTextTab extends DiagramTab implements DocumentListe
 
 	protected abstract boolean _handleDiagramError(DiagramError error);
 
-	public void actionPerformed(ActionEvent e) {
-		if (e.getSource() == changeTimer) {
-			if (changed) {
-				refresh(false);
-			}
-			changed = false;
-		} else if (e.getSource() == scrollTimer) {
-			if (mustScroll) {
-				scrollToCurrentDrawable(true);
-			}
-			mustScroll = false;
-		}
-	}
-
 	@Override
 	protected void _getContextActions(List<Action> actionList) {
 		/* empty */
@@ -0,0 +1,420 @@
+// Copyright (c) 2006 - 2016, Markus Strauch.
+// All rights reserved.
+// 
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+// 
+// * Redistributions of source code must retain the above copyright notice, 
+// this list of conditions and the following disclaimer.
+// * Redistributions in binary form must reproduce the above copyright notice, 
+// this list of conditions and the following disclaimer in the documentation 
+// and/or other materials provided with the distribution.
+// 
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE 
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF 
+// THE POSSIBILITY OF SUCH DAMAGE.
+
+package net.sf.sdedit.ui.impl;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A <tt>FileWatcher</tt> notifies listeners when the contents of the files
+ * they watch change.
+ * <p>
+ * The parent directory of each watched file is registered once with a
+ * {@linkplain WatchService}, no matter how many files in it are watched. A
+ * burst of change events for a file is coalesced into a single check that
+ * takes place when the file has been quiet for a short time. The check reads
+ * the file and compares a digest of its contents with the digest of the
+ * contents the listener has seen last, so listeners are not notified if a
+ * file is only touched or rewritten with the same contents.
+ * <p>
+ * Files are read and listeners are notified on a single loader thread, never
+ * on the thread that waits for events. If a directory cannot be registered
+ * with the watch service, the files in it are polled instead.
+ *
+ * @author Markus Strauch
+ */
+public final class FileWatcher {
+
+	/**
+	 * A listener that is notified when the contents of a watched file have
+	 * changed.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on the loader thread of the <tt>FileWatcher</tt> when the
+		 * contents of the watched file have changed.
+		 *
+		 * @param file
+		 *            the file that has changed
+		 * @param contents
+		 *            the new contents of the file
+		 */
+		public void fileModified(File file, byte[] contents);
+
+	}
+
+	/**
+	 * The delay in milliseconds between the last event for a file and the
+	 * check of its contents.
+	 */
+	public static final long DEFAULT_QUIET_PERIOD = 250;
+
+	/**
+	 * The period in milliseconds by which files in directories that cannot be
+	 * watched are polled.
+	 */
+	private static final long POLL_PERIOD = 2000;
+
+	private final long quietPeriod;
+
+	private final ScheduledThreadPoolExecutor loader;
+
+	private final WatchService watchService;
+
+	/**
+	 * Maps each listener onto the file it watches.
+	 */
+	private final Map<Listener, Watch> watches;
+
+	/**
+	 * Maps each registered directory onto its key and the number of files
+	 * watched in it.
+	 */
+	private final Map<Path, Directory> directories;
+
+	/**
+	 * Maps each file for which a check is pending onto the scheduled check.
+	 */
+	private final Map<Path, ScheduledFuture<?>> checks;
+
+	private static final class Watch {
+
+		private final Path file;
+
+		private final Listener listener;
+
+		/*
+		 * The digest of the contents the listener knows about, null if not yet
+		 * known or if the file does not exist
+		 */
+		private byte[] digest;
+
+		private long lastModified;
+
+		private ScheduledFuture<?> poll;
+
+		Watch(Path file, Listener listener) {
+			this.file = file;
+			this.listener = listener;
+		}
+	}
+
+	private static final class Directory {
+
+		private final WatchKey key;
+
+		private int files;
+
+		Directory(WatchKey key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Creates a new <tt>FileWatcher</tt> that checks files
+	 * {@linkplain #DEFAULT_QUIET_PERIOD} milliseconds after their last change.
+	 */
+	public FileWatcher() {
+		this(DEFAULT_QUIET_PERIOD);
+	}
+
+	/**
+	 * Creates a new <tt>FileWatcher</tt>.
+	 *
+	 * @param quietPeriod
+	 *            the time in milliseconds that must pass without events for a
+	 *            file until its contents are checked
+	 */
+	public FileWatcher(long quietPeriod) {
+		this.quietPeriod = quietPeriod;
+		watches = new IdentityHashMap<Listener, Watch>();
+		directories = new HashMap<Path, Directory>();
+		checks = new HashMap<Path, ScheduledFuture<?>>();
+		loader = new ScheduledThreadPoolExecutor(1,
+				threadFactory("FileWatcher-Loader"));
+		loader.setRemoveOnCancelPolicy(true);
+		WatchService service;
+		try {
+			service = FileSystems.getDefault().newWatchService();
+		} catch (IOException e) {
+			service = null;
+		} catch (UnsupportedOperationException e) {
+			service = null;
+		}
+		watchService = service;
+		if (watchService != null) {
+			threadFactory("FileWatcher").newThread(new Runnable() {
+				public void run() {
+					processEvents();
+				}
+			}).start();
+		}
+	}
+
+	private static ThreadFactory threadFactory(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				thread.setName(name);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Lets the given listener watch the given file, instead of the file it
+	 * watched before, if any. The current contents of the file are taken as
+	 * the contents the listener knows about, so calling this method again for
+	 * the same file (after the listener has saved it, for example) prevents
+	 * the listener from being notified of its own change.
+	 *
+	 * @param file
+	 *            the file to watch
+	 * @param listener
+	 *            the listener to be notified when the file changes
+	 */
+	public synchronized void watch(File file, Listener listener) {
+		final Path path = file.getAbsoluteFile().toPath().normalize();
+		Watch watch = watches.get(listener);
+		if (watch == null || !watch.file.equals(path)) {
+			unwatch(listener);
+			watch = new Watch(path, listener);
+			watches.put(listener, watch);
+			register(watch);
+		}
+		final Watch theWatch = watch;
+		loader.execute(new Runnable() {
+			public void run() {
+				synchronized (FileWatcher.this) {
+					if (watches.get(theWatch.listener) != theWatch) {
+						return;
+					}
+				}
+				theWatch.lastModified = path.toFile().lastModified();
+				byte[] contents = read(path);
+				theWatch.digest = contents == null ? null : digest(contents);
+			}
+		});
+	}
+
+	/**
+	 * Stops notifying the given listener.
+	 *
+	 * @param listener
+	 *            a listener that does not want to be notified anymore
+	 */
+	public synchronized void unwatch(Listener listener) {
+		Watch watch = watches.remove(listener);
+		if (watch == null) {
+			return;
+		}
+		if (watch.poll != null) {
+			watch.poll.cancel(false);
+			return;
+		}
+		Path dir = watch.file.getParent();
+		Directory directory = directories.get(dir);
+		if (directory != null && --directory.files == 0) {
+			directory.key.cancel();
+			directories.remove(dir);
+		}
+	}
+
+	private void register(final Watch watch) {
+		Path dir = watch.file.getParent();
+		Directory directory = directories.get(dir);
+		if (directory == null && watchService != null && dir != null) {
+			try {
+				directory = new Directory(dir.register(watchService,
+						ENTRY_CREATE, ENTRY_MODIFY));
+				directories.put(dir, directory);
+			} catch (IOException e) {
+				directory = null;
+			} catch (UnsupportedOperationException e) {
+				directory = null;
+			}
+		}
+		if (directory != null) {
+			directory.files++;
+		} else {
+			watch.poll = loader.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					if (watch.file.toFile().lastModified() != watch.lastModified) {
+						check(watch);
+					}
+				}
+			}, POLL_PERIOD, POLL_PERIOD, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Runs on the watcher thread, waiting for events and scheduling checks of
+	 * the files affected.
+	 */
+	private void processEvents() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+			Path dir = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					scheduleChecks(dir, null);
+				} else {
+					scheduleChecks(dir, dir.resolve((Path) event.context()));
+				}
+			}
+			key.reset();
+		}
+	}
+
+	/*
+	 * Schedules (or postpones) checks of the given file, or of all watched files
+	 * in the directory if the file is null.
+	 */
+	private synchronized void scheduleChecks(Path dir, Path file) {
+		for (final Watch watch : watches.values()) {
+			final Path path = watch.file;
+			if (watch.poll != null || !dir.equals(path.getParent())
+					|| (file != null && !file.equals(path))) {
+				continue;
+			}
+			ScheduledFuture<?> pending = checks.get(path);
+			if (pending != null) {
+				pending.cancel(false);
+			}
+			checks.put(path, loader.schedule(new Runnable() {
+				public void run() {
+					synchronized (FileWatcher.this) {
+						checks.remove(path);
+					}
+					checkAll(path);
+				}
+			}, quietPeriod, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private void checkAll(Path path) {
+		List<Watch> affected = new ArrayList<Watch>();
+		synchronized (this) {
+			for (Watch watch : watches.values()) {
+				if (watch.file.equals(path)) {
+					affected.add(watch);
+				}
+			}
+		}
+		for (Watch watch : affected) {
+			check(watch);
+		}
+	}
+
+	/*
+	 * Runs on the loader thread. Notifies the listener if the contents of the
+	 * file differ from the contents it knows about.
+	 */
+	private void check(Watch watch) {
+		watch.lastModified = watch.file.toFile().lastModified();
+		byte[] contents = read(watch.file);
+		if (contents == null) {
+			return;
+		}
+		byte[] digest = digest(contents);
+		if (Arrays.equals(digest, watch.digest)) {
+			return;
+		}
+		watch.digest = digest;
+		synchronized (this) {
+			if (watches.get(watch.listener) != watch) {
+				return;
+			}
+		}
+		watch.listener.fileModified(watch.file.toFile(), contents);
+	}
+
+	private static byte[] read(Path file) {
+		try {
+			return Files.readAllBytes(file);
+		} catch (IOException e) {
+			// the file does not exist (anymore) or is just being written
+			return null;
+		}
+	}
+
+	private static byte[] digest(byte[] contents) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(contents);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Stops watching all files and terminates the threads of this
+	 * <tt>FileWatcher</tt>.
+	 */
+	public synchronized void close() {
+		watches.clear();
+		directories.clear();
+		checks.clear();
+		loader.shutdownNow();
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException ignored) {
+				/* empty */
+			}
+		}
+	}
+}
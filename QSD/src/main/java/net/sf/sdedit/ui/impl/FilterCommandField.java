@@ -41,6 +41,7 @@ import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
 
 import net.sf.sdedit.ui.components.TextArea;
+import net.sf.sdedit.util.Threads;
 
 public class FilterCommandField extends JTextField implements ActionListener,
         KeyListener, Runnable
@@ -109,7 +110,7 @@ public class FilterCommandField extends JTextField implements ActionListener,
             process = Runtime.getRuntime().exec(command);
             changeBackground(Color.RED);
         }
-        new Thread(this).start();
+        Threads.newThread("FilterCommand", this).start();
     }
 
     public void run() {
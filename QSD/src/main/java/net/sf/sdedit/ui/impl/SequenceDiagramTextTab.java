@@ -27,8 +27,10 @@ import java.awt.Font;
 
 import net.sf.sdedit.config.Configuration;
 import net.sf.sdedit.diagram.AbstractPaintDevice;
+import net.sf.sdedit.diagram.Checkpoints;
 import net.sf.sdedit.diagram.DiagramDataProvider;
 import net.sf.sdedit.diagram.DiagramFactory;
+import net.sf.sdedit.diagram.DiagramProfile;
 import net.sf.sdedit.diagram.GraphicDevice;
 import net.sf.sdedit.diagram.PaintDevice;
 import net.sf.sdedit.diagram.SDPaintDevice;
@@ -38,6 +40,7 @@ import net.sf.sdedit.error.DiagramError;
 import net.sf.sdedit.error.FatalError;
 import net.sf.sdedit.error.SemanticError;
 import net.sf.sdedit.text.AbstractTextHandler;
+import net.sf.sdedit.text.ParsedDiagram;
 import net.sf.sdedit.text.TextHandler;
 import net.sf.sdedit.ui.PanelGraphicDevice;
 import net.sf.sdedit.ui.components.configuration.Bean;
@@ -46,13 +49,15 @@ public class SequenceDiagramTextTab extends DiagramTextTab {
 
 	private static final long serialVersionUID = 5278509849011224397L;
 
+	private final transient Checkpoints checkpoints = new Checkpoints();
+
 	public SequenceDiagramTextTab(UserInterfaceImpl ui, Font codeFont,
 			Bean<? extends Configuration> configuration) {
 		super(ui, codeFont, configuration);
 	}
 
 	public DiagramDataProvider createProvider() {
-		return new TextHandler(getCode());
+		return new TextHandler(ParsedDiagram.of(getCode()));
 	}
 
 	private SequenceDiagram diagram() {
@@ -70,13 +75,16 @@ public class SequenceDiagramTextTab extends DiagramTextTab {
 						-1, -1);
 			}
 
+			String status = "";
 			int noteNumber = diagram().getNextFreeNoteNumber();
-			if (noteNumber == 0) {
-				setStatus("");
-			} else {
-				setStatus("Next note number: "
-						+ diagram().getNextFreeNoteNumber());
+			if (noteNumber != 0) {
+				status = "Next note number: " + noteNumber + "    ";
+			}
+			DiagramProfile profile = diagram().getProfile();
+			if (profile != null) {
+				status += profile.getSummary();
 			}
+			setStatus(status);
 		} else if (!(error instanceof FatalError)) {
 			AbstractTextHandler handler = (TextHandler) error.getProvider();
 			String prefix = "";
@@ -95,7 +103,10 @@ public class SequenceDiagramTextTab extends DiagramTextTab {
 
 	@Override
 	public DiagramFactory createFactory(PaintDevice paintDevice) {
-		return new SequenceDiagramFactory(this, paintDevice);
+		SequenceDiagramFactory factory = new SequenceDiagramFactory(this,
+				paintDevice);
+		factory.setCheckpoints(checkpoints);
+		return factory;
 	}
 
 	@Override
@@ -115,6 +115,8 @@ public final class UserInterfaceImpl extends JFrame implements Constants, UserIn
 
 	private Map<Runnable, TimerTask> timerTasks;
 
+	private FileWatcher fileWatcher;
+
 	static {
 		if (OS.TYPE != OS.Type.WINDOWS) {
 			GrabbableViewport.setHandCursorIcon(Icons.getIcon("grabbing"));
@@ -157,6 +159,17 @@ public final class UserInterfaceImpl extends JFrame implements Constants, UserIn
 		new FileDrop(this, this);
 		timer = new Timer(true);
 		timerTasks = new IdentityHashMap<Runnable, TimerTask>();
+		fileWatcher = new FileWatcher();
+	}
+
+	/**
+	 * Returns the <tt>FileWatcher</tt> that notifies the tabs when their files
+	 * are changed by another program.
+	 * 
+	 * @return the <tt>FileWatcher</tt> of the user interface
+	 */
+	public FileWatcher getFileWatcher() {
+		return fileWatcher;
 	}
 
 	public void addTask(final Runnable task, int period) {
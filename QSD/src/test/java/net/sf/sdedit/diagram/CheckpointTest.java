@@ -0,0 +1,149 @@
+package net.sf.sdedit.diagram;
+
+import java.awt.image.BufferedImage;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+
+/**
+ * Edits the bundled examples after some of their lines, generating them with a store
+ * of {@linkplain Checkpoints} like an editor tab, and checks that the diagrams
+ * generated starting from a checkpoint have the same pixels as the diagrams
+ * generated from scratch. Then it appends each example line by line and checks
+ * the diagrams generated by taking over the checkpoint at the end of the
+ * previous text in the same way. Finally, it checks that a diagram is resumed
+ * when the unchanged lines end with an empty line, a comment or inside a note.
+ */
+public class CheckpointTest {
+
+	/*
+	 * The number of lines of an example after which it is edited, evenly
+	 * spread, so the large examples do not take too long
+	 */
+	private static final int EDITS = 40;
+
+	private static final TestReport report = new TestReport(
+			"diagrams compared");
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		int resumed = 0;
+		int takenOver = 0;
+		Configuration conf = null;
+		for (Example example : Example.all()) {
+			String text = example.getText();
+			conf = example.getConfiguration();
+			BufferedImage expected = draw(generate(text, conf, null));
+			int lines = text.split("\n").length;
+			int step = Math.max(1, lines / EDITS);
+			int line = 0;
+			for (int end = text.indexOf('\n'); end >= 0
+					&& end < text.length() - 1; end = text.indexOf('\n',
+					end + 1)) {
+				line++;
+				if (line % step != 0) {
+					continue;
+				}
+				int next = text.indexOf('\n', end + 1);
+				String prefix = text.substring(0, end + 1);
+				String changed = prefix
+						+ text.substring(end + 1, next < 0 ? text.length()
+								: next) + "x"
+						+ (next < 0 ? "" : text.substring(next));
+				// the user removes everything after the line and types it
+				// again, or the user changes the next line and undoes it
+				for (String edited : new String[] { prefix, changed }) {
+					Checkpoints checkpoints = new Checkpoints();
+					checkpoints.update(text);
+					generate(edited, conf, checkpoints);
+					SDPaintDevice paintDevice = generate(text, conf,
+							checkpoints);
+					if (paintDevice.getDiagram().isResumed()) {
+						resumed++;
+					}
+					report.compare(example.getName() + " (edited after line "
+							+ line + ")", expected, draw(paintDevice));
+					report.count();
+				}
+			}
+			// lines are received and appended in batches, as by a Receiver
+			Checkpoints checkpoints = new Checkpoints();
+			line = 0;
+			for (int end = text.indexOf('\n'); end >= 0; end = text.indexOf(
+					'\n', end + 1)) {
+				line++;
+				if (line % step != 0) {
+					continue;
+				}
+				String prefix = text.substring(0, end + 1);
+				SDPaintDevice paintDevice = generate(prefix, conf, checkpoints);
+				SDPaintDevice rebuilt = generate(prefix, conf, null);
+				if (rebuilt.isEmpty()) {
+					// no lifeline has been received yet
+					continue;
+				}
+				if (paintDevice.getDiagram().getTakeOverLine() >= 0) {
+					takenOver++;
+				}
+				report.compare(example.getName() + " (appended up to line "
+						+ line + ")", draw(rebuilt), draw(paintDevice));
+				report.count();
+			}
+		}
+		// the unchanged lines end with an empty line, a comment or inside a
+		// note, so the checkpoint must be taken at a message boundary before
+		String text = "a:A\nb:B\n\na:b.m1()\na:b.m2()\n\n#comment\na:b.m3()\n"
+				+ "*1 b\nfoo\nbar\n*1\na:b.m4()\n";
+		checkResumed("edited after an empty line", text,
+				"a:A\nb:B\n\na:b.m1()\na:b.m2()\n\na:b.x()\n", conf);
+		checkResumed("edited after a comment", text,
+				"a:A\nb:B\n\na:b.m1()\na:b.m2()\n\n#comment\na:b.x()\n", conf);
+		checkResumed("edited inside a note", text,
+				"a:A\nb:B\n\na:b.m1()\na:b.m2()\n\n#comment\na:b.m3()\n"
+						+ "*1 b\nfoo\nbaz\n*1\na:b.m4()\n", conf);
+		if (resumed == 0 || takenOver == 0) {
+			report.fail("examples", "no diagram has been resumed");
+		}
+		report.finish(" (" + resumed + " resumed from a checkpoint, "
+				+ takenOver + " appended to a checkpoint)");
+	}
+
+	private static void checkResumed(String name, String text, String edited,
+			Configuration conf) {
+		Checkpoints checkpoints = new Checkpoints();
+		checkpoints.update(text);
+		generate(edited, conf, checkpoints);
+		SDPaintDevice paintDevice = generate(text, conf, checkpoints);
+		if (!paintDevice.getDiagram().isResumed()) {
+			report.fail(name, "not resumed");
+		}
+		report.compare(name, draw(generate(text, conf, null)),
+				draw(paintDevice));
+		report.count();
+	}
+
+	private static SDPaintDevice generate(String text, Configuration conf,
+			Checkpoints checkpoints) {
+		SDPaintDevice paintDevice = new SDPaintDevice(
+				new ImageGraphicsDevice());
+		SequenceDiagramFactory factory = new SequenceDiagramFactory(text,
+				paintDevice);
+		factory.setCheckpoints(checkpoints);
+		try {
+			factory.generateDiagram(conf);
+		} catch (DiagramError ignored) {
+			// an edited text may be erroneous
+		}
+		return paintDevice;
+	}
+
+	private static BufferedImage draw(SDPaintDevice paintDevice) {
+		ImageGraphicsDevice graphicDevice = (ImageGraphicsDevice) paintDevice
+				.getGraphicDevice();
+		graphicDevice.drawAll();
+		return (BufferedImage) graphicDevice.getImage();
+	}
+}
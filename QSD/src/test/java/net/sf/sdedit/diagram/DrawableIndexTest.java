@@ -0,0 +1,61 @@
+package net.sf.sdedit.diagram;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.sdedit.drawable.Drawable;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+
+/**
+ * Generates the bundled examples and checks for random areas and points that
+ * a {@linkplain DrawableIndex} finds the same drawables, in the same order,
+ * as testing all drawables of the diagram.
+ */
+public class DrawableIndexTest {
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Random random = new Random(42);
+		TestReport report = new TestReport("queries compared");
+		for (Example example : Example.all()) {
+			SDPaintDevice paintDevice = new SDPaintDevice(
+					new ImageGraphicsDevice());
+			new SequenceDiagramFactory(example.getText(), paintDevice)
+					.generateDiagram(example.getConfiguration());
+			DrawableIndex index = paintDevice.getDrawableIndex();
+			int w = paintDevice.getWidth();
+			int h = paintDevice.getHeight();
+			for (int i = 0; i < 1000; i++) {
+				Rectangle area = new Rectangle(random.nextInt(w + 100) - 50,
+						random.nextInt(h + 100) - 50, random.nextInt(w / 2 + 1),
+						random.nextInt(h / 2 + 1));
+				List<Drawable> expected = new ArrayList<Drawable>();
+				for (Drawable drawable : paintDevice) {
+					if (drawable.intersects(area)) {
+						expected.add(drawable);
+					}
+				}
+				report.check(example.getName() + " " + area, expected,
+						index.getDrawables(area));
+				report.count();
+				Point point = new Point(random.nextInt(w + 20) - 10,
+						random.nextInt(h + 20) - 10);
+				expected.clear();
+				for (Drawable drawable : paintDevice) {
+					if (drawable.contains(point)) {
+						expected.add(drawable);
+					}
+				}
+				report.check(example.getName() + " " + point, expected,
+						index.getDrawables(point));
+				report.count();
+			}
+		}
+		report.finish("");
+	}
+}
@@ -0,0 +1,81 @@
+package net.sf.sdedit.diagram;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.config.SequenceConfiguration;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+import net.sf.sdedit.text.TextHandler;
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+
+/**
+ * Generates each of the bundled examples as a
+ * {@linkplain SequenceDiagramFactory} does, in a single pass unless objects
+ * are destroyed automatically, and in two passes, making the reverse id map
+ * on a {@linkplain NullPaintDevice} first, as all diagrams used to be
+ * generated, and checks that both diagrams have the same pixels.
+ */
+public class SinglePassTest {
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		TestReport report = new TestReport("diagrams compared");
+		int singlePass = 0;
+		for (Example example : Example.all()) {
+			String text = example.getText();
+			Configuration conf = example.getConfiguration();
+			SDPaintDevice paintDevice = generate(text, conf);
+			if (paintDevice.getDiagram().getReverseIdMap() == null) {
+				singlePass++;
+			}
+			report.compare(example.getName(), draw(generateTwice(text, conf)),
+					draw(paintDevice));
+			report.count();
+		}
+		if (singlePass == 0) {
+			report.fail("examples",
+					"no diagram has been generated in a single pass");
+		}
+		report.finish(" (" + singlePass + " generated in a single pass)");
+	}
+
+	private static SDPaintDevice generate(String text, Configuration conf)
+			throws DiagramError {
+		SDPaintDevice paintDevice = new SDPaintDevice(
+				new ImageGraphicsDevice());
+		new SequenceDiagramFactory(text, paintDevice).generateDiagram(conf);
+		return paintDevice;
+	}
+
+	private static SDPaintDevice generateTwice(String text, Configuration conf)
+			throws DiagramError {
+		SequenceConfiguration configuration = conf
+				.cast(SequenceConfiguration.class);
+		SequenceDiagram pre = new SequenceDiagram(configuration,
+				new TextHandler(text), new NullPaintDevice());
+		try {
+			pre.generate(false);
+		} catch (DiagramError ignored) {
+			// the second pass reports it
+		}
+		Map<Integer, List<String>> map = pre.makeReverseIdMap();
+		SDPaintDevice paintDevice = new SDPaintDevice(
+				new ImageGraphicsDevice());
+		SequenceDiagram diagram = new SequenceDiagram(configuration,
+				new TextHandler(text), paintDevice);
+		diagram.setReverseIdMap(map);
+		diagram.generate();
+		return paintDevice;
+	}
+
+	private static BufferedImage draw(SDPaintDevice paintDevice) {
+		ImageGraphicsDevice graphicDevice = (ImageGraphicsDevice) paintDevice
+				.getGraphicDevice();
+		graphicDevice.drawAll();
+		return (BufferedImage) graphicDevice.getImage();
+	}
+}
@@ -0,0 +1,162 @@
+package net.sf.sdedit.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Starts {@linkplain DiagramServer}s on the loopback interface and checks
+ * the responses to some requests.
+ */
+public class DiagramServerTest {
+
+	private static final String DIAGRAM = "a:A\nb:B\n\na:b.hello()\n";
+
+	private static int failures;
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		DiagramServer server = start(2, 4, 30000);
+		try {
+			check("png", 200, post(server, "/render", DIAGRAM));
+			check("svg", 200, post(server, "/render?type=svg", DIAGRAM));
+			check("pdf", 200, post(server, "/render?type=pdf&format=a5",
+					DIAGRAM));
+			check("preference", 200, post(server,
+					"/render?threadNumbersVisible=true", DIAGRAM));
+			check("syntax error", 400, post(server, "/render", "a:A\n\na:b.c\n"));
+			check("unknown type", 400, post(server, "/render?type=doc",
+					DIAGRAM));
+			check("unknown preference", 400, post(server, "/render?foo=1",
+					DIAGRAM));
+			check("unsupported charset", 400, post(server, "/render",
+					DIAGRAM, "text/plain; charset=x-unknown"));
+			check("illegal charset", 400, post(server, "/render", DIAGRAM,
+					"text/plain; charset=\"?\""));
+			check("malformed query", 400, post(server, "/render?type=%zz",
+					DIAGRAM));
+			check("metrics", 200, get(server, "/metrics"));
+			System.out.println(server.getMetrics());
+		} finally {
+			server.stop();
+		}
+		server = start(1, 1, 30000);
+		try {
+			int rejected = 0;
+			for (int status : concurrently(server, 8)) {
+				if (status == 503) {
+					rejected++;
+				}
+			}
+			check("overload", 503, rejected > 0 ? 503 : 200);
+		} finally {
+			server.stop();
+		}
+		server = start(1, 1, 1);
+		try {
+			check("timeout", 504, post(server, "/render", DIAGRAM));
+		} finally {
+			server.stop();
+		}
+		if (failures > 0) {
+			throw new IllegalStateException(failures + " failures");
+		}
+	}
+
+	private static DiagramServer start(int threads, int queueCapacity,
+			long timeout) throws IOException {
+		DiagramServer server = new DiagramServer(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), 0), threads, queueCapacity,
+				timeout, new RenderCache(0, null));
+		server.start();
+		return server;
+	}
+
+	private static List<Integer> concurrently(final DiagramServer server,
+			int requests) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(requests);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < requests; i++) {
+			// all diagrams differ, so none of them is taken from a cache
+			final String text = DIAGRAM + "a:b.m" + i + "()\n";
+			futures.add(executor.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					return post(server, "/render", text);
+				}
+			}));
+		}
+		List<Integer> statuses = new ArrayList<Integer>();
+		for (Future<Integer> future : futures) {
+			statuses.add(future.get());
+		}
+		executor.shutdown();
+		return statuses;
+	}
+
+	private static void check(String name, int expected, int actual) {
+		if (expected == actual) {
+			System.out.println(name + ": ok");
+		} else {
+			System.out.println(name + ": expected " + expected + ", got "
+					+ actual);
+			failures++;
+		}
+	}
+
+	private static int get(DiagramServer server, String path)
+			throws IOException {
+		return request(server, path, null, null);
+	}
+
+	private static int post(DiagramServer server, String path, String body)
+			throws IOException {
+		return request(server, path, body, null);
+	}
+
+	private static int post(DiagramServer server, String path, String body,
+			String contentType) throws IOException {
+		return request(server, path, body, contentType);
+	}
+
+	private static int request(DiagramServer server, String path,
+			String body, String contentType) throws IOException {
+		URL url = new URL("http://127.0.0.1:" + server.getPort() + path);
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestMethod("POST");
+			if (contentType != null) {
+				connection.setRequestProperty("Content-Type", contentType);
+			}
+			OutputStream out = connection.getOutputStream();
+			out.write(body.getBytes("utf-8"));
+			out.close();
+		}
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream()
+				: connection.getErrorStream();
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		if (in != null) {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				data.write(buffer, 0, n);
+			}
+			in.close();
+		}
+		connection.disconnect();
+		return status;
+	}
+}
@@ -0,0 +1,134 @@
+package net.sf.sdedit.server;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.font.TextAttribute;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.text.AttributedString;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Exports the bundled examples, and a diagram with characters that must be
+ * escaped, as SVG and checks that the output is a well-formed SVG document
+ * of the size of the diagram that contains the texts of the diagram, painted
+ * with a fill. Also checks that the attributes of attributed strings are
+ * written.
+ */
+public class SVGExporterTest {
+
+	private static final TestReport report = new TestReport(
+			"diagrams exported");
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		Configuration conf = null;
+		for (Example example : Example.all()) {
+			conf = example.getConfiguration();
+			check(example.getName(), example.getText(), conf, null);
+		}
+		// labels are HTML, so entities are decoded and spaces are non-breaking
+		check("escaping", "a:A \"<&>\"\nb:B\n\na:b.m&lt;T&gt;(x & 'y')\n", conf,
+				"m<T>(x\u00a0&\u00a0'y')");
+		checkAttributedString();
+		report.finish("");
+	}
+
+	private static void check(String name, String text, Configuration conf,
+			String expectedText) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		Exporter exporter = Exporter.getExporter("svg", "Landscape", "A4",
+				stream);
+		SDPaintDevice paintDevice = new SDPaintDevice(exporter);
+		new SequenceDiagramFactory(text, paintDevice).generateDiagram(conf);
+		exporter.export();
+		Document document;
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory
+					.newInstance();
+			factory.setNamespaceAware(true);
+			document = factory.newDocumentBuilder().parse(
+					new ByteArrayInputStream(stream.toByteArray()));
+		} catch (Exception e) {
+			report.fail(name, "not well-formed: " + e.getMessage());
+			return;
+		}
+		Element svg = document.getDocumentElement();
+		if (!"svg".equals(svg.getLocalName())) {
+			report.fail(name, "root is " + svg.getLocalName());
+		}
+		if (!String.valueOf(paintDevice.getWidth()).equals(
+				svg.getAttribute("width"))
+				|| !String.valueOf(paintDevice.getHeight()).equals(
+						svg.getAttribute("height"))) {
+			report.fail(name, "size is " + svg.getAttribute("width") + "x"
+					+ svg.getAttribute("height"));
+		}
+		NodeList texts = document.getElementsByTagName("text");
+		if (texts.getLength() == 0) {
+			report.fail(name, "no text");
+		}
+		for (int i = 0; i < texts.getLength(); i++) {
+			String fill = fill((Element) texts.item(i));
+			if (fill == null || fill.equals("none")) {
+				report.fail(name, "text " + texts.item(i).getTextContent()
+						+ " is not painted, fill is " + fill);
+				break;
+			}
+		}
+		if (expectedText != null
+				&& !svg.getTextContent().contains(expectedText)) {
+			report.fail(name, "text " + expectedText + " missing");
+		}
+		System.out.println(name + ": " + stream.size() + " bytes");
+		report.count();
+	}
+
+	/*
+	 * The font and color attributes of an attributed string must not be
+	 * dropped.
+	 */
+	private static void checkAttributedString() throws Exception {
+		StringWriter writer = new StringWriter();
+		Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+		SVGGraphics graphics = new SVGGraphics(writer, font);
+		AttributedString string = new AttributedString("plain bold");
+		string.addAttribute(TextAttribute.WEIGHT, TextAttribute.WEIGHT_BOLD,
+				6, 10);
+		string.addAttribute(TextAttribute.FOREGROUND, Color.RED, 6, 10);
+		graphics.drawString(string.getIterator(), 0, 10);
+		graphics.checkError();
+		String svg = writer.toString();
+		if (!svg.contains(">plain </text>")
+				|| !svg.contains("font-weight=\"bold\" fill=\"#f00\">bold</text>")) {
+			report.fail("attributed string", svg);
+		}
+	}
+
+	/*
+	 * Returns the fill of an element, which may be inherited from an
+	 * enclosing element.
+	 */
+	private static String fill(Element element) {
+		for (Node node = element; node instanceof Element; node = node
+				.getParentNode()) {
+			if (((Element) node).hasAttribute("fill")) {
+				return ((Element) node).getAttribute("fill");
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,101 @@
+package net.sf.sdedit.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.editor.DiagramFileHandler;
+import net.sf.sdedit.ui.components.configuration.Bean;
+import net.sf.sdedit.util.Pair;
+
+/**
+ * An <tt>Example</tt> is one of the diagrams bundled with sdedit, loaded for
+ * a test.
+ */
+public final class Example {
+
+	private final String name;
+
+	private final String text;
+
+	private final Configuration configuration;
+
+	private Example(File file) throws Exception {
+		InputStream stream = new FileInputStream(file);
+		Pair<String, Bean<? extends Configuration>> pair;
+		try {
+			pair = new DiagramFileHandler().load(stream, "utf-8");
+		} finally {
+			stream.close();
+		}
+		name = file.getName();
+		text = pair.getFirst();
+		configuration = pair.getSecond().getDataObject();
+	}
+
+	/**
+	 * Loads all bundled examples, ordered by their names.
+	 *
+	 * @return all bundled examples
+	 */
+	public static List<Example> all() throws Exception {
+		List<Example> examples = new ArrayList<Example>();
+		for (File file : files()) {
+			examples.add(new Example(file));
+		}
+		return examples;
+	}
+
+	/**
+	 * Loads the bundled example with the largest file.
+	 *
+	 * @return the largest bundled example
+	 */
+	public static Example largest() throws Exception {
+		File largest = null;
+		for (File file : files()) {
+			if (largest == null || file.length() > largest.length()) {
+				largest = file;
+			}
+		}
+		return new Example(largest);
+	}
+
+	private static File[] files() throws Exception {
+		File[] files = new File(Example.class.getResource(
+				"/net/sf/sdedit/examples").toURI()).listFiles();
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * Returns the name of the file of the example.
+	 *
+	 * @return the name of the file of the example
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the diagram specification.
+	 *
+	 * @return the diagram specification
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Returns the configuration stored with the example.
+	 *
+	 * @return the configuration stored with the example
+	 */
+	public Configuration getConfiguration() {
+		return configuration;
+	}
+}
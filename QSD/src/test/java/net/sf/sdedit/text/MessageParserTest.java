@@ -0,0 +1,103 @@
+package net.sf.sdedit.text;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import net.sf.sdedit.diagram.MessageData;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+import net.sf.sdedit.util.Grep;
+import net.sf.sdedit.util.Grep.Region;
+
+/**
+ * Parses the message lines of the bundled examples, and variants of them with
+ * separators and other special characters inserted or removed, by a
+ * {@linkplain MessageParser} and by matching the patterns of the
+ * {@linkplain MessageType}s, and checks that the results are the same.
+ */
+public class MessageParserTest {
+
+	private static final String SPECIAL = ":.=>\\[](),0 &{}";
+
+	private static final Grep grep = new Grep(Grep.DEFAULT_UNESCAPE);
+
+	private static final TestReport report = new TestReport("lines compared");
+
+	private static int valid;
+
+	public static void main(String[] argv) throws Exception {
+		TreeSet<String> lines = new TreeSet<String>();
+		for (Example example : Example.all()) {
+			for (String line : example.getText().split("\n")) {
+				if (line.indexOf(':') >= 0) {
+					lines.add(line.trim());
+				}
+			}
+		}
+		lines.addAll(Arrays.asList("(1)a:b.c", "(1,2)a:b.c", "(,2)a:b.c",
+				"(1,)a:b.c", "  :b.c", "a[1]:b.c", "a[1,2]:r=b.c",
+				"a[,2]:b.c", "a[]:b.c", "a:>b.c", "a[2]:>b.c", "a:>.c",
+				"a\\:b:c.d", "a:b\\.c.d", "a:x=y=b.c", "a:x=.b.c",
+				"a:{b,c}.m&", "a:b.m\\&", "(99999999999)a:b.c",
+				"a[99999999999]:b.c", "a:b.c d", "a\\\\:b.c", ":", "a:",
+				"a:b", "a:b.", "a:.b", "\t a:b.c", "(1) a:b.c"));
+		for (String line : lines) {
+			compare(line);
+			for (int i = 0; i <= line.length(); i++) {
+				for (char c : SPECIAL.toCharArray()) {
+					compare(line.substring(0, i) + c + line.substring(i));
+				}
+				if (i < line.length()) {
+					compare(line.substring(0, i) + line.substring(i + 1));
+				}
+			}
+		}
+		report.finish(" (" + valid + " valid messages)");
+	}
+
+	private static void compare(String line) {
+		report.check(line, parse(line, true), parse(line, false));
+		report.count();
+	}
+
+	private static String parse(String line, boolean matchPatterns) {
+		TextBasedMessageData data;
+		try {
+			data = new TextBasedMessageData(line, grep, matchPatterns);
+		} catch (Exception e) {
+			return e.getClass().getName() + ": " + e.getMessage();
+		}
+		if (matchPatterns) {
+			valid++;
+		}
+		List<String> values = new ArrayList<String>();
+		for (Field field : MessageData.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				field.setAccessible(true);
+				try {
+					Object value = field.get(data);
+					values.add(field.getName()
+							+ "="
+							+ (value instanceof Object[] ? Arrays
+									.toString((Object[]) value) : value));
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		for (String property : new TreeSet<String>(Arrays.asList("noteId",
+				"dummy", "caller", "spawner", "levelString", "threadString",
+				"answer", "callee", "message"))) {
+			Region region = data.getRegion(property);
+			if (region != null) {
+				values.add(property + "@" + region.getStart() + "-"
+						+ region.getEnd() + ":" + region.getText());
+			}
+		}
+		return values.toString();
+	}
+}
@@ -0,0 +1,77 @@
+package net.sf.sdedit.text;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.diagram.DiagramDataProvider;
+import net.sf.sdedit.diagram.DiagramDataProviderFactory;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.error.DiagramError;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+import net.sf.sdedit.ui.ImageGraphicsDevice;
+
+/**
+ * Generates the bundled examples, and variants of them with a malformed
+ * object declaration or message, from a plain {@linkplain TextHandler} and
+ * twice from the same {@linkplain ParsedDiagram}, the second time reusing
+ * the parsed lines, and checks that the images and errors are the same.
+ */
+public class ParsedDiagramTest {
+
+	private static final TestReport report = new TestReport(
+			"diagrams compared");
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		for (Example example : Example.all()) {
+			String text = example.getText();
+			Configuration conf = example.getConfiguration();
+			compare(example.getName(), text, conf);
+			compare(example.getName() + " (bad object)", "nocolon\n" + text,
+					conf);
+			compare(example.getName() + " (bad message)", text.trim()
+					+ "\nnodot:\n", conf);
+		}
+		report.finish("");
+	}
+
+	private static void compare(String name, final String text,
+			Configuration conf) throws Exception {
+		final ParsedDiagram parsed = new ParsedDiagram(text);
+		String expected = generate(new DiagramDataProviderFactory() {
+			public DiagramDataProvider createProvider() {
+				return new TextHandler(text);
+			}
+		}, conf);
+		DiagramDataProviderFactory providerFactory = new DiagramDataProviderFactory() {
+			public DiagramDataProvider createProvider() {
+				return new TextHandler(parsed);
+			}
+		};
+		for (int i = 0; i < 2; i++) {
+			report.check(name + " (" + (i + 1) + ")", expected, generate(
+					providerFactory, conf));
+		}
+		report.count();
+	}
+
+	private static String generate(DiagramDataProviderFactory providerFactory,
+			Configuration conf) throws Exception {
+		ImageGraphicsDevice graphicDevice = new ImageGraphicsDevice();
+		SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
+		try {
+			new SequenceDiagramFactory(providerFactory, paintDevice)
+					.generateDiagram(conf);
+		} catch (DiagramError e) {
+			TextHandler handler = (TextHandler) e.getProvider();
+			return e.getMessage() + "@" + handler.getLineBegin() + "-"
+					+ handler.getLineEnd();
+		}
+		ByteArrayOutputStream image = new ByteArrayOutputStream();
+		graphicDevice.writeToStream("png", image);
+		return Integer.toString(Arrays.hashCode(image.toByteArray()));
+	}
+}
@@ -0,0 +1,52 @@
+package net.sf.sdedit.ui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.imageio.ImageIO;
+
+import net.sf.sdedit.config.Configuration;
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+
+/**
+ * Generates the bundled examples and writes them as PNG files, drawn as a
+ * whole and drawn in bands of various heights, and checks that the images
+ * have the same pixels.
+ */
+public class BandedImageTest {
+
+	private static final int[] BAND_HEIGHTS = { 1, 37, 256,
+			ImageGraphicsDevice.DEFAULT_BAND_HEIGHT };
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		TestReport report = new TestReport("images compared");
+		for (Example example : Example.all()) {
+			String text = example.getText();
+			Configuration conf = example.getConfiguration();
+			BufferedImage expected = write(text, conf, 0);
+			for (int bandHeight : BAND_HEIGHTS) {
+				report.compare(example.getName() + " (bands of "
+						+ bandHeight + ")", expected, write(text, conf,
+						bandHeight));
+				report.count();
+			}
+		}
+		report.finish("");
+	}
+
+	private static BufferedImage write(String text, Configuration conf,
+			int bandHeight) throws Exception {
+		ImageGraphicsDevice graphicDevice = new ImageGraphicsDevice(true,
+				bandHeight);
+		SDPaintDevice paintDevice = new SDPaintDevice(graphicDevice);
+		new SequenceDiagramFactory(text, paintDevice).generateDiagram(conf);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		graphicDevice.writeToStream("png", stream);
+		return ImageIO.read(new ByteArrayInputStream(stream.toByteArray()));
+	}
+}
@@ -0,0 +1,118 @@
+package net.sf.sdedit.ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.SwingUtilities;
+
+import net.sf.sdedit.diagram.SDPaintDevice;
+import net.sf.sdedit.diagram.SequenceDiagramFactory;
+import net.sf.sdedit.test.Example;
+import net.sf.sdedit.test.TestReport;
+
+/**
+ * Paints the largest bundled example by means of {@linkplain DiagramTiles}
+ * and checks that the tiles look like the drawables drawn directly, that the
+ * tiles around the visible ones are rendered while the event dispatch thread
+ * is busy, that invalidating an area discards exactly the tiles covering it
+ * and that disposing the tiles discards all of them.
+ */
+public class DiagramTilesTest {
+
+	private static final int SIZE = 2 * DiagramTiles.TILE_SIZE;
+
+	private static final TestReport report = new TestReport("checks");
+
+	public static void main(String[] argv) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		PanelGraphicDevice device = generate(Example.largest());
+		int columns = Math.min(3, (int) Math.ceil(device.getWidth()
+				/ (double) DiagramTiles.TILE_SIZE));
+		int rows = Math.min(3, (int) Math.ceil(device.getHeight()
+				/ (double) DiagramTiles.TILE_SIZE));
+		DiagramTiles tiles = new DiagramTiles(device);
+
+		final CountDownLatch busy = new CountDownLatch(1);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				try {
+					busy.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		BufferedImage tiled = new BufferedImage(SIZE, SIZE,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = tiled.createGraphics();
+		g.clipRect(0, 0, SIZE, SIZE);
+		check("painted by tiles", true, tiles.paintTiles(g,
+				g.getDeviceConfiguration()));
+		g.dispose();
+		// the visible tiles and the ones to the right and below them
+		int expected = columns * rows;
+		for (int i = 0; i < 100 && tiles.getTileCount() < expected; i++) {
+			Thread.sleep(20);
+		}
+		check("tiles rendered while the event dispatch thread is busy",
+				expected, tiles.getTileCount());
+		busy.countDown();
+
+		BufferedImage direct = new BufferedImage(SIZE, SIZE,
+				BufferedImage.TYPE_INT_RGB);
+		g = direct.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, SIZE, SIZE);
+		g.clipRect(0, 0, SIZE, SIZE);
+		device.paintDrawables(g, new Rectangle(0, 0, SIZE, SIZE));
+		g.dispose();
+		check("pixels differing from the drawables drawn directly", 0,
+				differingPixels(tiled, direct));
+
+		tiles.invalidate(new Rectangle(10, 10, 5, 5));
+		check("tiles after invalidating an area of a single tile",
+				expected - 1, tiles.getTileCount());
+
+		tiles.dispose();
+		check("tiles after disposing", 0, tiles.getTileCount());
+		g = tiled.createGraphics();
+		check("painted by tiles after disposing", false, tiles.paintTiles(
+				g, g.getDeviceConfiguration()));
+		g.dispose();
+		Thread.sleep(100);
+		check("tiles rendered after disposing", 0, tiles.getTileCount());
+
+		report.finish("");
+	}
+
+	private static PanelGraphicDevice generate(Example example)
+			throws Exception {
+		PanelGraphicDevice device = new PanelGraphicDevice(false);
+		new SequenceDiagramFactory(example.getText(), new SDPaintDevice(
+				device)).generateDiagram(example.getConfiguration());
+		return device;
+	}
+
+	private static int differingPixels(BufferedImage image1,
+			BufferedImage image2) {
+		int[] pixels1 = image1.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int[] pixels2 = image2.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+		int count = 0;
+		for (int i = 0; i < pixels1.length; i++) {
+			if (pixels1[i] != pixels2[i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void check(String name, Object expected, Object actual) {
+		if (report.check(name, expected, actual)) {
+			System.out.println(name + ": ok");
+		}
+		report.count();
+	}
+}
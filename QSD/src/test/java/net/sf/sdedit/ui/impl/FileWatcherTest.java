@@ -0,0 +1,119 @@
+package net.sf.sdedit.ui.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a {@linkplain FileWatcher} notifies its listeners exactly once
+ * for each burst of real changes, and not at all for changes that leave the
+ * contents as they are.
+ */
+public class FileWatcherTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final long QUIET_PERIOD = 100;
+
+	/*
+	 * How long we wait for a notification to arrive, or to make sure that none
+	 * arrives
+	 */
+	private static final long WAIT = 1500;
+
+	private static int failures;
+
+	private static class Recorder implements FileWatcher.Listener {
+
+		private final BlockingQueue<String> contents = new LinkedBlockingQueue<String>();
+
+		public void fileModified(File file, byte[] bytes) {
+			contents.add(new String(bytes, UTF8));
+		}
+
+		String next() throws InterruptedException {
+			return contents.poll(WAIT, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public static void main(String[] argv) throws Exception {
+		File dir = File.createTempFile("sdedit", "watch");
+		dir.delete();
+		dir.mkdir();
+		File a = new File(dir, "a.sd");
+		File b = new File(dir, "b.sd");
+		write(a, "a0");
+		write(b, "b0");
+		FileWatcher watcher = new FileWatcher(QUIET_PERIOD);
+		Recorder ra = new Recorder();
+		Recorder rb = new Recorder();
+		try {
+			watcher.watch(a, ra);
+			watcher.watch(b, rb);
+			// give the watcher time to take the initial contents
+			Thread.sleep(QUIET_PERIOD);
+
+			write(a, "a1");
+			write(a, "a2");
+			write(a, "a3");
+			check("burst of changes", "a3", ra.next());
+			check("no further notification after burst", null, ra.next());
+			check("other file in the same directory", null, rb.next());
+
+			write(b, "b0");
+			b.setLastModified(System.currentTimeMillis() + 5000);
+			check("unchanged contents", null, rb.next());
+
+			write(b, "b1");
+			check("change of second file", "b1", rb.next());
+
+			// as when the listener saves the file itself
+			write(a, "a4");
+			watcher.watch(a, ra);
+			check("own change", null, ra.next());
+
+			watcher.unwatch(rb);
+			write(b, "b2");
+			check("unwatched file", null, rb.next());
+
+			watcher.watch(b, rb);
+			Thread.sleep(QUIET_PERIOD);
+			write(b, "b3");
+			check("file watched again", "b3", rb.next());
+		} finally {
+			watcher.close();
+			a.delete();
+			b.delete();
+			dir.delete();
+		}
+		System.out.println("file watcher checked, " + failures + " failures");
+		if (failures > 0) {
+			throw new IllegalStateException(failures + " failures");
+		}
+	}
+
+	private static void write(File file, String contents) throws IOException {
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			stream.write(contents.getBytes(UTF8));
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void check(String name, String expected, String actual) {
+		boolean ok = expected == null ? actual == null : expected
+				.equals(actual);
+		if (!ok) {
+			failures++;
+			System.out.println(name + ": expected " + expected + ", got "
+					+ actual);
+		} else {
+			System.out.println(name + ": ok");
+		}
+	}
+}